@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.benchmark;
+
+import net.sourceforge.pebble.domain.Blog;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+/**
+ * A synthetic blog shared by the benchmarks in a trial. The shape can be
+ * changed from the command line, e.g. -p entries=5000 -p comments=20.
+ */
+@State(Scope.Benchmark)
+public class BlogState {
+
+  @Param("200")
+  public int entries;
+
+  @Param("5")
+  public int comments;
+
+  @Param("50")
+  public int tags;
+
+  public SyntheticBlog syntheticBlog;
+  public Blog blog;
+  public List<String> blogEntryIds;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    syntheticBlog = SyntheticBlog.create(entries, comments, tags);
+    blog = syntheticBlog.getBlog();
+    blogEntryIds = syntheticBlog.getBlogEntryIds();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    syntheticBlog.destroy();
+  }
+
+  /**
+   * Gets the next blog entry ID, cycling through all of them.
+   */
+  public String nextBlogEntryId() {
+    next = (next + 1) % blogEntryIds.size();
+    return blogEntryIds.get(next);
+  }
+
+}
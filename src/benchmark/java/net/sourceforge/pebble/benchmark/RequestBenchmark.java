@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.benchmark;
+
+import net.sourceforge.pebble.api.decorator.ContentDecoratorContext;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.logging.CombinedFormatLogEntryFormat;
+import net.sourceforge.pebble.logging.LogEntry;
+import net.sourceforge.pebble.search.SearchResults;
+import net.sourceforge.pebble.web.filter.UriTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request work in front of the JSPs: routing the external URI,
+ * decorating an entry for display and running a search, along with parsing
+ * the access log line each request leaves behind (as the log summaries do).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBenchmark {
+
+  @State(Scope.Thread)
+  public static class RequestState {
+
+    List<String> uris;
+    int nextUri;
+    BlogEntry blogEntry;
+    ContentDecoratorContext context;
+    UriTransformer uriTransformer = new UriTransformer();
+    CombinedFormatLogEntryFormat logFormat;
+    String logLine;
+
+    @Setup
+    public void setUp(BlogState blogState) throws Exception {
+      uris = blogState.syntheticBlog.getUris();
+      blogEntry = new BlogService().getBlogEntry(blogState.blog, blogState.blogEntryIds.get(0));
+      context = new ContentDecoratorContext();
+      context.setView(ContentDecoratorContext.DETAIL_VIEW);
+      context.setMedia(ContentDecoratorContext.HTML_PAGE);
+
+      logFormat = new CombinedFormatLogEntryFormat(blogState.blog);
+      LogEntry logEntry = new LogEntry();
+      logEntry.setHost("192.168.0.1");
+      logEntry.setDate(new Date());
+      logEntry.setRequest("GET /blog/2011/12/31/1325289600000.html HTTP/1.1");
+      logEntry.setStatusCode(200);
+      logEntry.setBytes(12345);
+      logEntry.setReferer("http://www.google.com/search?q=pebble");
+      logEntry.setAgent("Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36");
+      logLine = logFormat.format(logEntry);
+    }
+
+    String nextUri() {
+      nextUri = (nextUri + 1) % uris.size();
+      return uris.get(nextUri);
+    }
+  }
+
+  @Benchmark
+  public String transformUri(BlogState blogState, RequestState state) {
+    return state.uriTransformer.getUri(state.nextUri(), blogState.blog);
+  }
+
+  /**
+   * Decorators modify the entry, so each invocation decorates a fresh clone;
+   * the cost of cloning alone is covered by PersistenceBenchmark.getBlogEntry.
+   */
+  @Benchmark
+  public BlogEntry decorateBlogEntry(BlogState blogState, RequestState state) {
+    BlogEntry blogEntry = (BlogEntry)state.blogEntry.clone();
+    blogState.blog.getContentDecoratorChain().decorate(state.context, blogEntry);
+    return blogEntry;
+  }
+
+  @Benchmark
+  public SearchResults search(BlogState blogState) throws Exception {
+    return blogState.blog.getSearchIndex().search("java AND search");
+  }
+
+  @Benchmark
+  public LogEntry parseLogEntry(RequestState state) {
+    return state.logFormat.parse(state.logLine);
+  }
+
+}
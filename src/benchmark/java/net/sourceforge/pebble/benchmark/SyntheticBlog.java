@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.benchmark;
+
+import net.sourceforge.pebble.Configuration;
+import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.dao.DAOFactory;
+import net.sourceforge.pebble.dao.file.FileDAOFactory;
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogManager;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.Comment;
+import net.sourceforge.pebble.domain.State;
+import net.sourceforge.pebble.util.FileUtils;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a blog with a known shape (entries, comments per entry and
+ * distinct tags) in a temporary directory, writing it through the same
+ * service and DAO that the web application uses so that the indexes are
+ * built as they would be in production.
+ */
+public class SyntheticBlog {
+
+  private static final String[] WORDS = {
+    "pebble", "blog", "java", "entry", "comment", "lightweight", "open", "source",
+    "server", "index", "search", "category", "theme", "feed", "response", "archive"
+  };
+
+  private final File directory;
+  private final Blog blog;
+  private final List<String> blogEntryIds;
+
+  private SyntheticBlog(File directory, Blog blog, List<String> blogEntryIds) {
+    this.directory = directory;
+    this.blog = blog;
+    this.blogEntryIds = blogEntryIds;
+  }
+
+  /**
+   * Creates and starts a new synthetic blog.
+   *
+   * @param entries             the number of blog entries
+   * @param commentsPerEntry    the number of comments on each entry
+   * @param tags                the number of distinct tags
+   * @return  a SyntheticBlog
+   */
+  public static SyntheticBlog create(int entries, int commentsPerEntry, int tags) throws Exception {
+    File directory = File.createTempFile("pebble-benchmark", "");
+    directory.delete();
+    File blogDirectory = new File(directory, "blogs/default");
+    blogDirectory.mkdirs();
+
+    Configuration config = new Configuration();
+    config.setUrl("http://www.yourdomain.com/blog/");
+    config.setDataDirectory(directory.getAbsolutePath());
+    PebbleContext.getInstance().setConfiguration(config);
+    PebbleContext.getInstance().setApplicationContext(new StaticApplicationContext());
+    DAOFactory.setConfiguredFactory(new FileDAOFactory());
+    BlogManager.getInstance().setMultiBlog(false);
+
+    BlogManager.getInstance().startBlogs();
+    Blog blog = BlogManager.getInstance().getBlog("default");
+    blog.setProperty(Blog.LANGUAGE_KEY, "en");
+
+    // a fixed seed keeps runs comparable
+    Random random = new Random(42);
+    BlogService service = new BlogService();
+    Calendar cal = blog.getCalendar();
+    cal.add(Calendar.DAY_OF_YEAR, -entries);
+    List<String> ids = new ArrayList<String>();
+    for (int i = 0; i < entries; i++) {
+      cal.add(Calendar.DAY_OF_YEAR, 1);
+      Date date = cal.getTime();
+
+      BlogEntry blogEntry = new BlogEntry(blog);
+      blogEntry.setTitle("Entry " + i + " about " + words(random, 3));
+      blogEntry.setBody(paragraphs(random, 4));
+      blogEntry.setExcerpt(paragraphs(random, 1));
+      blogEntry.setDate(date);
+      blogEntry.setAuthor("benchmark");
+      blogEntry.setTags(tags(random, tags));
+      blogEntry.setPublished(true);
+
+      for (int j = 0; j < commentsPerEntry; j++) {
+        Comment comment = blogEntry.createComment("Re: Entry " + i, paragraphs(random, 1), "Reader " + j,
+            "reader" + j + "@example.com", "http://www.example.com/" + j, null, "127.0.0.1",
+            new Date(date.getTime() + (j + 1) * 60000L), State.APPROVED);
+        blogEntry.addComment(comment);
+      }
+
+      service.putBlogEntry(blogEntry);
+      ids.add(blogEntry.getId());
+    }
+
+    return new SyntheticBlog(directory, blog, Collections.unmodifiableList(ids));
+  }
+
+  private static String words(Random random, int count) {
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        buf.append(' ');
+      }
+      buf.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return buf.toString();
+  }
+
+  private static String paragraphs(Random random, int count) {
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      buf.append("<p>").append(words(random, 60)).append(" <a href=\"http://www.example.com/\">link</a>.</p>\n");
+    }
+    return buf.toString();
+  }
+
+  private static String tags(Random random, int tags) {
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < Math.min(3, tags); i++) {
+      if (i > 0) {
+        buf.append(' ');
+      }
+      buf.append("tag").append(random.nextInt(tags));
+    }
+    return buf.toString();
+  }
+
+  public Blog getBlog() {
+    return blog;
+  }
+
+  /**
+   * Gets the IDs of the generated entries, oldest first.
+   */
+  public List<String> getBlogEntryIds() {
+    return blogEntryIds;
+  }
+
+  /**
+   * Gets a corpus of external URIs, in roughly the mix that a blog sees.
+   */
+  public List<String> getUris() {
+    List<String> uris = new ArrayList<String>();
+    for (String id : blogEntryIds.subList(Math.max(0, blogEntryIds.size() - 20), blogEntryIds.size())) {
+      String permalink = getPermalink(id);
+      if (permalink != null) {
+        uris.add(permalink);
+      }
+    }
+    uris.add("/");
+    uris.add("/index.html");
+    uris.add("/rss.xml");
+    uris.add("/atom.xml");
+    uris.add("/categories/");
+    uris.add("/tags/tag1/");
+    uris.add("/tags/tag2/rss.xml");
+    uris.add("/authors/benchmark/");
+    uris.add("/pages/about.html");
+    uris.add("/images/logo.png");
+    uris.add("/files/document.pdf");
+    uris.add("/theme/handheld.css");
+    uris.add("/blogentries/2.html");
+    uris.add("/help/index.html");
+    uris.add("/viewBlogEntry.action?entry=" + blogEntryIds.get(0));
+    return uris;
+  }
+
+  private String getPermalink(String id) {
+    try {
+      BlogEntry blogEntry = new BlogService().getBlogEntry(blog, id);
+      return blogEntry.getLocalPermalink().substring(blog.getUrl().length() - 1);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Stops the blog and deletes its files.
+   */
+  public void destroy() {
+    BlogManager.getInstance().stopBlogs();
+    BlogManager.getInstance().removeAllBlogs();
+    FileUtils.deleteFile(directory);
+  }
+
+}
@@ -56,6 +56,11 @@ public class Configuration {
   private boolean virtualHostingEnabled = false;
   private boolean virtualHostingSubdomain = true;
   private boolean userThemesEnabled = true;
+  private int htmlMaxAge = 0;
+  private int htmlStaleWhileRevalidate = 60;
+  private boolean metricsEnabled = true;
+  private int apiAuthenticationCacheSeconds = 0;
+  private int recentBlogEntriesMaximum = 100;
   private String smtpHost = "java:comp/env/mail/Session";
   private String smtpPort = "25";
   private long fileUploadSize = 2048;
@@ -238,4 +243,89 @@ public class Configuration {
   public boolean isMultiBlogHttps() {
     return multiBlogHttps;
   }
+
+  /**
+   * Gets the number of seconds that anonymous HTML pages can be reused
+   * without being revalidated.
+   *
+   * @return    the max-age in seconds
+   */
+  public int getHtmlMaxAge() {
+    return htmlMaxAge;
+  }
+
+  public void setHtmlMaxAge(int htmlMaxAge) {
+    this.htmlMaxAge = htmlMaxAge;
+  }
+
+  /**
+   * Gets the number of seconds that a cache may serve a stale anonymous
+   * HTML page while it revalidates it in the background.
+   *
+   * @return    the stale-while-revalidate period in seconds
+   */
+  public int getHtmlStaleWhileRevalidate() {
+    return htmlStaleWhileRevalidate;
+  }
+
+  public void setHtmlStaleWhileRevalidate(int htmlStaleWhileRevalidate) {
+    this.htmlStaleWhileRevalidate = htmlStaleWhileRevalidate;
+  }
+
+  /**
+   * Determines whether request and subsystem metrics are recorded.
+   *
+   * @return    true if metrics are enabled, false otherwise
+   */
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  public void setMetricsEnabled(boolean metricsEnabled) {
+    this.metricsEnabled = metricsEnabled;
+  }
+
+  /**
+   * Gets the number of seconds that a successful XML-RPC login is remembered
+   * for, so that repeated calls skip the password hash.
+   *
+   * @return    a number of seconds, 0 if API logins aren't cached
+   */
+  public int getApiAuthenticationCacheSeconds() {
+    return apiAuthenticationCacheSeconds;
+  }
+
+  public void setApiAuthenticationCacheSeconds(int apiAuthenticationCacheSeconds) {
+    this.apiAuthenticationCacheSeconds = apiAuthenticationCacheSeconds;
+  }
+
+  /**
+   * Gets the maximum number of recent blog entries kept across all blogs,
+   * and so the most that the multi-blog home page and feeds can show.
+   *
+   * @return    a number of blog entries
+   */
+  public int getRecentBlogEntriesMaximum() {
+    return recentBlogEntriesMaximum;
+  }
+
+  public void setRecentBlogEntriesMaximum(int recentBlogEntriesMaximum) {
+    this.recentBlogEntriesMaximum = recentBlogEntriesMaximum;
+  }
+
+  /**
+   * Gets the Cache-Control header used for anonymous HTML pages.
+   *
+   * @param shared  true if the page can be stored by shared caches, false if
+   *                only by the browser (e.g. the request carried cookies)
+   * @return    a Cache-Control header value
+   */
+  public String getHtmlCacheControl(boolean shared) {
+    String cacheControl = (shared ? "public" : "private") + ", max-age=" + htmlMaxAge;
+    if (htmlStaleWhileRevalidate > 0) {
+      cacheControl += ", stale-while-revalidate=" + htmlStaleWhileRevalidate;
+    }
+
+    return cacheControl;
+  }
 }
\ No newline at end of file
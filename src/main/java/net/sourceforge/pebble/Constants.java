@@ -74,6 +74,7 @@ public class Constants {
   public static String AUTHENTICATED_USER = "authenticatedUser";
 
   public static String THEME = "theme";
+  public static final String ETAG = "etag";
 
   public static String BLOG_ADMIN_ROLE = "ROLE_BLOG_ADMIN";
   public static String BLOG_OWNER_ROLE = "ROLE_BLOG_OWNER";
@@ -32,6 +32,8 @@
 package net.sourceforge.pebble;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.ehcache.Cache;
 import org.ehcache.CacheManager;
@@ -93,6 +95,10 @@ public class ContentCache {
 		Object element = cacheBlogEntries.get(getCompositeKeyForBlogEntry(blog, blogEntryId));
 		if (element != null) {
 			blogEntry = (BlogEntry) element;
+			if (blogEntry.getBlog() == null) {
+				// copied out of the off-heap store, without the blog
+				blogEntry.reattach(blog);
+			}
 		}
 
 		return blogEntry;
@@ -102,6 +108,24 @@ public class ContentCache {
 		cacheBlogEntries.remove(getCompositeKeyForBlogEntry(blogEntry));
 	}
 
+	/**
+	 * Gets the IDs of the blog entries currently cached for a blog.
+	 *
+	 * @param blog a Blog instance
+	 * @return a List of blog entry IDs
+	 */
+	public synchronized List<String> getBlogEntryIds(Blog blog) {
+		String prefix = getCompositeKeyForBlogEntry(blog, "");
+		List<String> blogEntryIds = new ArrayList<String>();
+		for (Cache.Entry<String, BlogEntry> entry : cacheBlogEntries) {
+			if (entry.getKey().startsWith(prefix)) {
+				blogEntryIds.add(entry.getKey().substring(prefix.length()));
+			}
+		}
+
+		return blogEntryIds;
+	}
+
 	private String getCompositeKeyForBlogEntry(BlogEntry blogEntry) {
 		return getCompositeKeyForBlogEntry(blogEntry.getBlog(), blogEntry.getId());
 	}
@@ -119,6 +143,9 @@ public class ContentCache {
 		Object element = cacheStaticPages.get(getCompositeKeyForStaticPage(blog, staticPageId));
 		if (element != null) {
 			staticPage = (StaticPage) element;
+			if (staticPage.getBlog() == null) {
+				staticPage.reattach(blog);
+			}
 		}
 
 		return staticPage;
@@ -42,6 +42,7 @@ import com.rometools.rome.io.FeedException;
 import com.rometools.rome.io.WireFeedInput;
 import com.rometools.rome.io.XmlReader;
 import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.metrics.Metrics;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -93,6 +94,7 @@ public class NewsFeedCache {
   }
 
   public void refreshFeeds() {
+    long start = Metrics.getGlobal().start();
     for (String url : feeds.keySet()) {
       try {
         NewsFeed updatedFeed = updateFeed(url);
@@ -118,6 +120,7 @@ public class NewsFeedCache {
 
       entries.put(blogId, entriesForBlog);
     }
+    Metrics.getGlobal().stop("feeds.refresh", start);
   }
 
   private NewsFeed updateFeed(String url) {
@@ -84,6 +84,17 @@ public interface PermalinkProvider extends Serializable {
    */
   public BlogEntry getBlogEntry(String uri);
 
+  /**
+   * Gets the ID of the blog entry referred to by the specified URI, where
+   * the ID can be worked out from the URI alone.
+   *
+   * @param uri   a relative URI
+   * @return  a blog entry ID, or null if it isn't part of the URI
+   */
+  public default String getBlogEntryId(String uri) {
+    return null;
+  }
+
   /**
    * Gets the permalink for a monthly blog.
    *
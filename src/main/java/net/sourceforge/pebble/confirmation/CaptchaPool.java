@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.confirmation;
+
+import com.octo.captcha.engine.image.ImageCaptchaEngine;
+import com.octo.captcha.engine.image.gimpy.DefaultGimpyEngine;
+import com.octo.captcha.image.ImageCaptcha;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.imageio.ImageIO;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of pre-rendered image captchas. A background thread keeps
+ * the pool topped up at a fixed rate, so that serving a captcha is just a
+ * matter of binding its answer to the session and writing out bytes that
+ * have already been JPEG encoded. Captchas are never rendered on request
+ * threads, and the number issued to each IP address can optionally be
+ * limited, so that bots can't drain the pool or tie up the server.
+ */
+public class CaptchaPool {
+
+  /** the log used by this class */
+  private static final Log log = LogFactory.getLog(CaptchaPool.class);
+
+  /** the session attribute that holds the captcha awaiting an answer */
+  static final String SESSION_KEY = CaptchaPool.class.getName();
+
+  private static final String JPG_FORMAT = "JPG";
+
+  /** the length of the window over which issues per IP address are counted */
+  private static final long ISSUE_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+  private final ImageCaptchaEngine engine = new DefaultGimpyEngine();
+  private final BlockingQueue<Challenge> challenges;
+  private final int issuesPerMinute;
+  private final Map<String, IssueWindow> issues = new ConcurrentHashMap<String, IssueWindow>();
+  private ScheduledExecutorService producer;
+
+  /**
+   * Creates a new pool.
+   *
+   * @param size              the maximum number of pre-rendered captchas
+   * @param issuesPerMinute   the number of captchas a single IP address may
+   *                          be issued each minute, or 0 for no limit
+   */
+  public CaptchaPool(int size, int issuesPerMinute) {
+    this.challenges = new ArrayBlockingQueue<Challenge>(Math.max(size, 1));
+    this.issuesPerMinute = issuesPerMinute;
+  }
+
+  /**
+   * Starts refilling the pool in the background.
+   *
+   * @param refillsPerSecond    the number of captchas rendered each second
+   *                            while the pool isn't full
+   */
+  public synchronized void start(int refillsPerSecond) {
+    if (producer != null) {
+      return;
+    }
+
+    producer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "pebble-captcha-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+    long interval = TimeUnit.SECONDS.toMicros(1) / Math.max(refillsPerSecond, 1);
+    producer.scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        try {
+          refill(1);
+        } catch (Throwable t) {
+          log.warn("Could not render captcha", t);
+        }
+      }
+    }, 0, interval, TimeUnit.MICROSECONDS);
+    producer.scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        evictExpiredWindows(System.currentTimeMillis());
+      }
+    }, ISSUE_WINDOW, ISSUE_WINDOW, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops refilling the pool.
+   */
+  public synchronized void stop() {
+    if (producer != null) {
+      producer.shutdownNow();
+      producer = null;
+    }
+  }
+
+  /**
+   * Renders up to the given number of captchas into the pool, stopping early
+   * if the pool fills up.
+   *
+   * @param count   the maximum number of captchas to render
+   * @throws IOException  if a captcha can't be encoded
+   */
+  void refill(int count) throws IOException {
+    for (int i = 0; i < count && challenges.remainingCapacity() > 0; i++) {
+      challenges.offer(render());
+    }
+  }
+
+  /**
+   * Gets the number of pre-rendered captchas waiting to be issued.
+   *
+   * @return  the size of the pool
+   */
+  public int size() {
+    return challenges.size();
+  }
+
+  /**
+   * Determines whether another captcha may be issued to the given address,
+   * counting this request towards its limit.
+   *
+   * @param address   the IP address of the client
+   * @return  true if a captcha may be issued, false otherwise
+   */
+  public boolean isIssueAllowed(String address) {
+    if (issuesPerMinute <= 0 || address == null) {
+      return true;
+    }
+
+    final long now = System.currentTimeMillis();
+    IssueWindow window = issues.compute(address, (key, current) ->
+        (current == null || current.isExpired(now)) ? new IssueWindow(now) : current);
+    return window.count.incrementAndGet() <= issuesPerMinute;
+  }
+
+  /**
+   * Discards the issue windows that have expired, so that the addresses
+   * being tracked don't build up. This runs in the background once a window.
+   *
+   * @param now   the current time, in milliseconds
+   */
+  void evictExpiredWindows(long now) {
+    Iterator<IssueWindow> it = issues.values().iterator();
+    while (it.hasNext()) {
+      if (it.next().isExpired(now)) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of IP addresses currently being tracked.
+   *
+   * @return  the number of addresses
+   */
+  int getTrackedAddresses() {
+    return issues.size();
+  }
+
+  /**
+   * Gets the address of the client making a request. Behind a reverse proxy
+   * every request comes from the proxy, so the address can instead be taken
+   * from a header that the proxy sets. Only the last address in the header is
+   * used, as that's the one added by the proxy itself; anything before it
+   * was supplied by the client and can't be trusted.
+   *
+   * @param request         the HttpServletRequest being served
+   * @param trustedHeader   the name of the header set by a trusted proxy
+   *                        (e.g. X-Forwarded-For), or null to use the
+   *                        address of the connection
+   * @return  the client's IP address
+   */
+  public static String getClientAddress(HttpServletRequest request, String trustedHeader) {
+    if (trustedHeader != null && trustedHeader.trim().length() > 0) {
+      String value = request.getHeader(trustedHeader.trim());
+      if (value != null) {
+        String address = value.substring(value.lastIndexOf(',') + 1).trim();
+        if (address.length() > 0) {
+          return address;
+        }
+      }
+    }
+
+    return request.getRemoteAddr();
+  }
+
+  /**
+   * Issues a captcha from the pool, binding its answer to the given session.
+   *
+   * @param session   the HttpSession to bind the answer to
+   * @return  the captcha image encoded as a JPEG, or null if the pool is
+   *          empty and the client should try again shortly
+   */
+  public byte[] issue(HttpSession session) {
+    Challenge challenge = challenges.poll();
+    if (challenge == null) {
+      return null;
+    }
+    session.setAttribute(SESSION_KEY, challenge.captcha);
+
+    return challenge.jpeg;
+  }
+
+  /**
+   * Checks an answer against the captcha bound to the given session. Each
+   * captcha can only be answered once.
+   *
+   * @param session   the HttpSession the captcha was issued to
+   * @param response  the answer given by the user
+   * @return  true if the answer is correct, false otherwise
+   */
+  public static boolean validate(HttpSession session, String response) {
+    if (session == null || response == null) {
+      return false;
+    }
+
+    ImageCaptcha captcha = (ImageCaptcha)session.getAttribute(SESSION_KEY);
+    session.removeAttribute(SESSION_KEY);
+
+    return captcha != null && Boolean.TRUE.equals(captcha.validateResponse(response));
+  }
+
+  private Challenge render() throws IOException {
+    ImageCaptcha captcha;
+    synchronized (engine) {
+      captcha = engine.getNextImageCaptcha();
+    }
+
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    ImageIO.write(captcha.getImageChallenge(), JPG_FORMAT, jpeg);
+    // only the answer is needed from now on, and it's kept in the session
+    captcha.disposeChallenge();
+
+    return new Challenge(captcha, jpeg.toByteArray());
+  }
+
+  private static final class Challenge {
+
+    private final ImageCaptcha captcha;
+    private final byte[] jpeg;
+
+    Challenge(ImageCaptcha captcha, byte[] jpeg) {
+      this.captcha = captcha;
+      this.jpeg = jpeg;
+    }
+
+  }
+
+  private static final class IssueWindow {
+
+    private final long start;
+    private final AtomicInteger count = new AtomicInteger();
+
+    IssueWindow(long start) {
+      this.start = start;
+    }
+
+    boolean isExpired(long now) {
+      return now - start >= ISSUE_WINDOW;
+    }
+
+  }
+
+}
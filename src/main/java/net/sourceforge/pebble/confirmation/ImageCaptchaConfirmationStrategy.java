@@ -31,10 +31,6 @@
  */
 package net.sourceforge.pebble.confirmation;
 
-import com.octo.captcha.service.CaptchaServiceException;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-
 import javax.servlet.http.HttpServletRequest;
 
 /**
@@ -49,8 +45,6 @@ public class ImageCaptchaConfirmationStrategy extends AbstractConfirmationStrate
 	 */
 	private static final long serialVersionUID = -283520646024483160L;
 	
-/** the log used by this class */
-  private static final Log log = LogFactory.getLog(ImageCaptchaConfirmationStrategy.class);
 
   /**
    * Called before showing the confirmation page.
@@ -76,15 +70,7 @@ public class ImageCaptchaConfirmationStrategy extends AbstractConfirmationStrate
    * @return  true if the confirmation was successful, false otherwise
    */
   public boolean isConfirmed(HttpServletRequest request) {
-    String captchaId = request.getSession().getId();
-    String response = request.getParameter("j_captcha_response");
-    try {
-      return CaptchaService.getInstance().validateResponseForID(captchaId, response);
-    } catch (CaptchaServiceException e) {
-      ImageCaptchaConfirmationStrategy.log.error("Exception encountered", e);
-    }
-
-    return false;
+    return CaptchaPool.validate(request.getSession(false), request.getParameter("j_captcha_response"));
   }
 
 }
@@ -32,20 +32,24 @@
 
 package net.sourceforge.pebble.confirmation;
 
-import com.octo.captcha.service.CaptchaServiceException;
-
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
- * Servlet that serves up the JCaptcha image captcha.
+ * Servlet that serves up the JCaptcha image captcha. Images are taken from a
+ * pool of pre-rendered captchas (see {@link CaptchaPool}), which is sized and
+ * refilled according to the poolSize and refillsPerSecond init parameters.
+ * <p>
+ * Limiting the number of captchas issued to each client is opt-in, via the
+ * issuesPerMinute init parameter. When Pebble sits behind a reverse proxy,
+ * the clientAddressHeader init parameter should also name the header the
+ * proxy puts the client's address in (e.g. X-Forwarded-For); otherwise every
+ * visitor appears to come from the proxy and shares the same limit.
  *
  * @author Simon Brown
  */
@@ -53,8 +57,16 @@ public class ImageCaptchaServlet extends HttpServlet {
 
   private static final long serialVersionUID = -6227490839816434342L;
 
-  private static final String JPG_FORMAT = "JPG";
-  
+  /** the HTTP status code returned when a client asks for too many captchas */
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+
+  private static final int DEFAULT_POOL_SIZE = 50;
+  private static final int DEFAULT_REFILLS_PER_SECOND = 5;
+  private static final int DEFAULT_ISSUES_PER_MINUTE = 0;
+
+  private transient CaptchaPool pool;
+  private String clientAddressHeader;
+
   /**
    * Called to initialise the servlet.
    *
@@ -63,6 +75,22 @@ public class ImageCaptchaServlet extends HttpServlet {
    */
   public void init(ServletConfig servletConfig) throws ServletException {
     super.init(servletConfig);
+
+    pool = new CaptchaPool(
+        getIntParameter(servletConfig, "poolSize", DEFAULT_POOL_SIZE),
+        getIntParameter(servletConfig, "issuesPerMinute", DEFAULT_ISSUES_PER_MINUTE));
+    pool.start(getIntParameter(servletConfig, "refillsPerSecond", DEFAULT_REFILLS_PER_SECOND));
+    clientAddressHeader = servletConfig.getInitParameter("clientAddressHeader");
+  }
+
+  /**
+   * Called when the servlet is taken out of service.
+   */
+  public void destroy() {
+    if (pool != null) {
+      pool.stop();
+    }
+    super.destroy();
   }
 
   /**
@@ -74,35 +102,26 @@ public class ImageCaptchaServlet extends HttpServlet {
    * @throws IOException
    */
   protected void doGet(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) throws ServletException, IOException {
-    byte[] captchaChallengeAsJpeg;
-    // the output stream to render the captcha image as jpeg into
-    ByteArrayOutputStream jpegOutputStream = new ByteArrayOutputStream();
-    try {
-      // get the session id that will identify the generated captcha.
-      // the same id must be used to validate the response, the session id is a good candidate!
-      String captchaId = httpServletRequest.getSession().getId();
-      // call the CaptchaService getChallenge method
-      BufferedImage challenge =
-          CaptchaService.getInstance().getImageChallengeForID(captchaId,
-              httpServletRequest.getLocale());
-
-      javax.imageio.ImageIO.write(challenge, JPG_FORMAT, jpegOutputStream);
-      
-    } catch (IllegalArgumentException e) {
-      httpServletResponse.sendError(HttpServletResponse.SC_NOT_FOUND);
-      return;
-    } catch (CaptchaServiceException e) {
-      httpServletResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    if (!pool.isIssueAllowed(CaptchaPool.getClientAddress(httpServletRequest, clientAddressHeader))) {
+      httpServletResponse.setHeader("Retry-After", "60");
+      httpServletResponse.sendError(SC_TOO_MANY_REQUESTS);
       return;
     }
 
-    captchaChallengeAsJpeg = jpegOutputStream.toByteArray();
+    byte[] captchaChallengeAsJpeg = pool.issue(httpServletRequest.getSession());
+    if (captchaChallengeAsJpeg == null) {
+      // the pool is being refilled in the background, so it won't be empty for long
+      httpServletResponse.setHeader("Retry-After", "1");
+      httpServletResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
 
     // flush it in the response
     httpServletResponse.setHeader("Cache-Control", "no-store");
     httpServletResponse.setHeader("Pragma", "no-cache");
     httpServletResponse.setDateHeader("Expires", 0);
     httpServletResponse.setContentType("image/jpeg");
+    httpServletResponse.setContentLength(captchaChallengeAsJpeg.length);
     ServletOutputStream responseOutputStream =
         httpServletResponse.getOutputStream();
     responseOutputStream.write(captchaChallengeAsJpeg);
@@ -110,4 +129,16 @@ public class ImageCaptchaServlet extends HttpServlet {
     responseOutputStream.close();
   }
 
+  private static int getIntParameter(ServletConfig servletConfig, String name, int defaultValue) {
+    String value = servletConfig.getInitParameter(name);
+    if (value == null || value.trim().length() == 0) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+    }
+  }
+
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ package net.sourceforge.pebble.decorator;
 import net.sourceforge.pebble.domain.*;
 import net.sourceforge.pebble.api.decorator.ContentDecorator;
 import net.sourceforge.pebble.api.decorator.ContentDecoratorContext;
+import net.sourceforge.pebble.metrics.Metrics;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -90,8 +91,11 @@ public class ContentDecoratorChain implements ContentDecorator {
    * @param blogEntry the blog entry to be decorated
    */
   public void decorate(ContentDecoratorContext context, BlogEntry blogEntry) {
+    Metrics metrics = blog.getMetrics();
     for (ContentDecorator decorator : decorators) {
+      long start = metrics.start();
       decorator.decorate(context, blogEntry);
+      metrics.stop("decorator.", decorator.getClass(), start);
     }
 
     // if the view is detail, decorate the comments and TrackBacks too
@@ -113,8 +117,11 @@ public class ContentDecoratorChain implements ContentDecorator {
    * @param comment the comment to be decorated
    */
   public void decorate(ContentDecoratorContext context, Comment comment) {
+    Metrics metrics = blog.getMetrics();
     for (ContentDecorator decorator : decorators) {
+      long start = metrics.start();
       decorator.decorate(context, comment);
+      metrics.stop("decorator.", decorator.getClass(), start);
     }
   }
 
@@ -125,8 +132,11 @@ public class ContentDecoratorChain implements ContentDecorator {
    * @param trackBack the TrackBack to be decorated
    */
   public void decorate(ContentDecoratorContext context, TrackBack trackBack) {
+    Metrics metrics = blog.getMetrics();
     for (ContentDecorator decorator : decorators) {
+      long start = metrics.start();
       decorator.decorate(context, trackBack);
+      metrics.stop("decorator.", decorator.getClass(), start);
     }
   }
 
@@ -137,8 +147,11 @@ public class ContentDecoratorChain implements ContentDecorator {
    * @param staticPage the static page to be decorated
    */
   public void decorate(ContentDecoratorContext context, StaticPage staticPage) {
+    Metrics metrics = blog.getMetrics();
     for (ContentDecorator decorator : decorators) {
+      long start = metrics.start();
       decorator.decorate(context, staticPage);
+      metrics.stop("decorator.", decorator.getClass(), start);
     }
   }
 
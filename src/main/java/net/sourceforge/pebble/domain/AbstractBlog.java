@@ -41,6 +41,7 @@ import java.io.IOException;
 import java.util.*;
 
 import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.metrics.Metrics;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -82,6 +83,9 @@ public abstract class AbstractBlog extends TimePeriod {
   /** the properties for this blog */
   protected Properties properties;
 
+  /** timings and counts for this blog, created on first use */
+  private transient volatile Metrics metrics;
+
   /**
    * Creates a new Blog instance, based at the specified location.
    * Note: You must call init() before being able to use this object -
@@ -144,6 +148,25 @@ public abstract class AbstractBlog extends TimePeriod {
    */
   public abstract String getId();
 
+  /**
+   * Gets the metrics recorded for this blog.
+   *
+   * @return  a Metrics instance
+   */
+  public Metrics getMetrics() {
+    Metrics m = metrics;
+    if (m == null) {
+      synchronized (this) {
+        m = metrics;
+        if (m == null) {
+          m = new Metrics(getId());
+          metrics = m;
+        }
+      }
+    }
+    return m;
+  }
+
   /**
    * Gets the filesystem root for this blog.
    *
@@ -50,6 +50,7 @@ import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -88,18 +89,27 @@ import net.sourceforge.pebble.dao.PersistenceException;
 import net.sourceforge.pebble.decorator.ContentDecoratorChain;
 import net.sourceforge.pebble.decorator.HideUnapprovedResponsesDecorator;
 import net.sourceforge.pebble.event.AuditListener;
+import net.sourceforge.pebble.event.ContentVersionListener;
 import net.sourceforge.pebble.event.DefaultEventDispatcher;
 import net.sourceforge.pebble.event.EventListenerList;
+import net.sourceforge.pebble.event.blogentry.BlogEntryNeighbourListener;
 import net.sourceforge.pebble.event.blogentry.EmailSubscriptionListener;
+import net.sourceforge.pebble.event.blogentry.PdfCacheListener;
+import net.sourceforge.pebble.event.blogentry.RequestClassificationListener;
+import net.sourceforge.pebble.index.ArchiveSummary;
 import net.sourceforge.pebble.index.AuthorIndex;
 import net.sourceforge.pebble.index.AuthorIndexListener;
 import net.sourceforge.pebble.index.BlogEntryIndex;
 import net.sourceforge.pebble.index.BlogEntryIndexListener;
+import net.sourceforge.pebble.index.BlogEntryNeighbourCache;
 import net.sourceforge.pebble.index.CategoryIndex;
 import net.sourceforge.pebble.index.CategoryIndexListener;
 import net.sourceforge.pebble.index.EmailSubscriptionList;
+import net.sourceforge.pebble.index.IndexSnapshot;
 import net.sourceforge.pebble.index.ResponseIndex;
 import net.sourceforge.pebble.index.ResponseIndexListener;
+import net.sourceforge.pebble.index.ResponseSummary;
+import net.sourceforge.pebble.index.RecentBlogEntryIndexListener;
 import net.sourceforge.pebble.index.SearchIndex;
 import net.sourceforge.pebble.index.SearchIndexListener;
 import net.sourceforge.pebble.index.StaticPageIndex;
@@ -107,8 +117,12 @@ import net.sourceforge.pebble.index.TagIndex;
 import net.sourceforge.pebble.index.TagIndexListener;
 import net.sourceforge.pebble.logging.AbstractLogger;
 import net.sourceforge.pebble.logging.CombinedLogFormatLogger;
+import net.sourceforge.pebble.logging.RequestClassificationCache;
+import net.sourceforge.pebble.metrics.Metrics;
+import net.sourceforge.pebble.metrics.MetricsMBean;
 import net.sourceforge.pebble.permalink.DefaultPermalinkProvider;
 import net.sourceforge.pebble.util.StringUtils;
+import net.sourceforge.pebble.util.ZipExportJob;
 
 /**
  * Represents a blog.
@@ -197,6 +211,24 @@ public class Blog extends AbstractBlog implements Serializable {
   private AuthorIndex authorIndex;
   private StaticPageIndex staticPageIndex;
 
+  /** whether the indexes were read from the snapshot taken when this blog was last stopped */
+  private boolean warmStart;
+
+  /** the version of this blog's content, moved on whenever it changes */
+  private final AtomicLong contentVersion = new AtomicLong(System.currentTimeMillis());
+
+  /** incremented whenever the tags of any of this blog's categories (or their parents) change */
+  private final AtomicLong categoryTagsVersion = new AtomicLong();
+
+  /** the space used by this blog's images, files and theme */
+  private final FileUsage fileUsage = new FileUsage(this);
+
+  /** how the URLs in this blog's logs have been classified */
+  private final RequestClassificationCache requestClassificationCache = new RequestClassificationCache(this);
+
+  /** the previous and next blog entries of the blog entries that have been viewed */
+  private final BlogEntryNeighbourCache blogEntryNeighbourCache = new BlogEntryNeighbourCache(this);
+
   private final List<PageDecorator> pageDecorators = new CopyOnWriteArrayList<PageDecorator>();
   private final List<OpenIdCommentAuthorProvider> openIdCommentAuthorProviders = new CopyOnWriteArrayList<OpenIdCommentAuthorProvider>();
   private final List<FeedDecorator> feedDecorators = new CopyOnWriteArrayList<FeedDecorator>();
@@ -258,14 +290,29 @@ public class Blog extends AbstractBlog implements Serializable {
     blogCompanion = new BlogCompanion(this);
     years = new ArrayList<Year>();
 
-    // create the various indexes for this blog
+    // create the various indexes for this blog, from the snapshot taken when
+    // it was last stopped if that's still up to date
     searchIndex = new SearchIndex(this);
-    blogEntryIndex = new BlogEntryIndex(this);
-    responseIndex = new ResponseIndex(this);
-    tagIndex = new TagIndex(this);
-    categoryIndex = new CategoryIndex(this);
-    authorIndex = new AuthorIndex(this);
-    staticPageIndex = new StaticPageIndex(this);
+    IndexSnapshot snapshot = IndexSnapshot.read(this);
+    warmStart = (snapshot != null);
+    if (warmStart) {
+      years = snapshot.getYears();
+      blogEntryIndex = snapshot.getBlogEntryIndex();
+      responseIndex = snapshot.getResponseIndex();
+      tagIndex = snapshot.getTagIndex();
+      categoryIndex = snapshot.getCategoryIndex();
+      authorIndex = snapshot.getAuthorIndex();
+      staticPageIndex = snapshot.getStaticPageIndex();
+      emailSubscriptionList = snapshot.getEmailSubscriptionList();
+    } else {
+      blogEntryIndex = new BlogEntryIndex(this);
+      responseIndex = new ResponseIndex(this);
+      tagIndex = new TagIndex(this);
+      categoryIndex = new CategoryIndex(this);
+      authorIndex = new AuthorIndex(this);
+      staticPageIndex = new StaticPageIndex(this);
+      emailSubscriptionList = new EmailSubscriptionList(this);
+    }
 
     decoratorChain = new ContentDecoratorChain(this);
 
@@ -287,8 +334,6 @@ public class Blog extends AbstractBlog implements Serializable {
       trackBackConfirmationStrategy = new DefaultConfirmationStrategy();
     }
 
-    emailSubscriptionList = new EmailSubscriptionList(this);
-
     initLogger();
     initEventDispatcher();
     initBlogListeners();
@@ -374,11 +419,17 @@ public class Blog extends AbstractBlog implements Serializable {
 
     // these are required to keep the various indexes up to date
     eventListenerList.addBlogEntryListener(new BlogEntryIndexListener());
+    eventListenerList.addBlogEntryListener(new RecentBlogEntryIndexListener());
+    eventListenerList.addBlogEntryListener(new ResponseIndexListener());
     eventListenerList.addBlogEntryListener(new TagIndexListener());
     eventListenerList.addBlogEntryListener(new CategoryIndexListener());
     eventListenerList.addBlogEntryListener(new AuthorIndexListener());
     eventListenerList.addBlogEntryListener(new SearchIndexListener());
     eventListenerList.addBlogEntryListener(new AuditListener());
+    eventListenerList.addBlogEntryListener(new ContentVersionListener());
+    eventListenerList.addBlogEntryListener(new PdfCacheListener());
+    eventListenerList.addBlogEntryListener(new RequestClassificationListener());
+    eventListenerList.addBlogEntryListener(new BlogEntryNeighbourListener());
     try {
       eventListenerList.addBlogEntryListener(new EmailSubscriptionListener());
     } catch (Throwable t) {
@@ -413,6 +464,7 @@ public class Blog extends AbstractBlog implements Serializable {
 
     eventListenerList.addCommentListener(new ResponseIndexListener());
     eventListenerList.addCommentListener(new AuditListener());
+    eventListenerList.addCommentListener(new ContentVersionListener());
   }
 
   /**
@@ -434,6 +486,7 @@ public class Blog extends AbstractBlog implements Serializable {
 
     eventListenerList.addTrackBackListener(new ResponseIndexListener());
     eventListenerList.addTrackBackListener(new AuditListener());
+    eventListenerList.addTrackBackListener(new ContentVersionListener());
   }
 
   /**
@@ -916,19 +969,12 @@ public class Blog extends AbstractBlog implements Serializable {
       return getBlogForThisMonth();
     }
 
-    List<String> blogEntryIds = getBlogEntryIndex().getBlogEntries();
-    if (blogEntryIds == null || blogEntryIds.isEmpty()) {
+    ArchiveSummary archiveSummary = getBlogEntryIndex().getArchiveSummary();
+    if (archiveSummary.getFirstBlogEntry() == null) {
       return getBlogForThisMonth();
     }
 
-    String firstBlogEntryId = blogEntryIds.get(blogEntryIds.size()-1);
-    if (firstBlogEntryId == null) {
-      return getBlogForThisMonth();
-    }
-
-    long dateInMillis = Long.parseLong(firstBlogEntryId);
-    Date date = new Date(dateInMillis);
-    return getBlogForDay(date).getMonth();
+    return getBlogForMonth(archiveSummary.getFirstYear(), archiveSummary.getFirstMonth());
   }
 
   /**
@@ -1183,15 +1229,10 @@ public class Blog extends AbstractBlog implements Serializable {
   }
 
   /**
-   * Gets the most recent published blog entries for a given category, the
-   * number of which is taken from the recentBlogEntriesOnHomePage property.
-   *
-   * @param   category          a category
-   * @return  a List containing the most recent blog entries
+   * Loads the published blog entries with the given IDs, in the same order.
    */
-  public List<BlogEntry> getRecentPublishedBlogEntries(Category category) {
+  private List<BlogEntry> getPublishedBlogEntries(List<String> blogEntryIds) {
     BlogService service = new BlogService();
-    List<String> blogEntryIds = categoryIndex.getRecentBlogEntries(category);
     List<BlogEntry> blogEntries = new ArrayList<BlogEntry>();
     for (String blogEntryId : blogEntryIds) {
       try {
@@ -1202,15 +1243,35 @@ public class Blog extends AbstractBlog implements Serializable {
       } catch (BlogServiceException e) {
         log.error("Exception encountered", e);
       }
-
-      if (blogEntries.size() == getRecentBlogEntriesOnHomePage()) {
-        break;
-      }
     }
 
     return blogEntries;
   }
 
+  /**
+   * Gets the most recent published blog entries for a given category, the
+   * number of which is taken from the recentBlogEntriesOnHomePage property.
+   *
+   * @param   category          a category
+   * @return  a List containing the most recent blog entries
+   */
+  public List<BlogEntry> getRecentPublishedBlogEntries(Category category) {
+    return getPublishedBlogEntries(category, 0, getRecentBlogEntriesOnHomePage());
+  }
+
+  /**
+   * Gets a page of the published blog entries for a given category, most
+   * recent first. Only the blog entries on the requested page are loaded.
+   *
+   * @param   category  a category
+   * @param   offset    the position of the first blog entry to return
+   * @param   limit     the maximum number of blog entries to return
+   * @return  a List of BlogEntry instances
+   */
+  public List<BlogEntry> getPublishedBlogEntries(Category category, int offset, int limit) {
+    return getPublishedBlogEntries(categoryIndex.getRecentBlogEntries(category, offset, limit));
+  }
+
   /**
    * Gets the most recent published blog entries for a given category, the
    * number of which is taken from the recentBlogEntriesOnHomePage property.
@@ -1219,25 +1280,20 @@ public class Blog extends AbstractBlog implements Serializable {
    * @return  a List containing the most recent blog entries
    */
   public List<BlogEntry> getRecentPublishedBlogEntries(String author) {
-    BlogService service = new BlogService();
-    List<String> blogEntryIds = authorIndex.getRecentBlogEntries(author);
-    List<BlogEntry> blogEntries = new ArrayList<BlogEntry>();
-    for (String blogEntryId : blogEntryIds) {
-      try {
-        BlogEntry blogEntry = service.getBlogEntry(this, blogEntryId);
-        if (blogEntry != null && blogEntry.isPublished()) {
-          blogEntries.add(blogEntry);
-        }
-      } catch (BlogServiceException e) {
-        log.error("Exception encountered", e);
-      }
-
-      if (blogEntries.size() == getRecentBlogEntriesOnHomePage()) {
-        break;
-      }
-    }
+    return getPublishedBlogEntries(author, 0, getRecentBlogEntriesOnHomePage());
+  }
 
-    return blogEntries;
+  /**
+   * Gets a page of the published blog entries for a given author, most
+   * recent first. Only the blog entries on the requested page are loaded.
+   *
+   * @param   author    the author's username
+   * @param   offset    the position of the first blog entry to return
+   * @param   limit     the maximum number of blog entries to return
+   * @return  a List of BlogEntry instances
+   */
+  public List<BlogEntry> getPublishedBlogEntries(String author, int offset, int limit) {
+    return getPublishedBlogEntries(authorIndex.getRecentBlogEntries(author, offset, limit));
   }
 
   /**
@@ -1248,25 +1304,20 @@ public class Blog extends AbstractBlog implements Serializable {
    * @return a List containing the most recent blog entries
    */
   public List<BlogEntry> getRecentPublishedBlogEntries(Tag tag) {
-    BlogService service = new BlogService();
-    List<String> blogEntryIds = tagIndex.getRecentBlogEntries(tag);
-    List<BlogEntry> blogEntries = new ArrayList<BlogEntry>();
-    for (String blogEntryId : blogEntryIds) {
-      try {
-        BlogEntry blogEntry = service.getBlogEntry(this, blogEntryId);
-        if (blogEntry != null && blogEntry.isPublished()) {
-          blogEntries.add(blogEntry);
-        }
-      } catch (BlogServiceException e) {
-        log.error("Exception encountered", e);
-      }
-
-      if (blogEntries.size() == getRecentBlogEntriesOnHomePage()) {
-        break;
-      }
-    }
+    return getPublishedBlogEntries(tag, 0, getRecentBlogEntriesOnHomePage());
+  }
 
-    return blogEntries;
+  /**
+   * Gets a page of the published blog entries for a given tag, most
+   * recent first. Only the blog entries on the requested page are loaded.
+   *
+   * @param   tag       a tag
+   * @param   offset    the position of the first blog entry to return
+   * @param   limit     the maximum number of blog entries to return
+   * @return  a List of BlogEntry instances
+   */
+  public List<BlogEntry> getPublishedBlogEntries(Tag tag, int offset, int limit) {
+    return getPublishedBlogEntries(tagIndex.getRecentBlogEntries(tag, offset, limit));
   }
 
   /**
@@ -1276,26 +1327,31 @@ public class Blog extends AbstractBlog implements Serializable {
    */
   public List<Response> getRecentApprovedResponses() {
     BlogService service = new BlogService();
-    List<String> responseIds = responseIndex.getApprovedResponses();
     List<Response> responses = new ArrayList<Response>();
-    for (String responseId : responseIds) {
+    for (ResponseSummary summary : getRecentResponseSummaries()) {
       try {
-        Response response = service.getResponse(this, responseId);
+        Response response = service.getResponse(this, summary.getGuid());
         if (response != null && response.getBlogEntry().isPublished()) {
           responses.add(response);
         }
       } catch (BlogServiceException e) {
         log.error("Exception encountered", e);
       }
-
-      if (responses.size() == getRecentResponsesOnHomePage()) {
-        break;
-      }
     }
 
     return responses;
   }
 
+  /**
+   * Gets summaries of the most recent responses, which can be listed without
+   * loading the blog entries they belong to.
+   *
+   * @return a List of ResponseSummary instances, newest first
+   */
+  public List<ResponseSummary> getRecentResponseSummaries() {
+    return responseIndex.getRecentResponseSummaries(getRecentResponsesOnHomePage());
+  }
+
   /**
    * Gets the list of approved responses.
    *
@@ -1366,13 +1422,49 @@ public class Blog extends AbstractBlog implements Serializable {
    * @return  a Date instance representing the time of the most recent entry
    */
   public Date getLastModified() {
-    Date date = new Date(0);
-    List blogEntries = getRecentPublishedBlogEntries(1);
-    if (blogEntries.size() == 1) {
-      date = ((BlogEntry)blogEntries.get(0)).getDate();
+    // blog entry IDs are their dates, so there's no need to load the entry
+    List<String> blogEntryIds = blogEntryIndex.getRecentPublishedBlogEntries(1);
+    if (blogEntryIds.isEmpty()) {
+      return new Date(0);
+    } else {
+      return new Date(Long.parseLong(blogEntryIds.get(0)));
     }
+  }
 
-    return date;
+  /**
+   * Gets the version of this blog's content, which changes whenever blog
+   * entries, responses or the blog's configuration change. Versions are
+   * seeded from the time the blog was created so that they don't repeat
+   * across restarts.
+   *
+   * @return  the content version
+   */
+  public long getContentVersion() {
+    return contentVersion.get();
+  }
+
+  /**
+   * Called when the content of this blog has changed.
+   */
+  public void contentChanged() {
+    contentVersion.incrementAndGet();
+  }
+
+  /**
+   * Gets a number that changes whenever category tags change, so that
+   * anything derived from them can tell when it's out of date.
+   *
+   * @return the version as a long
+   */
+  long getCategoryTagsVersion() {
+    return categoryTagsVersion.get();
+  }
+
+  /**
+   * Called when the tags of one of this blog's categories have changed.
+   */
+  void categoryTagsChanged() {
+    categoryTagsVersion.incrementAndGet();
   }
 
   /**
@@ -1381,24 +1473,22 @@ public class Blog extends AbstractBlog implements Serializable {
    * @return  a Date instance representing the time of the most recent entry
    */
   public Date getDateOfLastResponse() {
-    List<Response> responses = this.getRecentApprovedResponses();
-    if (responses != null && responses.size() > 0) {
+    List<ResponseSummary> responses = responseIndex.getRecentResponseSummaries(1);
+    if (responses.size() > 0) {
       return responses.get(0).getDate();
     } else {
       return new Date(0);
     }
   }
 
+  /**
+   * Gets the published blog entry posted before the given one.
+   *
+   * @param blogEntry   a BlogEntry instance
+   * @return  a BlogEntry instance, or null if there isn't one
+   */
   public BlogEntry getPreviousBlogEntry(BlogEntry blogEntry) {
-    Day firstDay = getBlogForFirstMonth().getBlogForFirstDay();
-    Day day = getBlogForDay(blogEntry.getDate());
-
-    String blogEntryId = day.getPreviousBlogEntry(blogEntry.getId());
-    while (day != firstDay && blogEntryId == null) {
-      day = day.getPreviousDay();
-      blogEntryId = day.getLastBlogEntry();
-    }
-
+    String blogEntryId = getBlogEntryIndex().getPreviousPublishedBlogEntry(blogEntry.getId());
     if (blogEntryId != null) {
       BlogService service = new BlogService();
       try {
@@ -1411,16 +1501,14 @@ public class Blog extends AbstractBlog implements Serializable {
     return null;
   }
 
+  /**
+   * Gets the published blog entry posted after the given one.
+   *
+   * @param blogEntry   a BlogEntry instance
+   * @return  a BlogEntry instance, or null if there isn't one
+   */
   public BlogEntry getNextBlogEntry(BlogEntry blogEntry) {
-    Day lastDay = getBlogForToday();
-    Day day = getBlogForDay(blogEntry.getDate());
-
-    String blogEntryId = day.getNextBlogEntry(blogEntry.getId());
-    while (day != lastDay && blogEntryId == null) {
-      day = day.getNextDay();
-      blogEntryId = day.getFirstBlogEntry();
-    }
-
+    String blogEntryId = getBlogEntryIndex().getNextPublishedBlogEntry(blogEntry.getId());
     if (blogEntryId != null) {
       BlogService service = new BlogService();
       try {
@@ -1524,6 +1612,24 @@ public class Blog extends AbstractBlog implements Serializable {
     return this.refererFilterManager;
   }
 
+  /**
+   * Gets the cache of request classifications used by the log views.
+   *
+   * @return  a RequestClassificationCache instance
+   */
+  public RequestClassificationCache getRequestClassificationCache() {
+    return this.requestClassificationCache;
+  }
+
+  /**
+   * Gets the cache of previous and next blog entries used by permalink pages.
+   *
+   * @return  a BlogEntryNeighbourCache instance
+   */
+  public BlogEntryNeighbourCache getBlogEntryNeighbourCache() {
+    return this.blogEntryNeighbourCache;
+  }
+
   /**
    * Gets the search index.
    *
@@ -1551,6 +1657,15 @@ public class Blog extends AbstractBlog implements Serializable {
     return this.responseIndex;
   }
 
+  /**
+   * Gets the running total of the space used by this blog's files.
+   *
+   * @return  a FileUsage instance
+   */
+  FileUsage getFileUsage() {
+    return this.fileUsage;
+  }
+
   /**
    * Gets the tag index.
    *
@@ -1707,6 +1822,16 @@ public class Blog extends AbstractBlog implements Serializable {
     logger.start();
     editableTheme.restore();
 
+    if (warmStart) {
+      IndexSnapshot.prefetch(this);
+    }
+    ZipExportJob.deleteExpiredExports(this);
+    FileManager.deleteAbandonedTemporaryFiles(this);
+
+    if (Metrics.isEnabled()) {
+      MetricsMBean.register(getMetrics());
+    }
+
     // call blog listeners
     eventDispatcher.fireBlogEvent(new BlogEvent(this, BlogEvent.BLOG_STARTED));
     log.info("Started blog with ID " + getId());
@@ -1720,6 +1845,9 @@ public class Blog extends AbstractBlog implements Serializable {
 
     logger.stop();
     editableTheme.backup();
+    searchIndex.close();
+    IndexSnapshot.write(this);
+    MetricsMBean.unregister(getMetrics());
 
     // call blog listeners
     eventDispatcher.fireBlogEvent(new BlogEvent(this, BlogEvent.BLOG_STOPPED));
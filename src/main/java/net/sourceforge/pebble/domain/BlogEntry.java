@@ -104,6 +104,18 @@ public class BlogEntry extends PageBasedContent {
 	/** the timezone that this entry was posted in */
 	private String timeZoneId;
 
+	/** the flattened comment tree, built on demand */
+	private transient volatile List<Comment> allComments;
+
+	/** all comments and TrackBacks sorted by date, built on demand */
+	private transient volatile List<Response> allResponses;
+
+	/** the tags from categories and this entry, built on demand */
+	private transient volatile List<Tag> allTags;
+
+	/** the category tags version that allTags was built against */
+	private transient volatile long allTagsVersion;
+
 	/**
 	 * Creates a new blog entry.
 	 *
@@ -135,47 +147,60 @@ public class BlogEntry extends PageBasedContent {
 		return new HashSet<Category>(categories);
 	}
 
+	/**
+	 * Attaches a copy of this blog entry, as read back from the content
+	 * cache, to its blog, swapping the copied categories for the blog's own.
+	 *
+	 * @param blog the owning Blog instance
+	 */
+	@Override
+	public void reattach(Blog blog) {
+		super.reattach(blog);
+
+		Set copied = categories;
+		categories = new HashSet();
+		Iterator it = copied.iterator();
+		while (it.hasNext()) {
+			Category category = blog.getCategory(((Category) it.next()).getId());
+			if (category != null) {
+				categories.add(category);
+			}
+		}
+	}
+
 	/**
 	 * Gets a list of all tags.
 	 *
 	 * @return a List of tags
 	 */
 	public List<Tag> getAllTags() {
-		List<Tag> list = new ArrayList<Tag>();
+		List<Tag> tags = this.allTags;
+		long version = getBlog().getCategoryTagsVersion();
+		if (tags == null || allTagsVersion != version) {
+			tags = Collections.unmodifiableList(buildAllTags());
+			this.allTagsVersion = version;
+			this.allTags = tags;
+		}
+
+		return tags;
+	}
+
+	private List<Tag> buildAllTags() {
+		Set<Tag> set = new LinkedHashSet<Tag>();
 
 		if (getCategories().size() > 0) {
 			Iterator it = getCategories().iterator();
 			while (it.hasNext()) {
 				Category category = (Category) it.next();
-				List tagsForCategory = category.getAllTags();
-				Collections.reverse(tagsForCategory);
-				Iterator jt = tagsForCategory.iterator();
-				while (jt.hasNext()) {
-					Tag tag = (Tag) jt.next();
-					if (!list.contains(tag)) {
-						list.add(tag);
-					}
-				}
+				set.addAll(category.getAllTags());
 			}
 		} else {
-			List tagsForCategory = getBlog().getRootCategory().getAllTags();
-			Iterator it = tagsForCategory.iterator();
-			while (it.hasNext()) {
-				Tag tag = (Tag) it.next();
-				if (!list.contains(tag)) {
-					list.add(tag);
-				}
-			}
+			set.addAll(getBlog().getRootCategory().getAllTags());
 		}
 
-		Iterator it = getTagsAsList().iterator();
-		while (it.hasNext()) {
-			Tag tag = (Tag) it.next();
-			if (!list.contains(tag)) {
-				list.add(tag);
-			}
-		}
+		set.addAll(getTagsAsList());
 
+		List<Tag> list = new ArrayList<Tag>(set);
 		Collections.sort(list);
 		return list;
 	}
@@ -191,6 +216,7 @@ public class BlogEntry extends PageBasedContent {
 			categories.add(category);
 			Set newCategories = new HashSet(categories);
 			propertyChangeSupport.firePropertyChange(CATEGORIES_PROPERTY, oldCategories, newCategories);
+			this.allTags = null;
 		}
 	}
 
@@ -200,6 +226,7 @@ public class BlogEntry extends PageBasedContent {
 	public synchronized void removeAllCategories() {
 		propertyChangeSupport.firePropertyChange(CATEGORIES_PROPERTY, new HashSet(categories), new HashSet());
 		categories.clear();
+		this.allTags = null;
 	}
 
 	/**
@@ -216,9 +243,21 @@ public class BlogEntry extends PageBasedContent {
 				categories.add(it.next());
 			}
 			propertyChangeSupport.firePropertyChange(CATEGORIES_PROPERTY, oldCategories, new HashSet(newCategories));
+			this.allTags = null;
 		}
 	}
 
+	/**
+	 * Sets the tags of this blog entry.
+	 *
+	 * @param newTags the tags as a String
+	 */
+	public void setTags(String newTags) {
+		// the tags are rebuilt (via getAllTags) as part of setting them
+		this.allTags = null;
+		super.setTags(newTags);
+	}
+
 	/**
 	 * Determines whether this blog entry is in the specified category.
 	 *
@@ -443,10 +482,16 @@ public class BlogEntry extends PageBasedContent {
 	 * @return a List of all Response instances
 	 */
 	public List<Response> getResponses() {
-		List<Response> responses = new ArrayList();
-		responses.addAll(getComments());
-		responses.addAll(getTrackBacks());
-		Collections.sort(responses, new ResponseByDateComparator());
+		List<Response> responses = this.allResponses;
+		if (responses == null) {
+			List<Response> list = new ArrayList<Response>();
+			list.addAll(getComments());
+			list.addAll(trackBacks);
+			Collections.sort(list, new ResponseByDateComparator());
+			responses = Collections.unmodifiableList(list);
+			this.allResponses = responses;
+		}
+
 		return responses;
 	}
 
@@ -456,24 +501,35 @@ public class BlogEntry extends PageBasedContent {
 	 * @return a List of Comment instances
 	 */
 	public List<Comment> getComments() {
-		List<Comment> allComments = new ArrayList();
-		Iterator it = comments.iterator();
-		while (it.hasNext()) {
-			allComments.addAll(getComments((Comment) it.next()));
+		List<Comment> list = this.allComments;
+		if (list == null) {
+			list = new ArrayList<Comment>();
+			Iterator it = comments.iterator();
+			while (it.hasNext()) {
+				addComments(list, (Comment) it.next());
+			}
+			list = Collections.unmodifiableList(list);
+			this.allComments = list;
 		}
 
-		return allComments;
+		return list;
 	}
 
-	private List<Comment> getComments(Comment comment) {
-		List<Comment> allComments = new ArrayList();
-		allComments.add(comment);
+	private void addComments(List<Comment> list, Comment comment) {
+		list.add(comment);
 		Iterator it = comment.getComments().iterator();
 		while (it.hasNext()) {
-			allComments.addAll(getComments((Comment) it.next()));
+			addComments(list, (Comment) it.next());
 		}
+	}
 
-		return allComments;
+	/**
+	 * Discards the derived views of the comments and TrackBacks, after
+	 * either has changed.
+	 */
+	private void responsesChanged() {
+		this.allComments = null;
+		this.allResponses = null;
 	}
 
 	/**
@@ -579,6 +635,7 @@ public class BlogEntry extends PageBasedContent {
 				comments.add(comment);
 			}
 			comment.setBlogEntry(this);
+			responsesChanged();
 
 			if (areEventsEnabled()) {
 				addEvent(new CommentEvent(comment, CommentEvent.COMMENT_ADDED));
@@ -631,6 +688,7 @@ public class BlogEntry extends PageBasedContent {
 		}
 
 		trackBacks.add(trackBack);
+		responsesChanged();
 
 		if (areEventsEnabled()) {
 			addEvent(new TrackBackEvent(trackBack, TrackBackEvent.TRACKBACK_ADDED));
@@ -657,6 +715,7 @@ public class BlogEntry extends PageBasedContent {
 			} else {
 				comments.remove(comment);
 			}
+			responsesChanged();
 
 			if (areEventsEnabled()) {
 				addEvent(new CommentEvent(comment, CommentEvent.COMMENT_REMOVED));
@@ -724,6 +783,7 @@ public class BlogEntry extends PageBasedContent {
 		TrackBack trackBack = getTrackBack(id);
 		if (trackBack != null) {
 			trackBacks.remove(trackBack);
+			responsesChanged();
 
 			if (areEventsEnabled()) {
 				addEvent(new TrackBackEvent(trackBack, TrackBackEvent.TRACKBACK_REMOVED));
@@ -849,6 +909,13 @@ public class BlogEntry extends PageBasedContent {
 			entry.addTrackBack(clonedTrackBack);
 		}
 
+		// derived views that don't refer to the cloned responses can be shared
+		entry.permalink = permalink;
+		if (allTags != null) {
+			entry.allTagsVersion = allTagsVersion;
+			entry.allTags = allTags;
+		}
+
 		return entry;
 	}
 
@@ -32,13 +32,19 @@
 package net.sourceforge.pebble.domain;
 
 import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.api.event.blog.BlogEvent;
+import net.sourceforge.pebble.api.event.blog.BlogListener;
 import net.sourceforge.pebble.util.UpgradeUtilities;
 import net.sourceforge.pebble.comparator.BlogByLastModifiedDateComparator;
+import net.sourceforge.pebble.index.RecentBlogEntryIndex;
+import net.sourceforge.pebble.index.MultiBlogSearchIndex;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A singleton to manage the active blog.
@@ -50,21 +56,49 @@ public class BlogManager {
   /** the log used by this class */
   private static Log log = LogFactory.getLog(BlogManager.class);
 
-  /** the singleton instance of this class */
-  private static BlogManager instance = new BlogManager();
-
   private static final String THEMES_PATH = "themes";
   private static final String DEFAULT_BLOG = "default";
 
+  /** the maximum number of blogs started concurrently - startup is mostly I/O bound */
+  private static final int STARTUP_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+  /** how long the threads that start and stop blogs are kept once idle, in seconds */
+  private static final long THREAD_KEEP_ALIVE = 60;
+
+  /** the singleton instance of this class, created after the constants it uses */
+  private static BlogManager instance = new BlogManager();
+
   /** the blogs that are currently being managed */
-  private Map<String,Blog> blogs = new HashMap<String,Blog>();
+  private Map<String,Blog> blogs = new ConcurrentHashMap<String,Blog>();
+
+  /** the blogs that are still starting, keyed on blog ID */
+  private Map<String,Future<Blog>> startingBlogs = new ConcurrentHashMap<String,Future<Blog>>();
 
   private boolean multiBlog = false;
 
+  /** the most recent blog entries across all public blogs */
+  private RecentBlogEntryIndex recentBlogEntryIndex = new RecentBlogEntryIndex();
+
+  /** the search index spanning all public blogs, created when first used */
+  private MultiBlogSearchIndex searchIndex;
+
+  /** starts and stops blogs concurrently, with threads that go away once they're idle */
+  private final ThreadPoolExecutor executor;
+
   /**
    * Creates a new instance - private constructor for the singleton pattern.
    */
   private BlogManager() {
+    executor = new ThreadPoolExecutor(STARTUP_THREADS, STARTUP_THREADS, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "pebble-blog-lifecycle-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.allowCoreThreadTimeOut(true);
   }
 
   /**
@@ -95,13 +129,40 @@ public class BlogManager {
    * @return  a Blog instance
    */
   public Blog getBlog(String id) {
-    return blogs.get(id);
+    if (id == null) {
+      return null;
+    }
+
+    Blog blog = blogs.get(id);
+    if (blog == null) {
+      // wait for this blog only, if it's still starting
+      Future<Blog> future = startingBlogs.get(id);
+      if (future != null) {
+        await(future);
+      }
+      blog = blogs.get(id);
+    }
+
+    return blog;
   }
 
   /**
    * Configures this instance to manage the blog(s) in the specified directory.
    */
   public void startBlogs() {
+    startBlogs(null);
+  }
+
+  /**
+   * Configures this instance to manage the blog(s) in the specified directory.
+   * In multi-blog mode, the blogs are started concurrently and this method
+   * returns before they have all started; requests for a blog that is still
+   * starting wait for that blog only.
+   *
+   * @param listener    a BlogListener notified as each blog has started,
+   *                    or null
+   */
+  public void startBlogs(final BlogListener listener) {
     File blogsDirectory = getBlogsDirectory();
     File defaultBlog = new File(blogsDirectory, DEFAULT_BLOG);
 
@@ -113,22 +174,116 @@ public class BlogManager {
     if (isMultiBlog()) {
       // find all directories and set them up as blogs
       File files[] = getBlogsDirectory().listFiles();
+      List<File> blogDirectories = new ArrayList<File>();
       if (files != null) {
         for (File file : files) {
           if (file.isDirectory()) {
-            startBlog(file.getAbsolutePath(), file.getName());
+            blogDirectories.add(file);
           }
         }
       }
+
+      if (blogDirectories.isEmpty()) {
+        return;
+      }
+
+      final long startTime = System.currentTimeMillis();
+      final AtomicInteger remaining = new AtomicInteger(blogDirectories.size());
+
+      // register every blog as starting before any of them are submitted
+      Map<String,FutureTask<Blog>> tasks = new LinkedHashMap<String,FutureTask<Blog>>();
+      for (final File file : blogDirectories) {
+        final String blogId = file.getName();
+        FutureTask<Blog> task = new FutureTask<Blog>(new Callable<Blog>() {
+          public Blog call() {
+            try {
+              Blog blog = startBlog(file.getAbsolutePath(), blogId);
+              if (listener != null) {
+                listener.blogStarted(new BlogEvent(blog, BlogEvent.BLOG_STARTED));
+              }
+              return blog;
+            } finally {
+              startingBlogs.remove(blogId);
+              if (remaining.decrementAndGet() == 0) {
+                log.info("Started " + blogs.size() + " blogs in " + (System.currentTimeMillis() - startTime) + "ms");
+              }
+            }
+          }
+        });
+        tasks.put(blogId, task);
+        startingBlogs.put(blogId, task);
+      }
+
+      for (FutureTask<Blog> task : tasks.values()) {
+        executor.execute(task);
+      }
     } else {
       // start the default blog only
-      startBlog(defaultBlog.getAbsolutePath(), DEFAULT_BLOG);      
+      Blog blog = startBlog(defaultBlog.getAbsolutePath(), DEFAULT_BLOG);
+      if (listener != null) {
+        listener.blogStarted(new BlogEvent(blog, BlogEvent.BLOG_STARTED));
+      }
     }
   }
 
+  /**
+   * Waits for all blogs that are still starting.
+   */
+  public void awaitBlogs() {
+    for (Future<Blog> future : startingBlogs.values()) {
+      await(future);
+    }
+  }
+
+  private void await(Future<Blog> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.error("Exception encountered", e.getCause());
+    }
+  }
+
+  /**
+   * Stops all blogs. In multi-blog mode, the blogs are stopped concurrently,
+   * since each one backs up its theme, and this method returns once they have
+   * all stopped.
+   */
   public void stopBlogs() {
-    for (Blog blog : blogs.values()) {
-      stopBlog(blog);
+    synchronized (this) {
+      if (searchIndex != null) {
+        searchIndex.close();
+        searchIndex = null;
+      }
+    }
+
+    awaitBlogs();
+    if (blogs.size() < 2) {
+      for (Blog blog : blogs.values()) {
+        stopBlog(blog);
+      }
+      return;
+    }
+
+    List<Future<?>> stops = new ArrayList<Future<?>>();
+    for (final Blog blog : blogs.values()) {
+      stops.add(executor.submit(new Runnable() {
+        public void run() {
+          stopBlog(blog);
+        }
+      }));
+    }
+
+    for (Future<?> stop : stops) {
+      try {
+        stop.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        log.error("Exception encountered", e.getCause());
+      }
     }
   }
 
@@ -144,21 +299,17 @@ public class BlogManager {
   }
 
   /**
-   * Loads a blog that is a part of a larger composite blog.
+   * Loads a blog that is a part of a larger composite blog. The blog is only
+   * made available through this manager once it has been upgraded (if need
+   * be) and fully started.
    *
    * @param blogDir   the blog.dir for the blog
    * @param blogId    the ID for the blog
+   * @return  the started Blog instance
    */
-  private void startBlog(String blogDir, String blogId) {
-    Blog blog = new Blog(blogDir);
-    blog.setId(blogId);
-
-    File pathToLiveThemes = new File(PebbleContext.getInstance().getWebApplicationRoot(), THEMES_PATH);
-    Theme theme = new Theme(blog, "user-" + blogId, pathToLiveThemes.getAbsolutePath());
-    blog.setEditableTheme(theme);
-
-    blog.start();
-    blogs.put(blog.getId(), blog);
+  private Blog startBlog(String blogDir, String blogId) {
+    long startTime = System.currentTimeMillis();
+    Blog blog = createBlog(blogDir, blogId);
 
     // which version are we at and do we need to upgrade?
     File versionFile = new File(blogDir, "pebble.version");
@@ -185,11 +336,33 @@ public class BlogManager {
         }
 
         // now that the upgrade is complete, reload the blog
-        reloadBlog(blog);
+        stopBlog(blog);
+        blog = createBlog(blogDir, blogId);
       }
     } catch (Exception e) {
       log.error("Exception encountered", e);
     }
+
+    blogs.put(blogId, blog);
+    recentBlogEntryIndex.clear();
+
+    log.info("Startup of blog with ID " + blogId + " took " + (System.currentTimeMillis() - startTime) + "ms");
+    return blog;
+  }
+
+  /**
+   * Creates and starts a blog, without adding it to the managed blogs.
+   */
+  private Blog createBlog(String blogDir, String blogId) {
+    Blog blog = new Blog(blogDir);
+    blog.setId(blogId);
+
+    File pathToLiveThemes = new File(PebbleContext.getInstance().getWebApplicationRoot(), THEMES_PATH);
+    Theme theme = new Theme(blog, "user-" + blogId, pathToLiveThemes.getAbsolutePath());
+    blog.setEditableTheme(theme);
+
+    blog.start();
+    return blog;
   }
 
   public void addBlog(String blogId) {
@@ -213,14 +386,18 @@ public class BlogManager {
 
   public void addBlog(Blog blog) {
     blogs.put(blog.getId(), blog);
+    recentBlogEntryIndex.clear();
   }
 
   public void removeAllBlogs() {
-    blogs = new HashMap<String,Blog>();
+    blogs = new ConcurrentHashMap<String,Blog>();
+    startingBlogs = new ConcurrentHashMap<String,Future<Blog>>();
+    recentBlogEntryIndex.clear();
   }
 
   /**
-   * Gets all blogs that are currently being managed.
+   * Gets all blogs that are currently being managed. Blogs that are still
+   * starting are not included.
    *
    * @return  a Collection of Blog instances
    */
@@ -236,13 +413,17 @@ public class BlogManager {
    * @return the number of managed blogs
    */
   public int getNumberOfBlogs() {
-	  return blogs.size();
+    // doesn't wait, as this may be called while blogs are starting
+    Set<String> ids = new HashSet<String>(blogs.keySet());
+    ids.addAll(startingBlogs.keySet());
+    return ids.size();
   }
   
   
   /**
    * Gets all blogs that are currently being managed and are
-   * to be included in aggregated pages and feeds.
+   * to be included in aggregated pages and feeds. Blogs that are still
+   * starting are not included.
    *
    * @return  a List of Blog instances
    */
@@ -264,7 +445,29 @@ public class BlogManager {
    * @return  true if a blog with the specified ID exists, false otherwise
    */
   public boolean hasBlog(String id) {
-    return blogs.containsKey(id);
+    return id != null && (blogs.containsKey(id) || startingBlogs.containsKey(id));
+  }
+
+  /**
+   * Gets the index of the most recent blog entries across all public blogs.
+   *
+   * @return  a RecentBlogEntryIndex instance
+   */
+  public RecentBlogEntryIndex getRecentBlogEntryIndex() {
+    return recentBlogEntryIndex;
+  }
+
+  /**
+   * Gets the search index that spans all public blogs. Its search threads
+   * are shut down when the blogs are stopped.
+   *
+   * @return  a MultiBlogSearchIndex instance
+   */
+  public synchronized MultiBlogSearchIndex getSearchIndex() {
+    if (searchIndex == null) {
+      searchIndex = new MultiBlogSearchIndex(this::getPublicBlogs);
+    }
+    return searchIndex;
   }
 
   public MultiBlog getMultiBlog() {
@@ -32,11 +32,13 @@
 package net.sourceforge.pebble.domain;
 
 import net.sourceforge.pebble.api.event.blogentry.BlogEntryEvent;
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryPreparer;
 import net.sourceforge.pebble.api.event.comment.CommentEvent;
 import net.sourceforge.pebble.api.event.trackback.TrackBackEvent;
 import net.sourceforge.pebble.dao.BlogEntryDAO;
 import net.sourceforge.pebble.dao.DAOFactory;
 import net.sourceforge.pebble.dao.PersistenceException;
+import net.sourceforge.pebble.metrics.Metrics;
 import net.sourceforge.pebble.ContentCache;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -70,11 +72,15 @@ public class BlogService {
     blogEntry = cache.getBlogEntry(blog, blogEntryId);
     if (blogEntry != null) {
       log.debug("Got blog entry " + blogEntryId + " from cache");
+      blog.getMetrics().increment("cache.blogEntry.hit");
     } else {
       log.debug("Loading blog entry " + blogEntryId + " from disk");
+      blog.getMetrics().increment("cache.blogEntry.miss");
       BlogEntryDAO dao = DAOFactory.getConfiguredFactory().getBlogEntryDAO();
+      long start = blog.getMetrics().start();
       try {
         blogEntry = dao.loadBlogEntry(blog, blogEntryId);
+        blog.getMetrics().stop("dao.loadBlogEntry", start);
 
         if (blogEntry != null) {
           // place in the cache for faster lookup next time
@@ -114,8 +120,10 @@ public class BlogService {
   public Collection<BlogEntry> getBlogEntries(Blog blog) throws BlogServiceException {
     BlogEntryDAO dao = DAOFactory.getConfiguredFactory().getBlogEntryDAO();
     Collection<BlogEntry> blogEntries;
+    long start = blog.getMetrics().start();
     try {
       blogEntries = dao.loadBlogEntries(blog);
+      blog.getMetrics().stop("dao.loadBlogEntries", start);
       for (BlogEntry blogEntry : blogEntries) {
         blogEntry.setPersistent(true);
       }
@@ -147,6 +155,13 @@ public class BlogService {
     Blog blog = blogEntry.getBlog();
     ContentCache cache = ContentCache.getInstance();
 
+    // changes that take a while (like tidying HTML) are made before the blog is locked
+    for (Object listener : blog.getEventListenerList().getBlogEntryListeners()) {
+      if (listener instanceof BlogEntryPreparer) {
+        ((BlogEntryPreparer)listener).prepare(blogEntry);
+      }
+    }
+
     synchronized (blog) {
       try {
         BlogEntry be = getBlogEntry(blog, blogEntry.getId());
@@ -158,7 +173,7 @@ public class BlogService {
           putBlogEntry(blogEntry);
         } else {
           if (!blogEntry.isPersistent()) {
-            dao.storeBlogEntry(blogEntry);
+            storeBlogEntry(dao, blogEntry);
             blogEntry.insertEvent(new BlogEntryEvent(blogEntry, BlogEntryEvent.BLOG_ENTRY_ADDED));
 
             for (Comment comment : blogEntry.getComments()) {
@@ -168,7 +183,7 @@ public class BlogService {
               blogEntry.addEvent(new TrackBackEvent(trackBack, TrackBackEvent.TRACKBACK_ADDED));
             }
           } else {
-            dao.storeBlogEntry(blogEntry);
+            storeBlogEntry(dao, blogEntry);
             if (blogEntry.isDirty()) {
               blogEntry.insertEvent(new BlogEntryEvent(blogEntry, blogEntry.getPropertyChangeEvents()));
             }
@@ -177,7 +192,7 @@ public class BlogService {
           blogEntry.getBlog().getEventDispatcher().fireEvents(blogEntry);
 
           // and store the blog entry now that listeners have been fired
-          dao.storeBlogEntry(blogEntry);
+          storeBlogEntry(dao, blogEntry);
           cache.removeBlogEntry(blogEntry);
         }
 
@@ -192,6 +207,13 @@ public class BlogService {
     }
   }
 
+  private void storeBlogEntry(BlogEntryDAO dao, BlogEntry blogEntry) throws PersistenceException {
+    Metrics metrics = blogEntry.getBlog().getMetrics();
+    long start = metrics.start();
+    dao.storeBlogEntry(blogEntry);
+    metrics.stop("dao.storeBlogEntry", start);
+  }
+
   /**
    * Removes this blog entry.
    */
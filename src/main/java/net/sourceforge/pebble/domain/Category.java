@@ -179,6 +179,7 @@ public class Category implements Permalinkable, Comparable, Serializable {
 	 */
 	public void setParent(Category parent) {
 		this.parent = parent;
+		tagsChanged();
 	}
 
 	/**
@@ -282,6 +283,13 @@ public class Category implements Permalinkable, Comparable, Serializable {
 		}
 		this.tags = newTags;
 		this.tagsAsList = Tag.parse(blog, tags);
+		tagsChanged();
+	}
+
+	private void tagsChanged() {
+		if (blog != null) {
+			blog.categoryTagsChanged();
+		}
 	}
 
 	/**
@@ -291,6 +299,7 @@ public class Category implements Permalinkable, Comparable, Serializable {
 	 */
 	public void setBlog(Blog blog) {
 		this.blog = blog;
+		tagsChanged();
 	}
 
 	/**
@@ -366,6 +375,20 @@ public class Category implements Permalinkable, Comparable, Serializable {
 		return new ArrayList<String>(blogEntries);
 	}
 
+	/**
+	 * Gets a slice of the blog entries associated with this category, most
+	 * recent first.
+	 *
+	 * @param offset the position of the first blog entry to return
+	 * @param limit  the maximum number of blog entries to return
+	 * @return a List of blog entry IDs
+	 */
+	public synchronized List<String> getBlogEntries(int offset, int limit) {
+		int from = Math.min(Math.max(offset, 0), blogEntries.size());
+		int to = (int)Math.min((long)from + Math.max(limit, 0), blogEntries.size());
+		return new ArrayList<String>(blogEntries.subList(from, to));
+	}
+
 	/**
 	 * Adds a blog entry to this category.
 	 *
@@ -397,6 +420,16 @@ public class Category implements Permalinkable, Comparable, Serializable {
 		}
 	}
 
+	/**
+	 * Replaces the blog entries in this category, without touching its
+	 * parents, when the category index is restored from a snapshot.
+	 *
+	 * @param blogEntries blog entry ids, most recent first
+	 */
+	public synchronized void restoreBlogEntries(List<String> blogEntries) {
+		this.blogEntries = new ArrayList<String>(blogEntries);
+	}
+
 	/**
 	 * Removes all blog entries from this category.
 	 */
@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled, immutable form of a set of referer filters, built whenever the
+ * filters change.
+ * <br /><br />
+ * Most filters contain a literal string (typically a domain name) that a URL
+ * must contain before the filter can match it. Those literals are indexed in
+ * a single Aho-Corasick automaton, so one pass over a URL finds the only
+ * filters that could match, and only their expressions are evaluated. The
+ * remaining filters are combined into a few alternations.
+ * <br /><br />
+ * Any filter ending in .* that matches the start of a URL up to the end of
+ * its host (e.g. http://spam.example.com) matches the whole URL, so those
+ * verdicts are remembered by scheme and host. Spam tends to come from a few
+ * hosts with many different paths. Verdicts aren't remembered by URL, since
+ * one-off URLs would just push the useful entries out.
+ */
+final class CompiledRefererFilters {
+
+  /** the maximum number of verdicts remembered by scheme and host */
+  private static final int CACHE_SIZE = 10000;
+
+  /** the maximum number of filters combined into a single alternation */
+  private static final int ALTERNATION_SIZE = 64;
+
+  /** characters that end a literal run in a regular expression */
+  private static final String METACHARACTERS = ".^$";
+
+  /** characters that make the preceding character optional or repeated */
+  private static final String QUANTIFIERS = "*?+{";
+
+  /** escapes that stand for a class of characters, rather than a literal */
+  private static final String CLASS_ESCAPES = "dDsSwWbBAzZGhHvV";
+
+  /** the expression for each filter that has a literal */
+  private final Pattern[] patterns;
+
+  /** the expression for each filter that's decisive when it matches the start of a URL, or null */
+  private final Pattern[] originPatterns;
+
+  /** transitions of the automaton, by state */
+  private final List<Map<Character,Integer>> transitions = new ArrayList<Map<Character,Integer>>();
+
+  /** failure links of the automaton, by state */
+  private int[] failures;
+
+  /** the filters (indexes into patterns) whose literal ends at each state */
+  private final List<int[]> outputs = new ArrayList<int[]>();
+
+  /** alternations of the filters without a literal */
+  private final List<Pattern> alternations = new ArrayList<Pattern>();
+
+  private final Map<String,Boolean> originVerdicts = new LruMap<Boolean>();
+
+  CompiledRefererFilters(Collection<RefererFilter> filters) {
+    List<Pattern> literalPatterns = new ArrayList<Pattern>();
+    List<Pattern> literalOriginPatterns = new ArrayList<Pattern>();
+    List<String> literals = new ArrayList<String>();
+    List<String> others = new ArrayList<String>();
+
+    for (RefererFilter filter : filters) {
+      String expression = filter.getExpression();
+      String literal = getRequiredLiteral(expression);
+      if (literal != null && literal.length() > 0) {
+        literals.add(literal);
+        literalPatterns.add(filter.getCompiledExpression());
+        literalOriginPatterns.add(getOriginPattern(expression));
+      } else if (expression.matches(".*\\\\[1-9k].*")) {
+        // back references can't be renumbered into an alternation
+        alternations.add(filter.getCompiledExpression());
+      } else {
+        others.add(expression);
+      }
+    }
+
+    this.patterns = literalPatterns.toArray(new Pattern[0]);
+    this.originPatterns = literalOriginPatterns.toArray(new Pattern[0]);
+    buildAutomaton(literals);
+
+    for (int i = 0; i < others.size(); i += ALTERNATION_SIZE) {
+      StringBuilder buf = new StringBuilder();
+      for (String expression : others.subList(i, Math.min(others.size(), i + ALTERNATION_SIZE))) {
+        if (buf.length() > 0) {
+          buf.append('|');
+        }
+        buf.append("(?:").append(expression).append(')');
+      }
+      alternations.add(Pattern.compile(buf.toString()));
+    }
+  }
+
+  /**
+   * Determines whether a URL matches any of the filters.
+   *
+   * @param url   a referer URL
+   * @return  true if the URL matches one of the filters, false otherwise
+   */
+  boolean matches(String url) {
+    String origin = getOrigin(url);
+
+    return (origin != null && matchesOrigin(origin)) || evaluate(url);
+  }
+
+  private boolean matchesOrigin(String origin) {
+    synchronized (originVerdicts) {
+      Boolean verdict = originVerdicts.get(origin);
+      if (verdict != null) {
+        return verdict;
+      }
+    }
+
+    boolean verdict = false;
+    boolean[] tried = new boolean[patterns.length];
+    int state = 0;
+    for (int i = 0; i < origin.length() && !verdict; i++) {
+      state = next(state, origin.charAt(i));
+      for (int index : outputs.get(state)) {
+        if (!tried[index]) {
+          tried[index] = true;
+          if (originPatterns[index] != null && originPatterns[index].matcher(origin).lookingAt()) {
+            verdict = true;
+            break;
+          }
+        }
+      }
+    }
+
+    synchronized (originVerdicts) {
+      originVerdicts.put(origin, verdict);
+    }
+
+    return verdict;
+  }
+
+  private boolean evaluate(String url) {
+    boolean[] tried = new boolean[patterns.length];
+    int state = 0;
+    for (int i = 0; i < url.length(); i++) {
+      state = next(state, url.charAt(i));
+      for (int index : outputs.get(state)) {
+        if (!tried[index]) {
+          tried[index] = true;
+          if (patterns[index].matcher(url).matches()) {
+            return true;
+          }
+        }
+      }
+    }
+
+    for (Pattern alternation : alternations) {
+      if (alternation.matcher(url).matches()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private int next(int state, char c) {
+    while (true) {
+      Integer target = transitions.get(state).get(c);
+      if (target != null) {
+        return target;
+      } else if (state == 0) {
+        return 0;
+      }
+      state = failures[state];
+    }
+  }
+
+  private void buildAutomaton(List<String> literals) {
+    List<List<Integer>> matches = new ArrayList<List<Integer>>();
+    transitions.add(new HashMap<Character,Integer>());
+    matches.add(new ArrayList<Integer>());
+
+    for (int index = 0; index < literals.size(); index++) {
+      int state = 0;
+      for (char c : literals.get(index).toCharArray()) {
+        Integer target = transitions.get(state).get(c);
+        if (target == null) {
+          target = transitions.size();
+          transitions.add(new HashMap<Character,Integer>());
+          matches.add(new ArrayList<Integer>());
+          transitions.get(state).put(c, target);
+        }
+        state = target;
+      }
+      matches.get(state).add(index);
+    }
+
+    // breadth first, so that failure links always point at states already done
+    failures = new int[transitions.size()];
+    LinkedList<Integer> queue = new LinkedList<Integer>(transitions.get(0).values());
+    while (!queue.isEmpty()) {
+      int state = queue.removeFirst();
+      for (Map.Entry<Character,Integer> transition : transitions.get(state).entrySet()) {
+        int target = transition.getValue();
+        int failure = failures[state];
+        Integer next = null;
+        while (true) {
+          next = transitions.get(failure).get(transition.getKey());
+          if (next != null || failure == 0) {
+            break;
+          }
+          failure = failures[failure];
+        }
+        failures[target] = (next != null && next != target) ? next : 0;
+        matches.get(target).addAll(matches.get(failures[target]));
+        queue.addLast(target);
+      }
+    }
+
+    for (List<Integer> list : matches) {
+      int[] array = new int[list.size()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = list.get(i);
+      }
+      outputs.add(array);
+    }
+  }
+
+  /**
+   * Finds the longest string that any match of the given expression must
+   * contain, ignoring anything inside groups or character classes.
+   *
+   * @param expression    a regular expression
+   * @return  a literal String, or null if the expression has alternatives
+   */
+  static String getRequiredLiteral(String expression) {
+    String longest = "";
+    StringBuilder run = new StringBuilder();
+
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == '\\') {
+        if (i + 1 == expression.length()) {
+          return null;
+        }
+        char escaped = expression.charAt(++i);
+        if (CLASS_ESCAPES.indexOf(escaped) > -1) {
+          longest = longest(longest, run);
+          run.setLength(0);
+        } else if (Character.isLetterOrDigit(escaped)) {
+          // quotes, back references and escapes such as \x41 are left to the regex engine
+          return null;
+        } else {
+          run.append(escaped);
+        }
+      } else if (c == '|' || c == '(' || c == ')') {
+        return null;
+      } else if (c == '[') {
+        i = skipCharacterClass(expression, i);
+        if (i < 0) {
+          return null;
+        }
+        longest = longest(longest, run);
+        run.setLength(0);
+      } else if (QUANTIFIERS.indexOf(c) > -1) {
+        // the preceding character might not be there
+        if (run.length() > 0) {
+          run.setLength(run.length() - 1);
+        }
+        longest = longest(longest, run);
+        run.setLength(0);
+        if (c == '{') {
+          i = expression.indexOf('}', i);
+          if (i < 0) {
+            return null;
+          }
+        }
+      } else if (METACHARACTERS.indexOf(c) > -1) {
+        longest = longest(longest, run);
+        run.setLength(0);
+      } else {
+        run.append(c);
+      }
+    }
+
+    return longest(longest, run);
+  }
+
+  private static String longest(String longest, StringBuilder run) {
+    return run.length() > longest.length() ? run.toString() : longest;
+  }
+
+  private static int skipCharacterClass(String expression, int start) {
+    // a ] straight after [ or [^ is part of the class
+    int first = start + 1;
+    if (first < expression.length() && expression.charAt(first) == '^') {
+      first++;
+    }
+
+    int depth = 0;
+    for (int i = start; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '[') {
+        depth++;
+      } else if (c == ']' && i > first) {
+        depth--;
+        if (depth == 0) {
+          return i;
+        }
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Gets an expression that, when it matches the start of a URL, means that
+   * the filter matches the whole URL. This holds for filters ending in .*,
+   * as long as the rest has no alternatives, doesn't look past the end of
+   * what it matched (with $, \\b, lookaheads and the like) and doesn't quote
+   * the trailing .* with \\Q.
+   */
+  static Pattern getOriginPattern(String expression) {
+    if (expression.length() < 3 || !expression.endsWith(".*")) {
+      return null;
+    }
+
+    String prefix = expression.substring(0, expression.length() - 2);
+    int backslashes = 0;
+    for (int i = prefix.length() - 1; i >= 0 && prefix.charAt(i) == '\\'; i--) {
+      backslashes++;
+    }
+    if (backslashes % 2 == 1 || prefix.endsWith("*") || prefix.endsWith("?") || prefix.endsWith("+") || prefix.endsWith("{")) {
+      // the .* is escaped, or the expression isn't what it seems
+      return null;
+    }
+
+    for (int i = 0; i < prefix.length(); i++) {
+      char c = prefix.charAt(i);
+      if (c == '$' || c == '|') {
+        return null;
+      } else if (c == '(' && i + 1 < prefix.length() && prefix.charAt(i + 1) == '?') {
+        return null;
+      } else if (c == '\\' && i + 1 < prefix.length() && "bBzZGQ".indexOf(prefix.charAt(++i)) > -1) {
+        return null;
+      }
+    }
+
+    return Pattern.compile(prefix);
+  }
+
+  /**
+   * Gets the host (and port) of a URL.
+   *
+   * @param url   a URL
+   * @return  the host, or null if the URL doesn't have one
+   */
+  static String getHost(String url) {
+    int start = url.indexOf("://");
+    int end = getOriginLength(url);
+
+    return end > 0 ? url.substring(start + 3, end) : null;
+  }
+
+  /**
+   * Gets the start of a URL up to the end of its host (and port), such as
+   * http://www.example.com.
+   *
+   * @param url   a URL
+   * @return  the scheme and host, or null if the URL doesn't have a host
+   */
+  static String getOrigin(String url) {
+    int end = getOriginLength(url);
+
+    return end > 0 ? url.substring(0, end) : null;
+  }
+
+  private static int getOriginLength(String url) {
+    int start = url.indexOf("://");
+    if (start == -1) {
+      return -1;
+    }
+    start += 3;
+
+    int end = start;
+    while (end < url.length() && "/?#".indexOf(url.charAt(end)) == -1) {
+      end++;
+    }
+
+    return end > start ? end : -1;
+  }
+
+  private static class LruMap<V> extends LinkedHashMap<String,V> {
+
+    LruMap() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String,V> eldest) {
+      return size() > CACHE_SIZE;
+    }
+
+  }
+
+}
@@ -39,7 +39,11 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -63,6 +67,20 @@ import net.sourceforge.pebble.util.FileUtils;
  */
 public class FileManager {
 
+  /** the prefix given to files while they're being written */
+  private static final String TEMPORARY_FILE_PREFIX = ".upload-";
+
+  /** the name of the directory, within the blog directory, that files are written to before being moved into place */
+  static final String STAGING_DIRECTORY = "uploads";
+
+  /** how old a temporary file has to be before it's treated as abandoned, in milliseconds */
+  private static final long ABANDONED_AGE = 60L * 60 * 1000;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  /** the blog that this manager refers to */
+  private Blog blog;
+
   /** the type of files being managed */
   private String type;
 
@@ -76,6 +94,7 @@ public class FileManager {
    * @param type    the type of files to manage
    */
   public FileManager(Blog blog, String type) {
+    this.blog = blog;
     this.type = type;
 
     // which directory are we looking at?
@@ -239,7 +258,9 @@ public class FileManager {
         throw new IllegalFileAccessException();
       }
 
+      long replaced = newFile.isFile() ? newFile.length() : 0;
       org.apache.commons.io.FileUtils.copyFile(originalFile, newFile);
+      recordUsage(newFile.length() - replaced);
 
       return newFile;
     } else {
@@ -289,7 +310,17 @@ public class FileManager {
       throw new IllegalFileAccessException();
     }
 
-    FileUtils.deleteFile(fileToDelete);
+    if (fileToDelete.isFile()) {
+      long size = fileToDelete.length();
+      if (fileToDelete.delete()) {
+        recordUsage(-size);
+      }
+    } else {
+      FileUtils.deleteFile(fileToDelete);
+      if (isCounted()) {
+        blog.getFileUsage().reset();
+      }
+    }
   }
 
   /**
@@ -343,12 +374,14 @@ public class FileManager {
       throw new IllegalFileAccessException();
     }
 
+    long replaced = fileToSave.isFile() ? fileToSave.length() : 0;
     BufferedWriter writer = null;
     try (FileWriter w = new FileWriter(fileToSave)) {
       writer = new BufferedWriter(w);
       writer.write(content);
       writer.flush();
     }
+    recordUsage(fileToSave.length() - replaced);
   }
 
   /**
@@ -366,16 +399,238 @@ public class FileManager {
       throw new IllegalFileAccessException();
     }
 
-    BufferedOutputStream out = null;
-    try (OutputStream os = new FileOutputStream(fileToSave)){
-      out = new BufferedOutputStream(os);
-      out.write(content);
-      out.flush();
+    // write to the staging directory, then move into place so that readers
+    // never see a partially written file
+    File temporaryFile = createTemporaryFile();
+    boolean written = false;
+    try {
+      BufferedOutputStream out = null;
+      try (OutputStream os = new FileOutputStream(temporaryFile)){
+        out = new BufferedOutputStream(os);
+        out.write(content);
+        out.flush();
+      }
+      if (isCounted()) {
+        blog.getFileUsage().reserve(content.length, -1);
+      }
+      written = true;
+    } finally {
+      if (!written) {
+        temporaryFile.delete();
+      }
     }
+    moveTemporaryFile(temporaryFile, fileToSave);
 
     return file;
   }
 
+  /**
+   * Writes the content of a stream to a temporary file that's destined for
+   * the given directory, checking the blog's quota as the content is
+   * written. Temporary files are kept in a staging directory that isn't
+   * served, on the same file system as the blog. The file should then be
+   * moved into place with
+   * {@link #moveTemporaryFile(File, String, String)}, or discarded with
+   * {@link #discardTemporaryFile(File)}.
+   *
+   * @param path      the path of the directory to write the file in
+   * @param in        the content
+   * @return  the temporary file
+   * @throws NotEnoughSpaceException  if the content would take the blog over its quota
+   */
+  public File writeTemporaryFile(String path, InputStream in) throws IOException, IllegalFileAccessException, NotEnoughSpaceException {
+    File directory = getFile(path);
+    if (!isUnderneathRootDirectory(directory)) {
+      throw new IllegalFileAccessException();
+    }
+
+    long quota = PebbleContext.getInstance().getConfiguration().getFileUploadQuota();
+    if (quota != -1) {
+      quota = quota * 1024; // convert to bytes
+    }
+
+    File temporaryFile = createTemporaryFile();
+    long written = 0;
+    boolean complete = false;
+    try (OutputStream out = new FileOutputStream(temporaryFile)) {
+      byte[] buf = new byte[BUFFER_SIZE];
+      int count = in.read(buf);
+      while (count != -1) {
+        if (isCounted() && !blog.getFileUsage().reserve(count, quota)) {
+          throw new NotEnoughSpaceException("Writing this file would exceed the quota of " + (quota / 1024) + " KB");
+        }
+        written += count;
+        out.write(buf, 0, count);
+        count = in.read(buf);
+      }
+      complete = true;
+    } finally {
+      if (!complete) {
+        releaseUsage(written);
+        temporaryFile.delete();
+      }
+    }
+
+    return temporaryFile;
+  }
+
+  /**
+   * Moves a temporary file written by {@link #writeTemporaryFile(String, InputStream)}
+   * into place, replacing any existing file with the same name.
+   *
+   * @param temporaryFile   the temporary file
+   * @param path            the path under which to put the file
+   * @param name            the name of the file
+   * @return  a java.io.File instance representing the new file
+   */
+  public File moveTemporaryFile(File temporaryFile, String path, String name) throws IOException, IllegalFileAccessException {
+    File file = new File(getFile(path), name);
+    if (!isUnderneathRootDirectory(file)) {
+      discardTemporaryFile(temporaryFile);
+      throw new IllegalFileAccessException();
+    }
+
+    moveTemporaryFile(temporaryFile, file);
+
+    return file;
+  }
+
+  private File createTemporaryFile() throws IOException {
+    File directory = getStagingDirectory(blog);
+    directory.mkdirs();
+
+    return File.createTempFile(TEMPORARY_FILE_PREFIX, ".tmp", directory);
+  }
+
+  /**
+   * Moves a temporary file into place. If it can't be moved, the temporary
+   * file is discarded (releasing the space reserved for it) and the
+   * exception is rethrown.
+   */
+  private void moveTemporaryFile(File temporaryFile, File file) throws IOException {
+    file.getParentFile().mkdirs();
+    long size = temporaryFile.length();
+    long replaced = file.isFile() ? file.length() : 0;
+    boolean moved = false;
+    try {
+      try {
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        // the live theme can be on another file system, so copy alongside the
+        // destination and rename from there instead
+        File copy = File.createTempFile(TEMPORARY_FILE_PREFIX, ".tmp", file.getParentFile());
+        try {
+          Files.copy(temporaryFile.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+          Files.move(copy.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+          copy.delete();
+        }
+        temporaryFile.delete();
+      }
+      moved = true;
+    } finally {
+      if (!moved) {
+        discardTemporaryFile(temporaryFile);
+      }
+    }
+
+    if (isCounted()) {
+      blog.getFileUsage().commit(size);
+    }
+    recordUsage(-replaced);
+  }
+
+  /**
+   * Gets the directory that the given blog's temporary files are written to.
+   *
+   * @param blog    a Blog instance
+   * @return  a File representing the directory
+   */
+  static File getStagingDirectory(Blog blog) {
+    return new File(blog.getRoot(), STAGING_DIRECTORY);
+  }
+
+  /**
+   * Deletes temporary files that were abandoned, for example because the
+   * server was stopped while a file was being uploaded.
+   *
+   * @param blog    a Blog instance
+   */
+  public static void deleteAbandonedTemporaryFiles(Blog blog) {
+    File[] files = getStagingDirectory(blog).listFiles();
+    if (files == null) {
+      return;
+    }
+
+    long cutoff = System.currentTimeMillis() - ABANDONED_AGE;
+    for (File file : files) {
+      if (file.isFile() && file.getName().startsWith(TEMPORARY_FILE_PREFIX) && file.lastModified() < cutoff) {
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * Discards a temporary file written by {@link #writeTemporaryFile(String, InputStream)}.
+   *
+   * @param temporaryFile   the temporary file
+   */
+  public void discardTemporaryFile(File temporaryFile) {
+    long size = temporaryFile.length();
+    if (temporaryFile.delete()) {
+      releaseUsage(size);
+    }
+  }
+
+  /**
+   * Puts a copy of the given file under the specified path, as a hard link
+   * where the file system supports it so that the content isn't written
+   * twice, or as a copy otherwise.
+   *
+   * @param source    the file to copy
+   * @param path      the path under which to put the copy
+   * @param name      the name of the copy
+   * @return  a java.io.File instance representing the copy
+   */
+  public File linkFile(File source, String path, String name) throws IOException, IllegalFileAccessException {
+    File file = new File(getFile(path), name);
+    if (!isUnderneathRootDirectory(file)) {
+      throw new IllegalFileAccessException();
+    }
+
+    file.getParentFile().mkdirs();
+    long replaced = file.isFile() ? file.length() : 0;
+    Files.deleteIfExists(file.toPath());
+    try {
+      Files.createLink(file.toPath(), source.toPath());
+    } catch (IOException | UnsupportedOperationException | SecurityException e) {
+      // different file systems, or hard links aren't supported
+      Files.copy(source.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    recordUsage(file.length() - replaced);
+
+    return file;
+  }
+
+  /**
+   * Determines whether files of this type count towards the blog's quota.
+   */
+  private boolean isCounted() {
+    return type.equals(FileMetaData.BLOG_IMAGE) || type.equals(FileMetaData.BLOG_FILE) || type.equals(FileMetaData.THEME_FILE);
+  }
+
+  private void recordUsage(long delta) {
+    if (isCounted() && delta != 0) {
+      blog.getFileUsage().add(delta);
+    }
+  }
+
+  private void releaseUsage(long delta) {
+    if (isCounted() && delta != 0) {
+      blog.getFileUsage().release(delta);
+    }
+  }
+
   /**
    * Gets a list of files that reside under a given path.
    *
@@ -443,12 +698,7 @@ public class FileManager {
    * @return  the number of KB
    */
   public static double getCurrentUsage(Blog blog) {
-    FileManager imagesFileManager = new FileManager(blog, FileMetaData.BLOG_IMAGE);
-    FileManager filesFileManager = new FileManager(blog, FileMetaData.BLOG_FILE);
-    FileManager themeFileManager = new FileManager(blog, FileMetaData.THEME_FILE);
-    return  imagesFileManager.getFileMetaData("/").getSizeInKB() +
-            filesFileManager.getFileMetaData("/").getSizeInKB() +
-            themeFileManager.getFileMetaData("/").getSizeInKB();
+    return blog.getFileUsage().getBytes() / 1024.0;
   }
 
 
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.domain;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a running total of the space used by a blog's images, files and
+ * theme, so that the upload quota can be checked as files are written rather
+ * than by walking the directory tree for every upload. The total is
+ * calculated from disk when first needed, and again every so often to pick
+ * up any changes made outside of Pebble. Space reserved for uploads that are
+ * still being staged isn't on disk yet, so it's kept separately and carried
+ * across those recalculations.
+ */
+class FileUsage implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** how long a total calculated from disk is trusted for */
+  private static final long MAXIMUM_AGE = TimeUnit.MINUTES.toMillis(10);
+
+  private final Blog blog;
+
+  /** the number of bytes used */
+  private long bytes;
+
+  /** the number of bytes reserved for files that haven't been moved into place */
+  private long pending;
+
+  /** when the total was last calculated from disk, or 0 if it hasn't been */
+  private long calculated;
+
+  FileUsage(Blog blog) {
+    this.blog = blog;
+  }
+
+  /**
+   * Gets the number of bytes used, including those reserved for files that
+   * are still being staged.
+   *
+   * @return  the number of bytes
+   */
+  synchronized long getBytes() {
+    long now = System.currentTimeMillis();
+    if (calculated == 0 || now - calculated > MAXIMUM_AGE) {
+      bytes = sizeOf(new File(blog.getImagesDirectory())) +
+          sizeOf(new File(blog.getFilesDirectory())) +
+          (blog.getEditableTheme() != null ? sizeOf(blog.getEditableTheme().getPathToLiveTheme()) : 0);
+      calculated = now;
+    }
+
+    return bytes + pending;
+  }
+
+  /**
+   * Records that files have been written or removed.
+   *
+   * @param delta   the change in the number of bytes used
+   */
+  synchronized void add(long delta) {
+    if (calculated != 0) {
+      bytes = Math.max(0, bytes + delta);
+    }
+  }
+
+  /**
+   * Reserves space for bytes that are about to be staged, provided that
+   * doing so won't take the usage over the quota. The space is held until
+   * it's either committed or released.
+   *
+   * @param delta   the number of bytes to be written
+   * @param quota   the quota in bytes, or -1 if there isn't one
+   * @return  true if the space was reserved, false otherwise
+   */
+  synchronized boolean reserve(long delta, long quota) {
+    if (quota >= 0 && getBytes() + delta > quota) {
+      return false;
+    }
+
+    pending += delta;
+    return true;
+  }
+
+  /**
+   * Releases space reserved for a staged file that has been discarded.
+   *
+   * @param delta   the number of bytes reserved
+   */
+  synchronized void release(long delta) {
+    pending = Math.max(0, pending - delta);
+  }
+
+  /**
+   * Records that a staged file has been moved into place, turning its
+   * reservation into space used.
+   *
+   * @param delta   the number of bytes reserved
+   */
+  synchronized void commit(long delta) {
+    release(delta);
+    add(delta);
+  }
+
+  /**
+   * Discards the running total, so that it's calculated from disk when
+   * next needed.
+   */
+  synchronized void reset() {
+    calculated = 0;
+  }
+
+  private static long sizeOf(File file) {
+    if (file == null || !file.exists()) {
+      return 0;
+    } else if (file.isDirectory()) {
+      long size = 0;
+      File[] files = file.listFiles();
+      if (files != null) {
+        for (File f : files) {
+          size += sizeOf(f);
+        }
+      }
+      return size;
+    } else {
+      return file.length();
+    }
+  }
+
+}
@@ -34,6 +34,9 @@ package net.sourceforge.pebble.domain;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
+import net.sourceforge.pebble.index.ArchiveSummary;
+import net.sourceforge.pebble.index.BlogEntryIndex;
+
 /**
  * Represents a blog at a monthly level. This manages a collection of Day instances.
  *
@@ -136,6 +139,11 @@ public class Month extends TimePeriod implements Permalinkable {
    * @return    true if this blog contains entries, false otherwise
    */
   public boolean hasBlogEntries() {
+    ArchiveSummary archiveSummary = getArchiveSummary();
+    if (archiveSummary != null) {
+      return archiveSummary.getNumberOfBlogEntries(year.getYear(), month) > 0;
+    }
+
     for (int i = 1; i <= lastDayInMonth; i++) {
       if (getBlogForDay(i).hasBlogEntries()) {
         return true;
@@ -165,6 +173,11 @@ public class Month extends TimePeriod implements Permalinkable {
    * @return  an int
    */
   public int getNumberOfBlogEntries() {
+    ArchiveSummary archiveSummary = getArchiveSummary();
+    if (archiveSummary != null) {
+      return archiveSummary.getNumberOfBlogEntries(year.getYear(), month);
+    }
+
     int count = 0;
     Day days[] = getAllDays();
     for (Day day : days) {
@@ -174,6 +187,26 @@ public class Month extends TimePeriod implements Permalinkable {
     return count;
   }
 
+  /**
+   * Gets the blog's archive summary, if the blog entry index has been loaded.
+   */
+  private ArchiveSummary getArchiveSummary() {
+    BlogEntryIndex blogEntryIndex = getBlog().getBlogEntryIndex();
+    return blogEntryIndex != null ? blogEntryIndex.getArchiveSummary() : null;
+  }
+
+  /**
+   * Attaches this month, and its days, to the blog.
+   *
+   * @param blog    the owning Blog instance
+   */
+  public void reattach(Blog blog) {
+    super.reattach(blog);
+    for (Day day : dailyBlogs) {
+      day.reattach(blog);
+    }
+  }
+
   /**
    * Gets an array of all Days.
    *
@@ -31,8 +31,11 @@
  */
 package net.sourceforge.pebble.domain;
 
-import net.sourceforge.pebble.comparator.BlogEntryComparator;
 import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.index.MultiBlogSearchIndex;
+import net.sourceforge.pebble.index.RecentBlogEntry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
@@ -55,6 +58,9 @@ public class MultiBlog extends AbstractBlog {
 	 */
 	private static final long serialVersionUID = 1733063085499354925L;
 
+  /** the log used by this class */
+  private static final Log log = LogFactory.getLog(MultiBlog.class);
+
 /**
    * Creates a new Blog instance, based at the specified location.
    *
@@ -130,18 +136,7 @@ public class MultiBlog extends AbstractBlog {
    * @return  a Date instance representing the time of the most recent entry
    */
   public Date getLastModified() {
-    Date date = new Date(0);
-
-    Iterator it = BlogManager.getInstance().getPublicBlogs().iterator();
-    Blog blog;
-    while (it.hasNext()) {
-      blog = (Blog)it.next();
-      if (blog.getLastModified().after(date)) {
-        date = blog.getLastModified();
-      }
-    }
-
-    return date;
+    return BlogManager.getInstance().getRecentBlogEntryIndex().getLastModified();
   }
 
   /**
@@ -152,19 +147,37 @@ public class MultiBlog extends AbstractBlog {
    * @return a List containing the most recent blog entries
    */
   public List<BlogEntry> getRecentBlogEntries(int numberOfEntries) {
+    BlogManager blogManager = BlogManager.getInstance();
+    BlogService service = new BlogService();
     List<BlogEntry> blogEntries = new ArrayList<BlogEntry>();
 
-    for (Blog blog : BlogManager.getInstance().getPublicBlogs()) {
-      blogEntries.addAll(blog.getRecentPublishedBlogEntries());
+    // only the entries that will be shown are loaded
+    for (RecentBlogEntry recentBlogEntry : blogManager.getRecentBlogEntryIndex().getRecentBlogEntries(numberOfEntries)) {
+      Blog blog = blogManager.getBlog(recentBlogEntry.getBlogId());
+      if (blog == null) {
+        continue;
+      }
+
+      try {
+        BlogEntry blogEntry = service.getBlogEntry(blog, recentBlogEntry.getBlogEntryId());
+        if (blogEntry != null) {
+          blogEntries.add(blogEntry);
+        }
+      } catch (BlogServiceException e) {
+        log.error("Exception encountered", e);
+      }
     }
 
-    Collections.sort(blogEntries, new BlogEntryComparator());
+    return blogEntries;
+  }
 
-    if (blogEntries.size() >= numberOfEntries) {
-      return new ArrayList<BlogEntry>(blogEntries).subList(0, numberOfEntries);
-    } else {
-      return new ArrayList<BlogEntry>(blogEntries);
-    }
+  /**
+   * Gets a search index that spans all public blogs.
+   *
+   * @return  a MultiBlogSearchIndex instance
+   */
+  public MultiBlogSearchIndex getSearchIndex() {
+    return BlogManager.getInstance().getSearchIndex();
   }
 
   /**
@@ -107,13 +107,16 @@ public abstract class PageBasedContent extends Content {
 	private String tags = "";
 
 	/** the List of tags for this blog entry */
-	private List<Tag> tagsAsList = new LinkedList<Tag>();
+	private transient List<Tag> tagsAsList = new LinkedList<Tag>();
 
 	/** the tags, comma separated */
 	private String tagsAsCommaSeparated = "";
 
-	/** the owning blog */
-	private Blog blog;
+	/**
+	 * the owning blog, which isn't copied along with cached content (see
+	 * {@link #reattach(Blog)})
+	 */
+	private transient Blog blog;
 
 	private boolean persistent = false;
 	private String lockedBy = null;
@@ -397,6 +400,17 @@ public abstract class PageBasedContent extends Content {
 		return this.blog;
 	}
 
+	/**
+	 * Attaches a copy of this content, as read back from the content cache,
+	 * to its blog.
+	 *
+	 * @param blog the owning Blog instance
+	 */
+	public void reattach(Blog blog) {
+		this.blog = blog;
+		this.tagsAsList = Tag.parse(blog, tags);
+	}
+
 	/**
 	 * Gets a string representation of this object.
 	 *
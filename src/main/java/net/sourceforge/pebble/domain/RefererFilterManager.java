@@ -37,7 +37,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
 
 import net.sourceforge.pebble.dao.DAOFactory;
 import net.sourceforge.pebble.dao.PersistenceException;
@@ -66,6 +65,9 @@ public class RefererFilterManager implements Serializable {
   /** the collection of all filters */
   private Collection filters;
 
+  /** the filters compiled for matching, built when first needed */
+  private transient volatile CompiledRefererFilters compiledFilters;
+
   /**
    * Creates a new instance.
    */
@@ -110,6 +112,7 @@ public class RefererFilterManager implements Serializable {
         filters.add(newFilter);
         newFilter.setId(nextId);
         nextId++;
+        compiledFilters = null;
       }
     } catch (PersistenceException pe) {
       pe.printStackTrace();
@@ -137,6 +140,7 @@ public class RefererFilterManager implements Serializable {
 
           // and now remove the in-memory representation
           filters.remove(filter);
+          compiledFilters = null;
 
           return true;
         }
@@ -187,23 +191,36 @@ public class RefererFilterManager implements Serializable {
    *          regular expressions), false otherwise
    */
   private boolean filter(CountedUrl referer) {
+    return isFiltered(referer.getUrl());
+  }
 
-    if (referer.getUrl() == null) {
+  /**
+   * Determines whether a referer URL matches one of the filters.
+   *
+   * @param url   the referer URL (can be null)
+   * @return  true if the referer should be filtered out, false otherwise
+   */
+  public boolean isFiltered(String url) {
+    if (url == null) {
       return false;
     }
 
-    Iterator it = filters.iterator();
-    RefererFilter filter;
-    Matcher matcher;
-    while (it.hasNext()) {
-      filter = (RefererFilter)it.next();
-      matcher = filter.getCompiledExpression().matcher(referer.getUrl());
-      if (matcher.matches()) {
-        return true;
+    return getCompiledFilters().matches(url);
+  }
+
+  private CompiledRefererFilters getCompiledFilters() {
+    CompiledRefererFilters compiled = compiledFilters;
+    if (compiled == null) {
+      synchronized (this) {
+        compiled = compiledFilters;
+        if (compiled == null) {
+          compiled = new CompiledRefererFilters(filters);
+          compiledFilters = compiled;
+        }
       }
     }
 
-    return false;
+    return compiled;
   }
 
 }
\ No newline at end of file
@@ -51,7 +51,7 @@ public class Tag implements Permalinkable, Comparable, Serializable {
 	private static final long serialVersionUID = 5565898080038833610L;
 
 /** the owning blog */
-  private Blog blog;
+  private transient Blog blog;
 
   /** the name of the tag */
   private String name = "";
@@ -147,6 +147,16 @@ public class Tag implements Permalinkable, Comparable, Serializable {
     return this.name;
   }
 
+  /**
+   * Attaches this tag, as read back from a cache or an index snapshot, to
+   * its blog.
+   *
+   * @param blog    the owning Blog instance
+   */
+  public void reattach(Blog blog) {
+    this.blog = blog;
+  }
+
   /**
    * Gets the rank for this tag.
    *
@@ -32,11 +32,13 @@
 package net.sourceforge.pebble.domain;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -45,6 +47,15 @@ import net.sourceforge.pebble.util.FileUtils;
 
 /**
  * Represents the user's editable theme.
+ * <br /><br />
+ * The theme is kept in the blog directory and copied to the webapp when the
+ * blog starts, and back again when it stops. Copies are incremental: files
+ * whose size and modification time match (copies keep the modification time
+ * of the original) are left alone, so syncing an unchanged theme only costs
+ * a pass over the file attributes. Changed files are written to a temporary
+ * file and moved into place, and a theme that doesn't exist yet is built in a
+ * temporary directory and moved into place, so a sync that is interrupted
+ * never leaves a truncated file behind.
  *
  * @author Simon Brown
  */
@@ -128,12 +139,11 @@ public class Theme implements Serializable {
   }
 
   /**
-   * Restores the theme from the blog.dir to the webapp.
+   * Replaces the theme with a copy of the named theme, and restores it to the
+   * webapp.
    */
   public void restoreToSpecifiedTheme(String themeName) {
-    File blogTheme = new File(getBackupThemeDirectory());
-    FileUtils.deleteFile(blogTheme);
-    FileUtils.deleteFile(getPathToLiveTheme());
+    copy(themeName);
     restore(themeName);
   }
 
@@ -152,14 +162,7 @@ public class Theme implements Serializable {
   private void backup(String themeName) {
     log.debug("Backing up " + themeName + " theme to " + getBackupThemeDirectory());
     File liveTheme = new File(pathToLiveThemes, themeName);
-    File blogTheme = new File(getBackupThemeDirectory());
-    File blogThemeBackup = getUniqueBackupBackupDirectory();
-
-    if (blogTheme.exists()) {
-      blogTheme.renameTo(blogThemeBackup);
-    }
-    copy(liveTheme, blogTheme);
-    FileUtils.deleteFile(blogThemeBackup);
+    copy(liveTheme, new File(getBackupThemeDirectory()));
   }
 
   /**
@@ -170,68 +173,172 @@ public class Theme implements Serializable {
   private void copy(String themeName) {
     log.info("Copying " + themeName + " theme to " + getBackupThemeDirectory());
     File liveTheme = new File(pathToLiveThemes, themeName);
-    File blogTheme = new File(getBackupThemeDirectory());
-    File blogThemeBackup = getUniqueBackupBackupDirectory();
+    copy(liveTheme, new File(getBackupThemeDirectory()));
+  }
+
+  /**
+   * Makes one directory a copy of another, copying only the files that have
+   * changed and removing those that have gone.
+   *
+   * @param source      the source
+   * @param destination the destination
+   */
+  private void copy(File source, File destination) {
+    if (!source.isDirectory()) {
+      // don't empty the destination because the source has gone missing
+      log.warn("Not copying theme from " + source + " as it doesn't exist");
+      destination.mkdirs();
+      return;
+    }
 
-    if (blogTheme.exists()) {
-      blogTheme.renameTo(blogThemeBackup);
+    try {
+      if (destination.exists()) {
+        int copied = sync(source, destination);
+        log.debug(copied + " file(s) copied from " + source + " to " + destination);
+      } else {
+        // build the whole theme alongside, and move it into place in one go
+        File temporary = getUniqueDirectory(destination, ".tmp");
+        try {
+          sync(source, temporary);
+          move(temporary, destination);
+        } finally {
+          if (temporary.exists()) {
+            FileUtils.deleteFile(temporary);
+          }
+        }
+      }
+    } catch (IOException ioe) {
+      // We MUST throw an exception here, otherwise very bad things will happen.  For example, if some error
+      // prevented us from copying a theme file from the blog directory to the live directory, if we don't
+      // complain now, Pebble will happily start up, and that file will end up blank.  Then, when pebble shuts
+      // down, backup will be called, and the blank file will be copied over the file in the blog directory, and
+      // so that file will be lost.  It's simple to reproduce this, just shutdown pebble while its coming up,
+      // Tomcat will interrupt the thread that is bringing it up and consequently all NIO the operations above will
+      // throw exceptions.  Pebble never checks if the threads been interrupted, so if you ignore the exceptions,
+      // pebble keeps on coming up, each time writing a blank file to the webapp directory.  Then Tomcat shuts
+      // down the context listener, and that causes backup to be called, the thread is now not interrupted, and
+      // so backup successfully writes all our blank files back to the blog directory, and all your themes are
+      // lost.  I speak from experience.  Thankfully I had backups.
+      throw new RuntimeException("Error copying files", ioe);
     }
-    copy(liveTheme, blogTheme);
-    FileUtils.deleteFile(blogThemeBackup);
   }
 
   /**
-   * Copies one file to another.
+   * Brings a destination directory up to date with a source directory.
    *
    * @param source      the source
    * @param destination the destination
+   * @return  the number of files copied
    */
-  private void copy(File source, File destination) {
-    if (!destination.exists()) {
-      destination.mkdir();
+  private int sync(File source, File destination) throws IOException {
+    if (destination.isFile()) {
+      destination.delete();
+    }
+    if (!destination.exists() && !destination.mkdirs()) {
+      throw new IOException("Could not create " + destination);
     }
 
+    int copied = 0;
+    Set<String> names = new HashSet<String>();
     File files[] = source.listFiles();
     if (files != null) {
-      for (int i = 0; i < files.length; i++) {
-        if (files[i].isDirectory()) {
-          copy(files[i], new File(destination, files[i].getName()));
-        } else {
-          try (FileInputStream is = new FileInputStream(files[i]); FileOutputStream os = new FileOutputStream(new File(destination, files[i].getName()));) {
-            FileChannel srcChannel = is.getChannel();
-            long size = srcChannel.size();
-            FileChannel dstChannel = os.getChannel();
-            dstChannel.transferFrom(srcChannel, 0, size);
-          } catch (IOException ioe) {
-            // We MUST throw an exception here, otherwise very bad things will happen.  For example, if some error
-            // prevented us from copying a theme file from the blog directory to the live directory, if we don't
-            // complain now, Pebble will happily start up, and that file will end up blank.  Then, when pebble shuts
-            // down, backup will be called, and the blank file will be copied over the file in the blog directory, and
-            // so that file will be lost.  It's simple to reproduce this, just shutdown pebble while its coming up,
-            // Tomcat will interrupt the thread that is bringing it up and consequently all NIO the operations above will
-            // throw exceptions.  Pebble never checks if the threads been interrupted, so if you ignore the exceptions,
-            // pebble keeps on coming up, each time writing a blank file to the webapp directory.  Then Tomcat shuts
-            // down the context listener, and that causes backup to be called, the thread is now not interrupted, and
-            // so backup successfully writes all our blank files back to the blog directory, and all your themes are
-            // lost.  I speak from experience.  Thankfully I had backups.
-            throw new RuntimeException("Error copying files", ioe);
+      for (File file : files) {
+        names.add(file.getName());
+        File target = new File(destination, file.getName());
+        if (file.isDirectory()) {
+          copied += sync(file, target);
+        } else if (!isUpToDate(file, target)) {
+          copyFile(file, target);
+          copied++;
+        }
+      }
+    }
+
+    // and remove anything that has been removed from the source
+    File targets[] = destination.listFiles();
+    if (targets != null) {
+      for (File target : targets) {
+        if (!names.contains(target.getName())) {
+          if (target.isDirectory()) {
+            FileUtils.deleteFile(target);
+          } else {
+            target.delete();
           }
         }
       }
     }
+
+    return copied;
+  }
+
+  /**
+   * Determines whether a file already has the same content as another.
+   */
+  private static boolean isUpToDate(File file, File target) throws IOException {
+    if (!target.isFile() || target.length() != file.length()) {
+      return false;
+    }
+
+    if (target.lastModified() == file.lastModified() || isSameFile(file, target)) {
+      // uploaded theme files may be hard linked into the blog directory,
+      // and opening one for writing would truncate the other
+      return true;
+    }
+
+    // the same content with a different timestamp (after a redeploy, say)
+    // only needs the timestamp bringing into line
+    if (FileUtils.contentEquals(file, target)) {
+      target.setLastModified(file.lastModified());
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Copies a file, keeping its modification time, by way of a temporary file
+   * so that the target is never seen half written.
+   */
+  private static void copyFile(File file, File target) throws IOException {
+    if (target.isDirectory()) {
+      FileUtils.deleteFile(target);
+    }
+
+    File temporary = new File(target.getParentFile(), "." + target.getName() + ".tmp");
+    try {
+      Files.copy(file.toPath(), temporary.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+      move(temporary, target);
+    } finally {
+      temporary.delete();
+    }
+  }
+
+  private static void move(File source, File target) throws IOException {
+    try {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static boolean isSameFile(File file, File other) {
+    try {
+      return other.exists() && Files.isSameFile(file.toPath(), other.toPath());
+    } catch (IOException e) {
+      return false;
+    }
   }
 
   /**
-   * If there is still a backup directory lying around, it means that something went wrong in a previous shutdown.  We
-   * don't want to use it in case a user is starting/restarting pebble multiple times and hasn't realised they've
-   * corrupted their theme yet.
+   * Gets a directory name next to the given one that isn't in use, for
+   * building a copy of a theme in.
    *
    * @return A unique directory name
    */
-  private File getUniqueBackupBackupDirectory() {
-    File dir = new File(getBackupThemeDirectory() + ".bak");
+  private static File getUniqueDirectory(File directory, String suffix) {
+    File dir = new File(directory.getPath() + suffix);
     if (dir.exists()) {
-      dir = new File(getBackupThemeDirectory() + "-" + System.currentTimeMillis() + ".bak");
+      dir = new File(directory.getPath() + "-" + System.currentTimeMillis() + suffix);
     }
     return dir;
   }
@@ -46,8 +46,11 @@ public abstract class TimePeriod implements Serializable {
 	 */
 	private static final long serialVersionUID = -5519843715350733099L;
 
-/** a reference to the top level, owning blog */
-  private Blog blog;
+/**
+   * a reference to the top level, owning blog, which isn't written to index
+   * snapshots (see {@link #reattach(Blog)})
+   */
+  private transient Blog blog;
 
   /** a Date representation of the day that this blog is for */
   private Date date;
@@ -70,6 +73,16 @@ public abstract class TimePeriod implements Serializable {
     return blog;
   }
 
+  /**
+   * Attaches this time period, as read back from an index snapshot, to its
+   * blog.
+   *
+   * @param blog    the top-level owning Blog instance
+   */
+  public void reattach(Blog blog) {
+    this.blog = blog;
+  }
+
   /**
    * Gets the date that this blog is for.
    *
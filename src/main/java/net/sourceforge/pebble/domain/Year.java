@@ -157,6 +157,18 @@ public class Year extends TimePeriod implements Comparable {
     return getBlogForMonth(1);
   }
 
+  /**
+   * Attaches this year, and its months, to the blog.
+   *
+   * @param blog    the owning Blog instance
+   */
+  public void reattach(Blog blog) {
+    super.reattach(blog);
+    for (Month month : months) {
+      month.reattach(blog);
+    }
+  }
+
   /**
    * Gets a collection of all Months managed by this blog.
    *
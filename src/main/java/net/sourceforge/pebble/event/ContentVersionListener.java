@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.event;
+
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryEvent;
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryListener;
+import net.sourceforge.pebble.api.event.comment.CommentEvent;
+import net.sourceforge.pebble.api.event.comment.CommentListener;
+import net.sourceforge.pebble.api.event.trackback.TrackBackEvent;
+import net.sourceforge.pebble.api.event.trackback.TrackBackListener;
+
+/**
+ * Moves the content version of a blog on whenever its blog entries or
+ * responses change, so that cached pages are revalidated.
+ */
+public class ContentVersionListener implements BlogEntryListener, CommentListener, TrackBackListener {
+
+  private static final long serialVersionUID = 4017343236281869742L;
+
+  public void blogEntryAdded(BlogEntryEvent event) {
+    event.getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void blogEntryRemoved(BlogEntryEvent event) {
+    event.getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void blogEntryChanged(BlogEntryEvent event) {
+    event.getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void blogEntryPublished(BlogEntryEvent event) {
+    event.getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void blogEntryUnpublished(BlogEntryEvent event) {
+    event.getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void commentAdded(CommentEvent event) {
+    event.getComment().getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void commentRemoved(CommentEvent event) {
+    event.getComment().getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void commentApproved(CommentEvent event) {
+    event.getComment().getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void commentRejected(CommentEvent event) {
+    event.getComment().getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void trackBackAdded(TrackBackEvent event) {
+    event.getTrackBack().getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void trackBackRemoved(TrackBackEvent event) {
+    event.getTrackBack().getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void trackBackApproved(TrackBackEvent event) {
+    event.getTrackBack().getBlogEntry().getBlog().contentChanged();
+  }
+
+  public void trackBackRejected(TrackBackEvent event) {
+    event.getTrackBack().getBlogEntry().getBlog().contentChanged();
+  }
+
+}
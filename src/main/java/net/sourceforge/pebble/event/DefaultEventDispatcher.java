@@ -40,6 +40,9 @@ import net.sourceforge.pebble.api.event.comment.CommentListener;
 import net.sourceforge.pebble.api.event.EventDispatcher;
 import net.sourceforge.pebble.api.event.trackback.TrackBackEvent;
 import net.sourceforge.pebble.api.event.trackback.TrackBackListener;
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.Response;
+import net.sourceforge.pebble.metrics.Metrics;
 
 import java.util.Iterator;
 
@@ -62,14 +65,17 @@ public class DefaultEventDispatcher extends EventDispatcher {
    * @param event   the BlogEvent instance
    */
   public void fireBlogEvent(BlogEvent event) {
+    Metrics metrics = getMetrics(event.getBlog());
     Iterator it = getEventListenerList().getBlogListeners().iterator();
     while (it.hasNext()) {
       BlogListener listener = (BlogListener)it.next();
+      long start = metrics.start();
       if (event.getType() == BlogEvent.BLOG_STARTED) {
         listener.blogStarted(event);
       } else if (event.getType() == BlogEvent.BLOG_STOPPED) {
         listener.blogStopped(event);
       }
+      metrics.stop("listener.", listener.getClass(), start);
 
       // has the event been vetoed?
       if (event.isVetoed()) {
@@ -84,9 +90,11 @@ public class DefaultEventDispatcher extends EventDispatcher {
    * @param event   the BlogEntryEvent instance
    */
   public void fireBlogEntryEvent(BlogEntryEvent event) {
+    Metrics metrics = getMetrics(event.getBlogEntry().getBlog());
     Iterator it = getEventListenerList().getBlogEntryListeners().iterator();
     while (it.hasNext()) {
       BlogEntryListener listener = (BlogEntryListener)it.next();
+      long start = metrics.start();
       if (event.getType() == BlogEntryEvent.BLOG_ENTRY_ADDED) {
         listener.blogEntryAdded(event);
       } else if (event.getType() == BlogEntryEvent.BLOG_ENTRY_REMOVED) {
@@ -98,6 +106,7 @@ public class DefaultEventDispatcher extends EventDispatcher {
       } else if (event.getType() == BlogEntryEvent.BLOG_ENTRY_UNPUBLISHED) {
         listener.blogEntryUnpublished(event);
       }
+      metrics.stop("listener.", listener.getClass(), start);
 
       // has the event been vetoed?
       if (event.isVetoed()) {
@@ -112,9 +121,11 @@ public class DefaultEventDispatcher extends EventDispatcher {
    * @param event   the CommentEvent instance
    */
   public void fireCommentEvent(CommentEvent event) {
+    Metrics metrics = getMetrics(getBlog(event.getComment()));
     Iterator it = getEventListenerList().getCommentListeners().iterator();
     while (it.hasNext()) {
       CommentListener listener = (CommentListener)it.next();
+      long start = metrics.start();
       if (event.getType() == CommentEvent.COMMENT_ADDED) {
         listener.commentAdded(event);
       } else if (event.getType() == CommentEvent.COMMENT_REMOVED) {
@@ -124,6 +135,7 @@ public class DefaultEventDispatcher extends EventDispatcher {
       } else if (event.getType() == CommentEvent.COMMENT_REJECTED) {
         listener.commentRejected(event);
       }
+      metrics.stop("listener.", listener.getClass(), start);
 
       // has the event been vetoed?
       if (event.isVetoed()) {
@@ -138,9 +150,11 @@ public class DefaultEventDispatcher extends EventDispatcher {
    * @param event   the TrackBackEvent instance
    */
   public void fireTrackBackEvent(TrackBackEvent event) {
+    Metrics metrics = getMetrics(getBlog(event.getTrackBack()));
     Iterator it = getEventListenerList().getTrackBackListeners().iterator();
     while (it.hasNext()) {
       TrackBackListener listener = (TrackBackListener)it.next();
+      long start = metrics.start();
       if (event.getType() == TrackBackEvent.TRACKBACK_ADDED) {
         listener.trackBackAdded(event);
       } else if (event.getType() == TrackBackEvent.TRACKBACK_REMOVED) {
@@ -150,6 +164,7 @@ public class DefaultEventDispatcher extends EventDispatcher {
       } else if (event.getType() == TrackBackEvent.TRACKBACK_REJECTED) {
         listener.trackBackRejected(event);
       }
+      metrics.stop("listener.", listener.getClass(), start);
 
       // has the event been vetoed?
       if (event.isVetoed()) {
@@ -158,4 +173,12 @@ public class DefaultEventDispatcher extends EventDispatcher {
     }
   }
 
+  private static Blog getBlog(Response response) {
+    return response.getBlogEntry() != null ? response.getBlogEntry().getBlog() : null;
+  }
+
+  private static Metrics getMetrics(Blog blog) {
+    return blog != null ? blog.getMetrics() : Metrics.getGlobal();
+  }
+
 }
\ No newline at end of file
@@ -31,17 +31,11 @@
  */
 package net.sourceforge.pebble.event.blogentry;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-
-import javax.servlet.http.HttpServletResponse;
-
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.methods.PostMethod;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
+import java.util.List;
 
 import net.sourceforge.pebble.api.event.blogentry.BlogEntryEvent;
 import net.sourceforge.pebble.decorator.PubSubHubBubFeedDecorator;
@@ -49,9 +43,13 @@ import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.Category;
 import net.sourceforge.pebble.domain.Tag;
+import net.sourceforge.pebble.ping.HubPing;
+import net.sourceforge.pebble.ping.PingService;
 
 /**
  * Listener that posts to a PubSubHubBub Hub when a blog entry is added/published/changed.
+ * The posts are made in the background by the {@link PingService}, which folds
+ * together the posts for a burst of changes.
  *
  * @author James Roper
  */
@@ -61,11 +59,7 @@ public class PubSubHubBubBlogEntryListener extends BlogEntryListenerSupport {
 	 */
 	private static final long serialVersionUID = 2168357753151321321L;
 	
-private final static String HUB_MODE_PARAM = "hub.mode";
-  private final static String HUB_URL_PARAM = "hub.url";
-  private final static String HUB_MODE = "publish";
-  private final static String ATOM_XML = "atom.xml";
-  private static final Log log = LogFactory.getLog(PubSubHubBubBlogEntryListener.class);
+private final static String ATOM_XML = "atom.xml";
 
   @Override
   public void blogEntryAdded(BlogEntryEvent event) {
@@ -101,32 +95,25 @@ private final static String HUB_MODE_PARAM = "hub.mode";
   private void postToHubs(BlogEntryEvent event) {
     BlogEntry entry = event.getBlogEntry();
     Blog blog = entry.getBlog();
+    Collection<String> hubs = getHubs(blog);
+    if (hubs.isEmpty()) {
+      return;
+    }
+
+    // Add every feed that might have this
     String blogUrl = blog.getUrl();
-    for (String hub : getHubs(blog)) {
-      HttpClient httpClient = new HttpClient();
-      PostMethod method = new PostMethod(hub);
-      method.addParameter(HUB_MODE_PARAM, HUB_MODE);
-      // Add every feed that might have this
-      method.addParameter(HUB_URL_PARAM, blogUrl + ATOM_XML);
-      for (Category category : entry.getCategories()) {
-        method.addParameter(HUB_URL_PARAM, category.getPermalink() + ATOM_XML);
-      }
-      for (Tag tag : entry.getAllTags()) {
-        method.addParameter(HUB_URL_PARAM, tag.getPermalink() + ATOM_XML);
-      }
-      method.addParameter(HUB_URL_PARAM, blogUrl + "authors/" + entry.getAuthor() + "/" + ATOM_XML);
-      try {
-        int rc = httpClient.executeMethod(method);
-        if (rc != HttpServletResponse.SC_NO_CONTENT) {
-          String errorMessage = "Unexpected response code received from hub: " + hub + " - " + rc + " " +
-              method.getStatusText();
-          log.warn(errorMessage);
-          blog.warn(errorMessage);
-        }
-      } catch (IOException e) {
-        log.error("Error posting to hub: " + hub, e);
-        blog.warn("Error publishing to hub: " + hub + ". Message: " + e.getMessage());
-      }
+    List<String> feeds = new ArrayList<String>();
+    feeds.add(blogUrl + ATOM_XML);
+    for (Category category : entry.getCategories()) {
+      feeds.add(category.getPermalink() + ATOM_XML);
+    }
+    for (Tag tag : entry.getAllTags()) {
+      feeds.add(tag.getPermalink() + ATOM_XML);
+    }
+    feeds.add(blogUrl + "authors/" + entry.getAuthor() + "/" + ATOM_XML);
+
+    for (String hub : hubs) {
+      PingService.getInstance().send(new HubPing(blog, hub.trim(), feeds));
     }
   }
 
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.event.blogentry;
+
+import java.beans.PropertyChangeEvent;
+
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryEvent;
+import net.sourceforge.pebble.domain.BlogEntry;
+
+/**
+ * Clears the classification of requests in the logs when blog entries come,
+ * go or are retitled, since the friendly names shown for permalinks include
+ * the blog entry title.
+ */
+public class RequestClassificationListener extends BlogEntryListenerSupport {
+
+  private static final long serialVersionUID = 4153089375468213452L;
+
+  /**
+   * Called when a blog entry has been added.
+   *
+   * @param event   a BlogEntryEvent instance
+   */
+  public void blogEntryAdded(BlogEntryEvent event) {
+    clear(event.getBlogEntry());
+  }
+
+  /**
+   * Called when a blog entry has been removed.
+   *
+   * @param event   a BlogEntryEvent instance
+   */
+  public void blogEntryRemoved(BlogEntryEvent event) {
+    clear(event.getBlogEntry());
+  }
+
+  /**
+   * Called when a blog entry has been changed.
+   *
+   * @param event   a BlogEntryEvent instance
+   */
+  public void blogEntryChanged(BlogEntryEvent event) {
+    for (PropertyChangeEvent pce : event.getPropertyChangeEvents()) {
+      String property = pce.getPropertyName();
+
+      // the title and date determine the permalink
+      if (property.equals(BlogEntry.TITLE_PROPERTY) || property.equals(BlogEntry.DATE_PROPERTY)) {
+        clear(event.getBlogEntry());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Called when a blog entry has been published.
+   *
+   * @param event   a BlogEntryEvent instance
+   */
+  public void blogEntryPublished(BlogEntryEvent event) {
+    clear(event.getBlogEntry());
+  }
+
+  /**
+   * Called when a blog entry has been unpublished.
+   *
+   * @param event   a BlogEntryEvent instance
+   */
+  public void blogEntryUnpublished(BlogEntryEvent event) {
+    clear(event.getBlogEntry());
+  }
+
+  private void clear(BlogEntry blogEntry) {
+    blogEntry.getBlog().getRequestClassificationCache().clear();
+  }
+
+}
@@ -32,24 +32,22 @@
 package net.sourceforge.pebble.event.blogentry;
 
 import java.beans.PropertyChangeEvent;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.util.Iterator;
 import java.util.List;
 
-import org.w3c.dom.Document;
-import org.w3c.tidy.Tidy;
-
 import net.sourceforge.pebble.api.event.blogentry.BlogEntryEvent;
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryPreparer;
 import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.util.HtmlTidier;
 
 /**
  * Runs W3C Tidy over the excerpt and body of blog entries so that
- * they are valid XHTML.
+ * they are valid XHTML. The work is done before the blog entry is saved,
+ * and the events that follow find the content already tidied.
  *
  * @author Simon Brown
  */
-public class TidyListener extends BlogEntryListenerSupport {
+public class TidyListener extends BlogEntryListenerSupport implements BlogEntryPreparer {
 
   /**
 	 * 
@@ -57,6 +55,17 @@ public class TidyListener extends BlogEntryListenerSupport {
 	private static final long serialVersionUID = 2381491219191871745L;
 
 /**
+   * Called before a blog entry is saved.
+   *
+   * @param blogEntry   the BlogEntry about to be saved
+   */
+  public void prepare(BlogEntry blogEntry) {
+    if (!blogEntry.isPersistent() || isContentChanged(blogEntry.getPropertyChangeEvents())) {
+      tidy(blogEntry);
+    }
+  }
+
+  /**
    * Called when a blog entry has been added.
    *
    * @param event   a BlogEntryEvent instance
@@ -71,46 +80,28 @@ public class TidyListener extends BlogEntryListenerSupport {
    * @param event a BlogEntryEvent instance
    */
   public void blogEntryChanged(BlogEntryEvent event) {
-    List propertyChangeEvents = event.getPropertyChangeEvents();
+    if (isContentChanged(event.getPropertyChangeEvents())) {
+      tidy(event.getBlogEntry());
+    }
+  }
+
+  private boolean isContentChanged(List propertyChangeEvents) {
     Iterator it = propertyChangeEvents.iterator();
     while (it.hasNext()) {
       PropertyChangeEvent pce = (PropertyChangeEvent)it.next();
       String property = pce.getPropertyName();
       if (property.equals(BlogEntry.EXCERPT_PROPERTY) ||
           property.equals(BlogEntry.BODY_PROPERTY)) {
-        tidy(event.getBlogEntry());
+        return true;
       }
     }
+    return false;
   }
 
   private void tidy(BlogEntry blogEntry) {
-    blogEntry.setExcerpt(tidy(blogEntry.getExcerpt()));
-    blogEntry.setBody(tidy(blogEntry.getBody()));
-  }
-
-  private String tidy(String s) {
-    if (s != null && s.length() > 0) {
-      s = "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\" \"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n" +
-          "<html xmlns=\"http://www.w3.org/1999/xhtml\"><title></title><body>" + s + "</body></html>";
-      ByteArrayInputStream in = new ByteArrayInputStream(s.getBytes());
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      Tidy tidy = new Tidy();
-      tidy.setXHTML(true);
-      tidy.setDocType("\"-//W3C//DTD XHTML 1.0 Transitional//EN\"");
-      tidy.setQuiet(true);
-      tidy.setShowWarnings(false);
-      tidy.setIndentContent(false);
-      tidy.setSmartIndent(false);
-      tidy.setIndentAttributes(false);
-      tidy.setWraplen(0);
-      Document doc = tidy.parseDOM(in, null);
-      tidy.pprint(doc, out);
-
-      String tidied = new String(out.toByteArray());
-      return tidied.substring(tidied.indexOf("<body>")+"<body>".length(), tidied.indexOf("</body>")).trim();
-    } else {
-      return "";
-    }
+    HtmlTidier tidier = HtmlTidier.getInstance();
+    blogEntry.setExcerpt(tidier.tidy(blogEntry.getExcerpt()));
+    blogEntry.setBody(tidier.tidy(blogEntry.getBody()));
   }
 
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sourceforge.pebble.domain.Day;
+import net.sourceforge.pebble.domain.Month;
+
+/**
+ * An immutable summary of a blog's archive, with the number of published
+ * blog entries in each month and day, and the first and last published blog
+ * entry of each month. The calendar and archive views read from this rather
+ * than walking the Year, Month and Day objects on every page.
+ * <br /><br />
+ * The blog entry index keeps it up to date, replacing it whenever blog
+ * entries are indexed or unindexed, and only the months that changed are
+ * summarised again.
+ */
+public final class ArchiveSummary implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** a summary of a blog without any blog entries */
+  public static final ArchiveSummary EMPTY = new ArchiveSummary(Collections.<Integer,MonthSummary>emptyMap(), null, 0, 0);
+
+  /** the months that have published blog entries, keyed on year and month */
+  private final Map<Integer,MonthSummary> months;
+
+  /** the first blog entry, whether published or not */
+  private final String firstBlogEntry;
+  private final int firstYear;
+  private final int firstMonth;
+
+  private ArchiveSummary(Map<Integer,MonthSummary> months, String firstBlogEntry, int firstYear, int firstMonth) {
+    this.months = months;
+    this.firstBlogEntry = firstBlogEntry;
+    this.firstYear = firstYear;
+    this.firstMonth = firstMonth;
+  }
+
+  private static Integer key(int year, int month) {
+    return (year * 12) + (month - 1);
+  }
+
+  /**
+   * Creates a new summary with the given months summarised again from
+   * their days.
+   *
+   * @param changedMonths   the Month instances that have changed
+   * @param firstBlogEntry  the first blog entry (whether published or not), or null
+   * @param firstDay        the Day that the first blog entry was posted on, or null
+   * @return  a new ArchiveSummary instance
+   */
+  ArchiveSummary update(Collection<Month> changedMonths, String firstBlogEntry, Day firstDay) {
+    Map<Integer,MonthSummary> map = new HashMap<Integer,MonthSummary>(months);
+    for (Month month : changedMonths) {
+      Integer key = key(month.getYear().getYear(), month.getMonth());
+      MonthSummary summary = new MonthSummary(month);
+      if (summary.numberOfBlogEntries > 0) {
+        map.put(key, summary);
+      } else {
+        map.remove(key);
+      }
+    }
+
+    if (firstDay == null) {
+      return new ArchiveSummary(Collections.unmodifiableMap(map), null, 0, 0);
+    } else {
+      Month month = firstDay.getMonth();
+      return new ArchiveSummary(Collections.unmodifiableMap(map), firstBlogEntry, month.getYear().getYear(), month.getMonth());
+    }
+  }
+
+  /**
+   * Gets the number of published blog entries in a month.
+   *
+   * @param year    the year (e.g. 2011)
+   * @param month   the month (1 to 12)
+   * @return  the number of blog entries as an int
+   */
+  public int getNumberOfBlogEntries(int year, int month) {
+    MonthSummary summary = months.get(key(year, month));
+    return summary != null ? summary.numberOfBlogEntries : 0;
+  }
+
+  /**
+   * Gets the number of published blog entries on a day.
+   *
+   * @param year    the year (e.g. 2011)
+   * @param month   the month (1 to 12)
+   * @param day     the day of the month (1 to 31)
+   * @return  the number of blog entries as an int
+   */
+  public int getNumberOfBlogEntries(int year, int month, int day) {
+    MonthSummary summary = months.get(key(year, month));
+    if (summary == null || day < 1 || day > summary.days.length) {
+      return 0;
+    } else {
+      return summary.days[day-1];
+    }
+  }
+
+  /**
+   * Gets the first published blog entry in a month.
+   *
+   * @param year    the year (e.g. 2011)
+   * @param month   the month (1 to 12)
+   * @return  a blog entry ID, or null if there are no blog entries
+   */
+  public String getFirstBlogEntry(int year, int month) {
+    MonthSummary summary = months.get(key(year, month));
+    return summary != null ? summary.firstBlogEntry : null;
+  }
+
+  /**
+   * Gets the last published blog entry in a month.
+   *
+   * @param year    the year (e.g. 2011)
+   * @param month   the month (1 to 12)
+   * @return  a blog entry ID, or null if there are no blog entries
+   */
+  public String getLastBlogEntry(int year, int month) {
+    MonthSummary summary = months.get(key(year, month));
+    return summary != null ? summary.lastBlogEntry : null;
+  }
+
+  /**
+   * Gets the first blog entry in the blog, whether published or not.
+   *
+   * @return  a blog entry ID, or null if there are no blog entries
+   */
+  public String getFirstBlogEntry() {
+    return firstBlogEntry;
+  }
+
+  /**
+   * Gets the year of the first blog entry in the blog.
+   *
+   * @return  the year, or 0 if there are no blog entries
+   */
+  public int getFirstYear() {
+    return firstYear;
+  }
+
+  /**
+   * Gets the month of the first blog entry in the blog.
+   *
+   * @return  the month (1 to 12), or 0 if there are no blog entries
+   */
+  public int getFirstMonth() {
+    return firstMonth;
+  }
+
+  /**
+   * The published blog entries in a single month.
+   */
+  private static final class MonthSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] days;
+    private final int numberOfBlogEntries;
+    private final String firstBlogEntry;
+    private final String lastBlogEntry;
+
+    MonthSummary(Month month) {
+      Day[] allDays = month.getAllDays();
+      days = new int[allDays.length];
+
+      int count = 0;
+      String first = null;
+      String last = null;
+      for (int i = 0; i < allDays.length; i++) {
+        days[i] = allDays[i].getNumberOfBlogEntries();
+        if (days[i] > 0) {
+          if (first == null) {
+            first = allDays[i].getFirstBlogEntry();
+          }
+          last = allDays[i].getLastBlogEntry();
+          count += days[i];
+        }
+      }
+
+      this.numberOfBlogEntries = count;
+      this.firstBlogEntry = first;
+      this.lastBlogEntry = last;
+    }
+
+  }
+
+}
@@ -54,7 +54,8 @@ public class AuthorIndex implements Serializable {
 
   private static final Log log = LogFactory.getLog(AuthorIndex.class);
 
-  private Blog blog;
+  /** the owning blog, which isn't written to index snapshots */
+  private transient Blog blog;
 
   /** the map containing the tags */
   private Map<String,List<String>> authors = new HashMap<String,List<String>>();
@@ -65,6 +66,13 @@ public class AuthorIndex implements Serializable {
     readIndex();
   }
 
+  /**
+   * Attaches this index, as read back from an index snapshot, to its blog.
+   */
+  void reattach(Blog blog) {
+    this.blog = blog;
+  }
+
   /**
    * Clears the index.
    */
@@ -185,7 +193,7 @@ public class AuthorIndex implements Serializable {
   private synchronized List<String> getBlogEntries(String author) {
     List<String> blogEntries = authors.get(author);
     if (blogEntries == null) {
-      blogEntries = new LinkedList<String>();
+      blogEntries = new ArrayList<String>();
       authors.put(author, blogEntries);
     }
 
@@ -214,4 +222,35 @@ public class AuthorIndex implements Serializable {
     }
   }
 
+  /**
+   * Gets a slice of the blog entries for a given author, most recent first.
+   * Only published blog entries are held in the index.
+   *
+   * @param username    a username (String)
+   * @param offset      the position of the first blog entry to return
+   * @param limit       the maximum number of blog entries to return
+   * @return  a List of blog entry IDs
+   */
+  public synchronized List<String> getRecentBlogEntries(String username, int offset, int limit) {
+    List<String> blogEntries = authors.get(username);
+    if (blogEntries == null) {
+      return new ArrayList<String>();
+    }
+
+    int from = Math.min(Math.max(offset, 0), blogEntries.size());
+    int to = (int)Math.min((long)from + Math.max(limit, 0), blogEntries.size());
+    return new ArrayList<String>(blogEntries.subList(from, to));
+  }
+
+  /**
+   * Gets the number of published blog entries for a given author.
+   *
+   * @param username    a username (String)
+   * @return  the number of blog entries as an int
+   */
+  public synchronized int getNumberOfBlogEntries(String username) {
+    List<String> blogEntries = authors.get(username);
+    return blogEntries != null ? blogEntries.size() : 0;
+  }
+
 }
\ No newline at end of file
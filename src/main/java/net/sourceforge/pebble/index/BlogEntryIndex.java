@@ -36,6 +36,7 @@ import net.sourceforge.pebble.comparator.ReverseBlogEntryIdComparator;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.Day;
+import net.sourceforge.pebble.domain.Month;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -56,17 +57,30 @@ public class BlogEntryIndex implements Serializable {
 
 private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
 
-  private Blog blog;
+  /** the owning blog, which isn't written to index snapshots */
+  private transient Blog blog;
 
   private List<String> indexEntries = new ArrayList<String>();
   private List<String> publishedIndexEntries = new ArrayList<String>();
   private List<String> unpublishedIndexEntries = new ArrayList<String>();
 
+  /** a summary of the archive, replaced whenever the index changes */
+  private volatile ArchiveSummary archiveSummary = ArchiveSummary.EMPTY;
+
   public BlogEntryIndex(Blog blog) {
     this.blog = blog;
 
-    readIndex(true);
-    readIndex(false);
+    Set<Month> months = new LinkedHashSet<Month>();
+    readIndex(true, months);
+    readIndex(false, months);
+    updateArchiveSummary(months);
+  }
+
+  /**
+   * Attaches this index, as read back from an index snapshot, to its blog.
+   */
+  void reattach(Blog blog) {
+    this.blog = blog;
   }
 
   /**
@@ -76,6 +90,7 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
     indexEntries = new ArrayList<String>();
     publishedIndexEntries = new ArrayList<String>();
     unpublishedIndexEntries = new ArrayList<String>();
+    archiveSummary = ArchiveSummary.EMPTY;
     writeIndex(true);
     writeIndex(false);
   }
@@ -86,8 +101,10 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
    * @param blogEntries   a List of BlogEntry instances
    */
   public synchronized void index(Collection<BlogEntry> blogEntries) {
+    Set<Month> months = new LinkedHashSet<Month>();
     for (BlogEntry blogEntry : blogEntries) {
       Day day = blog.getBlogForDay(blogEntry.getDate());
+      months.add(day.getMonth());
       if (blogEntry.isPublished()) {
         publishedIndexEntries.add(blogEntry.getId());
         day.addPublishedBlogEntry(blogEntry.getId());
@@ -101,6 +118,7 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
     Collections.sort(indexEntries, new ReverseBlogEntryIdComparator());
     Collections.sort(publishedIndexEntries, new ReverseBlogEntryIdComparator());
     Collections.sort(unpublishedIndexEntries, new ReverseBlogEntryIdComparator());
+    updateArchiveSummary(months);
 
     writeIndex(true);
     writeIndex(false);
@@ -127,6 +145,7 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
     Collections.sort(indexEntries, new ReverseBlogEntryIdComparator());
     Collections.sort(publishedIndexEntries, new ReverseBlogEntryIdComparator());
     Collections.sort(unpublishedIndexEntries, new ReverseBlogEntryIdComparator());
+    updateArchiveSummary(Collections.singleton(day.getMonth()));
   }
 
   /**
@@ -141,6 +160,7 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
     indexEntries.remove(blogEntry.getId());
     publishedIndexEntries.remove(blogEntry.getId());
     unpublishedIndexEntries.remove(blogEntry.getId());
+    updateArchiveSummary(Collections.singleton(day.getMonth()));
 
     writeIndex(true);
     writeIndex(false);
@@ -149,7 +169,7 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
   /**
    * Helper method to load the index.
    */
-  private void readIndex(boolean published) {
+  private void readIndex(boolean published, Set<Month> months) {
     File indexFile;
     if (published) {
       indexFile = new File(blog.getIndexesDirectory(), "blogentries-published.index");
@@ -167,6 +187,7 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
           // and add it to the internal memory structures
           Date date = new Date(Long.parseLong(indexEntry));
           Day day = blog.getBlogForDay(date);
+          months.add(day.getMonth());
 
           if (published) {
             publishedIndexEntries.add(indexEntry);
@@ -190,6 +211,22 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
     Collections.sort(unpublishedIndexEntries, new ReverseBlogEntryIdComparator());
   }
 
+  /**
+   * Summarises the given months again, along with the first blog entry.
+   *
+   * @param months    the Month instances that have changed
+   */
+  private void updateArchiveSummary(Collection<Month> months) {
+    String firstBlogEntry = null;
+    Day firstDay = null;
+    if (!indexEntries.isEmpty()) {
+      firstBlogEntry = indexEntries.get(indexEntries.size()-1);
+      firstDay = blog.getBlogForDay(new Date(Long.parseLong(firstBlogEntry)));
+    }
+
+    archiveSummary = archiveSummary.update(months, firstBlogEntry, firstDay);
+  }
+
   /**
    * Helper method to write out the index to disk.
    */
@@ -267,6 +304,72 @@ private static final Log log = LogFactory.getLog(BlogEntryIndex.class);
     return new ArrayList<String>(publishedIndexEntries);
   }
 
+  /**
+   * Gets the most recent published blog entries, without copying the full list.
+   *
+   * @param number    the maximum number of blog entry IDs to get
+   * @return  a List of blog entry IDs, newest first
+   */
+  public synchronized List<String> getRecentPublishedBlogEntries(int number) {
+    int size = Math.min(Math.max(number, 0), publishedIndexEntries.size());
+    return new ArrayList<String>(publishedIndexEntries.subList(0, size));
+  }
+
+  /**
+   * Gets the published blog entry posted immediately before the given one.
+   * The given blog entry doesn't need to be published.
+   *
+   * @param blogEntryId   a blog entry ID
+   * @return  a blog entry ID, or null if there isn't an older published blog entry
+   */
+  public synchronized String getPreviousPublishedBlogEntry(String blogEntryId) {
+    int index = Collections.binarySearch(publishedIndexEntries, blogEntryId, new ReverseBlogEntryIdComparator());
+    int previous = (index >= 0) ? index + 1 : -(index + 1);
+    if (previous < publishedIndexEntries.size()) {
+      return publishedIndexEntries.get(previous);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the published blog entry posted immediately after the given one,
+   * ignoring blog entries dated in the future. The given blog entry doesn't
+   * need to be published.
+   *
+   * @param blogEntryId   a blog entry ID
+   * @return  a blog entry ID, or null if there isn't a newer published blog entry
+   */
+  public synchronized String getNextPublishedBlogEntry(String blogEntryId) {
+    int index = Collections.binarySearch(publishedIndexEntries, blogEntryId, new ReverseBlogEntryIdComparator());
+    int next = (index >= 0) ? index - 1 : -(index + 1) - 1;
+    // entries are newest first, so if this one is in the future then so are all the others
+    if (next >= 0 && Long.parseLong(publishedIndexEntries.get(next)) <= System.currentTimeMillis()) {
+      return publishedIndexEntries.get(next);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Determines whether any published blog entries are dated in the future.
+   *
+   * @return  true if the newest published blog entry is in the future, false otherwise
+   */
+  public synchronized boolean hasScheduledBlogEntries() {
+    return !publishedIndexEntries.isEmpty() && Long.parseLong(publishedIndexEntries.get(0)) > System.currentTimeMillis();
+  }
+
+  /**
+   * Gets a summary of the archive, with the number of published blog entries
+   * in each month and day.
+   *
+   * @return  an ArchiveSummary instance, which won't change
+   */
+  public ArchiveSummary getArchiveSummary() {
+    return archiveSummary;
+  }
+
   /**
    * Gets the full list of unpublished blog entries.
    *
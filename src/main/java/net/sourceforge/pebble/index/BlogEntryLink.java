@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import java.io.Serializable;
+
+import net.sourceforge.pebble.domain.BlogEntry;
+
+/**
+ * The title and permalink of a blog entry, which is all that's needed to
+ * link to it without loading it again.
+ */
+public final class BlogEntryLink implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String id;
+  private final String title;
+  private final String localPermalink;
+
+  public BlogEntryLink(BlogEntry blogEntry) {
+    this.id = blogEntry.getId();
+    this.title = blogEntry.getTitle();
+    this.localPermalink = blogEntry.getLocalPermalink();
+  }
+
+  /**
+   * Gets the ID of the blog entry.
+   *
+   * @return  the blog entry ID as a String
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Gets the title of the blog entry.
+   *
+   * @return  the title as a String
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Gets the permalink of the blog entry, within its own blog.
+   *
+   * @return  an absolute URL as a String
+   */
+  public String getLocalPermalink() {
+    return localPermalink;
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import java.io.Serializable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.BlogServiceException;
+import net.sourceforge.pebble.util.LruCache;
+
+/**
+ * Remembers the previous and next published blog entries for the blog
+ * entries that have been viewed, so that a permalink page can link to them
+ * without loading them.
+ * <br /><br />
+ * The neighbours of a blog entry change when blog entries are added,
+ * removed, published or unpublished, and the links change when a blog entry
+ * is retitled or redated or the permalink provider changes. The whole cache
+ * is cleared when any of those happen. A blog entry with no next one isn't
+ * remembered while there are blog entries dated in the future, since one of
+ * those will become its next when the time comes.
+ */
+public class BlogEntryNeighbourCache implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Log log = LogFactory.getLog(BlogEntryNeighbourCache.class);
+
+  /** the default maximum number of blog entries remembered */
+  private static final int DEFAULT_CAPACITY = 1000;
+
+  private final Blog blog;
+
+  /** neighbours, by blog entry ID */
+  private final LruCache<String,Neighbours> neighbours;
+
+  public BlogEntryNeighbourCache(Blog blog) {
+    this(blog, DEFAULT_CAPACITY);
+  }
+
+  public BlogEntryNeighbourCache(Blog blog, int capacity) {
+    this.blog = blog;
+    this.neighbours = new LruCache<String,Neighbours>(capacity);
+  }
+
+  /**
+   * Gets the previous and next published blog entries for a blog entry.
+   *
+   * @param blogEntry   a BlogEntry instance
+   * @return  a Neighbours instance
+   */
+  public Neighbours getNeighbours(BlogEntry blogEntry) {
+    String blogEntryId = blogEntry.getId();
+    long generation;
+    synchronized (neighbours) {
+      neighbours.clearIfChanged(blog.getPermalinkProvider());
+      Neighbours cached = neighbours.get(blogEntryId);
+      if (cached != null) {
+        return cached;
+      }
+      generation = neighbours.getGeneration();
+    }
+
+    BlogEntryIndex index = blog.getBlogEntryIndex();
+    String next = index.getNextPublishedBlogEntry(blogEntryId);
+    Neighbours result = new Neighbours(
+        getLink(index.getPreviousPublishedBlogEntry(blogEntryId)),
+        getLink(next));
+
+    if (next != null || !index.hasScheduledBlogEntries()) {
+      neighbours.put(blogEntryId, result, generation);
+    }
+
+    return result;
+  }
+
+  private BlogEntryLink getLink(String blogEntryId) {
+    if (blogEntryId == null) {
+      return null;
+    }
+
+    try {
+      BlogEntry blogEntry = new BlogService().getBlogEntry(blog, blogEntryId);
+      if (blogEntry != null) {
+        return new BlogEntryLink(blogEntry);
+      }
+    } catch (BlogServiceException e) {
+      log.error("Exception encountered", e);
+    }
+
+    return null;
+  }
+
+  /**
+   * Clears the cache.
+   */
+  public void clear() {
+    neighbours.clear();
+  }
+
+  /**
+   * Gets the number of blog entries whose neighbours are remembered.
+   *
+   * @return  the number of blog entries
+   */
+  public int size() {
+    return neighbours.size();
+  }
+
+  /**
+   * The previous and next published blog entries of a single blog entry.
+   */
+  public static final class Neighbours {
+
+    private final BlogEntryLink previous;
+    private final BlogEntryLink next;
+
+    Neighbours(BlogEntryLink previous, BlogEntryLink next) {
+      this.previous = previous;
+      this.next = next;
+    }
+
+    /**
+     * Gets the blog entry posted before this one.
+     *
+     * @return  a BlogEntryLink, or null if there isn't one
+     */
+    public BlogEntryLink getPrevious() {
+      return previous;
+    }
+
+    /**
+     * Gets the blog entry posted after this one.
+     *
+     * @return  a BlogEntryLink, or null if there isn't one
+     */
+    public BlogEntryLink getNext() {
+      return next;
+    }
+
+  }
+
+}
@@ -40,6 +40,8 @@ import org.apache.commons.logging.LogFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.io.*;
 
 /**
@@ -56,7 +58,11 @@ public class CategoryIndex implements Serializable {
 
 private static final Log log = LogFactory.getLog(CategoryIndex.class);
 
-  private Blog blog;
+  /** the owning blog, which isn't written to index snapshots */
+  private transient Blog blog;
+
+  /** the blog entries of each category, as read from an index snapshot */
+  private transient Map<String,List<String>> snapshotBlogEntries;
 
   public CategoryIndex(Blog blog) {
     this.blog = blog;
@@ -68,6 +74,40 @@ private static final Log log = LogFactory.getLog(CategoryIndex.class);
     readIndex();
   }
 
+  /**
+   * Attaches this index, as read back from an index snapshot, to its blog.
+   */
+  void reattach(Blog blog) {
+    this.blog = blog;
+    for (Map.Entry<String,List<String>> entry : snapshotBlogEntries.entrySet()) {
+      Category category = blog.getCategory(entry.getKey());
+      if (category != null) {
+        category.restoreBlogEntries(entry.getValue());
+      }
+    }
+    snapshotBlogEntries = null;
+  }
+
+  /**
+   * Writes out the blog entries of each category, since they are held by
+   * the categories rather than this index.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    Map<String,List<String>> blogEntries = new HashMap<String,List<String>>();
+    for (Category category : blog.getCategories()) {
+      blogEntries.put(category.getId(), category.getBlogEntries());
+    }
+
+    out.defaultWriteObject();
+    out.writeObject(blogEntries);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    snapshotBlogEntries = (Map<String,List<String>>)in.readObject();
+  }
+
   /**
    * Clears the index.
    */
@@ -189,4 +229,27 @@ private static final Log log = LogFactory.getLog(CategoryIndex.class);
     return new ArrayList<String>(category.getBlogEntries());
   }
 
+  /**
+   * Gets a slice of the blog entries for a given category, most recent first.
+   * Only published blog entries are held in the index.
+   *
+   * @param category    a category
+   * @param offset      the position of the first blog entry to return
+   * @param limit       the maximum number of blog entries to return
+   * @return  a List of blog entry IDs
+   */
+  public List<String> getRecentBlogEntries(Category category, int offset, int limit) {
+    return category.getBlogEntries(offset, limit);
+  }
+
+  /**
+   * Gets the number of published blog entries for a given category.
+   *
+   * @param category    a category
+   * @return  the number of blog entries as an int
+   */
+  public int getNumberOfBlogEntries(Category category) {
+    return category.getNumberOfBlogEntries();
+  }
+
 }
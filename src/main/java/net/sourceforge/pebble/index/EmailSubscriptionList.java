@@ -61,7 +61,8 @@ public class EmailSubscriptionList implements Serializable {
 
 private static final Log log = LogFactory.getLog(EmailSubscriptionList.class);
 
-  private Blog blog;
+  /** the owning blog, which isn't written to index snapshots */
+  private transient Blog blog;
 
   /** the list of e-mail addresses */
   private List<String> emailAddresses = new LinkedList<String>();
@@ -72,6 +73,13 @@ private static final Log log = LogFactory.getLog(EmailSubscriptionList.class);
     readIndex();
   }
 
+  /**
+   * Attaches this index, as read back from an index snapshot, to its blog.
+   */
+  void reattach(Blog blog) {
+    this.blog = blog;
+  }
+
   /**
    * Clears the index.
    */
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import net.sourceforge.pebble.domain.AbstractBlog;
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.Year;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A checksummed snapshot of the in-memory indexes for a blog, written when
+ * the blog is stopped and used to warm-start it. The snapshot holds the
+ * indexes as they were built (the years, months and days, along with the
+ * blog entry, response, tag, category, author and static page indexes), so
+ * that they can be loaded without reading and sorting the index files again.
+ * It's only used when the files it was built from are unchanged (same set of
+ * files, sizes and modification times); otherwise it's ignored and the
+ * index files are read as normal.
+ */
+public class IndexSnapshot {
+
+  private static final Log log = LogFactory.getLog(IndexSnapshot.class);
+
+  private static final String SNAPSHOT_FILE_NAME = "indexes.snapshot";
+  private static final String INDEX_FILE_SUFFIX = ".index";
+  private static final String CATEGORIES_FILE_NAME = "categories.xml";
+  private static final int MAGIC = 0x50424c53;
+  private static final int VERSION = 2;
+
+  /** the maximum number of recent blog entries prefetched after a warm start */
+  private static final int MAXIMUM_PREFETCH = 50;
+
+  /** the thread used to prefetch blog entries into the cache, created when first needed */
+  private static ExecutorService prefetchPool;
+
+  private final State state;
+
+  private IndexSnapshot(State state) {
+    this.state = state;
+  }
+
+  /**
+   * Reads the snapshot for the given blog, and attaches the indexes in it to
+   * the blog.
+   *
+   * @param blog    a Blog instance
+   * @return  an IndexSnapshot, or null if it is missing, corrupt or out of date
+   */
+  public static IndexSnapshot read(Blog blog) {
+    File snapshotFile = new File(blog.getIndexesDirectory(), SNAPSHOT_FILE_NAME);
+    if (!snapshotFile.exists()) {
+      return null;
+    }
+
+    try {
+      byte[] bytes = readFully(snapshotFile);
+      if (bytes.length < 8) {
+        return null;
+      }
+
+      CRC32 crc = new CRC32();
+      crc.update(bytes, 0, bytes.length - 8);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      in.skipBytes(bytes.length - 8);
+      if (in.readLong() != crc.getValue()) {
+        log.warn("Ignoring corrupt index snapshot for " + blog.getId());
+        return null;
+      }
+
+      in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+
+      Map<String,File> sourceFiles = new HashMap<String,File>();
+      for (File sourceFile : getSourceFiles(blog)) {
+        sourceFiles.put(getRelativePath(blog, sourceFile), sourceFile);
+      }
+
+      int numberOfFiles = in.readInt();
+      if (numberOfFiles != sourceFiles.size()) {
+        return null;
+      }
+
+      for (int i = 0; i < numberOfFiles; i++) {
+        File sourceFile = sourceFiles.get(in.readUTF());
+        long lastModified = in.readLong();
+        long length = in.readLong();
+        if (sourceFile == null || sourceFile.lastModified() != lastModified || sourceFile.length() != length) {
+          // the indexes have changed since the snapshot was taken
+          return null;
+        }
+      }
+
+      ObjectInputStream objects = new ObjectInputStream(in);
+      State state = (State)objects.readObject();
+      state.reattach(blog);
+
+      return new IndexSnapshot(state);
+    } catch (Exception e) {
+      log.warn("Ignoring unreadable index snapshot for " + blog.getId(), e);
+      return null;
+    }
+  }
+
+  public List<Year> getYears() {
+    return state.years;
+  }
+
+  public BlogEntryIndex getBlogEntryIndex() {
+    return state.blogEntryIndex;
+  }
+
+  public ResponseIndex getResponseIndex() {
+    return state.responseIndex;
+  }
+
+  public TagIndex getTagIndex() {
+    return state.tagIndex;
+  }
+
+  public CategoryIndex getCategoryIndex() {
+    return state.categoryIndex;
+  }
+
+  public AuthorIndex getAuthorIndex() {
+    return state.authorIndex;
+  }
+
+  public StaticPageIndex getStaticPageIndex() {
+    return state.staticPageIndex;
+  }
+
+  public EmailSubscriptionList getEmailSubscriptionList() {
+    return state.emailSubscriptionList;
+  }
+
+  /**
+   * Writes a snapshot of the indexes for the given blog.
+   *
+   * @param blog    a Blog instance
+   */
+  public static void write(Blog blog) {
+    File indexesDirectory = new File(blog.getIndexesDirectory());
+    if (!indexesDirectory.exists()) {
+      return;
+    }
+
+    File snapshotFile = new File(indexesDirectory, SNAPSHOT_FILE_NAME);
+    File tempFile = new File(indexesDirectory, SNAPSHOT_FILE_NAME + ".tmp");
+    try {
+      CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)), new CRC32());
+      DataOutputStream out = new DataOutputStream(checked);
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        List<File> sourceFiles = getSourceFiles(blog);
+        out.writeInt(sourceFiles.size());
+        for (File sourceFile : sourceFiles) {
+          out.writeUTF(getRelativePath(blog, sourceFile));
+          out.writeLong(sourceFile.lastModified());
+          out.writeLong(sourceFile.length());
+        }
+
+        ObjectOutputStream objects = new ObjectOutputStream(out);
+        objects.writeObject(new State(blog));
+        objects.flush();
+
+        out.flush();
+        out.writeLong(checked.getChecksum().getValue());
+      } finally {
+        out.close();
+      }
+
+      snapshotFile.delete();
+      if (!tempFile.renameTo(snapshotFile)) {
+        log.warn("Could not write index snapshot for " + blog.getId());
+        tempFile.delete();
+      }
+    } catch (IOException e) {
+      log.error("Error while writing index snapshot", e);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * Loads the most recent published blog entries into the cache in the
+   * background, since those are the ones most likely to be asked for first.
+   *
+   * @param blog    a Blog instance
+   */
+  public static void prefetch(final Blog blog) {
+    final List<String> blogEntryIds = blog.getBlogEntryIndex().getRecentPublishedBlogEntries(MAXIMUM_PREFETCH);
+    if (blogEntryIds.isEmpty()) {
+      return;
+    }
+
+    getPrefetchPool().execute(new Runnable() {
+      public void run() {
+        BlogService service = new BlogService();
+        for (String blogEntryId : blogEntryIds) {
+          try {
+            service.getBlogEntry(blog, blogEntryId);
+          } catch (Exception e) {
+            log.debug("Could not prefetch blog entry " + blogEntryId, e);
+          }
+        }
+      }
+    });
+  }
+
+  private static synchronized ExecutorService getPrefetchPool() {
+    if (prefetchPool == null) {
+      prefetchPool = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "pebble-prefetch");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    return prefetchPool;
+  }
+
+  /**
+   * Stops any prefetching in progress, along with the thread used to do it,
+   * so that it doesn't outlive the web application.
+   */
+  public static synchronized void shutdown() {
+    if (prefetchPool != null) {
+      prefetchPool.shutdownNow();
+      prefetchPool = null;
+    }
+  }
+
+  /**
+   * Gets the files that the indexes are built from: the index files
+   * (excluding the search index), along with the blog's properties and
+   * categories, which the indexes depend on.
+   */
+  private static List<File> getSourceFiles(Blog blog) {
+    List<File> sourceFiles = new ArrayList<File>();
+    addIndexFiles(new File(blog.getIndexesDirectory()), new File(blog.getSearchIndexDirectory()), sourceFiles);
+    for (String name : new String[] { AbstractBlog.BLOG_PROPERTIES_FILE, CATEGORIES_FILE_NAME }) {
+      File file = new File(blog.getRoot(), name);
+      if (file.exists()) {
+        sourceFiles.add(file);
+      }
+    }
+    Collections.sort(sourceFiles);
+
+    return sourceFiles;
+  }
+
+  private static void addIndexFiles(File directory, File searchIndexDirectory, List<File> indexFiles) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+
+    for (File file : files) {
+      if (file.isDirectory()) {
+        if (!file.equals(searchIndexDirectory)) {
+          addIndexFiles(file, searchIndexDirectory, indexFiles);
+        }
+      } else if (file.getName().endsWith(INDEX_FILE_SUFFIX)) {
+        indexFiles.add(file);
+      }
+    }
+  }
+
+  private static String getRelativePath(Blog blog, File file) {
+    String root = new File(blog.getRoot()).getAbsolutePath();
+    String path = file.getAbsolutePath();
+    if (path.startsWith(root)) {
+      path = path.substring(root.length());
+    }
+
+    return path.replace(File.separatorChar, '/');
+  }
+
+  private static byte[] readFully(File file) throws IOException {
+    byte[] bytes = new byte[(int)file.length()];
+    DataInputStream in = new DataInputStream(new FileInputStream(file));
+    try {
+      in.readFully(bytes);
+    } finally {
+      in.close();
+    }
+
+    return bytes;
+  }
+
+  /**
+   * The indexes held in a snapshot. The blog itself isn't written out, so
+   * everything is attached to the running blog once it has been read.
+   */
+  private static class State implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Year> years;
+    private final BlogEntryIndex blogEntryIndex;
+    private final ResponseIndex responseIndex;
+    private final TagIndex tagIndex;
+    private final CategoryIndex categoryIndex;
+    private final AuthorIndex authorIndex;
+    private final StaticPageIndex staticPageIndex;
+    private final EmailSubscriptionList emailSubscriptionList;
+
+    State(Blog blog) {
+      this.years = new ArrayList<Year>(blog.getYears());
+      this.blogEntryIndex = blog.getBlogEntryIndex();
+      this.responseIndex = blog.getResponseIndex();
+      this.tagIndex = blog.getTagIndex();
+      this.categoryIndex = blog.getCategoryIndex();
+      this.authorIndex = blog.getAuthorIndex();
+      this.staticPageIndex = blog.getStaticPageIndex();
+      this.emailSubscriptionList = blog.getEmailSubscriptionList();
+    }
+
+    void reattach(Blog blog) {
+      for (Year year : years) {
+        year.reattach(blog);
+      }
+      blogEntryIndex.reattach(blog);
+      responseIndex.reattach(blog);
+      tagIndex.reattach(blog);
+      categoryIndex.reattach(blog);
+      authorIndex.reattach(blog);
+      staticPageIndex.reattach(blog);
+      emailSubscriptionList.reattach(blog);
+    }
+
+  }
+
+}
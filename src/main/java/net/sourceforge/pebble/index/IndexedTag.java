@@ -73,6 +73,19 @@ public class IndexedTag extends Tag {
     return new ArrayList<String>(blogEntries);
   }
 
+  /**
+   * Gets a slice of the blog entries associated with this tag, most recent first.
+   *
+   * @param offset    the position of the first blog entry to return
+   * @param limit     the maximum number of blog entries to return
+   * @return  a List of blog entry IDs
+   */
+  public synchronized List<String> getBlogEntries(int offset, int limit) {
+    int from = Math.min(Math.max(offset, 0), blogEntries.size());
+    int to = (int)Math.min((long)from + Math.max(limit, 0), blogEntries.size());
+    return new ArrayList<String>(blogEntries.subList(from, to));
+  }
+
   /**
    * Adds a blog entry to this tag.
    *
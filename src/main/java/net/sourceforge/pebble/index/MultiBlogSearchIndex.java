@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.search.SearchException;
+import net.sourceforge.pebble.search.SearchHit;
+import net.sourceforge.pebble.search.SearchResults;
+
+/**
+ * Searches the indexes of several blogs at once, for use when Pebble is
+ * running in multi-blog mode. Each blog's index is searched in parallel on a
+ * small pool of threads and the top hits are then merged, so that only the
+ * hits on the requested page have their stored fields loaded. The pool
+ * belongs to this instance, and is shut down by close().
+ */
+public class MultiBlogSearchIndex {
+
+	/** the log used by this class */
+	private static final Log LOG = LogFactory.getLog(MultiBlogSearchIndex.class);
+
+	/** the maximum number of indexes that are searched concurrently */
+	private static final int POOL_SIZE = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() * 2, 16));
+
+	/** the pool on which individual indexes are searched; idle threads die off */
+	private final ExecutorService pool;
+
+	private final Supplier<? extends Collection<Blog>> blogs;
+
+	/**
+	 * Creates a new instance over the given blogs.
+	 *
+	 * @param blogs the blogs to search
+	 */
+	public MultiBlogSearchIndex(Collection<Blog> blogs) {
+		this(() -> blogs);
+	}
+
+	/**
+	 * Creates a new instance over the blogs returned by the given supplier,
+	 * which is asked for them on every search.
+	 *
+	 * @param blogs supplies the blogs to search, typically the public blogs
+	 */
+	public MultiBlogSearchIndex(Supplier<? extends Collection<Blog>> blogs) {
+		this.blogs = blogs;
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new SearchThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
+		this.pool = executor;
+	}
+
+	/**
+	 * Shuts down the search threads; any further searches fail.
+	 */
+	public void close() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Searches all of the blogs, returning a single page of hits.
+	 *
+	 * @param queryString the query
+	 * @param sortBy      SearchIndex.SORT_BY_SCORE or SearchIndex.SORT_BY_DATE
+	 * @param offset      the (zero based) position of the first hit to return
+	 * @param limit       the maximum number of hits to return
+	 * @return a SearchResults instance
+	 * @throws SearchException if the search could not be performed
+	 */
+	public SearchResults search(String queryString, String sortBy, int offset, int limit) throws SearchException {
+		LOG.debug("Performing multi-blog search : " + queryString);
+
+		SearchResults searchResults = new SearchResults();
+		searchResults.setQuery(queryString);
+
+		if (queryString == null || queryString.length() == 0) {
+			return searchResults;
+		}
+
+		boolean sortByDate = SearchIndex.SORT_BY_DATE.equalsIgnoreCase(sortBy);
+		offset = Math.max(offset, 0);
+		int start = offset;
+		int size = Math.min(Math.max(limit, 1), SearchIndex.MAXIMUM_PAGE_SIZE);
+
+		// search each index in parallel, keeping the top hits of each
+		List<Future<Shard>> futures = new ArrayList<>();
+		try {
+			for (Blog blog : blogs.get()) {
+				futures.add(pool.submit(() -> searchShard(blog, queryString, sortByDate, start, size)));
+			}
+		} catch (RejectedExecutionException ree) {
+			// closed while submitting, so give back any searchers already held
+			for (Future<Shard> future : futures) {
+				try {
+					Shard shard = future.get();
+					shard.searchIndex.releaseSearcher(shard.searcher);
+				} catch (Exception e) {
+					// the search failed, so it holds no searcher
+				}
+			}
+			throw new SearchException("The search index has been closed");
+		}
+
+		List<Shard> shards = new ArrayList<>();
+		try {
+			boolean parseError = false;
+			for (Future<Shard> future : futures) {
+				try {
+					shards.add(future.get());
+				} catch (ExecutionException ee) {
+					if (ee.getCause() instanceof ParseException) {
+						parseError = true;
+					} else {
+						LOG.warn("Unable to search blog", ee.getCause());
+					}
+				}
+			}
+
+			if (shards.isEmpty() && parseError) {
+				searchResults.setMessage("Sorry, but there was an error. Please try another search");
+				return searchResults;
+			}
+
+			// merge the top hits of each index, and pick out the requested page
+			TopFieldDocs[] shardHits = new TopFieldDocs[shards.size()];
+			for (int i = 0; i < shardHits.length; i++) {
+				shardHits[i] = shards.get(i).topDocs;
+			}
+			ScoreDoc[] hits = new ScoreDoc[0];
+			if (offset <= SearchIndex.MAXIMUM_OFFSET) {
+				hits = TopDocs.merge(SearchIndex.sortFor(sortByDate), offset, size, shardHits, true).scoreDocs;
+			}
+
+			// then load only those hits, from the index they came from
+			SearchHit[] searchHits = new SearchHit[hits.length];
+			for (int shardIndex = 0; shardIndex < shards.size(); shardIndex++) {
+				List<Integer> positions = new ArrayList<>();
+				for (int i = 0; i < hits.length; i++) {
+					if (hits[i].shardIndex == shardIndex) {
+						positions.add(i);
+					}
+				}
+				if (positions.isEmpty()) {
+					continue;
+				}
+
+				ScoreDoc[] shardPage = new ScoreDoc[positions.size()];
+				for (int i = 0; i < shardPage.length; i++) {
+					shardPage[i] = hits[positions.get(i)];
+				}
+				Shard shard = shards.get(shardIndex);
+				List<SearchHit> loaded = shard.searchIndex.loadHits(shard.searcher, shard.analyzer, shard.query,
+						new TopDocs(new TotalHits(shardPage.length, TotalHits.Relation.EQUAL_TO), shardPage));
+				for (int i = 0; i < shardPage.length; i++) {
+					searchHits[positions.get(i)] = loaded.get(i);
+				}
+			}
+
+			int totalHits = 0;
+			for (Shard shard : shards) {
+				totalHits += (int) shard.topDocs.totalHits.value;
+			}
+
+			for (int i = 0; i < searchHits.length; i++) {
+				searchHits[i].setNumber(offset + i + 1);
+				searchResults.add(searchHits[i]);
+			}
+			searchResults.setTotalHits(totalHits);
+			searchResults.setOffset(offset);
+		} catch (Exception e) {
+			LOG.error("Sorry, but there was an error. Please try another search", e);
+			throw new SearchException(e.getMessage());
+		} finally {
+			for (Shard shard : shards) {
+				shard.searchIndex.releaseSearcher(shard.searcher);
+			}
+		}
+
+		return searchResults;
+	}
+
+	/**
+	 * Collects the top hits from a single blog's index, enough to fill the
+	 * requested page after merging. The searcher is held until the merged
+	 * hits have been loaded.
+	 */
+	private Shard searchShard(Blog blog, String queryString, boolean sortByDate, int offset, int limit)
+			throws Exception {
+		SearchIndex searchIndex = blog.getSearchIndex();
+		IndexSearcher searcher = searchIndex.acquireSearcher();
+		try {
+			Analyzer analyzer = searchIndex.getAnalyzer();
+			Query query = searchIndex.parseQuery(queryString, analyzer);
+			int numHits = SearchIndex.getNumberOfHitsToCollect(offset, limit, searcher.getIndexReader().maxDoc());
+			TopFieldDocs topDocs = searchIndex.collect(searcher, query, sortByDate, null, numHits, 0);
+			return new Shard(searchIndex, searcher, analyzer, query, topDocs);
+		} catch (Exception e) {
+			searchIndex.releaseSearcher(searcher);
+			throw e;
+		}
+	}
+
+	/**
+	 * The results of searching a single index.
+	 */
+	private static class Shard {
+
+		private final SearchIndex searchIndex;
+		private final IndexSearcher searcher;
+		private final Analyzer analyzer;
+		private final Query query;
+		private final TopFieldDocs topDocs;
+
+		Shard(SearchIndex searchIndex, IndexSearcher searcher, Analyzer analyzer, Query query, TopFieldDocs topDocs) {
+			this.searchIndex = searchIndex;
+			this.searcher = searcher;
+			this.analyzer = analyzer;
+			this.query = query;
+			this.topDocs = topDocs;
+		}
+
+	}
+
+	/**
+	 * Creates named daemon threads, so that searches never hold up shutdown.
+	 */
+	private static class SearchThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "pebble-search-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
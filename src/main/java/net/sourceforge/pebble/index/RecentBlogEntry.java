@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+/**
+ * A lightweight reference to a blog entry in a specific blog, ordered newest
+ * first. Blog entry IDs are the entry's date in milliseconds, so the date is
+ * known without loading the entry.
+ */
+public class RecentBlogEntry implements Comparable<RecentBlogEntry> {
+
+  private final String blogId;
+  private final String blogEntryId;
+  private final long date;
+
+  public RecentBlogEntry(String blogId, String blogEntryId) {
+    this.blogId = blogId;
+    this.blogEntryId = blogEntryId;
+    this.date = Long.parseLong(blogEntryId);
+  }
+
+  /**
+   * Gets the ID of the blog that the entry belongs to.
+   *
+   * @return  the blog ID as a String
+   */
+  public String getBlogId() {
+    return blogId;
+  }
+
+  /**
+   * Gets the ID of the blog entry.
+   *
+   * @return  the blog entry ID as a String
+   */
+  public String getBlogEntryId() {
+    return blogEntryId;
+  }
+
+  /**
+   * Gets the date of the blog entry.
+   *
+   * @return  the date in milliseconds
+   */
+  public long getDate() {
+    return date;
+  }
+
+  public int compareTo(RecentBlogEntry other) {
+    if (date != other.date) {
+      return (date > other.date) ? -1 : 1;
+    } else {
+      return blogId.compareTo(other.blogId);
+    }
+  }
+
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RecentBlogEntry)) {
+      return false;
+    }
+
+    RecentBlogEntry other = (RecentBlogEntry)o;
+    return blogId.equals(other.blogId) && blogEntryId.equals(other.blogEntryId);
+  }
+
+  public int hashCode() {
+    return blogId.hashCode() * 31 + blogEntryId.hashCode();
+  }
+
+}
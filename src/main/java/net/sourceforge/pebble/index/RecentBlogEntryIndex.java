@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogManager;
+
+import java.util.*;
+
+/**
+ * Keeps the most recent published blog entries across all public blogs,
+ * allowing the multi-blog home page and aggregated feeds to be built without
+ * loading entries from every blog. The list is built by merging the (already
+ * sorted) published blog entry indexes of each blog, and kept up to date as
+ * blog entries are published and unpublished.
+ */
+public class RecentBlogEntryIndex {
+
+  /** the minimum number of blog entries kept */
+  private static final int DEFAULT_CAPACITY = 50;
+
+  /** the number of blog entries kept, which grows on demand up to the configured maximum */
+  private int capacity = DEFAULT_CAPACITY;
+
+  /** the most recent blog entries, newest first, or null if they need rebuilding */
+  private volatile List<RecentBlogEntry> recentBlogEntries;
+
+  /** the IDs of the public blogs that the list was built from */
+  private volatile Set<String> blogIds = Collections.emptySet();
+
+  /**
+   * Gets references to the most recent published blog entries across all
+   * public blogs.
+   *
+   * @param number    the number of blog entries to get, which is limited to
+   *                  the configured maximum
+   * @return  a List of RecentBlogEntry instances, newest first
+   */
+  public List<RecentBlogEntry> getRecentBlogEntries(int number) {
+    number = Math.min(number, getMaximumCapacity());
+    List<Blog> publicBlogs = BlogManager.getInstance().getPublicBlogs();
+    List<RecentBlogEntry> list = recentBlogEntries;
+    if (list == null || number > capacity || !blogIds.equals(getIds(publicBlogs))) {
+      list = rebuild(publicBlogs, number);
+    }
+
+    return list.subList(0, Math.min(number, list.size()));
+  }
+
+  /**
+   * Gets the date of the most recent published blog entry across all
+   * public blogs.
+   *
+   * @return  a Date instance, or the epoch if there are no blog entries
+   */
+  public Date getLastModified() {
+    List<RecentBlogEntry> list = getRecentBlogEntries(1);
+    if (list.isEmpty()) {
+      return new Date(0);
+    } else {
+      return new Date(list.get(0).getDate());
+    }
+  }
+
+  /**
+   * Adds a newly published blog entry.
+   *
+   * @param blogEntry   a BlogEntry instance
+   */
+  public synchronized void index(BlogEntry blogEntry) {
+    Blog blog = blogEntry.getBlog();
+    List<RecentBlogEntry> list = recentBlogEntries;
+    if (list == null || !blogEntry.isPublished() || !blogIds.contains(blog.getId()) ||
+        BlogManager.getInstance().getBlog(blog.getId()) != blog) {
+      return;
+    }
+
+    RecentBlogEntry recentBlogEntry = new RecentBlogEntry(blog.getId(), blogEntry.getId());
+    int position = Collections.binarySearch(list, recentBlogEntry);
+    if (position < 0) {
+      position = -(position + 1);
+      if (position < capacity) {
+        List<RecentBlogEntry> newList = new ArrayList<RecentBlogEntry>(list.size() + 1);
+        newList.addAll(list);
+        newList.add(position, recentBlogEntry);
+        if (newList.size() > capacity) {
+          newList.remove(newList.size() - 1);
+        }
+        recentBlogEntries = Collections.unmodifiableList(newList);
+      }
+    }
+  }
+
+  /**
+   * Removes a blog entry that has been unpublished or deleted.
+   *
+   * @param blogEntry   a BlogEntry instance
+   */
+  public synchronized void unindex(BlogEntry blogEntry) {
+    List<RecentBlogEntry> list = recentBlogEntries;
+    if (list != null && list.contains(new RecentBlogEntry(blogEntry.getBlog().getId(), blogEntry.getId()))) {
+      // the next most recent entry is unknown, so merge the blog indexes again
+      recentBlogEntries = null;
+    }
+  }
+
+  /**
+   * Clears the index, causing it to be rebuilt when next used.
+   */
+  public synchronized void clear() {
+    recentBlogEntries = null;
+  }
+
+  /**
+   * Merges the published blog entry indexes of the given blogs, each of which
+   * is already sorted newest first.
+   */
+  private synchronized List<RecentBlogEntry> rebuild(List<Blog> blogs, int number) {
+    capacity = Math.max(capacity, number);
+
+    PriorityQueue<BlogCursor> queue = new PriorityQueue<BlogCursor>(Math.max(blogs.size(), 1));
+    for (Blog blog : blogs) {
+      List<String> blogEntryIds = blog.getBlogEntryIndex().getRecentPublishedBlogEntries(capacity);
+      if (!blogEntryIds.isEmpty()) {
+        queue.add(new BlogCursor(blog.getId(), blogEntryIds));
+      }
+    }
+
+    List<RecentBlogEntry> list = new ArrayList<RecentBlogEntry>(capacity);
+    while (list.size() < capacity && !queue.isEmpty()) {
+      BlogCursor cursor = queue.poll();
+      list.add(cursor.current());
+      if (cursor.next()) {
+        queue.add(cursor);
+      }
+    }
+
+    list = Collections.unmodifiableList(list);
+    recentBlogEntries = list;
+    blogIds = getIds(blogs);
+
+    return list;
+  }
+
+  /**
+   * Gets the most blog entries that will be kept, which is never less than
+   * the default capacity.
+   */
+  private int getMaximumCapacity() {
+    return Math.max(DEFAULT_CAPACITY, PebbleContext.getInstance().getConfiguration().getRecentBlogEntriesMaximum());
+  }
+
+  private Set<String> getIds(List<Blog> blogs) {
+    Set<String> ids = new HashSet<String>();
+    for (Blog blog : blogs) {
+      ids.add(blog.getId());
+    }
+
+    return ids;
+  }
+
+  /**
+   * Walks the published blog entry IDs of a single blog during a merge.
+   */
+  private static class BlogCursor implements Comparable<BlogCursor> {
+
+    private final String blogId;
+    private final List<String> blogEntryIds;
+    private int position;
+
+    BlogCursor(String blogId, List<String> blogEntryIds) {
+      this.blogId = blogId;
+      this.blogEntryIds = blogEntryIds;
+    }
+
+    RecentBlogEntry current() {
+      return new RecentBlogEntry(blogId, blogEntryIds.get(position));
+    }
+
+    boolean next() {
+      position++;
+      return position < blogEntryIds.size();
+    }
+
+    public int compareTo(BlogCursor other) {
+      return current().compareTo(other.current());
+    }
+
+  }
+
+}
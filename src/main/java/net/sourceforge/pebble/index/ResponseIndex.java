@@ -35,12 +35,17 @@ package net.sourceforge.pebble.index;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -49,11 +54,15 @@ import org.apache.commons.logging.LogFactory;
 import net.sourceforge.pebble.comparator.ReverseResponseIdComparator;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.BlogServiceException;
 import net.sourceforge.pebble.domain.Response;
 import net.sourceforge.pebble.domain.State;
 
 /**
- * Keeps an index of all responses.
+ * Keeps an index of all responses, along with summaries of the most recent
+ * approved responses to published blog entries so that they can be listed
+ * without loading their blog entries.
  *
  * @author    Simon Brown
  */
@@ -66,18 +75,41 @@ public class ResponseIndex implements Serializable {
 
 private static final Log log = LogFactory.getLog(ResponseIndex.class);
 
-  private Blog blog;
+  static final String RECENT_RESPONSES_FILENAME = "responses-recent.index";
+
+  /** the minimum number of recent responses kept */
+  private static final int DEFAULT_RECENT_CAPACITY = 20;
+
+  /** the owning blog, which isn't written to index snapshots */
+  private transient Blog blog;
 
   private List<String> approvedResponses = new ArrayList<String>();
   private List<String> pendingResponses = new ArrayList<String>();
   private List<String> rejectedResponses = new ArrayList<String>();
 
+  /** the number of recent responses kept */
+  private int recentCapacity = DEFAULT_RECENT_CAPACITY;
+
+  /** the most recent responses, newest first, or null if they need rebuilding */
+  private volatile List<ResponseSummary> recentResponses;
+
+  /** whether the recent responses include every approved response to a published blog entry */
+  private volatile boolean recentResponsesComplete;
+
   public ResponseIndex(Blog blog) {
     this.blog = blog;
 
     approvedResponses = readIndex(State.APPROVED);
     pendingResponses = readIndex(State.PENDING);
     rejectedResponses = readIndex(State.REJECTED);
+    readRecentResponses();
+  }
+
+  /**
+   * Attaches this index, as read back from an index snapshot, to its blog.
+   */
+  void reattach(Blog blog) {
+    this.blog = blog;
   }
 
   /**
@@ -92,6 +124,8 @@ private static final Log log = LogFactory.getLog(ResponseIndex.class);
 
     rejectedResponses = new ArrayList<String>();
     writeIndex(State.REJECTED);
+
+    setRecentResponses(null, false);
   }
 
   /**
@@ -118,6 +152,9 @@ private static final Log log = LogFactory.getLog(ResponseIndex.class);
     writeIndex(State.APPROVED);
     writeIndex(State.PENDING);
     writeIndex(State.REJECTED);
+
+    // the recent responses are rebuilt when next needed
+    setRecentResponses(null, false);
   }
 
   /**
@@ -130,6 +167,7 @@ private static final Log log = LogFactory.getLog(ResponseIndex.class);
       approvedResponses.add(response.getGuid());
       Collections.sort(approvedResponses, new ReverseResponseIdComparator());
       writeIndex(State.APPROVED);
+      indexRecentResponse(response);
     } else if (response.isPending()) {
       pendingResponses.add(response.getGuid());
       Collections.sort(pendingResponses, new ReverseResponseIdComparator());
@@ -150,6 +188,7 @@ private static final Log log = LogFactory.getLog(ResponseIndex.class);
     if (approvedResponses.contains(response.getGuid())) {
       approvedResponses.remove(response.getGuid());
       writeIndex(State.APPROVED);
+      unindexRecentResponse(response.getGuid());
     } else if (pendingResponses.contains(response.getGuid())) {
       pendingResponses.remove(response.getGuid());
       writeIndex(State.PENDING);
@@ -159,6 +198,274 @@ private static final Log log = LogFactory.getLog(ResponseIndex.class);
     }
   }
 
+  /**
+   * Brings the recent responses up to date with a blog entry that has been
+   * published, unpublished or changed.
+   *
+   * @param blogEntry   a BlogEntry instance
+   */
+  public synchronized void updateRecentResponses(BlogEntry blogEntry) {
+    List<ResponseSummary> list = recentResponses;
+    if (list == null) {
+      return;
+    }
+
+    List<ResponseSummary> newList = new ArrayList<ResponseSummary>(list.size());
+    for (ResponseSummary summary : list) {
+      if (!summary.getBlogEntryId().equals(blogEntry.getId())) {
+        newList.add(summary);
+      }
+    }
+
+    boolean complete = recentResponsesComplete;
+    if (blogEntry.isPublished()) {
+      for (Response response : blogEntry.getResponses()) {
+        if (response.isApproved()) {
+          complete &= insertRecentResponse(newList, response, complete);
+        }
+      }
+    }
+
+    setRecentResponses(newList, complete);
+  }
+
+  /**
+   * Removes the responses to a deleted blog entry from the recent responses.
+   *
+   * @param blogEntry   a BlogEntry instance
+   */
+  public synchronized void removeRecentResponses(BlogEntry blogEntry) {
+    List<ResponseSummary> list = recentResponses;
+    if (list == null) {
+      return;
+    }
+
+    List<ResponseSummary> newList = new ArrayList<ResponseSummary>(list.size());
+    for (ResponseSummary summary : list) {
+      if (!summary.getBlogEntryId().equals(blogEntry.getId())) {
+        newList.add(summary);
+      }
+    }
+
+    if (newList.size() != list.size()) {
+      setRecentResponses(newList, recentResponsesComplete);
+    }
+  }
+
+  private void indexRecentResponse(Response response) {
+    List<ResponseSummary> list = recentResponses;
+    if (list == null || !response.getBlogEntry().isPublished()) {
+      return;
+    }
+
+    List<ResponseSummary> newList = new ArrayList<ResponseSummary>(list);
+    boolean complete = insertRecentResponse(newList, response, recentResponsesComplete) && recentResponsesComplete;
+    setRecentResponses(newList, complete);
+  }
+
+  private void unindexRecentResponse(String guid) {
+    List<ResponseSummary> list = recentResponses;
+    if (list == null) {
+      return;
+    }
+
+    List<ResponseSummary> newList = new ArrayList<ResponseSummary>(list);
+    for (Iterator<ResponseSummary> it = newList.iterator(); it.hasNext(); ) {
+      if (it.next().getGuid().equals(guid)) {
+        it.remove();
+        // the next most recent response is unknown if the list wasn't complete,
+        // but it's only rebuilt if there are too few left to show
+        setRecentResponses(newList, recentResponsesComplete);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds a summary of the given response to a list of recent responses,
+   * keeping it sorted and no longer than the capacity. Unless the list is
+   * complete, only responses newer than the oldest in the list can be added,
+   * since there may be others in between that aren't in the list.
+   *
+   * @return  false if a response had to be left out of the list, true otherwise
+   */
+  private boolean insertRecentResponse(List<ResponseSummary> list, Response response, boolean complete) {
+    boolean bounded = !complete || list.size() >= recentCapacity;
+    if (bounded && (list.isEmpty() || response.getId() < list.get(list.size() - 1).getId())) {
+      // older than everything that's kept, so no need to summarise it
+      return false;
+    }
+
+    ResponseSummary summary = ResponseSummary.create(response);
+    int position = Collections.binarySearch(list, summary);
+    if (position < 0) {
+      list.add(-(position + 1), summary);
+    }
+
+    if (list.size() > recentCapacity) {
+      list.remove(list.size() - 1);
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Rebuilds the recent responses by loading the most recent approved
+   * responses, skipping those belonging to unpublished blog entries.
+   */
+  private synchronized List<ResponseSummary> rebuildRecentResponses(int number) {
+    recentCapacity = Math.max(recentCapacity, number);
+
+    BlogService service = new BlogService();
+    List<ResponseSummary> list = new ArrayList<ResponseSummary>(recentCapacity);
+    for (String responseId : approvedResponses) {
+      if (list.size() == recentCapacity) {
+        break;
+      }
+
+      try {
+        Response response = service.getResponse(blog, responseId);
+        if (response != null && response.getBlogEntry().isPublished()) {
+          list.add(ResponseSummary.create(response));
+        }
+      } catch (BlogServiceException e) {
+        log.error("Error while loading response " + responseId, e);
+      }
+    }
+
+    setRecentResponses(list, list.size() < recentCapacity);
+
+    return recentResponses;
+  }
+
+  private void setRecentResponses(List<ResponseSummary> list, boolean complete) {
+    if (list != null) {
+      list = Collections.unmodifiableList(list);
+    }
+    recentResponsesComplete = complete;
+    recentResponses = list;
+    writeRecentResponses(list);
+  }
+
+  /**
+   * Identifies the settings that the stored summaries depend on, so that
+   * they're discarded if the blog's URL or content decorators change.
+   */
+  private String getRecentResponsesSignature() {
+    return blog.getUrl() + " " + blog.getPermalinkProviderName() + " " + blog.getContentDecorators();
+  }
+
+  /**
+   * Helper method to load the recent responses. The first line holds the
+   * capacity, whether the list is complete and the signature, followed by a
+   * line of tab separated fields per response.
+   */
+  private void readRecentResponses() {
+    File indexFile = new File(blog.getIndexesDirectory(), RECENT_RESPONSES_FILENAME);
+    if (!indexFile.exists()) {
+      return;
+    }
+
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), "UTF-8"));
+      try {
+        String header = reader.readLine();
+        String[] fields = header != null ? header.split("\t", 3) : new String[0];
+        if (fields.length != 3 || !fields[2].equals(getRecentResponsesSignature())) {
+          return;
+        }
+
+        List<ResponseSummary> list = new ArrayList<ResponseSummary>();
+        String line = reader.readLine();
+        while (line != null) {
+          String[] values = line.split("\t", -1);
+          list.add(new ResponseSummary(unescape(values[0]), unescape(values[1]), unescape(values[2]),
+              unescape(values[3]), unescape(values[4]), unescape(values[5]), unescape(values[6])));
+          line = reader.readLine();
+        }
+
+        recentCapacity = Math.max(DEFAULT_RECENT_CAPACITY, Integer.parseInt(fields[0]));
+        recentResponsesComplete = Boolean.parseBoolean(fields[1]);
+        recentResponses = Collections.unmodifiableList(list);
+      } finally {
+        reader.close();
+      }
+    } catch (Exception e) {
+      log.error("Error while reading index", e);
+    }
+  }
+
+  /**
+   * Helper method to write out the recent responses to disk.
+   */
+  private void writeRecentResponses(List<ResponseSummary> list) {
+    File indexFile = new File(blog.getIndexesDirectory(), RECENT_RESPONSES_FILENAME);
+    if (list == null) {
+      indexFile.delete();
+      return;
+    }
+
+    try {
+      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFile), "UTF-8"));
+      writer.write(recentCapacity + "\t" + recentResponsesComplete + "\t" + getRecentResponsesSignature());
+      writer.newLine();
+
+      for (ResponseSummary summary : list) {
+        writer.write(escape(summary.getGuid()) + "\t" + escape(summary.getBlogEntryTitle()) + "\t" +
+            escape(summary.getTitle()) + "\t" + escape(summary.getPermalink()) + "\t" +
+            escape(summary.getSourceName()) + "\t" + escape(summary.getSourceLink()) + "\t" +
+            escape(summary.getTruncatedContent()));
+        writer.newLine();
+      }
+
+      writer.flush();
+      writer.close();
+    } catch (Exception e) {
+      log.error("Error while writing index", e);
+    }
+  }
+
+  private static String escape(String s) {
+    if (s == null) {
+      return "";
+    }
+
+    StringBuilder buf = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '\\': buf.append("\\\\"); break;
+        case '\t':  buf.append("\\t"); break;
+        case '\n':  buf.append("\\n"); break;
+        case '\r':  buf.append("\\r"); break;
+        default:    buf.append(c);
+      }
+    }
+
+    return buf.toString();
+  }
+
+  private static String unescape(String s) {
+    StringBuilder buf = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length()) {
+        char next = s.charAt(++i);
+        switch (next) {
+          case 't': buf.append('\t'); break;
+          case 'n': buf.append('\n'); break;
+          case 'r': buf.append('\r'); break;
+          default:  buf.append(next);
+        }
+      } else {
+        buf.append(c);
+      }
+    }
+
+    return buf.toString();
+  }
+
   /**
    * Helper method to load the index.
    */
@@ -285,6 +592,26 @@ private static final Log log = LogFactory.getLog(ResponseIndex.class);
     }
   }
 
+  /**
+   * Gets summaries of the most recent N approved responses to published
+   * blog entries.
+   *
+   * @param number    the number of responses to get
+   * @return  a List of ResponseSummary instances, newest first
+   */
+  public List<ResponseSummary> getRecentResponseSummaries(int number) {
+    if (number <= 0) {
+      return Collections.emptyList();
+    }
+
+    List<ResponseSummary> list = recentResponses;
+    if (list == null || number > recentCapacity || (!recentResponsesComplete && list.size() < number)) {
+      list = rebuildRecentResponses(number);
+    }
+
+    return list.subList(0, Math.min(number, list.size()));
+  }
+
   /**
    * Gets the list of approved responses.
    *
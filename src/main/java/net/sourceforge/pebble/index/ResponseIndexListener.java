@@ -32,8 +32,11 @@
 
 package net.sourceforge.pebble.index;
 
+import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.Comment;
 import net.sourceforge.pebble.domain.TrackBack;
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryEvent;
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryListener;
 import net.sourceforge.pebble.api.event.comment.CommentEvent;
 import net.sourceforge.pebble.api.event.comment.CommentListener;
 import net.sourceforge.pebble.api.event.trackback.TrackBackEvent;
@@ -41,10 +44,12 @@ import net.sourceforge.pebble.api.event.trackback.TrackBackListener;
 
 /**
  * Listens to comment/TrackBack events and keeps the response index up to date.
+ * Blog entry events are used to keep the recent responses up to date as
+ * blog entries are published, unpublished, changed and removed.
  *
  * @author    Simon Brown
  */
-public class ResponseIndexListener implements CommentListener, TrackBackListener {
+public class ResponseIndexListener implements CommentListener, TrackBackListener, BlogEntryListener {
 
   /**
 	 * 
@@ -135,4 +140,53 @@ public class ResponseIndexListener implements CommentListener, TrackBackListener
     trackBack.getBlogEntry().getBlog().getResponseIndex().index(trackBack);
   }
 
+  /**
+   * Called when a blog entry has been added.
+   *
+   * @param event a BlogEntryEvent instance
+   */
+  public void blogEntryAdded(BlogEntryEvent event) {
+    // responses are indexed as comment/TrackBack events
+  }
+
+  /**
+   * Called when a blog entry has been removed.
+   *
+   * @param event a BlogEntryEvent instance
+   */
+  public void blogEntryRemoved(BlogEntryEvent event) {
+    BlogEntry blogEntry = event.getBlogEntry();
+    blogEntry.getBlog().getResponseIndex().removeRecentResponses(blogEntry);
+  }
+
+  /**
+   * Called when a blog entry has been changed.
+   *
+   * @param event a BlogEntryEvent instance
+   */
+  public void blogEntryChanged(BlogEntryEvent event) {
+    BlogEntry blogEntry = event.getBlogEntry();
+    blogEntry.getBlog().getResponseIndex().updateRecentResponses(blogEntry);
+  }
+
+  /**
+   * Called when a blog entry has been published.
+   *
+   * @param event a BlogEntryEvent instance
+   */
+  public void blogEntryPublished(BlogEntryEvent event) {
+    BlogEntry blogEntry = event.getBlogEntry();
+    blogEntry.getBlog().getResponseIndex().updateRecentResponses(blogEntry);
+  }
+
+  /**
+   * Called when a blog entry has been unpublished.
+   *
+   * @param event a BlogEntryEvent instance
+   */
+  public void blogEntryUnpublished(BlogEntryEvent event) {
+    BlogEntry blogEntry = event.getBlogEntry();
+    blogEntry.getBlog().getResponseIndex().updateRecentResponses(blogEntry);
+  }
+
 }
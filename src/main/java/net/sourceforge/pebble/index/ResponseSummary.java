@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import net.sourceforge.pebble.api.decorator.ContentDecoratorContext;
+import net.sourceforge.pebble.domain.Comment;
+import net.sourceforge.pebble.domain.Response;
+import net.sourceforge.pebble.domain.TrackBack;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A summary of an approved response, holding what's needed to list it in the
+ * recent responses sidebar without loading its blog entry. The title and
+ * content are taken from the response after it has been decorated for
+ * display, so they're safe to render as-is.
+ */
+public class ResponseSummary implements Comparable<ResponseSummary>, Serializable {
+
+  private static final long serialVersionUID = 4416508146307513127L;
+
+  private final String guid;
+  private final long id;
+  private final String blogEntryId;
+  private final String blogEntryTitle;
+  private final String title;
+  private final String permalink;
+  private final String sourceName;
+  private final String sourceLink;
+  private final String truncatedContent;
+
+  ResponseSummary(String guid, String blogEntryTitle, String title, String permalink,
+                  String sourceName, String sourceLink, String truncatedContent) {
+    this.guid = guid;
+    this.id = Long.parseLong(guid.substring(guid.lastIndexOf('/') + 1));
+    this.blogEntryId = guid.substring(guid.indexOf('/') + 1, guid.lastIndexOf('/'));
+    this.blogEntryTitle = blogEntryTitle;
+    this.title = title;
+    this.permalink = permalink;
+    this.sourceName = sourceName;
+    this.sourceLink = sourceLink;
+    this.truncatedContent = truncatedContent;
+  }
+
+  /**
+   * Creates a summary of the given response, decorating a copy of it in the
+   * same way as responses shown in the sidebar.
+   *
+   * @param response    an approved Response instance
+   * @return  a ResponseSummary instance
+   */
+  static ResponseSummary create(Response response) {
+    ContentDecoratorContext context = new ContentDecoratorContext();
+    context.setView(ContentDecoratorContext.SUMMARY_VIEW);
+    context.setMedia(ContentDecoratorContext.HTML_PAGE);
+
+    Response copy = response;
+    if (response instanceof Comment) {
+      Comment comment = (Comment)((Comment)response).clone();
+      response.getBlogEntry().getBlog().getContentDecoratorChain().decorate(context, comment);
+      copy = comment;
+    } else if (response instanceof TrackBack) {
+      TrackBack trackBack = (TrackBack)((TrackBack)response).clone();
+      response.getBlogEntry().getBlog().getContentDecoratorChain().decorate(context, trackBack);
+      copy = trackBack;
+    }
+
+    return new ResponseSummary(response.getGuid(), response.getBlogEntry().getTitle(),
+        copy.getTitle(), copy.getPermalink(), copy.getSourceName(), copy.getSourceLink(),
+        copy.getTruncatedContent());
+  }
+
+  /**
+   * Gets the globally unique id of the response.
+   *
+   * @return a String of the form type/blogEntryId/responseId
+   */
+  public String getGuid() {
+    return guid;
+  }
+
+  /**
+   * Gets the id of the response.
+   *
+   * @return the id as a primitive long
+   */
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Gets the date that the response was left.
+   *
+   * @return a Date instance
+   */
+  public Date getDate() {
+    return new Date(id);
+  }
+
+  /**
+   * Gets the ID of the blog entry that the response belongs to.
+   *
+   * @return the blog entry ID as a String
+   */
+  public String getBlogEntryId() {
+    return blogEntryId;
+  }
+
+  /**
+   * Gets the title of the blog entry that the response belongs to.
+   *
+   * @return the title as a String
+   */
+  public String getBlogEntryTitle() {
+    return blogEntryTitle;
+  }
+
+  /**
+   * Gets the title of the response.
+   *
+   * @return the title as a String
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Gets the permalink of the response.
+   *
+   * @return a URL as a String
+   */
+  public String getPermalink() {
+    return permalink;
+  }
+
+  /**
+   * Gets the name of the response's author or source.
+   *
+   * @return the name as a String
+   */
+  public String getSourceName() {
+    return sourceName;
+  }
+
+  /**
+   * Gets the link to the response's author or source.
+   *
+   * @return a URL as a String
+   */
+  public String getSourceLink() {
+    return sourceLink;
+  }
+
+  /**
+   * Gets the truncated content of the response.
+   *
+   * @return the content as a String
+   */
+  public String getTruncatedContent() {
+    return truncatedContent;
+  }
+
+  /**
+   * Determines whether this summary is of a comment.
+   *
+   * @return true if this is a comment, false if it's a TrackBack
+   */
+  public boolean isComment() {
+    return guid.startsWith("c/");
+  }
+
+  /**
+   * Orders summaries newest first.
+   */
+  public int compareTo(ResponseSummary other) {
+    if (id != other.id) {
+      return (id > other.id) ? -1 : 1;
+    } else {
+      return guid.compareTo(other.guid);
+    }
+  }
+
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ResponseSummary)) {
+      return false;
+    }
+
+    return guid.equals(((ResponseSummary)o).guid);
+  }
+
+  public int hashCode() {
+    return guid.hashCode();
+  }
+
+}
@@ -32,10 +32,16 @@
 package net.sourceforge.pebble.index;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,23 +49,35 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
@@ -71,6 +89,7 @@ import net.sourceforge.pebble.domain.TrackBack;
 import net.sourceforge.pebble.search.SearchException;
 import net.sourceforge.pebble.search.SearchHit;
 import net.sourceforge.pebble.search.SearchResults;
+import net.sourceforge.pebble.util.StringUtils;
 
 /**
  * Wraps up the functionality to index blog entries. This is really just a
@@ -88,8 +107,58 @@ public class SearchIndex implements Serializable {
 	/** the log used by this class */
 	private static final Log LOG = LogFactory.getLog(SearchIndex.class);
 
+	/** sorts results by relevance */
+	public static final String SORT_BY_SCORE = "score";
+
+	/** sorts results by date, newest first */
+	public static final String SORT_BY_DATE = "date";
+
+	/** the number of hits returned by search(String) */
+	public static final int DEFAULT_MAX_HITS = 100;
+
+	/** the largest number of hits returned in a single page */
+	public static final int MAXIMUM_PAGE_SIZE = 100;
+
+	/**
+	 * the deepest offset that can be requested; pages beyond it are empty, and
+	 * clients should walk further with a cursor instead
+	 */
+	public static final int MAXIMUM_OFFSET = 10000;
+
+	/** the maximum number of highlighted passages in an excerpt */
+	private static final int MAX_EXCERPT_PASSAGES = 2;
+
+	/** the stored fields needed to build a search hit */
+	private static final Set<String> HIT_FIELDS = new HashSet<>(
+			Arrays.asList("id", "permalink", "title", "subtitle", "truncatedBody", "date"));
+
+	/** newest first, with the id as a tie-break so that cursors are stable */
+	static final Sort SORT_BY_DATE_DESCENDING = new Sort(new SortField("date", SortField.Type.LONG, true),
+			new SortField("id", SortField.Type.STRING, true));
+
+	/** most relevant first, then as for SORT_BY_DATE_DESCENDING */
+	static final Sort SORT_BY_RELEVANCE = new Sort(SortField.FIELD_SCORE,
+			new SortField("date", SortField.Type.LONG, true), new SortField("id", SortField.Type.STRING, true));
+
+	/**
+	 * The plain text content used for highlighting, with offsets recorded in the
+	 * postings so that snippets don't need to re-analyze the text.
+	 */
+	private static final FieldType CONTENT_FIELD_TYPE = new FieldType(TextField.TYPE_STORED);
+
+	static {
+		CONTENT_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+		CONTENT_FIELD_TYPE.freeze();
+	}
+
 	private final Blog blog;
 
+	/** caches the searcher between queries, reopening it when the index changes */
+	private transient SearcherManager searcherManager;
+
+	/** the directory opened for the cached searcher */
+	private transient Directory searcherDirectory;
+
 	public SearchIndex(Blog blog) {
 		this.blog = blog;
 	}
@@ -209,7 +278,7 @@ public class SearchIndex implements Serializable {
 	 * @return an Analyzer instance
 	 * @throws Exception
 	 */
-	private Analyzer getAnalyzer() throws Exception {
+	Analyzer getAnalyzer() throws Exception {
 		Class<?> c = Class.forName(blog.getLuceneAnalyzer());
 		return (Analyzer) c.newInstance();
 	}
@@ -277,6 +346,7 @@ public class SearchIndex implements Serializable {
 			LOG.debug("Indexing " + blogEntry.getTitle());
 			Document document = new Document();
 			document.add(new StringField("id", blogEntry.getId(), Field.Store.YES));
+			document.add(new SortedDocValuesField("id", new BytesRef(blogEntry.getId())));
 			if (blogEntry.getTitle() != null) {
 				document.add(new TextField("title", blogEntry.getTitle(), Field.Store.YES));
 			} else {
@@ -290,8 +360,10 @@ public class SearchIndex implements Serializable {
 			document.add(new StringField("permalink", blogEntry.getPermalink(), Field.Store.YES));
 			document.add(
 					new StoredField("date", DateTools.dateToString(blogEntry.getDate(), DateTools.Resolution.DAY)));
+			document.add(new NumericDocValuesField("date", blogEntry.getDate().getTime()));
 			if (blogEntry.getBody() != null) {
 				document.add(new TextField("body", blogEntry.getBody(), Field.Store.NO));
+				document.add(new Field("content", StringUtils.filterHTML(blogEntry.getBody()), CONTENT_FIELD_TYPE));
 			} else {
 				document.add(new TextField("body", "", Field.Store.NO));
 			}
@@ -358,6 +430,7 @@ public class SearchIndex implements Serializable {
 			LOG.debug("Indexing " + staticPage.getTitle());
 			Document document = new Document();
 			document.add(new StringField("id", staticPage.getId(), Field.Store.YES));
+			document.add(new SortedDocValuesField("id", new BytesRef(staticPage.getId())));
 			if (staticPage.getTitle() != null) {
 				document.add(new TextField("title", staticPage.getTitle(), Field.Store.YES));
 			} else {
@@ -366,8 +439,10 @@ public class SearchIndex implements Serializable {
 			document.add(new StringField("permalink", staticPage.getPermalink(), Field.Store.YES));
 			document.add(
 					new StoredField("date", DateTools.dateToString(staticPage.getDate(), DateTools.Resolution.DAY)));
+			document.add(new NumericDocValuesField("date", staticPage.getDate().getTime()));
 			if (staticPage.getBody() != null) {
 				document.add(new TextField("body", staticPage.getBody(), Field.Store.NO));
+				document.add(new Field("content", StringUtils.filterHTML(staticPage.getBody()), CONTENT_FIELD_TYPE));
 			} else {
 				document.add(new TextField("body", "", Field.Store.NO));
 			}
@@ -397,7 +472,52 @@ public class SearchIndex implements Serializable {
 		}
 	}
 
+	/**
+	 * Performs a search, returning the most relevant hits.
+	 *
+	 * @param queryString the query
+	 * @return a SearchResults instance containing up to DEFAULT_MAX_HITS hits
+	 * @throws SearchException if the search could not be performed
+	 */
 	public SearchResults search(String queryString) throws SearchException {
+		return search(queryString, SORT_BY_SCORE, 0, DEFAULT_MAX_HITS);
+	}
+
+	/**
+	 * Performs a search, returning a single page of hits. Only the stored fields
+	 * of the hits on the requested page are loaded.
+	 *
+	 * @param queryString the query
+	 * @param sortBy      SORT_BY_SCORE or SORT_BY_DATE
+	 * @param offset      the (zero based) position of the first hit to return
+	 * @param limit       the maximum number of hits to return
+	 * @return a SearchResults instance
+	 * @throws SearchException if the search could not be performed
+	 */
+	public SearchResults search(String queryString, String sortBy, int offset, int limit) throws SearchException {
+		return search(queryString, sortBy, Math.max(offset, 0), null, limit);
+	}
+
+	/**
+	 * Performs a search, returning the page of hits that follows the given
+	 * cursor. This is cheaper than an offset for deep pages because Lucene only
+	 * has to keep track of limit hits.
+	 *
+	 * @param queryString the query
+	 * @param sortBy      SORT_BY_SCORE or SORT_BY_DATE
+	 * @param searchAfter a cursor returned by SearchResults.getSearchAfter(), or
+	 *                    null for the first page
+	 * @param limit       the maximum number of hits to return
+	 * @return a SearchResults instance
+	 * @throws SearchException if the search could not be performed
+	 */
+	public SearchResults search(String queryString, String sortBy, String searchAfter, int limit)
+			throws SearchException {
+		return search(queryString, sortBy, 0, searchAfter, limit);
+	}
+
+	private SearchResults search(String queryString, String sortBy, int offset, String searchAfter, int limit)
+			throws SearchException {
 
 		LOG.debug("Performing search : " + queryString);
 
@@ -405,33 +525,289 @@ public class SearchIndex implements Serializable {
 		searchResults.setQuery(queryString);
 
 		if (queryString != null && queryString.length() > 0) {
+			boolean sortByDate = SORT_BY_DATE.equalsIgnoreCase(sortBy);
+			limit = Math.min(Math.max(limit, 1), MAXIMUM_PAGE_SIZE);
+
 			IndexSearcher searcher = null;
+			long start = blog.getMetrics().start();
+			try {
+				searcher = acquireSearcher();
+				Analyzer analyzer = getAnalyzer();
+				Query query = parseQuery(queryString, analyzer);
+
+				FieldDoc after = parseSearchAfter(searchAfter, sortByDate);
+				if (after != null) {
+					offset = Integer.parseInt(searchAfter.substring(0, searchAfter.indexOf(':')));
+				}
+
+				int maxDoc = searcher.getIndexReader().maxDoc();
+				TopDocs page;
+				if (after != null) {
+					page = collect(searcher, query, sortByDate, after, getNumberOfHitsToCollect(0, limit, maxDoc), 0);
+				} else {
+					page = collect(searcher, query, sortByDate, null, getNumberOfHitsToCollect(offset, limit, maxDoc), offset);
+				}
+				ScoreDoc[] hits = page.scoreDocs;
+				int totalHits = (int) page.totalHits.value;
 
-			try (IndexReader reader = DirectoryReader
-					.open(FSDirectory.open(Paths.get(blog.getSearchIndexDirectory())))) {
-				searcher = new IndexSearcher(reader);
-				QueryParser parser = new QueryParser("blogEntry", getAnalyzer());
-				Query query = parser.parse(queryString);
-				TopDocs results = searcher.search(query, 100);
-				ScoreDoc[] hits = results.scoreDocs;
-
-				for (int i = 0; i < results.totalHits.value; i++) {
-					Document doc = searcher.doc(hits[i].doc);
-					SearchHit result = new SearchHit(blog, doc.get("id"), doc.get("permalink"), doc.get("title"),
-							doc.get("subtitle"), doc.get("truncatedBody"), DateTools.stringToDate(doc.get("date")),
-							hits[i].score);
+				List<SearchHit> searchHits = loadHits(searcher, analyzer, query, page);
+				for (int i = 0; i < searchHits.size(); i++) {
+					SearchHit result = searchHits.get(i);
+					result.setNumber(offset + i + 1);
 					searchResults.add(result);
 				}
+
+				searchResults.setTotalHits(totalHits);
+				searchResults.setOffset(offset);
+				if (hits.length > 0 && offset + hits.length < totalHits) {
+					searchResults.setSearchAfter(formatSearchAfter(offset + hits.length, hits[hits.length - 1]));
+				}
 			} catch (ParseException pe) {
 				LOG.error("Sorry, but there was an error. Please try another search", pe);
 				searchResults.setMessage("Sorry, but there was an error. Please try another search");
 			} catch (Exception e) {
 				LOG.error("Sorry, but there was an error. Please try another search", e);
 				throw new SearchException(e.getMessage());
+			} finally {
+				releaseSearcher(searcher);
+				blog.getMetrics().stop("search", start);
 			}
 		}
 
 		return searchResults;
 	}
 
+	/**
+	 * Gets the stored title of the document with the given value in an
+	 * untokenized field, without loading the blog entry or static page.
+	 *
+	 * @param field the name of an untokenized field, e.g. "id" or "permalink"
+	 * @param value the exact value of that field
+	 * @return the title, or null if there's no such document
+	 */
+	public String getTitle(String field, String value) {
+		IndexSearcher searcher = null;
+		try {
+			searcher = acquireSearcher();
+			TopDocs docs = searcher.search(new TermQuery(new Term(field, value)), 1);
+			if (docs.scoreDocs.length > 0) {
+				return searcher.doc(docs.scoreDocs[0].doc).get("title");
+			}
+		} catch (IOException ioe) {
+			LOG.debug("Unable to look up " + field + "=" + value, ioe);
+		} finally {
+			releaseSearcher(searcher);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets a searcher over the latest version of the index. The searcher is
+	 * shared between requests and only reopened when the index has changed, so
+	 * callers must hand it back with releaseSearcher().
+	 *
+	 * @return an IndexSearcher instance
+	 * @throws IOException if the index can't be opened
+	 */
+	IndexSearcher acquireSearcher() throws IOException {
+		SearcherManager manager;
+		synchronized (this) {
+			if (searcherManager == null) {
+				Directory dir = FSDirectory.open(Paths.get(blog.getSearchIndexDirectory()));
+				try {
+					searcherManager = new SearcherManager(dir, null);
+				} catch (IOException ioe) {
+					dir.close();
+					throw ioe;
+				}
+				searcherDirectory = dir;
+			}
+			manager = searcherManager;
+		}
+
+		manager.maybeRefresh();
+		return manager.acquire();
+	}
+
+	/**
+	 * Hands back a searcher obtained from acquireSearcher().
+	 *
+	 * @param searcher the IndexSearcher instance (can be null)
+	 */
+	void releaseSearcher(IndexSearcher searcher) {
+		if (searcher != null) {
+			try {
+				searcher.getIndexReader().decRef();
+			} catch (IOException ioe) {
+				LOG.warn("Unable to release searcher", ioe);
+			}
+		}
+	}
+
+	/**
+	 * Closes the cached searcher, if there is one. It is reopened on the next
+	 * search.
+	 */
+	public synchronized void close() {
+		try {
+			if (searcherManager != null) {
+				searcherManager.close();
+			}
+			if (searcherDirectory != null) {
+				searcherDirectory.close();
+			}
+		} catch (IOException ioe) {
+			LOG.warn("Unable to close search index", ioe);
+		} finally {
+			searcherManager = null;
+			searcherDirectory = null;
+		}
+	}
+
+	/**
+	 * Parses a query string using the analyzer configured for this blog.
+	 */
+	Query parseQuery(String queryString, Analyzer analyzer) throws ParseException {
+		QueryParser parser = new QueryParser("blogEntry", analyzer);
+		return parser.parse(queryString);
+	}
+
+	/**
+	 * Gets the number of top hits to collect for a page. This is never more
+	 * than the number of documents in the index, and pages beyond
+	 * MAXIMUM_OFFSET collect a single hit so that the matches are still counted
+	 * but the page itself is empty.
+	 *
+	 * @param offset   the position of the first hit on the page
+	 * @param limit    the size of the page
+	 * @param maxDoc   the number of documents in the index
+	 * @return the number of hits to collect, at least 1
+	 */
+	static int getNumberOfHitsToCollect(int offset, int limit, int maxDoc) {
+		if (offset > MAXIMUM_OFFSET) {
+			return 1;
+		} else {
+			return (int) Math.max(1, Math.min((long) offset + limit, maxDoc));
+		}
+	}
+
+	/**
+	 * Collects the top hits for a query, counting all matches.
+	 *
+	 * @param after    the hit to search after (can be null)
+	 * @param numHits  the number of top hits to collect
+	 * @param start    the position of the first of the top hits to return
+	 * @return a TopFieldDocs instance, sorted as described by sortFor()
+	 */
+	TopFieldDocs collect(IndexSearcher searcher, Query query, boolean sortByDate, FieldDoc after, int numHits,
+			int start) throws IOException {
+		TopFieldCollector collector = TopFieldCollector.create(sortFor(sortByDate), numHits, after,
+				Integer.MAX_VALUE);
+		searcher.search(query, collector);
+
+		TopFieldDocs topDocs = (TopFieldDocs) collector.topDocs(start);
+		TopFieldCollector.populateScores(topDocs.scoreDocs, searcher, query);
+		return topDocs;
+	}
+
+	/**
+	 * Gets the sort used for results. Both end with the date and id of the hit,
+	 * so that the order (and cursors into it) don't depend on Lucene doc ids.
+	 */
+	static Sort sortFor(boolean sortByDate) {
+		return sortByDate ? SORT_BY_DATE_DESCENDING : SORT_BY_RELEVANCE;
+	}
+
+	/**
+	 * Loads the stored fields for the given hits only, and highlights them.
+	 *
+	 * @return a list of SearchHit instances, in the same order as the hits
+	 */
+	List<SearchHit> loadHits(IndexSearcher searcher, Analyzer analyzer, Query query, TopDocs page)
+			throws Exception {
+		ScoreDoc[] hits = page.scoreDocs;
+		List<SearchHit> searchHits = new ArrayList<>(hits.length);
+		String[] excerpts = highlight(searcher, analyzer, query, page);
+		for (int i = 0; i < hits.length; i++) {
+			Document doc = searcher.doc(hits[i].doc, HIT_FIELDS);
+			String excerpt = (excerpts != null && excerpts[i] != null) ? excerpts[i] : doc.get("truncatedBody");
+			searchHits.add(new SearchHit(blog, doc.get("id"), doc.get("permalink"), doc.get("title"),
+					doc.get("subtitle"), excerpt, DateTools.stringToDate(doc.get("date")), hits[i].score));
+		}
+
+		return searchHits;
+	}
+
+	/**
+	 * Builds highlighted snippets for a page of hits from the offsets stored in
+	 * the postings of the content field.
+	 *
+	 * @return an array of snippets, parallel to the hits (entries may be null)
+	 */
+	private String[] highlight(IndexSearcher searcher, Analyzer analyzer, Query query, TopDocs page) {
+		if (page.scoreDocs.length == 0) {
+			return null;
+		}
+
+		try {
+			UnifiedHighlighter highlighter = new UnifiedHighlighter(searcher, analyzer);
+			highlighter.setFieldMatcher(field -> true);
+			highlighter.setFormatter(new DefaultPassageFormatter("<b>", "</b>", "... ", true));
+			return highlighter.highlight("content", query, page, MAX_EXCERPT_PASSAGES);
+		} catch (Exception e) {
+			// fall back to the stored truncated body
+			LOG.warn("Unable to highlight search results", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Encodes the position of a hit as a cursor of the form
+	 * offset:score:date:id, using the values it was sorted on.
+	 */
+	private String formatSearchAfter(int offset, ScoreDoc scoreDoc) {
+		Object[] fields = ((FieldDoc) scoreDoc).fields;
+		int n = fields.length;
+		StringBuilder buf = new StringBuilder();
+		buf.append(offset).append(':').append(scoreDoc.score);
+		buf.append(':').append(fields[n - 2]);
+		buf.append(':').append(((BytesRef) fields[n - 1]).utf8ToString());
+		return buf.toString();
+	}
+
+	/**
+	 * Decodes a cursor created by formatSearchAfter.
+	 *
+	 * @return a FieldDoc holding the sort values of the hit, or null if the
+	 *         cursor is missing or malformed
+	 */
+	private FieldDoc parseSearchAfter(String searchAfter, boolean sortByDate) {
+		if (searchAfter == null || searchAfter.length() == 0) {
+			return null;
+		}
+
+		String[] parts = searchAfter.split(":", 4);
+		if (parts.length != 4) {
+			LOG.debug("Ignoring malformed search cursor " + searchAfter);
+			return null;
+		}
+
+		try {
+			// the offset is read back by the caller, so make sure it is valid
+			Integer.parseInt(parts[0]);
+			Float score = Float.valueOf(parts[1]);
+			Long date = Long.valueOf(parts[2]);
+			BytesRef id = new BytesRef(parts[3]);
+			// the doc is only compared when all sort values are equal, which means
+			// the hit itself, so make sure it is skipped
+			Object[] fields = sortByDate ? new Object[] { date, id } : new Object[] { score, date, id };
+			return new FieldDoc(Integer.MAX_VALUE, score, fields);
+		} catch (NumberFormatException nfe) {
+			LOG.debug("Ignoring malformed search cursor " + searchAfter);
+		}
+
+		return null;
+	}
+
 }
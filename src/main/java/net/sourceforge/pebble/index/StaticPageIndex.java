@@ -71,7 +71,8 @@ private static final Log log = LogFactory.getLog(StaticPageIndex.class);
   private static final int MAXIMUM_LOCK_ATTEMPTS = 3;
 
   /** the owning blog */
-  private Blog blog;
+  /** the owning blog, which isn't written to index snapshots */
+  private transient Blog blog;
 
   /** the collection of all static pages */
   private Map<String,String> index = new HashMap<String,String>();
@@ -89,6 +90,13 @@ private static final Log log = LogFactory.getLog(StaticPageIndex.class);
     readIndex();
   }
 
+  /**
+   * Attaches this index, as read back from an index snapshot, to its blog.
+   */
+  void reattach(Blog blog) {
+    this.blog = blog;
+  }
+
   /**
    * Indexes one or more blog entries.
    *
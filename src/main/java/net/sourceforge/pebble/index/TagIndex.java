@@ -65,7 +65,8 @@ public class TagIndex implements Serializable {
 
 private static final Log log = LogFactory.getLog(TagIndex.class);
 
-  private Blog blog;
+  /** the owning blog, which isn't written to index snapshots */
+  private transient Blog blog;
 
   /** the map containing the tags */
   private Map<String,IndexedTag> tags = new HashMap<String,IndexedTag>();
@@ -80,6 +81,16 @@ private static final Log log = LogFactory.getLog(TagIndex.class);
     recalculateTagRankings();
   }
 
+  /**
+   * Attaches this index, as read back from an index snapshot, to its blog.
+   */
+  void reattach(Blog blog) {
+    this.blog = blog;
+    for (IndexedTag tag : tags.values()) {
+      tag.reattach(blog);
+    }
+  }
+
   /**
    * Clears the index.
    */
@@ -258,4 +269,33 @@ private static final Log log = LogFactory.getLog(TagIndex.class);
     return new ArrayList<String>(getTag(tag.getName()).getBlogEntries());
   }
 
+  /**
+   * Gets a slice of the blog entries for a given tag, most recent first.
+   * Only published blog entries are held in the index.
+   *
+   * @param tag       a tag
+   * @param offset    the position of the first blog entry to return
+   * @param limit     the maximum number of blog entries to return
+   * @return  a List of blog entry IDs
+   */
+  public synchronized List<String> getRecentBlogEntries(Tag tag, int offset, int limit) {
+    IndexedTag t = tags.get(Tag.encode(tag.getName()));
+    if (t == null) {
+      return new ArrayList<String>();
+    } else {
+      return t.getBlogEntries(offset, limit);
+    }
+  }
+
+  /**
+   * Gets the number of published blog entries for a given tag.
+   *
+   * @param tag   a tag
+   * @return  the number of blog entries as an int
+   */
+  public synchronized int getNumberOfBlogEntries(Tag tag) {
+    IndexedTag t = tags.get(Tag.encode(tag.getName()));
+    return t != null ? t.getNumberOfBlogEntries() : 0;
+  }
+
 }
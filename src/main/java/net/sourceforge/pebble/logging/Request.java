@@ -36,7 +36,7 @@ import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.Month;
 import net.sourceforge.pebble.domain.Day;
-import net.sourceforge.pebble.permalink.DefaultPermalinkProvider;
+import net.sourceforge.pebble.index.SearchIndex;
 
 import java.text.SimpleDateFormat;
 import java.util.regex.Pattern;
@@ -77,6 +77,22 @@ public class Request extends CountedUrl {
   protected void setUrl(String url) {
     super.setUrl(url);
 
+    if (blog != null && url != null) {
+      RequestClassificationCache cache = blog.getRequestClassificationCache();
+      RequestClassificationCache.Classification classification = cache.get(url);
+      if (classification != null) {
+        classification.applyTo(this);
+      } else {
+        long generation = cache.getGeneration();
+        classify(url);
+        cache.put(url, new RequestClassificationCache.Classification(this), generation);
+      }
+    } else {
+      classify(url);
+    }
+  }
+
+  private void classify(String url) {
     if (url == null || url.length() == 0) {
       setName("None");
     } else if (RESPONSES_FEED_REGEX.matcher(url).matches()) {
@@ -164,9 +180,7 @@ public class Request extends CountedUrl {
 
         if (getName() == null) {
           // try with the default permalink provider
-          DefaultPermalinkProvider defaultPermalinkProvider = new DefaultPermalinkProvider();
-          defaultPermalinkProvider.setBlog(blog);
-          matchOnPermalinkProvider(url, defaultPermalinkProvider);
+          matchOnPermalinkProvider(url, blog.getRequestClassificationCache().getDefaultPermalinkProvider());
         }
       }
     }
@@ -181,9 +195,9 @@ public class Request extends CountedUrl {
       PermalinkProvider permalinkProvider) {
     try {
       if (permalinkProvider.isBlogEntryPermalink(url)) {
-        BlogEntry blogEntry = permalinkProvider.getBlogEntry(url);
-        if (blogEntry != null) {
-          setName("Blog Entry : " + blogEntry.getTitle());
+        String title = getBlogEntryTitle(url, permalinkProvider);
+        if (title != null) {
+          setName("Blog Entry : " + title);
           setPageView(true);
         }
       } else if (permalinkProvider.isMonthPermalink(url)) {
@@ -212,4 +226,30 @@ public class Request extends CountedUrl {
     }
   }
 
+  /**
+   * Looks up the title of the blog entry at the given permalink, from the
+   * search index where possible so that the blog entry needn't be loaded.
+   */
+  private String getBlogEntryTitle(String url, PermalinkProvider permalinkProvider) {
+    SearchIndex searchIndex = blog.getSearchIndex();
+    String title = null;
+    if (searchIndex != null) {
+      title = searchIndex.getTitle("permalink", blog.getUrl() + url.substring(1));
+      String id = title == null ? permalinkProvider.getBlogEntryId(url) : null;
+      if (id != null) {
+        title = searchIndex.getTitle("id", id);
+      }
+    }
+
+    if (title == null) {
+      // unpublished and aggregated entries aren't indexed by their permalink
+      BlogEntry blogEntry = permalinkProvider.getBlogEntry(url);
+      if (blogEntry != null) {
+        title = blogEntry.getTitle();
+      }
+    }
+
+    return title;
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.logging;
+
+import java.io.Serializable;
+
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.permalink.DefaultPermalinkProvider;
+import net.sourceforge.pebble.util.LruCache;
+
+/**
+ * Remembers how the URLs found in a blog's logs have been classified (their
+ * display name, and whether they are page views, news feeds or downloads),
+ * so that the log views don't work it out again for every request they show.
+ * <br /><br />
+ * A classification only changes when blog entries are added, removed or
+ * retitled, or when the permalink provider changes, so that's when the
+ * cache is cleared.
+ */
+public class RequestClassificationCache implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** the default maximum number of URLs remembered */
+  private static final int DEFAULT_CAPACITY = 10000;
+
+  private final Blog blog;
+
+  /** classifications, by URL */
+  private final LruCache<String,Classification> classifications;
+
+  /** a default permalink provider, for URLs left over from before the current one was configured */
+  private transient DefaultPermalinkProvider defaultPermalinkProvider;
+
+  public RequestClassificationCache(Blog blog) {
+    this(blog, DEFAULT_CAPACITY);
+  }
+
+  public RequestClassificationCache(Blog blog, int capacity) {
+    this.blog = blog;
+    this.classifications = new LruCache<String,Classification>(capacity);
+  }
+
+  /**
+   * Gets the classification of a URL.
+   *
+   * @param url   a blog relative URL
+   * @return  a Classification instance, or null if the URL hasn't been seen
+   */
+  Classification get(String url) {
+    synchronized (classifications) {
+      classifications.clearIfChanged(blog.getPermalinkProvider());
+      return classifications.get(url);
+    }
+  }
+
+  /**
+   * Stores the classification of a URL, provided that the cache hasn't been
+   * cleared since the classification started.
+   *
+   * @param url             a blog relative URL
+   * @param classification  a Classification instance
+   * @param generation      the value of getGeneration() before classifying
+   */
+  void put(String url, Classification classification, long generation) {
+    classifications.put(url, classification, generation);
+  }
+
+  long getGeneration() {
+    return classifications.getGeneration();
+  }
+
+  /**
+   * Gets a default permalink provider for this blog.
+   *
+   * @return  a DefaultPermalinkProvider instance
+   */
+  synchronized DefaultPermalinkProvider getDefaultPermalinkProvider() {
+    if (defaultPermalinkProvider == null) {
+      defaultPermalinkProvider = new DefaultPermalinkProvider();
+      defaultPermalinkProvider.setBlog(blog);
+    }
+
+    return defaultPermalinkProvider;
+  }
+
+  /**
+   * Forgets all classifications.
+   */
+  public void clear() {
+    classifications.clear();
+  }
+
+  /**
+   * Gets the number of URLs currently classified.
+   *
+   * @return  the number of URLs
+   */
+  public int size() {
+    return classifications.size();
+  }
+
+  /**
+   * The classification of a single URL.
+   */
+  static final class Classification {
+
+    private final String name;
+    private final boolean newsFeed;
+    private final boolean pageView;
+    private final boolean fileDownload;
+
+    Classification(CountedUrl url) {
+      this.name = url.getName();
+      this.newsFeed = url.isNewsFeed();
+      this.pageView = url.isPageView();
+      this.fileDownload = url.isFileDownload();
+    }
+
+    void applyTo(CountedUrl url) {
+      url.setName(name);
+      url.setNewsFeed(newsFeed);
+      url.setPageView(pageView);
+      url.setFileDownload(fileDownload);
+    }
+
+  }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry of timers, counters and gauges. Each blog has its own instance
+ * and there's a global one for subsystems that are shared between blogs
+ * (e.g. the mail queue). Recording is lock-free and, when metrics are
+ * disabled, start() hands back a sentinel so that callers pay nothing more
+ * than a volatile read.
+ */
+public class Metrics {
+
+  /** returned by start() when metrics are disabled */
+  public static final long DISABLED = Long.MIN_VALUE;
+
+  private static volatile boolean enabled = true;
+
+  private static final Metrics global = new Metrics("pebble");
+
+  private final String name;
+  private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+  private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+  /**
+   * Creates a new, empty set of metrics.
+   *
+   * @param name    the name (typically the blog ID)
+   */
+  public Metrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the metrics for subsystems that aren't specific to a single blog.
+   *
+   * @return  a Metrics instance
+   */
+  public static Metrics getGlobal() {
+    return global;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean b) {
+    enabled = b;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Starts timing an operation.
+   *
+   * @return  a start time to pass to stop(), or DISABLED
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : DISABLED;
+  }
+
+  /**
+   * Stops timing an operation, recording the duration against the named timer.
+   *
+   * @param timerName   the name of the timer
+   * @param start       the value returned by start()
+   */
+  public void stop(String timerName, long start) {
+    if (start != DISABLED) {
+      getTimer(timerName).record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Stops timing an operation, recording the duration against a timer whose
+   * name is made up of a prefix and a suffix. The name is only built when
+   * metrics are enabled.
+   *
+   * @param prefix      the timer name prefix (e.g. "action.")
+   * @param suffix      the rest of the timer name
+   * @param start       the value returned by start()
+   */
+  public void stop(String prefix, String suffix, long start) {
+    if (start != DISABLED) {
+      getTimer(prefix + suffix).record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Stops timing an operation, recording the duration against a timer named
+   * after the class that performed it (e.g. "decorator.SmileyDecorator").
+   *
+   * @param prefix      the timer name prefix (e.g. "decorator.")
+   * @param type        the class that performed the operation
+   * @param start       the value returned by start()
+   */
+  public void stop(String prefix, Class<?> type, long start) {
+    if (start != DISABLED) {
+      getTimer(prefix + getName(type)).record(System.nanoTime() - start);
+    }
+  }
+
+  private static String getName(Class<?> type) {
+    String name = type.getSimpleName();
+    if (name.length() == 0) {
+      // anonymous classes have no simple name, so use Outer$1 instead
+      name = type.getName().substring(type.getName().lastIndexOf('.') + 1);
+    }
+    return name;
+  }
+
+  /**
+   * Increments the named counter.
+   *
+   * @param counterName   the name of the counter
+   */
+  public void increment(String counterName) {
+    if (enabled) {
+      LongAdder counter = counters.get(counterName);
+      if (counter == null) {
+        counter = counters.computeIfAbsent(counterName, k -> new LongAdder());
+      }
+      counter.increment();
+    }
+  }
+
+  /**
+   * Registers a gauge, replacing any existing gauge with the same name.
+   *
+   * @param gaugeName   the name of the gauge
+   * @param gauge       the Gauge instance
+   */
+  public void gauge(String gaugeName, Gauge gauge) {
+    gauges.put(gaugeName, gauge);
+  }
+
+  /**
+   * Gets the named timer, creating it if necessary.
+   *
+   * @param timerName   the name of the timer
+   * @return  a Timer instance
+   */
+  public Timer getTimer(String timerName) {
+    Timer timer = timers.get(timerName);
+    if (timer == null) {
+      timer = timers.computeIfAbsent(timerName, k -> new Timer());
+    }
+    return timer;
+  }
+
+  /**
+   * Gets the current value of the named counter.
+   *
+   * @param counterName   the name of the counter
+   * @return  the count, or 0 if the counter doesn't exist
+   */
+  public long getCount(String counterName) {
+    LongAdder counter = counters.get(counterName);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  public SortedMap<String, Timer> getTimers() {
+    return Collections.unmodifiableSortedMap(new TreeMap<String, Timer>(timers));
+  }
+
+  public SortedMap<String, Long> getCounters() {
+    SortedMap<String, Long> values = new TreeMap<String, Long>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().sum());
+    }
+    return Collections.unmodifiableSortedMap(values);
+  }
+
+  public SortedMap<String, Long> getGauges() {
+    SortedMap<String, Long> values = new TreeMap<String, Long>();
+    for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().getValue());
+    }
+    return Collections.unmodifiableSortedMap(values);
+  }
+
+  /**
+   * Discards everything recorded so far; gauges are kept.
+   */
+  public void reset() {
+    timers.clear();
+    counters.clear();
+  }
+
+}
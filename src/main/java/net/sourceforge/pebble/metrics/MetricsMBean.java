@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exposes a Metrics instance over JMX. Attributes are generated from the
+ * timers, counters and gauges that exist when they're read, so new metrics
+ * appear without re-registering the bean. Timer values are in milliseconds.
+ * Names include the context path, so that several Pebble web applications
+ * can share the platform MBean server.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+  private static final Log log = LogFactory.getLog(MetricsMBean.class);
+
+  private static final String DOMAIN = "net.sourceforge.pebble";
+
+  /** the context path of this web application */
+  private static volatile String contextPath = "/";
+
+  /** the beans registered by this web application, which are the only ones it may unregister */
+  private static final Set<ObjectName> registered = ConcurrentHashMap.newKeySet();
+
+  private final Metrics metrics;
+
+  MetricsMBean(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Sets the context path that bean names are qualified with.
+   *
+   * @param path    the context path of this web application
+   */
+  public static void setContextPath(String path) {
+    contextPath = (path == null || path.length() == 0) ? "/" : path;
+  }
+
+  /**
+   * Registers the given metrics with the platform MBean server, replacing any
+   * bean this web application already registered under the same name. A bean
+   * registered by anybody else is left alone. Failures are logged rather
+   * than thrown, since metrics shouldn't stop a blog starting.
+   *
+   * @param metrics   a Metrics instance
+   */
+  public static void register(Metrics metrics) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = getObjectName(metrics);
+      if (registered.remove(name) && server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(new MetricsMBean(metrics), name);
+      registered.add(name);
+    } catch (InstanceAlreadyExistsException e) {
+      log.warn("Could not register metrics for " + metrics.getName() + " with JMX, " + e.getMessage() + " is already registered");
+    } catch (Exception e) {
+      log.warn("Could not register metrics for " + metrics.getName() + " with JMX", e);
+    }
+  }
+
+  /**
+   * Unregisters the given metrics from the platform MBean server, if they
+   * were registered by this web application.
+   *
+   * @param metrics   a Metrics instance
+   */
+  public static void unregister(Metrics metrics) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = getObjectName(metrics);
+      if (registered.remove(name) && server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (Exception e) {
+      log.warn("Could not unregister metrics for " + metrics.getName() + " from JMX", e);
+    }
+  }
+
+  static ObjectName getObjectName(Metrics metrics) throws MalformedObjectNameException {
+    String context = ",context=" + ObjectName.quote(contextPath);
+    if (metrics == Metrics.getGlobal()) {
+      return new ObjectName(DOMAIN + ":type=GlobalMetrics" + context);
+    } else {
+      return new ObjectName(DOMAIN + ":type=Metrics" + context + ",name=" + ObjectName.quote(metrics.getName()));
+    }
+  }
+
+  private Map<String, Object> getValues() {
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    for (Map.Entry<String, Timer> entry : metrics.getTimers().entrySet()) {
+      Timer timer = entry.getValue();
+      values.put(entry.getKey() + ".count", timer.getCount());
+      values.put(entry.getKey() + ".mean", timer.getMeanMillis());
+      values.put(entry.getKey() + ".p50", timer.getMedianMillis());
+      values.put(entry.getKey() + ".p95", timer.getP95Millis());
+      values.put(entry.getKey() + ".p99", timer.getP99Millis());
+      values.put(entry.getKey() + ".max", timer.getMaxMillis());
+    }
+    values.putAll(metrics.getCounters());
+    values.putAll(metrics.getGauges());
+
+    return values;
+  }
+
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Object value = getValues().get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return value;
+  }
+
+  public AttributeList getAttributes(String[] attributes) {
+    Map<String, Object> values = getValues();
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      if (values.containsKey(attribute)) {
+        list.add(new Attribute(attribute, values.get(attribute)));
+      }
+    }
+    return list;
+  }
+
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+  }
+
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
+    if ("reset".equals(actionName)) {
+      metrics.reset();
+      return null;
+    }
+    throw new ReflectionException(new NoSuchMethodException(actionName));
+  }
+
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+    for (Map.Entry<String, Object> entry : getValues().entrySet()) {
+      attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(), entry.getKey(), true, false, false));
+    }
+    MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Discards all recorded timings and counts", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+
+    return new MBeanInfo(getClass().getName(), "Pebble metrics for " + metrics.getName(),
+        attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+        new MBeanOperationInfo[] {reset}, null);
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Renders metrics in the Prometheus text exposition format (version 0.0.4).
+ * Timers become a summary in seconds, labelled with the blog and timer name.
+ */
+public class PrometheusFormat {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  /**
+   * Formats the given sets of metrics.
+   *
+   * @param metrics   a Collection of Metrics instances
+   * @return  the text to be served
+   */
+  public static String format(Collection<Metrics> metrics) {
+    StringBuilder buf = new StringBuilder();
+
+    buf.append("# HELP pebble_timer_seconds Time taken by requests and subsystems.\n");
+    buf.append("# TYPE pebble_timer_seconds summary\n");
+    for (Metrics m : metrics) {
+      for (Map.Entry<String, Timer> entry : m.getTimers().entrySet()) {
+        Timer timer = entry.getValue();
+        for (double quantile : QUANTILES) {
+          sample(buf, "pebble_timer_seconds", m.getName(), entry.getKey(), "quantile=\"" + quantile + "\"",
+              timer.getPercentile(quantile) / NANOS_PER_SECOND);
+        }
+        sample(buf, "pebble_timer_seconds_count", m.getName(), entry.getKey(), null, timer.getCount());
+        sample(buf, "pebble_timer_seconds_sum", m.getName(), entry.getKey(), null, timer.getTotal() / NANOS_PER_SECOND);
+      }
+    }
+
+    buf.append("# HELP pebble_timer_max_seconds Longest time taken by requests and subsystems.\n");
+    buf.append("# TYPE pebble_timer_max_seconds gauge\n");
+    for (Metrics m : metrics) {
+      for (Map.Entry<String, Timer> entry : m.getTimers().entrySet()) {
+        sample(buf, "pebble_timer_max_seconds", m.getName(), entry.getKey(), null, entry.getValue().getMax() / NANOS_PER_SECOND);
+      }
+    }
+
+    buf.append("# HELP pebble_counter_total Events counted since startup.\n");
+    buf.append("# TYPE pebble_counter_total counter\n");
+    for (Metrics m : metrics) {
+      for (Map.Entry<String, Long> entry : m.getCounters().entrySet()) {
+        sample(buf, "pebble_counter_total", m.getName(), entry.getKey(), null, entry.getValue());
+      }
+    }
+
+    buf.append("# HELP pebble_gauge Sampled values such as queue depths.\n");
+    buf.append("# TYPE pebble_gauge gauge\n");
+    for (Metrics m : metrics) {
+      for (Map.Entry<String, Long> entry : m.getGauges().entrySet()) {
+        sample(buf, "pebble_gauge", m.getName(), entry.getKey(), null, entry.getValue());
+      }
+    }
+
+    return buf.toString();
+  }
+
+  private static void sample(StringBuilder buf, String metric, String blog, String name, String extraLabel, double value) {
+    buf.append(metric);
+    buf.append("{blog=\"").append(escape(blog)).append("\",name=\"").append(escape(name)).append('"');
+    if (extraLabel != null) {
+      buf.append(',').append(extraLabel);
+    }
+    buf.append("} ");
+    if (value == Math.rint(value) && !Double.isInfinite(value)) {
+      buf.append((long)value);
+    } else {
+      buf.append(value);
+    }
+    buf.append('\n');
+  }
+
+  static String escape(String s) {
+    StringBuilder buf = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\\' || c == '"') {
+        buf.append('\\').append(c);
+      } else if (c == '\n') {
+        buf.append("\\n");
+      } else {
+        buf.append(c);
+      }
+    }
+    return buf.toString();
+  }
+
+}
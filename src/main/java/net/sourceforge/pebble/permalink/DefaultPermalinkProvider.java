@@ -39,6 +39,8 @@ import net.sourceforge.pebble.domain.BlogServiceException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Generates permalinks using the pattern /YYYY/MM/DD/<time-in-millis>.
@@ -53,7 +55,7 @@ public class DefaultPermalinkProvider extends PermalinkProviderSupport {
 	private static final long serialVersionUID = 7321157509826307125L;
 	
 /** the regex used to check for a blog entry permalink : /yyyy/mm/dd/blogentryid.html */
-  private static final String BLOG_ENTRY_PERMALINK_REGEX = "/\\d\\d\\d\\d/\\d\\d/\\d\\d/\\d*.html";
+  private static final Pattern BLOG_ENTRY_PERMALINK_PATTERN = Pattern.compile("/\\d\\d\\d\\d/\\d\\d/\\d\\d/(\\d*).html");
 
   /**
    * Gets the permalink for a blog entry.
@@ -93,7 +95,7 @@ public class DefaultPermalinkProvider extends PermalinkProviderSupport {
    */
   public boolean isBlogEntryPermalink(String uri) {
     if (uri != null) {
-      return uri.matches(BLOG_ENTRY_PERMALINK_REGEX);
+      return BLOG_ENTRY_PERMALINK_PATTERN.matcher(uri).matches();
     } else {
       return false;
     }
@@ -106,13 +108,33 @@ public class DefaultPermalinkProvider extends PermalinkProviderSupport {
    * @return  a BlogEntry instance, or null if one can't be found
    */
   public BlogEntry getBlogEntry(String uri) {
+    String blogEntryId = getBlogEntryId(uri);
+    if (blogEntryId == null) {
+      return null;
+    }
+
     Blog blog = getBlog();
     BlogService service = new BlogService();
     try {
-      return service.getBlogEntry(blog, uri.substring(12, uri.lastIndexOf(".")));
+      return service.getBlogEntry(blog, blogEntryId);
     } catch (BlogServiceException e) {
       return null;
     }
   }
 
+  /**
+   * Gets the ID of the blog entry referred to by the specified URI.
+   *
+   * @param uri   a relative URI
+   * @return  a blog entry ID, or null if the URI isn't a blog entry permalink
+   */
+  public String getBlogEntryId(String uri) {
+    Matcher matcher = uri != null ? BLOG_ENTRY_PERMALINK_PATTERN.matcher(uri) : null;
+    if (matcher != null && matcher.matches()) {
+      return matcher.group(1);
+    } else {
+      return null;
+    }
+  }
+
 }
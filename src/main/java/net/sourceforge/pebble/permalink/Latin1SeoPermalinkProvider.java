@@ -35,6 +35,7 @@ package net.sourceforge.pebble.permalink;
 import java.text.SimpleDateFormat;
 import java.util.Iterator;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
@@ -66,17 +67,17 @@ public class Latin1SeoPermalinkProvider extends PermalinkProviderSupport {
 /**
    * the regex used to check for a day request
    */
-  private static final String DAY_PERMALINK_REGEX = "/\\d\\d\\d\\d/\\d\\d/\\d\\d";
+  private static final Pattern DAY_PERMALINK_PATTERN = Pattern.compile("/\\d\\d\\d\\d/\\d\\d/\\d\\d");
 
   /**
    * the regex used to check for a monthly blog request
    */
-  private static final String MONTH_PERMALINK_REGEX = "/\\d\\d\\d\\d/\\d\\d";
+  private static final Pattern MONTH_PERMALINK_PATTERN = Pattern.compile("/\\d\\d\\d\\d/\\d\\d");
 
   /**
    * the regex used to check for a blog entry permalink
    */
-  private static final String BLOG_ENTRY_PERMALINK_REGEX = "/[\\w-]*";
+  private static final Pattern BLOG_ENTRY_PERMALINK_PATTERN = Pattern.compile("/[\\w-]*");
 
   /**
    * the Blog associated with this provider instance
@@ -135,7 +136,7 @@ public class Latin1SeoPermalinkProvider extends PermalinkProviderSupport {
 
   public boolean isBlogEntryPermalink(String uri) {
     if (uri != null) {
-      return uri.matches(BLOG_ENTRY_PERMALINK_REGEX);
+      return BLOG_ENTRY_PERMALINK_PATTERN.matcher(uri).matches();
     } else {
       return false;
     }
@@ -181,7 +182,7 @@ public class Latin1SeoPermalinkProvider extends PermalinkProviderSupport {
    */
   public boolean isMonthPermalink(String uri) {
     if (uri != null) {
-      return uri.matches(MONTH_PERMALINK_REGEX);
+      return MONTH_PERMALINK_PATTERN.matcher(uri).matches();
     } else {
       return false;
     }
@@ -221,7 +222,7 @@ public class Latin1SeoPermalinkProvider extends PermalinkProviderSupport {
    */
   public boolean isDayPermalink(String uri) {
     if (uri != null) {
-      return uri.matches(DAY_PERMALINK_REGEX);
+      return DAY_PERMALINK_PATTERN.matcher(uri).matches();
     } else {
       return false;
     }
@@ -39,6 +39,7 @@ import net.sourceforge.pebble.api.permalink.PermalinkProvider;
 
 import java.text.SimpleDateFormat;
 import java.util.HashMap;
+import java.util.regex.Pattern;
 
 /**
  * Support class that can be used as a basis for PermalinkProvider
@@ -54,10 +55,10 @@ public abstract class PermalinkProviderSupport implements PermalinkProvider {
 	private static final long serialVersionUID = -5353570230140549014L;
 
 /** the regex used to check for a day request */
-  private static final String DAY_PERMALINK_REGEX = "/\\d\\d\\d\\d/\\d\\d/\\d\\d.html";
+  private static final Pattern DAY_PERMALINK_PATTERN = Pattern.compile("/\\d\\d\\d\\d/\\d\\d/\\d\\d.html");
 
   /** the regex used to check for a monthly blog request */
-  private static final String MONTH_PERMALINK_REGEX = "/\\d\\d\\d\\d/\\d\\d.html";
+  private static final Pattern MONTH_PERMALINK_PATTERN = Pattern.compile("/\\d\\d\\d\\d/\\d\\d.html");
 
   /** the Blog associated with this provider instance */
   private Blog blog;
@@ -101,7 +102,7 @@ public abstract class PermalinkProviderSupport implements PermalinkProvider {
    */
   public boolean isMonthPermalink(String uri) {
     if (uri != null) {
-      return uri.matches(MONTH_PERMALINK_REGEX);
+      return MONTH_PERMALINK_PATTERN.matcher(uri).matches();
     } else {
       return false;
     }
@@ -141,7 +142,7 @@ public abstract class PermalinkProviderSupport implements PermalinkProvider {
    */
   public boolean isDayPermalink(String uri) {
     if (uri != null) {
-      return uri.matches(DAY_PERMALINK_REGEX);
+      return DAY_PERMALINK_PATTERN.matcher(uri).matches();
     } else {
       return false;
     }
@@ -35,6 +35,8 @@ import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogService;
 import net.sourceforge.pebble.domain.BlogServiceException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 /**
@@ -50,7 +52,7 @@ public class ShortPermalinkProvider extends PermalinkProviderSupport {
 	private static final long serialVersionUID = 2810413087337290648L;
 	
 /** the regex used to check for a blog entry permalink */
-  private static final String BLOG_ENTRY_PERMALINK_REGEX = "/\\d*.html";
+  private static final Pattern BLOG_ENTRY_PERMALINK_PATTERN = Pattern.compile("/(\\d*).html");
 
   /**
    * Gets the permalink for a blog entry.
@@ -70,7 +72,7 @@ public class ShortPermalinkProvider extends PermalinkProviderSupport {
    */
   public boolean isBlogEntryPermalink(String uri) {
     if (uri != null) {
-      return uri.matches(BLOG_ENTRY_PERMALINK_REGEX);
+      return BLOG_ENTRY_PERMALINK_PATTERN.matcher(uri).matches();
     } else {
       return false;
     }
@@ -94,4 +96,19 @@ public class ShortPermalinkProvider extends PermalinkProviderSupport {
     }
   }
 
+  /**
+   * Gets the ID of the blog entry referred to by the specified URI.
+   *
+   * @param uri   a relative URI
+   * @return  a blog entry ID, or null if the URI isn't a blog entry permalink
+   */
+  public String getBlogEntryId(String uri) {
+    Matcher matcher = uri != null ? BLOG_ENTRY_PERMALINK_PATTERN.matcher(uri) : null;
+    if (matcher != null && matcher.matches()) {
+      return matcher.group(1);
+    } else {
+      return null;
+    }
+  }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.ping;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.util.StringUtils;
+
+/**
+ * A PubSubHubBub publish request, telling a hub that some of a blog's feeds
+ * have changed. Repeats for the same blog and hub are folded together, so
+ * that the hub is told about every feed that changed in one request.
+ */
+public class HubPing extends Ping {
+
+  private final static String HUB_MODE_PARAM = "hub.mode";
+  private final static String HUB_URL_PARAM = "hub.url";
+  private final static String HUB_MODE = "publish";
+
+  /** the URLs of the changed feeds */
+  private final Set<String> feeds = new LinkedHashSet<String>();
+
+  /**
+   * Creates a new ping.
+   *
+   * @param blog    the Blog whose feeds have changed
+   * @param hub     the URL of the hub
+   * @param feeds   the URLs of the changed feeds
+   */
+  public HubPing(Blog blog, String hub, Collection<String> feeds) {
+    super(blog, hub);
+    this.feeds.addAll(feeds);
+  }
+
+  /**
+   * Gets the URLs of the changed feeds.
+   *
+   * @return  a Set of URLs
+   */
+  public Set<String> getFeeds() {
+    return feeds;
+  }
+
+  @Override
+  public String getKey() {
+    return "hub/" + getBlog().getId() + "/" + getUrl();
+  }
+
+  @Override
+  protected void merge(Ping ping) {
+    feeds.addAll(((HubPing)ping).feeds);
+  }
+
+  @Override
+  protected HttpMethod createMethod() {
+    PostMethod method = new PostMethod(getUrl());
+    method.addParameter(HUB_MODE_PARAM, HUB_MODE);
+    for (String feed : feeds) {
+      method.addParameter(HUB_URL_PARAM, feed);
+    }
+    return method;
+  }
+
+  @Override
+  protected void handleResponse(int status, HttpMethod method) {
+    if (status != HttpServletResponse.SC_NO_CONTENT) {
+      handleFailure("unexpected response code " + status + " " + method.getStatusText());
+    }
+  }
+
+  @Override
+  protected void handleFailure(String message) {
+    getBlog().warn("Error publishing to hub: " + StringUtils.transformHTML(getUrl()) + ". Message: " + StringUtils.transformHTML(message));
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.ping;
+
+import java.io.IOException;
+
+import org.apache.commons.httpclient.HttpMethod;
+
+import net.sourceforge.pebble.domain.Blog;
+
+/**
+ * A single outbound notification (an update ping, a hub publish request or a
+ * TrackBack), sent by the {@link PingService}.
+ */
+public abstract class Ping {
+
+  private final Blog blog;
+  private final String url;
+
+  /** the number of times this ping has been sent */
+  private int attempts;
+
+  protected Ping(Blog blog, String url) {
+    this.blog = blog;
+    this.url = url;
+  }
+
+  /**
+   * Gets the blog that this ping is sent on behalf of.
+   *
+   * @return  a Blog instance
+   */
+  public Blog getBlog() {
+    return blog;
+  }
+
+  /**
+   * Gets the URL that this ping is sent to.
+   *
+   * @return  a URL as a String
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Gets the key that identifies repeats of this ping, which are coalesced
+   * into one while this ping is waiting to be sent.
+   *
+   * @return  a key, or null if this ping is never coalesced
+   */
+  public String getKey() {
+    return null;
+  }
+
+  /**
+   * Folds a repeat of this ping (one with the same key) into this one.
+   *
+   * @param ping    the repeat
+   */
+  protected void merge(Ping ping) {
+  }
+
+  /**
+   * Determines whether this ping can be sent again after it may have reached
+   * the remote site, for example after a server error or a read timeout.
+   * Pings that can't are only retried when the connection couldn't be made.
+   *
+   * @return  true if sending this ping twice is harmless, false otherwise
+   */
+  protected boolean isRepeatable() {
+    return true;
+  }
+
+  /**
+   * Creates the HTTP request that sends this ping.
+   *
+   * @return  an HttpMethod instance
+   * @throws IOException  if the request can't be created
+   */
+  protected abstract HttpMethod createMethod() throws IOException;
+
+  /**
+   * Called with the response to a ping that reached the remote site, to
+   * record the result in the blog's messages.
+   *
+   * @param status    the HTTP status code
+   * @param method    the HttpMethod, from which the response can be read
+   * @throws IOException  if the response can't be read
+   */
+  protected abstract void handleResponse(int status, HttpMethod method) throws IOException;
+
+  /**
+   * Called when this ping couldn't be sent, after it has been retried.
+   *
+   * @param message   a description of the problem
+   */
+  protected abstract void handleFailure(String message);
+
+  int attempt() {
+    return ++attempts;
+  }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.ping;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.httpclient.ConnectTimeoutException;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Sends outbound notifications (update pings, hub publish requests and
+ * TrackBacks) in the background, so that saving a blog entry or sending a
+ * TrackBack doesn't wait on remote sites.
+ * <br /><br />
+ * Pings are sent by a small pool of threads sharing a bounded pool of HTTP
+ * connections, with connect and read timeouts. Repeats of a ping (for the
+ * same blog and remote site) that arrive while it's waiting to be sent are
+ * folded into it, so that a burst of edits results in a single ping. Pings
+ * that fail with an I/O error or a server error are retried with an
+ * exponential backoff, except that TrackBacks (which aren't safe to repeat)
+ * are only retried when the connection couldn't be made. The number of
+ * pending pings is bounded, and results are recorded in the blog's messages.
+ */
+public class PingService {
+
+  /** the log used by this class */
+  private static final Log log = LogFactory.getLog(PingService.class);
+
+  /** the number of threads (and connections) used to send pings */
+  private static final int THREADS = 4;
+
+  private static final int CONNECT_TIMEOUT = (int)TimeUnit.SECONDS.toMillis(10);
+  private static final int READ_TIMEOUT = (int)TimeUnit.SECONDS.toMillis(20);
+
+  /** the number of times a ping is sent before giving up */
+  private static final int MAXIMUM_ATTEMPTS = 3;
+
+  /** how long coalescable pings wait for repeats before being sent */
+  private static final long DEFAULT_WINDOW = TimeUnit.SECONDS.toMillis(30);
+
+  /** the delay before the first retry, which doubles for each one after */
+  private static final long DEFAULT_RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+  /** the maximum number of pings waiting, being sent or waiting to be retried */
+  private static final int DEFAULT_MAXIMUM_PENDING = 1000;
+
+  private static final PingService instance = new PingService(DEFAULT_WINDOW, DEFAULT_RETRY_DELAY);
+
+  private final long window;
+  private final long retryDelay;
+  private final int maximumPending;
+
+  private final MultiThreadedHttpConnectionManager connectionManager;
+  private final HttpClient httpClient;
+  private final ScheduledThreadPoolExecutor executor;
+
+  /** pings waiting to be sent, by key */
+  private final Map<String,Ping> waiting = new HashMap<String,Ping>();
+
+  /** the number of pings waiting, being sent or waiting to be retried */
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /**
+   * Creates a new service.
+   *
+   * @param window        how long (in ms) coalescable pings wait for repeats
+   * @param retryDelay    the delay (in ms) before the first retry
+   */
+  PingService(long window, long retryDelay) {
+    this(window, retryDelay, DEFAULT_MAXIMUM_PENDING);
+  }
+
+  /**
+   * Creates a new service.
+   *
+   * @param window          how long (in ms) coalescable pings wait for repeats
+   * @param retryDelay      the delay (in ms) before the first retry
+   * @param maximumPending  the number of pings that can be pending before new ones are discarded
+   */
+  PingService(long window, long retryDelay, int maximumPending) {
+    this.window = window;
+    this.retryDelay = retryDelay;
+    this.maximumPending = maximumPending;
+
+    connectionManager = new MultiThreadedHttpConnectionManager();
+    HttpConnectionManagerParams params = connectionManager.getParams();
+    params.setMaxTotalConnections(THREADS);
+    params.setDefaultMaxConnectionsPerHost(THREADS);
+    params.setConnectionTimeout(CONNECT_TIMEOUT);
+    params.setSoTimeout(READ_TIMEOUT);
+    httpClient = new HttpClient(connectionManager);
+    httpClient.getParams().setConnectionManagerTimeout(CONNECT_TIMEOUT);
+
+    executor = new ScheduledThreadPoolExecutor(THREADS, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "pebble-ping-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  public static PingService getInstance() {
+    return instance;
+  }
+
+  /**
+   * Queues a ping to be sent. A ping with a key waits for a short while, and
+   * is coalesced with any repeats submitted in the meantime. Other pings are
+   * sent straight away. If too many pings are pending, the ping is discarded
+   * and recorded as having failed.
+   *
+   * @param ping    the Ping to send
+   */
+  public void send(Ping ping) {
+    String key = ping.getKey();
+    if (key == null) {
+      if (reserve(ping)) {
+        schedule(ping, 0);
+      }
+      return;
+    }
+
+    synchronized (waiting) {
+      Ping queued = waiting.get(key);
+      if (queued != null) {
+        queued.merge(ping);
+        return;
+      }
+      if (pending.get() < maximumPending) {
+        pending.incrementAndGet();
+        waiting.put(key, ping);
+        key = null;
+      }
+    }
+
+    if (key == null) {
+      schedule(ping, window);
+    } else {
+      reject(ping);
+    }
+  }
+
+  private boolean reserve(Ping ping) {
+    if (pending.incrementAndGet() > maximumPending) {
+      pending.decrementAndGet();
+      reject(ping);
+      return false;
+    }
+
+    return true;
+  }
+
+  private void reject(Ping ping) {
+    log.warn("Ping to " + ping.getUrl() + " discarded, " + maximumPending + " pings are already pending");
+    ping.handleFailure("too many pings are waiting to be sent");
+  }
+
+  /**
+   * Gets the number of pings that haven't yet been sent, or are waiting to
+   * be retried.
+   *
+   * @return  the number of pings
+   */
+  public int getNumberOfPendingPings() {
+    return pending.get();
+  }
+
+  /**
+   * Stops sending pings, discarding any that haven't been sent.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+    connectionManager.shutdown();
+  }
+
+  /**
+   * Schedules a ping that has already been counted as pending.
+   */
+  private void schedule(final Ping ping, long delay) {
+    try {
+      executor.schedule(new Runnable() {
+        public void run() {
+          try {
+            process(ping);
+          } catch (Throwable t) {
+            log.error("Exception encountered", t);
+            pending.decrementAndGet();
+          }
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    } catch (RuntimeException e) {
+      if (ping.getKey() != null) {
+        synchronized (waiting) {
+          if (waiting.get(ping.getKey()) == ping) {
+            waiting.remove(ping.getKey());
+          }
+        }
+      }
+      pending.decrementAndGet();
+      log.warn("Ping to " + ping.getUrl() + " discarded", e);
+    }
+  }
+
+  private void process(Ping ping) {
+    String key = ping.getKey();
+    if (key != null) {
+      // repeats from now on start a new ping
+      synchronized (waiting) {
+        if (waiting.get(key) == ping) {
+          waiting.remove(key);
+        }
+      }
+    }
+
+    String problem;
+    boolean retry;
+    int attempt = ping.attempt();
+    HttpMethod method = null;
+    try {
+      method = ping.createMethod();
+      int status = httpClient.executeMethod(method);
+      if (status < 500) {
+        ping.handleResponse(status, method);
+        pending.decrementAndGet();
+        return;
+      }
+      problem = status + " " + method.getStatusText();
+      retry = ping.isRepeatable();
+    } catch (IOException ioe) {
+      problem = ioe.getMessage() != null ? ioe.getMessage() : ioe.getClass().getName();
+      retry = ping.isRepeatable() || isConnectionFailure(ioe);
+    } finally {
+      if (method != null) {
+        method.releaseConnection();
+      }
+    }
+
+    if (retry && attempt < MAXIMUM_ATTEMPTS) {
+      log.info("Ping to " + ping.getUrl() + " failed (" + problem + "), will retry");
+      // still pending, so it stays counted
+      schedule(ping, retryDelay << (attempt - 1));
+    } else {
+      ping.handleFailure(problem);
+      pending.decrementAndGet();
+    }
+  }
+
+  /**
+   * Determines whether an exception means that the request never reached
+   * the remote site.
+   */
+  private static boolean isConnectionFailure(IOException e) {
+    return e instanceof ConnectException || e instanceof ConnectTimeoutException ||
+        e instanceof UnknownHostException || e instanceof NoRouteToHostException;
+  }
+
+}
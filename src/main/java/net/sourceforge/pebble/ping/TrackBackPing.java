@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.ping;
+
+import java.io.IOException;
+
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.NameValuePair;
+import org.apache.commons.httpclient.methods.PostMethod;
+
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.util.StringUtils;
+
+/**
+ * A TrackBack, telling another blog that a blog entry refers to it.
+ */
+public class TrackBackPing extends Ping {
+
+  /** the longest response recorded in the blog's messages */
+  private static final int MAXIMUM_RESPONSE_LENGTH = 1024;
+
+  private final String title;
+  private final String permalink;
+  private final String excerpt;
+  private final String blogName;
+
+  /**
+   * Creates a new TrackBack.
+   *
+   * @param blogEntry       the BlogEntry that refers to the other blog
+   * @param trackBackUrl    the TrackBack URL of the other blog
+   * @param excerpt         an excerpt of the blog entry
+   */
+  public TrackBackPing(BlogEntry blogEntry, String trackBackUrl, String excerpt) {
+    super(blogEntry.getBlog(), trackBackUrl);
+    this.title = blogEntry.getTitle();
+    this.permalink = blogEntry.getPermalink();
+    this.excerpt = excerpt;
+    this.blogName = blogEntry.getBlog().getName();
+  }
+
+  /**
+   * A TrackBack that gets as far as the other blog may have been recorded
+   * there, even if the response was an error, and sending it again would
+   * record it twice.
+   */
+  @Override
+  protected boolean isRepeatable() {
+    return false;
+  }
+
+  @Override
+  protected HttpMethod createMethod() {
+    PostMethod method = new PostMethod(getUrl());
+    method.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=" + getBlog().getCharacterEncoding());
+    NameValuePair[] data = {
+      new NameValuePair("title", title),
+      new NameValuePair("url", permalink),
+      new NameValuePair("excerpt", excerpt),
+      new NameValuePair("blog_name", blogName)
+    };
+    method.addParameters(data);
+    return method;
+  }
+
+  @Override
+  protected void handleResponse(int status, HttpMethod method) throws IOException {
+    String response = method.getResponseBodyAsString();
+    if (response == null) {
+      response = "";
+    } else if (response.length() > MAXIMUM_RESPONSE_LENGTH) {
+      response = response.substring(0, MAXIMUM_RESPONSE_LENGTH) + "...";
+    }
+
+    String message = "TrackBack for \"" + StringUtils.transformHTML(title) + "\" sent to " +
+        StringUtils.transformHTML(getUrl()) + ", response code " + status +
+        "<br /><pre>" + StringUtils.transformHTML(response.trim()) + "</pre>";
+    if (status == 200) {
+      getBlog().info(message);
+    } else {
+      getBlog().warn(message);
+    }
+  }
+
+  @Override
+  protected void handleFailure(String message) {
+    getBlog().warn("TrackBack for \"" + StringUtils.transformHTML(title) + "\" to " +
+        StringUtils.transformHTML(getUrl()) + " failed: " + StringUtils.transformHTML(message));
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.ping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Hashtable;
+import java.util.TimeZone;
+
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.xmlrpc.XmlRpcClientException;
+import org.apache.xmlrpc.XmlRpcClientRequest;
+import org.apache.xmlrpc.XmlRpcClientRequestProcessor;
+import org.apache.xmlrpc.XmlRpcClientResponseProcessor;
+
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.util.StringUtils;
+
+/**
+ * A weblogUpdates.ping XML-RPC call, telling a site like weblogs.com that a
+ * blog has been updated.
+ */
+public class UpdateNotificationPing extends Ping {
+
+  /** the name of the method to call via XML-RPC */
+  private static final String WEBLOGS_METHOD_NAME = "weblogUpdates.ping";
+
+  /** the URL of the updated blog */
+  private final String blogUrl;
+
+  /**
+   * Creates a new ping.
+   *
+   * @param blog      the updated Blog
+   * @param blogUrl   the URL to send the ping for
+   * @param site      the URL of the site to ping
+   */
+  public UpdateNotificationPing(Blog blog, String blogUrl, String site) {
+    super(blog, site);
+    this.blogUrl = blogUrl;
+  }
+
+  @Override
+  public String getKey() {
+    return "xmlrpc/" + getBlog().getId() + "/" + getUrl() + "/" + blogUrl;
+  }
+
+  @Override
+  protected HttpMethod createMethod() throws IOException {
+    final Object[] params = { getBlog().getName(), blogUrl };
+    XmlRpcClientRequest ping = new XmlRpcClientRequest() {
+      public String getMethodName() {
+        return WEBLOGS_METHOD_NAME;
+      }
+
+      public int getParameterCount() {
+        return params.length;
+      }
+
+      public Object getParameter(int index) {
+        return params[index];
+      }
+    };
+
+    TimeZone timeZone = TimeZone.getDefault();
+    String encoding = new XmlRpcClientResponseProcessor(timeZone).getEncoding();
+    byte[] request;
+    try {
+      request = new XmlRpcClientRequestProcessor(timeZone).encodeRequestBytes(ping, encoding);
+    } catch (XmlRpcClientException e) {
+      throw new IOException(e.getMessage());
+    }
+
+    PostMethod method = new PostMethod(getUrl());
+    method.setRequestEntity(new ByteArrayRequestEntity(request, "text/xml"));
+    return method;
+  }
+
+  @Override
+  protected void handleResponse(int status, HttpMethod method) throws IOException {
+    if (status != 200) {
+      handleFailure(status + " " + method.getStatusText());
+      return;
+    }
+
+    Object result;
+    InputStream in = method.getResponseBodyAsStream();
+    try {
+      result = new XmlRpcClientResponseProcessor(TimeZone.getDefault()).decodeResponse(in);
+    } catch (XmlRpcClientException e) {
+      handleFailure(e.getMessage());
+      return;
+    } finally {
+      in.close();
+    }
+
+    // a fault is returned as an exception
+    if (result instanceof Exception) {
+      handleFailure(((Exception)result).getMessage());
+    } else if (result instanceof Hashtable) {
+      Hashtable response = (Hashtable)result;
+      getBlog().info("Result of XML-RPC ping to " + t(getUrl()) + " was " + t(response.get("flerror")) + ", " + t(response.get("message")));
+    }
+  }
+
+  @Override
+  protected void handleFailure(String message) {
+    getBlog().warn("XML-RPC ping to " + t(getUrl()) + " failed: " + t(message));
+  }
+
+  private static String t(Object object) {
+    if (object == null) return null;
+    return StringUtils.transformHTML(object.toString());
+  }
+
+}
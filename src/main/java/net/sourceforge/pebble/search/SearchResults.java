@@ -56,6 +56,15 @@ public class SearchResults {
   /** the collection of search results */
   private List hits = new ArrayList();
 
+  /** the total number of hits, which may exceed the number of hits loaded */
+  private int totalHits;
+
+  /** the position of the first loaded hit within all hits */
+  private int offset;
+
+  /** the cursor from which the next page of hits can be fetched */
+  private String searchAfter;
+
   /**
    * Gets the query that was used to generate these results.
    *
@@ -104,12 +113,60 @@ public class SearchResults {
   }
 
   /**
-   * Gets the number of hits that the query returned.
+   * Gets the number of hits that the query returned. When only a page of
+   * results has been loaded, this is the total number of matches rather
+   * than the size of the page.
    *
    * @return  the number of hits as an int
    */
   public int getNumberOfHits() {
-    return hits.size();
+    return Math.max(totalHits, hits.size());
+  }
+
+  /**
+   * Sets the total number of hits that the query matched.
+   *
+   * @param totalHits   the number of hits as an int
+   */
+  public void setTotalHits(int totalHits) {
+    this.totalHits = totalHits;
+  }
+
+  /**
+   * Gets the position of the first loaded hit within all hits.
+   *
+   * @return  the offset as an int
+   */
+  public int getOffset() {
+    return this.offset;
+  }
+
+  /**
+   * Sets the position of the first loaded hit within all hits.
+   *
+   * @param offset    the offset as an int
+   */
+  public void setOffset(int offset) {
+    this.offset = offset;
+  }
+
+  /**
+   * Gets the cursor that can be passed back to the search index to fetch
+   * the page of hits following this one.
+   *
+   * @return  an opaque cursor, or null if there are no more hits
+   */
+  public String getSearchAfter() {
+    return this.searchAfter;
+  }
+
+  /**
+   * Sets the cursor that can be used to fetch the next page of hits.
+   *
+   * @param searchAfter   an opaque cursor (can be null)
+   */
+  public void setSearchAfter(String searchAfter) {
+    this.searchAfter = searchAfter;
   }
 
   /**
@@ -127,7 +184,7 @@ public class SearchResults {
   public void sortByScoreDescending() {
     Collections.sort(hits, new SearchHitByScoreComparator());
 
-    int number = 1;
+    int number = offset + 1;
     Iterator it = hits.iterator();
     while (it.hasNext()) {
       SearchHit hit = (SearchHit)it.next();
@@ -142,7 +199,7 @@ public class SearchResults {
   public void sortByDateDescending() {
     Collections.sort(hits, new SearchHitByDateComparator());
 
-    int number = 1;
+    int number = offset + 1;
     Iterator it = hits.iterator();
     while (it.hasNext()) {
       SearchHit hit = (SearchHit)it.next();
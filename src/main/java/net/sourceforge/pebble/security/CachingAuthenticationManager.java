@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import net.sourceforge.pebble.PebbleContext;
+
+/**
+ * An AuthenticationManager that remembers successful username/password
+ * authentications for a short time, so that API clients making a burst of
+ * calls only pay for the password hash once.
+ * <br /><br />
+ * Passwords are never held; each entry stores an HMAC of the password under
+ * a random key that only lives as long as this instance. Failed attempts are
+ * never cached, and a user's entry is dropped as soon as their details
+ * change. Caching is off unless apiAuthenticationCacheSeconds is set in the
+ * configuration.
+ */
+public class CachingAuthenticationManager implements AuthenticationManager, ApplicationListener<UserDetailsChangedEvent> {
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+
+  /** the default maximum number of users held in the cache */
+  private static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+  private AuthenticationManager delegate;
+
+  private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+  private final SecretKeySpec key;
+
+  /** cached authentications, by username, in least recently used order */
+  private final Map<String,CachedAuthentication> cache = new LinkedHashMap<String,CachedAuthentication>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String,CachedAuthentication> eldest) {
+      return size() > maximumSize;
+    }
+  };
+
+  /** bumped on every invalidation, so that in-flight authentications aren't cached */
+  private long generation;
+
+  public CachingAuthenticationManager() {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+  }
+
+  public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+    int ttl = PebbleContext.getInstance().getConfiguration().getApiAuthenticationCacheSeconds();
+    if (ttl <= 0 ||
+        !(authentication instanceof UsernamePasswordAuthenticationToken) ||
+        authentication.getName() == null ||
+        authentication.getCredentials() == null) {
+      return delegate.authenticate(authentication);
+    }
+
+    String username = authentication.getName();
+    byte[] mac = mac(username, authentication.getCredentials().toString());
+    long now = System.currentTimeMillis();
+    long generationBefore;
+
+    synchronized (cache) {
+      CachedAuthentication cached = cache.get(username);
+      if (cached != null) {
+        if (cached.expires <= now) {
+          cache.remove(username);
+        } else if (MessageDigest.isEqual(cached.mac, mac)) {
+          return cached.result;
+        }
+      }
+      generationBefore = generation;
+    }
+
+    Authentication result = delegate.authenticate(authentication);
+
+    if (result != null && result.isAuthenticated()) {
+      synchronized (cache) {
+        if (generation == generationBefore) {
+          cache.put(username, new CachedAuthentication(mac, result, now + (ttl * 1000L)));
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Drops any cached authentication for the given user.
+   *
+   * @param username    a username
+   */
+  public void invalidate(String username) {
+    synchronized (cache) {
+      generation++;
+      cache.remove(username);
+    }
+  }
+
+  /**
+   * Drops all cached authentications.
+   */
+  public void clear() {
+    synchronized (cache) {
+      generation++;
+      cache.clear();
+    }
+  }
+
+  /**
+   * Gets the number of users that currently have a cached authentication.
+   *
+   * @return  the number of cached entries, some of which may have expired
+   */
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  public void onApplicationEvent(UserDetailsChangedEvent event) {
+    invalidate(event.getUsername());
+  }
+
+  private byte[] mac(String username, String password) {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(key);
+      mac.update(username.getBytes(StandardCharsets.UTF_8));
+      mac.update((byte)0);
+      return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public AuthenticationManager getDelegate() {
+    return delegate;
+  }
+
+  public void setDelegate(AuthenticationManager delegate) {
+    this.delegate = delegate;
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  private static final class CachedAuthentication {
+
+    private final byte[] mac;
+    private final Authentication result;
+    private final long expires;
+
+    CachedAuthentication(byte[] mac, Authentication result, long expires) {
+      this.mac = mac;
+      this.result = result;
+      this.expires = expires;
+    }
+
+  }
+
+}
@@ -39,6 +39,8 @@ import net.sourceforge.pebble.comparator.PebbleUserDetailsComparator;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -53,7 +55,7 @@ import java.util.*;
  *
  * @author    Simon Brown
  */
-public class DefaultSecurityRealm implements SecurityRealm, ApplicationListener<ApplicationEvent> {
+public class DefaultSecurityRealm implements SecurityRealm, ApplicationListener<ApplicationEvent>, ApplicationEventPublisherAware {
 
   private static final Log log = LogFactory.getLog(DefaultSecurityRealm.class);
 
@@ -72,6 +74,8 @@ public class DefaultSecurityRealm implements SecurityRealm, ApplicationListener<
 
   private PasswordEncoder passwordEncoder;
 
+  private ApplicationEventPublisher applicationEventPublisher;
+
   /** Map of open ids to users, cached in a copy on write map */
   private Map<String, String> openIdMap;
 
@@ -230,6 +234,7 @@ public class DefaultSecurityRealm implements SecurityRealm, ApplicationListener<
    */
   public synchronized void updateUser(PebbleUserDetails pud) throws SecurityRealmException {
     updateUser(pud, false);
+    userChanged(pud.getUsername());
   }
 
   /**
@@ -278,6 +283,7 @@ public class DefaultSecurityRealm implements SecurityRealm, ApplicationListener<
     if (pud != null) {
       pud.setPassword(password);
       updateUser(pud, true);
+      userChanged(username);
     }
   }
 
@@ -295,12 +301,25 @@ public class DefaultSecurityRealm implements SecurityRealm, ApplicationListener<
 		  // not necessary
       }
     }
+    userChanged(username);
 
     if (user.exists()) {
       throw new SecurityRealmException("User " + username + " could not be deleted");
     }
   }
 
+  /**
+   * Lets interested parties (e.g. cached API logins) know that a user has
+   * changed.
+   *
+   * @param username    the username of the user that changed
+   */
+  private void userChanged(String username) {
+    if (applicationEventPublisher != null) {
+      applicationEventPublisher.publishEvent(new UserDetailsChangedEvent(this, username));
+    }
+  }
+
   protected File getFileForRealm() {
     // find the directory and file corresponding to the user, of the form
     // ${pebbleContext.dataDirectory}/realm/${username}.properties
@@ -329,4 +348,8 @@ public class DefaultSecurityRealm implements SecurityRealm, ApplicationListener<
     this.passwordEncoder = passwordEncoder;
   }
 
+  public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+    this.applicationEventPublisher = applicationEventPublisher;
+  }
+
 }
\ No newline at end of file
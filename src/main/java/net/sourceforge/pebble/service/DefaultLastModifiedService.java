@@ -33,9 +33,10 @@ package net.sourceforge.pebble.service;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import java.util.TimeZone;
+import java.util.Locale;
 
 /**
  * Default implementation of the last modified service
@@ -44,29 +45,55 @@ import java.util.TimeZone;
  */
 public class DefaultLastModifiedService implements LastModifiedService {
 
+  /** HTTP dates are always in English and GMT - unlike SimpleDateFormat, this is thread safe */
+  private static final DateTimeFormatter HTTP_FORMAT =
+      DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
   public boolean checkAndProcessLastModified(HttpServletRequest request, HttpServletResponse response,
                                              Date lastModified, Date expires) {
 
-    SimpleDateFormat httpFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z");
-    httpFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+    String httpLastModified = HTTP_FORMAT.format(lastModified.toInstant());
+    String etag = "\"" + httpLastModified + "\"";
 
     // Set the headers
     response.setDateHeader("Last-Modified", lastModified.getTime());
-    response.setHeader("ETag", "\"" + httpFormat.format(lastModified) + "\"");
+    response.setHeader("ETag", etag);
     if (expires != null) {
-      response.setHeader("Expires", httpFormat.format(expires));
+      response.setHeader("Expires", HTTP_FORMAT.format(expires.toInstant()));
     }
 
     // Get the headers to check
     String ifModifiedSince = request.getHeader("If-Modified-Since");
     String ifNoneMatch = request.getHeader("If-None-Match");
 
-    if (ifModifiedSince != null && ifModifiedSince.equals(httpFormat.format(lastModified))) {
+    if (ifModifiedSince != null && ifModifiedSince.equals(httpLastModified)) {
       return true;
-    } else if (ifNoneMatch != null && ifNoneMatch.equals("\"" + httpFormat.format(lastModified) + "\"")) {
+    } else if (ifNoneMatch != null && ifNoneMatch.equals(etag)) {
       return true;
     } else {
       return false;
     }
   }
+
+  public boolean checkAndProcessETag(HttpServletRequest request, HttpServletResponse response, String etag) {
+    response.setHeader("ETag", etag);
+
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    // the header may hold a list of entity tags, possibly weak ones
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals(etag) || tag.equals("*")) {
+        return true;
+      }
+    }
+
+    return false;
+  }
 }
@@ -54,4 +54,15 @@ public interface LastModifiedService {
    */
   boolean checkAndProcessLastModified(HttpServletRequest request, HttpServletResponse response, Date lastModified,
                                       Date expires);
+
+  /**
+   * Work out whether this request should return not modified, given the entity tag of the current content
+   *
+   * @param request      The request to check and process
+   * @param response     The response to go with the request.  This can be used to set the etag header, but should
+   *                     not be used to set the status code.
+   * @param etag         The strong entity tag of the current content, including the surrounding quotes
+   * @return True        If it should return not modified
+   */
+  boolean checkAndProcessETag(HttpServletRequest request, HttpServletResponse response, String etag);
 }
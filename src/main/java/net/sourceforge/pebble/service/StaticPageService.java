@@ -94,12 +94,16 @@ public class StaticPageService {
       staticPage = cache.getStaticPage(blog, pageId);
       if (staticPage != null) {
         log.debug("Got static page " + pageId+ " from cache");
+        blog.getMetrics().increment("cache.staticPage.hit");
       } else {
         log.debug("Loading static page " + pageId+ " from disk");
+        blog.getMetrics().increment("cache.staticPage.miss");
 
         DAOFactory factory = DAOFactory.getConfiguredFactory();
         StaticPageDAO dao = factory.getStaticPageDAO();
+        long start = blog.getMetrics().start();
         staticPage = dao.loadStaticPage(blog, pageId);
+        blog.getMetrics().stop("dao.loadStaticPage", start);
         if (staticPage != null) {
           staticPage.setPersistent(true);
           cache.putStaticPage(staticPage);
@@ -151,7 +155,9 @@ public class StaticPageService {
           staticPage.setDate(new Date(staticPage.getDate().getTime() + 1));
           putStaticPage(staticPage);
         } else {
+          long start = blog.getMetrics().start();
           dao.storeStaticPage(staticPage);
+          blog.getMetrics().stop("dao.storeStaticPage", start);
           staticPage.setPersistent(true);
           cache.removeStaticPage(staticPage);
         }
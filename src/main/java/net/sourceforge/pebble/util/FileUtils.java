@@ -32,6 +32,7 @@
 package net.sourceforge.pebble.util;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.FileNameMap;
@@ -51,6 +52,8 @@ public final class FileUtils {
   /** the logger used by this class */
   private static final Log log = LogFactory.getLog(FileUtils.class);
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   /** the local content type map */
   private static Properties localFileNameMap;
 
@@ -116,6 +119,50 @@ public final class FileUtils {
     directory.delete();
   }
 
+  /**
+   * Determines whether two files have the same content, reading them a
+   * buffer at a time so that large files aren't held in memory.
+   *
+   * @param file1   a File instance
+   * @param file2   another File instance
+   * @return  true if both files have the same content, false otherwise
+   * @throws IOException  if either file can't be read
+   */
+  public static boolean contentEquals(File file1, File file2) throws IOException {
+    if (file1.length() != file2.length()) {
+      return false;
+    }
+
+    byte[] buf1 = new byte[BUFFER_SIZE];
+    byte[] buf2 = new byte[BUFFER_SIZE];
+    try (InputStream in1 = new FileInputStream(file1); InputStream in2 = new FileInputStream(file2)) {
+      while (true) {
+        int count = readFully(in1, buf1);
+        if (count != readFully(in2, buf2)) {
+          return false;
+        }
+        if (count == 0) {
+          return true;
+        }
+        for (int i = 0; i < count; i++) {
+          if (buf1[i] != buf2[i]) {
+            return false;
+          }
+        }
+      }
+    }
+  }
+
+  private static int readFully(InputStream in, byte[] buf) throws IOException {
+    int total = 0;
+    int count = 0;
+    while (total < buf.length && (count = in.read(buf, total, buf.length - total)) != -1) {
+      total += count;
+    }
+
+    return total;
+  }
+
   /**
    * Gets the content type for the specified filename.
    *
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.w3c.dom.Document;
+import org.w3c.tidy.Tidy;
+
+/**
+ * Runs W3C Tidy over fragments of HTML so that they are valid XHTML.
+ * <br /><br />
+ * Configured Tidy instances are pooled, since they're expensive to set up
+ * and can't be shared between threads. Content is read and written as
+ * characters, so that it doesn't depend on the platform encoding. Recent
+ * results are remembered by a digest of the content, so that content that
+ * hasn't changed since it was last tidied (including content that is the
+ * result of tidying) isn't tidied again.
+ */
+public final class HtmlTidier {
+
+  private static final String HEADER =
+      "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\" \"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n" +
+      "<html xmlns=\"http://www.w3.org/1999/xhtml\"><title></title><body>";
+  private static final String FOOTER = "</body></html>";
+
+  private static final String BODY_START = "<body>";
+  private static final String BODY_END = "</body>";
+
+  /** the number of idle Tidy instances kept */
+  private static final int POOL_SIZE = 4;
+
+  /** the number of results remembered */
+  private static final int CACHE_SIZE = 256;
+
+  private static final HtmlTidier instance = new HtmlTidier();
+
+  private final BlockingQueue<Tidy> pool = new ArrayBlockingQueue<Tidy>(POOL_SIZE);
+
+  /** tidied content, by the digest of the content it came from */
+  private final Map<String,String> results = new LinkedHashMap<String,String>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String,String> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  private HtmlTidier() {
+  }
+
+  public static HtmlTidier getInstance() {
+    return instance;
+  }
+
+  /**
+   * Tidies a fragment of HTML.
+   *
+   * @param s   the HTML to tidy
+   * @return  the tidied HTML, or an empty string if there wasn't any
+   */
+  public String tidy(String s) {
+    if (s == null || s.length() == 0) {
+      return "";
+    }
+
+    String digest = digest(s);
+    synchronized (results) {
+      String tidied = results.get(digest);
+      if (tidied != null) {
+        return tidied;
+      }
+    }
+
+    String tidied = doTidy(s);
+    // tidying the result again wouldn't change it
+    String tidiedDigest = digest(tidied);
+    synchronized (results) {
+      results.put(digest, tidied);
+      results.put(tidiedDigest, tidied);
+    }
+
+    return tidied;
+  }
+
+  private String doTidy(String s) {
+    Tidy tidy = pool.poll();
+    if (tidy == null) {
+      tidy = createTidy();
+    }
+
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(s.length() + 256);
+      Document doc = tidy.parseDOM(new StringReader(HEADER + s + FOOTER), null);
+      tidy.pprint(doc, out);
+
+      String tidied = new String(out.toByteArray(), StandardCharsets.UTF_8);
+      int start = tidied.indexOf(BODY_START);
+      int end = tidied.indexOf(BODY_END);
+      if (start == -1 || end < start) {
+        return s;
+      }
+      return tidied.substring(start + BODY_START.length(), end).trim();
+    } finally {
+      pool.offer(tidy);
+    }
+  }
+
+  private static Tidy createTidy() {
+    Tidy tidy = new Tidy();
+    tidy.setXHTML(true);
+    tidy.setDocType("\"-//W3C//DTD XHTML 1.0 Transitional//EN\"");
+    tidy.setQuiet(true);
+    tidy.setShowWarnings(false);
+    tidy.setIndentContent(false);
+    tidy.setSmartIndent(false);
+    tidy.setIndentAttributes(false);
+    tidy.setWraplen(0);
+    tidy.setInputEncoding("UTF-8");
+    tidy.setOutputEncoding("UTF-8");
+    return tidy;
+  }
+
+  private static String digest(String s) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      byte[] hash = md.digest(s.getBytes(StandardCharsets.UTF_8));
+      StringBuilder buf = new StringBuilder();
+      for (byte b : hash) {
+        buf.append(String.format("%02x", b));
+      }
+      return buf.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return s.length() + "/" + Integer.toHexString(s.hashCode());
+    }
+  }
+
+}
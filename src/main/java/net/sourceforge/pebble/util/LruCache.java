@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small cache that forgets its least recently used entries once it's full.
+ * <br /><br />
+ * Entries are often worked out outside of the lock, so put() takes the
+ * generation from before they were worked out and ignores them if the cache
+ * has been cleared since. Entries aren't serialized, so a copy starts empty.
+ */
+public class LruCache<K,V> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int capacity;
+
+  /** entries, in least recently used order */
+  private transient Map<K,V> entries;
+
+  /** bumped whenever the cache is cleared, so that stale entries aren't stored */
+  private transient long generation;
+
+  /** the object that the entries were worked out with, see clearIfChanged() */
+  private transient Object source;
+
+  public LruCache(int capacity) {
+    this.capacity = capacity;
+    this.entries = createMap();
+  }
+
+  private Map<K,V> createMap() {
+    return new LinkedHashMap<K,V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Gets an entry.
+   *
+   * @param key   the key
+   * @return  the value, or null if there isn't one
+   */
+  public synchronized V get(K key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Stores an entry, provided that the cache hasn't been cleared since the
+   * given generation.
+   *
+   * @param key         the key
+   * @param value       the value
+   * @param generation  the value of getGeneration() before working out the value
+   */
+  public synchronized void put(K key, V value, long generation) {
+    if (generation == this.generation) {
+      entries.put(key, value);
+    }
+  }
+
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Clears the cache if the entries were worked out with a different object
+   * (such as a permalink provider that has since been replaced).
+   *
+   * @param source  the object that entries are now worked out with
+   */
+  public synchronized void clearIfChanged(Object source) {
+    if (this.source != source) {
+      clear();
+      this.source = source;
+    }
+  }
+
+  /**
+   * Forgets all entries.
+   */
+  public synchronized void clear() {
+    generation++;
+    entries.clear();
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return  the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    entries = createMap();
+  }
+
+}
@@ -33,6 +33,7 @@ package net.sourceforge.pebble.util;
 
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.State;
+import net.sourceforge.pebble.metrics.Metrics;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import net.sourceforge.pebble.web.validation.ValidationContext;
@@ -48,8 +49,8 @@ import javax.mail.internet.MimeUtility;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Utilities for e-mail related functions.
@@ -63,7 +64,11 @@ public class MailUtils {
   private static String ENCODING = "UTF-8";
 
   /** thread pool used to send e-mail */
-  private static ExecutorService pool = Executors.newFixedThreadPool(1);
+  private static ThreadPoolExecutor pool = (ThreadPoolExecutor)Executors.newFixedThreadPool(1);
+
+  static {
+    Metrics.getGlobal().gauge("mail.queue", () -> pool.getQueue().size());
+  }
 
   /**
    * Get the prefix to be used for blog entry emails
@@ -273,8 +278,11 @@ public class MailUtils {
         log.debug("Subject : " + subject);
         log.debug("Message : " + message);
 
+        long start = blog.getMetrics().start();
         Transport.send(msg);
+        blog.getMetrics().stop("mail.send", start);
       } catch (Exception e) {
+        blog.getMetrics().increment("mail.failed");
         log.error("Notification e-mail could not be sent", e);
       }
     }
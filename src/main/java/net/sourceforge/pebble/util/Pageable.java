@@ -48,6 +48,12 @@ public class Pageable<T> {
   /** the list over which this class is paging */
   private List<T> list;
 
+  /** the position of the first item in the list within the full result set */
+  private int offset;
+
+  /** the size of the full result set */
+  private int size;
+
   /** the page size */
   private int pageSize = DEFAULT_PAGE_SIZE;
 
@@ -69,7 +75,21 @@ public class Pageable<T> {
    * @param list    a List
    */
   public Pageable(List<T> list) {
+    this(list, 0, list.size());
+  }
+
+  /**
+   * Creates a new instance over a result set that has only been partially
+   * loaded, for example a single page of search results.
+   *
+   * @param list    the loaded part of the result set
+   * @param offset  the position of the first item of the list in the full result set
+   * @param size    the size of the full result set
+   */
+  public Pageable(List<T> list, int offset, int size) {
     this.list = list;
+    this.offset = offset;
+    this.size = size;
     this.page = 1;
     this.maxPages = 1;
 
@@ -79,10 +99,10 @@ public class Pageable<T> {
   private void calculatePages() {
     if (pageSize > 0) {
       // calculate how many pages there are
-      if (list.size() % pageSize == 0) {
-        maxPages = list.size() / pageSize;
+      if (size % pageSize == 0) {
+        maxPages = size / pageSize;
       } else {
-        maxPages = (list.size() / pageSize) + 1;
+        maxPages = (size / pageSize) + 1;
       }
     }
   }
@@ -102,7 +122,9 @@ public class Pageable<T> {
    * @return  a List
    */
   public List<T> getListForPage() {
-    return list.subList(startingIndex, endingIndex);
+    int from = Math.min(Math.max(startingIndex - offset, 0), list.size());
+    int to = Math.min(Math.max(endingIndex - offset, from), list.size());
+    return list.subList(from, to);
   }
 
   /**
@@ -153,8 +175,8 @@ public class Pageable<T> {
       startingIndex = 0;
     }
     endingIndex = startingIndex + pageSize;
-    if (endingIndex > list.size()) {
-      endingIndex = list.size();
+    if (endingIndex > size) {
+      endingIndex = size;
     }
   }
 
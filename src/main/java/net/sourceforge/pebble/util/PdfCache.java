@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Document;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+import org.xhtmlrenderer.pdf.TrueTypeUtil;
+import org.xml.sax.InputSource;
+
+import com.lowagie.text.pdf.BaseFont;
+
+import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.Tag;
+import net.sourceforge.pebble.web.listener.PebblePDFCreationListener;
+import net.sourceforge.pebble.web.view.HtmlView;
+
+/**
+ * Renders blog entries as PDF documents and keeps the results on disk, so
+ * that each version of an entry is only laid out once. Cached files are named
+ * after the entry ID and a digest of the XHTML they were rendered from, which
+ * means any change to the entry (or the theme) produces a new file, and
+ * concurrent requests for the same document wait for a single render.
+ * <p>
+ * Documents are laid out with the fonts and pdf.css from the system theme
+ * (themes/_pebble in the web application), which blog owners can't edit.
+ * These are loaded once, so Pebble needs to be restarted for changes made
+ * to them on disk to be picked up.
+ */
+public class PdfCache {
+
+  /** the log used by this class */
+  private static final Log log = LogFactory.getLog(PdfCache.class);
+
+  /** the name of the directory, within the blog's root, that PDFs are written to */
+  public static final String PDF_DIRECTORY = "pdf";
+
+  private static final String SEP = "/";
+  private static final String FONTS_PATH = "fonts";
+  private static final String THEMES_PATH = "themes";
+  private static final String DEFAULT_ENCODING = "UTF-8";
+  private static final String PDF_CSS = "pdf.css";
+  private static final String SYSTEM_THEME_PATH = HtmlView.SYSTEM_THEME;
+
+  private static final Pattern CSS_URL_PATTERN = Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+
+  /** fonts and stylesheets, loaded once per theme directory and kept until restart */
+  private static final ConcurrentMap<String, ThemeResources> themes = new ConcurrentHashMap<String, ThemeResources>();
+
+  /** renders in progress, keyed on the path of the file being written */
+  private static final ConcurrentMap<String, FutureTask<File>> renders = new ConcurrentHashMap<String, FutureTask<File>>();
+
+  /**
+   * Gets the directory that PDFs for the given blog are cached in.
+   *
+   * @param blog    a Blog instance
+   * @return  a File representing the directory
+   */
+  public static File getPdfDirectory(Blog blog) {
+    return new File(blog.getRoot(), PDF_DIRECTORY);
+  }
+
+  /**
+   * Gets a PDF version of the given blog entry, rendering it if the current
+   * version of the entry hasn't been rendered before.
+   *
+   * @param blogEntry   a BlogEntry instance
+   * @return  the PDF file
+   * @throws IOException  if the PDF can't be created
+   */
+  public static File getPdf(final BlogEntry blogEntry) throws IOException {
+    final ThemeResources theme = getThemeResources(getThemeDirectory());
+    final String xhtml = toXhtml(blogEntry, theme);
+    final File pdf = new File(getPdfDirectory(blogEntry.getBlog()), blogEntry.getId() + "-" + digest(xhtml) + ".pdf");
+    if (pdf.exists()) {
+      return pdf;
+    }
+
+    FutureTask<File> render = new FutureTask<File>(() -> render(blogEntry, xhtml, theme, pdf));
+    FutureTask<File> running = renders.putIfAbsent(pdf.getAbsolutePath(), render);
+    if (running == null) {
+      running = render;
+      try {
+        render.run();
+      } finally {
+        renders.remove(pdf.getAbsolutePath(), render);
+      }
+    }
+
+    try {
+      return running.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + pdf.getName());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      throw new IOException("Could not create PDF for blog entry " + blogEntry.getId(), e.getCause());
+    }
+  }
+
+  /**
+   * Removes all cached PDFs for the given blog entry.
+   *
+   * @param blog          the Blog the entry belongs to
+   * @param blogEntryId   the ID of the blog entry
+   */
+  public static void remove(Blog blog, String blogEntryId) {
+    final String prefix = blogEntryId + "-";
+    File[] files = getPdfDirectory(blog).listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".pdf"));
+    if (files != null) {
+      for (File file : files) {
+        if (!file.delete()) {
+          log.warn("Could not remove cached PDF " + file.getAbsolutePath());
+        }
+      }
+    }
+  }
+
+  private static File getThemeDirectory() {
+    //Build absolute path to: <pebble_root>/themes/_pebble/
+    return new File(PebbleContext.getInstance().getWebApplicationRoot() + SEP + THEMES_PATH + SEP + SYSTEM_THEME_PATH);
+  }
+
+  static ThemeResources getThemeResources(File themeDirectory) {
+    ThemeResources resources = themes.get(themeDirectory.getAbsolutePath());
+    if (resources == null) {
+      resources = new ThemeResources(themeDirectory);
+      ThemeResources existing = themes.putIfAbsent(themeDirectory.getAbsolutePath(), resources);
+      if (existing != null) {
+        resources = existing;
+      }
+    }
+    return resources;
+  }
+
+  static String toXhtml(BlogEntry entry, ThemeResources theme) {
+    String author = entry.getUser() != null ? entry.getUser().getName() : entry.getAuthor();
+    String title = entry.getTitle();
+    String subtitle = entry.getSubtitle();
+    String body = entry.getBody();
+    String blogName = entry.getBlog().getName();
+    String entryPermalink = entry.getPermalink();
+    String entryDescription = entry.getBlog().getDescription();
+
+    //Some of the HTML entities need to be escaped to Unicode notation \\uXXXX for XHTML markup to validate
+    title = StringUtils.transformHTML(title);
+    subtitle = StringUtils.transformHTML(subtitle);
+    body = StringUtils.unescapeHTMLEntities(body);
+
+    //Get blog entry tags for PDF metadata 'keywords'
+    StringBuilder tags = new StringBuilder();
+    Iterator<Tag> currentEntryTags = entry.getAllTags().iterator();
+    while (currentEntryTags.hasNext()) {
+      Tag currentTag = currentEntryTags.next();
+      if (currentTag.getName() != null && !currentTag.getName().equals("")) {
+        tags.append(currentTag.getName());
+        if (currentEntryTags.hasNext()) {
+          tags.append(",");
+        }
+      }
+    }
+
+    if (theme.getFontFamily() != null) {
+      //Wrap DIV with font family name around the content of the blog entry
+      author = "<div style=\"font-family: " + theme.getFontFamily() + ";\">" + author + "</div>";
+      title = "<div style=\"font-family: " + theme.getFontFamily() + ";\">" + title + "</div>";
+      subtitle = "<div style=\"font-family: " + theme.getFontFamily() + ";\">" + subtitle + "</div>";
+      body = "<div style=\"font-family: " + theme.getFontFamily() + ";\">" + body + "</div>";
+    }
+
+    //Build valid XHTML source from blog entry for parsing
+    StringBuilder buf = new StringBuilder();
+    buf.append("<html>");
+    buf.append("<head>");
+    buf.append("<meta name=\"title\" content=\"" + title + " - " + blogName + "\"/>");
+    buf.append("<meta name=\"subject\" content=\"" + title + "\"/>");
+    buf.append("<meta name=\"keywords\" content=\"" + tags.toString().trim() + "\"/>");
+    buf.append("<meta name=\"author\" content=\"" + author + "\"/>");
+    buf.append("<meta name=\"creator\" content=\"Pebble (by pebble.sourceforge.net)\"/>");
+    buf.append("<meta name=\"producer\" content=\"Flying Saucer (by xhtmlrenderer.dev.java.net)\"/>");
+    if (theme.getCss() != null) {
+      buf.append("<style type=\"text/css\" media=\"print\"><![CDATA[");
+      buf.append(theme.getCss());
+      buf.append("]]></style>");
+    }
+    buf.append("</head>");
+    buf.append("<body>");
+    buf.append("<div id=\"header\" style=\"\">" + blogName + " - " + entryDescription + "</div>");
+    buf.append("<p>");
+    buf.append("<h1>" + title  + "</h1>");
+    buf.append("<h2>" + subtitle + "</h2>");
+    buf.append("</p>");
+    buf.append("<p>" + body + "</p>");
+    buf.append("<p><br /><br /><br />");
+    buf.append("<i>Published by " + author + "</i><br />");
+    buf.append("<i>" + entry.getDate().toString() + "</i><br />");
+    buf.append("<i><a href=\"" + entryPermalink + "\" title=\"" + entryPermalink + "\">" + entryPermalink + "</a></i>");
+    buf.append("</p>");
+    buf.append("</body>");
+    buf.append("</html>");
+
+    return buf.toString();
+  }
+
+  private static File render(BlogEntry blogEntry, String xhtml, ThemeResources theme, File pdf) throws Exception {
+    if (pdf.exists()) {
+      // another request finished rendering it since we last looked
+      return pdf;
+    }
+
+    long start = blogEntry.getBlog().getMetrics().start();
+    File directory = pdf.getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create " + directory.getAbsolutePath());
+    }
+
+    DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    Document doc = builder.parse(new InputSource(new ByteArrayInputStream(xhtml.getBytes(DEFAULT_ENCODING))));
+
+    ITextRenderer renderer = new ITextRenderer();
+    if (theme.getFontPath() != null) {
+      //You should always embed TrueType fonts.
+      renderer.getFontResolver().addFont(theme.getFontPath(), BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+    }
+
+    //Listener that will parse HTML header meta tags, and will set them to PDF document as meta data
+    PebblePDFCreationListener pdfListener = new PebblePDFCreationListener();
+    pdfListener.parseMetaTags(doc);
+    renderer.setListener(pdfListener);
+    renderer.setDocument(doc, null);
+    renderer.layout();
+
+    // write to a temporary file first, so that a partially written PDF is never served
+    File tmp = new File(directory, pdf.getName() + ".part");
+    try {
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+      try {
+        renderer.createPDF(out);
+      } finally {
+        out.close();
+      }
+      Files.move(tmp.toPath(), pdf.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      tmp.delete();
+    }
+
+    // older versions of this entry are no longer needed
+    final String prefix = blogEntry.getId() + "-";
+    File[] stale = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".pdf") && !name.equals(pdf.getName()));
+    if (stale != null) {
+      for (File file : stale) {
+        file.delete();
+      }
+    }
+
+    blogEntry.getBlog().getMetrics().stop("pdf.render", start);
+    log.info("Successfully generated PDF document: " + pdf.getName());
+    return pdf;
+  }
+
+  private static String digest(String s) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("MD5");
+      byte[] hash = md.digest(s.getBytes(StandardCharsets.UTF_8));
+      StringBuilder buf = new StringBuilder();
+      for (int i = 0; i < 8; i++) {
+        buf.append(String.format("%02x", hash[i]));
+      }
+      return buf.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return Integer.toHexString(s.hashCode());
+    }
+  }
+
+  /**
+   * The font and stylesheet used to render PDFs, read from a theme directory.
+   */
+  static class ThemeResources {
+
+    private String fontPath;
+    private String fontFamily;
+    private String css;
+
+    ThemeResources(File themeDirectory) {
+      //Gets TTF or OTF font file from the font directory in the theme folder
+      File[] fonts = new File(themeDirectory, FONTS_PATH).listFiles((dir, name) -> {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".otf") || lower.endsWith(".ttf");
+      });
+      if (fonts != null && fonts.length > 0) {
+        try {
+          //Get font family name from the BaseFont object
+          BaseFont font = BaseFont.createFont(fonts[0].getAbsolutePath(), BaseFont.IDENTITY_H, BaseFont.NOT_EMBEDDED);
+          String family = TrueTypeUtil.getFamilyName(font);
+          fontPath = fonts[0].getAbsolutePath();
+          if (family != null && !family.equals("")) {
+            fontFamily = family;
+          }
+          log.info("Added font: " + fontPath);
+        } catch (Exception e) {
+          log.warn("Could not load font " + fonts[0].getAbsolutePath(), e);
+        }
+      }
+
+      File stylesheet = new File(themeDirectory, PDF_CSS);
+      if (stylesheet.isFile()) {
+        try {
+          css = absolutizeUrls(new String(Files.readAllBytes(stylesheet.toPath()), StandardCharsets.UTF_8), themeDirectory);
+        } catch (IOException e) {
+          log.warn("Could not read " + stylesheet.getAbsolutePath(), e);
+        }
+      }
+    }
+
+    /**
+     * The stylesheet is inlined, so relative url() references are resolved
+     * against the theme directory now rather than by the renderer.
+     */
+    private static String absolutizeUrls(String css, File themeDirectory) {
+      Matcher m = CSS_URL_PATTERN.matcher(css);
+      StringBuffer buf = new StringBuffer();
+      while (m.find()) {
+        String url = m.group(2).trim();
+        if (!url.contains(":")) {
+          url = themeDirectory.toURI().resolve(url).toString();
+        }
+        m.appendReplacement(buf, Matcher.quoteReplacement("url('" + url + "')"));
+      }
+      m.appendTail(buf);
+      return buf.toString();
+    }
+
+    String getFontPath() {
+      return fontPath;
+    }
+
+    String getFontFamily() {
+      return fontFamily;
+    }
+
+    String getCss() {
+      return css;
+    }
+
+  }
+
+}
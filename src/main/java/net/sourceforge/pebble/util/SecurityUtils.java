@@ -37,6 +37,7 @@ import java.util.Collection;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -252,4 +253,15 @@ public final class SecurityUtils {
     return ctx.getAuthentication() != null;
   }
 
+  /**
+   * Determines whether the current user is anonymous (i.e. hasn't logged in).
+   *
+   * @return  true if the user is anonymous, false otherwise
+   */
+  public static boolean isUserAnonymous() {
+    SecurityContext ctx = SecurityContextHolder.getContext();
+    Authentication auth = ctx.getAuthentication();
+    return auth == null || auth instanceof AnonymousAuthenticationToken;
+  }
+
 }
\ No newline at end of file
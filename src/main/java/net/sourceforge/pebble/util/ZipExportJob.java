@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import net.sourceforge.pebble.domain.Blog;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a ZIP export in the background, writing the archive into the
+ * "exports" directory of the blog (outside of the public files area) so that
+ * it can be downloaded by the blog owner once complete. Only one export of
+ * each kind (e.g. the blog data, or its logs) runs per blog at a time, and
+ * archives are deleted once they have expired.
+ */
+public class ZipExportJob implements Runnable {
+
+  /** the log used by this class */
+  private static final Log log = LogFactory.getLog(ZipExportJob.class);
+
+  public enum Status { RUNNING, COMPLETE, FAILED }
+
+  /** the name of the directory, within the blog directory, that exports are written to */
+  public static final String EXPORTS_DIRECTORY = "exports";
+
+  /** how long a completed archive is kept for, in milliseconds */
+  static final long TIME_TO_LIVE = 24L * 60 * 60 * 1000;
+
+  private static final Map<String,ZipExportJob> jobs = new ConcurrentHashMap<String,ZipExportJob>();
+
+  private static final SecureRandom random = new SecureRandom();
+
+  /**
+   * exports run one at a time, each using the shared compression pool, and
+   * expired archives are deleted here too; created when first used
+   */
+  private static ScheduledExecutorService executor;
+
+  private final String blogId;
+  private final ZipExporter exporter;
+  private final File archive;
+  private final String url;
+  private final File previous;
+  private final Date startDate = new Date();
+
+  private volatile Status status = Status.RUNNING;
+  private volatile long totalBytes;
+  private volatile Date endDate;
+
+  private ZipExportJob(String blogId, ZipExporter exporter, File archive, String url, File previous) {
+    this.blogId = blogId;
+    this.exporter = exporter;
+    this.archive = archive;
+    this.url = url;
+    this.previous = previous;
+  }
+
+  private static synchronized ScheduledExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "pebble-export-job");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    return executor;
+  }
+
+  /**
+   * Stops any exports in progress, along with the threads used to build and
+   * expire them. Archives that were due to expire are deleted when their blog
+   * is next started.
+   */
+  public static synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    ZipExporter.shutdown();
+  }
+
+  /**
+   * Deletes the given archive once it has expired, unless the exports have
+   * been shut down in the meantime.
+   */
+  private static synchronized void scheduleExpiry(final File archive) {
+    if (executor == null) {
+      return;
+    }
+
+    executor.schedule(new Runnable() {
+      public void run() {
+        if (archive.delete()) {
+          log.info("Deleted expired export " + archive);
+        }
+      }
+    }, TIME_TO_LIVE, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gets the directory that exports for the given blog are written to.
+   *
+   * @param blog    a Blog instance
+   * @return  a File representing the directory
+   */
+  public static File getExportDirectory(Blog blog) {
+    return new File(blog.getRoot(), EXPORTS_DIRECTORY);
+  }
+
+  /**
+   * Gets a completed archive for the given blog.
+   *
+   * @param blog    a Blog instance
+   * @param name    the name of the archive
+   * @return  a File, or null if there is no such archive (or it has expired)
+   */
+  public static File getArchive(Blog blog, String name) {
+    if (name == null || !name.endsWith(".zip")) {
+      return null;
+    }
+
+    File directory = getExportDirectory(blog);
+    File archive = new File(directory, name);
+    if (!directory.equals(archive.getParentFile()) || !archive.isFile() || isExpired(archive)) {
+      return null;
+    }
+
+    return archive;
+  }
+
+  /**
+   * Deletes the archives for the given blog that have expired, along with any
+   * left part-written when the server was stopped.
+   *
+   * @param blog    a Blog instance
+   */
+  public static void deleteExpiredExports(Blog blog) {
+    File[] files = getExportDirectory(blog).listFiles();
+    if (files == null) {
+      return;
+    }
+
+    boolean running = false;
+    for (ZipExportJob job : getJobs(blog)) {
+      running |= job.isRunning();
+    }
+
+    for (File file : files) {
+      if (isExpired(file) || (file.getName().endsWith(".part") && !running)) {
+        if (file.delete()) {
+          log.info("Deleted expired export " + file);
+        }
+      }
+    }
+  }
+
+  private static boolean isExpired(File archive) {
+    return archive.lastModified() + TIME_TO_LIVE < System.currentTimeMillis();
+  }
+
+  /**
+   * Gets the most recent export job of each kind for the given blog.
+   *
+   * @param blog    a Blog instance
+   * @return  a List of ZipExportJob instances, oldest first
+   */
+  public static List<ZipExportJob> getJobs(Blog blog) {
+    List<ZipExportJob> list = new ArrayList<ZipExportJob>();
+    for (ZipExportJob job : jobs.values()) {
+      if (job.blogId.equals(blog.getId())) {
+        list.add(job);
+      }
+    }
+    Collections.sort(list, new Comparator<ZipExportJob>() {
+      public int compare(ZipExportJob job1, ZipExportJob job2) {
+        return job1.startDate.compareTo(job2.startDate);
+      }
+    });
+
+    return list;
+  }
+
+  /**
+   * Starts exporting a directory, unless an export of the same kind is
+   * already running for the blog, in which case that export is returned.
+   *
+   * @param blog        the Blog being exported
+   * @param kind        what is being exported (e.g. the type and path of
+   *                    the directory), distinguishing concurrent exports
+   * @param exporter    the ZipExporter describing what to export
+   * @param filename    the name of the archive, e.g. "default-20111231.zip"
+   * @return  the running ZipExportJob
+   */
+  public static synchronized ZipExportJob start(Blog blog, String kind, ZipExporter exporter, String filename) {
+    String key = blog.getId() + "/" + kind;
+    ZipExportJob job = jobs.get(key);
+    if (job != null && job.getStatus() == Status.RUNNING) {
+      return job;
+    }
+
+    // archives get a unique name, so that a new export doesn't replace one being downloaded
+    String name = filename.replaceAll("\\.zip$", "") + "-" + Long.toHexString(random.nextLong() & Long.MAX_VALUE) + ".zip";
+    File exports = getExportDirectory(blog);
+    exporter.setExcluded(exports);
+
+    File previous = null;
+    if (job != null && job.getStatus() == Status.COMPLETE) {
+      previous = job.archive;
+    }
+
+    job = new ZipExportJob(blog.getId(), exporter, new File(exports, name),
+        blog.getUrl() + "downloadExport.secureaction?name=" + name, previous);
+    jobs.put(key, job);
+    getExecutor().execute(job);
+
+    return job;
+  }
+
+  public void run() {
+    File part = new File(archive.getParentFile(), archive.getName() + ".part");
+    try {
+      totalBytes = exporter.getSize(Long.MAX_VALUE);
+      archive.getParentFile().mkdirs();
+
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(part), 64 * 1024);
+      try {
+        exporter.export(out);
+      } finally {
+        out.close();
+      }
+
+      if (!part.renameTo(archive)) {
+        throw new IOException("Could not rename " + part + " to " + archive);
+      }
+      if (previous != null) {
+        previous.delete();
+      }
+      scheduleExpiry(archive);
+
+      status = Status.COMPLETE;
+      log.info("Exported " + exporter.getFilesWritten() + " files to " + archive);
+    } catch (Exception e) {
+      log.error("Export to " + archive + " failed", e);
+      part.delete();
+      status = Status.FAILED;
+    } finally {
+      endDate = new Date();
+    }
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public String getName() {
+    return archive.getName();
+  }
+
+  /**
+   * Gets the URL that the archive can be downloaded from once complete.
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  public Date getStartDate() {
+    return startDate;
+  }
+
+  public Date getEndDate() {
+    return endDate;
+  }
+
+  public long getFilesWritten() {
+    return exporter.getFilesWritten();
+  }
+
+  public long getBytesWritten() {
+    return exporter.getBytesWritten();
+  }
+
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public int getPercentComplete() {
+    if (status == Status.COMPLETE) {
+      return 100;
+    } else if (totalBytes == 0) {
+      return 0;
+    } else {
+      return (int)Math.min(99, exporter.getBytesWritten() * 100 / totalBytes);
+    }
+  }
+
+  public boolean isRunning() {
+    return status == Status.RUNNING;
+  }
+
+  public boolean isComplete() {
+    return status == Status.COMPLETE && archive.exists();
+  }
+
+  public boolean isExpired() {
+    return status == Status.COMPLETE && !archive.exists();
+  }
+
+  public boolean isFailed() {
+    return status == Status.FAILED;
+  }
+
+}
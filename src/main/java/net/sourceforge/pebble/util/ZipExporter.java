@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a directory tree to a ZIP archive. The tree is walked lazily, files
+ * that are already compressed (images, media, archives) are stored as-is and
+ * everything else is deflated on a shared pool, with the results written to
+ * the archive in the order the files were found. Each file is read exactly
+ * once, so a file that changes during the export can't invalidate the
+ * checksum already written for it.
+ */
+public class ZipExporter {
+
+  /** the log used by this class */
+  private static final Log log = LogFactory.getLog(ZipExporter.class);
+
+  /** extensions of files that gain nothing from being deflated again */
+  private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(
+      "jpg", "jpeg", "png", "gif", "webp", "ico",
+      "zip", "gz", "tgz", "bz2", "xz", "7z", "jar", "war",
+      "mp3", "m4a", "ogg", "mp4", "m4v", "mov", "avi", "webm", "flv", "swf",
+      "pdf", "docx", "xlsx", "pptx", "odt"));
+
+  /** files up to this size are read (and compressed) in memory by the pool */
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  /** the number of files that may be compressed ahead of the writer */
+  private static final int WINDOW = THREADS * 2;
+
+  /** the pool shared by all exports, created when first used */
+  private static ExecutorService executor;
+
+  private final Path root;
+  private final Path directory;
+  private Path excluded;
+
+  private volatile long filesWritten;
+  private volatile long bytesWritten;
+
+  /**
+   * Creates a new exporter.
+   *
+   * @param root        the directory that entry names are relative to
+   * @param directory   the directory to export, underneath the root
+   */
+  public ZipExporter(File root, File directory) {
+    this.root = root.toPath().toAbsolutePath().normalize();
+    this.directory = directory.toPath().toAbsolutePath().normalize();
+  }
+
+  /**
+   * Excludes a directory (e.g. the one the archive is being written to)
+   * from the export.
+   *
+   * @param file    a directory
+   */
+  public void setExcluded(File file) {
+    this.excluded = file.toPath().toAbsolutePath().normalize();
+  }
+
+  public long getFilesWritten() {
+    return filesWritten;
+  }
+
+  /**
+   * Gets the number of uncompressed bytes written so far.
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "pebble-export-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    return executor;
+  }
+
+  /**
+   * Stops the compression threads, cancelling any exports in progress. A new
+   * pool is created if another export is started.
+   */
+  public static synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Writes the archive to the given stream, which is finished but not closed.
+   *
+   * @param out   the OutputStream to write to
+   * @throws IOException    if the archive can't be written
+   */
+  public void export(OutputStream out) throws IOException {
+    final ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out);
+    final Deque<Future<Block>> pending = new ArrayDeque<Future<Block>>();
+    final ExecutorService executor = getExecutor();
+    try {
+      if (Files.isDirectory(directory)) {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (excluded != null && dir.equals(excluded)) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            if (attrs.isRegularFile()) {
+              pending.add(executor.submit(new Compressor(file, attrs)));
+              if (pending.size() >= WINDOW) {
+                write(zip, pending.remove());
+              }
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException e) {
+            log.warn("Skipping " + file + " : " + e.getMessage());
+            return FileVisitResult.CONTINUE;
+          }
+        });
+      }
+
+      while (!pending.isEmpty()) {
+        write(zip, pending.remove());
+      }
+      zip.finish();
+    } finally {
+      for (Future<Block> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private void write(ZipArchiveOutputStream zip, Future<Block> future) throws IOException {
+    Block block;
+    try {
+      block = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+
+    ZipArchiveEntry entry = new ZipArchiveEntry(root.relativize(block.file).toString().replace(File.separatorChar, '/'));
+    entry.setTime(block.lastModified);
+    entry.setSize(block.size);
+    if (block.data != null) {
+      entry.setMethod(block.stored ? ZipEntry.STORED : ZipEntry.DEFLATED);
+      entry.setCrc(block.crc);
+      entry.setCompressedSize(block.data.length);
+      zip.addRawArchiveEntry(entry, new ByteArrayInputStream(block.data));
+    } else {
+      // large files are streamed, with the checksum and sizes written after
+      // the data, which only the deflated method allows; files that are
+      // already compressed are wrapped rather than compressed again
+      entry.setMethod(ZipEntry.DEFLATED);
+      zip.setLevel(block.stored ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+      zip.putArchiveEntry(entry);
+      InputStream in = Files.newInputStream(block.file);
+      try {
+        copy(in, zip, block.size, null);
+      } finally {
+        in.close();
+      }
+      zip.closeArchiveEntry();
+    }
+
+    filesWritten++;
+    bytesWritten += block.size;
+  }
+
+  /**
+   * Copies up to the given number of bytes, so that a file that grows while
+   * it's being exported (e.g. today's log) still matches its entry header.
+   */
+  private static long copy(InputStream in, OutputStream out, long limit, CRC32 crc) throws IOException {
+    byte[] buf = new byte[BUFFER_SIZE];
+    long total = 0;
+    int len;
+    while (total < limit && (len = in.read(buf, 0, (int)Math.min(buf.length, limit - total))) > 0) {
+      if (out != null) {
+        out.write(buf, 0, len);
+      }
+      if (crc != null) {
+        crc.update(buf, 0, len);
+      }
+      total += len;
+    }
+    return total;
+  }
+
+  /**
+   * Determines whether the given file name has an extension that
+   * indicates it's already compressed.
+   */
+  static boolean isCompressed(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot > -1 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+  }
+
+  /**
+   * Gets the total size of the files to be exported, stopping once the
+   * given limit has been exceeded.
+   *
+   * @param limit   the size after which to stop counting
+   * @return  the size in bytes, or a value larger than the limit
+   */
+  public long getSize(final long limit) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return 0;
+    }
+
+    final long[] size = new long[1];
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (excluded != null && dir.equals(excluded)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        size[0] += attrs.size();
+        return size[0] > limit ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    return size[0];
+  }
+
+  /**
+   * The result of preparing a single file on the pool.
+   */
+  private static class Block {
+    private Path file;
+    private long lastModified;
+    private long size;
+    private long crc;
+    private boolean stored;
+    private byte[] data;
+  }
+
+  /**
+   * Reads small files into memory, deflating those that aren't already
+   * compressed; larger files are streamed by the writer.
+   */
+  private static class Compressor implements Callable<Block> {
+
+    private final Path file;
+    private final BasicFileAttributes attrs;
+
+    private Compressor(Path file, BasicFileAttributes attrs) {
+      this.file = file;
+      this.attrs = attrs;
+    }
+
+    public Block call() throws IOException {
+      Block block = new Block();
+      block.file = file;
+      block.lastModified = attrs.lastModifiedTime().toMillis();
+      block.size = attrs.size();
+      block.stored = isCompressed(file.getFileName().toString());
+
+      if (block.size > BLOCK_SIZE) {
+        return block;
+      }
+
+      if (block.stored) {
+        CRC32 crc = new CRC32();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int)Math.max(64, block.size));
+        InputStream in = Files.newInputStream(file);
+        try {
+          block.size = copy(in, bytes, block.size, crc);
+        } finally {
+          in.close();
+        }
+        block.crc = crc.getValue();
+        block.data = bytes.toByteArray();
+      } else {
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int)Math.max(64, block.size / 2));
+        InputStream in = Files.newInputStream(file);
+        try {
+          DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater, BUFFER_SIZE);
+          block.size = copy(in, out, block.size, crc);
+          out.close();
+        } finally {
+          in.close();
+          deflater.end();
+        }
+        block.crc = crc.getValue();
+        block.data = bytes.toByteArray();
+      }
+
+      return block;
+    }
+  }
+
+}
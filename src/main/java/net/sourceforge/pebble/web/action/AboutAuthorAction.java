@@ -37,6 +37,7 @@ import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.security.PebbleUserDetails;
 import net.sourceforge.pebble.security.SecurityRealm;
 import net.sourceforge.pebble.security.SecurityRealmException;
+import net.sourceforge.pebble.util.Pageable;
 import net.sourceforge.pebble.web.view.NotFoundView;
 import net.sourceforge.pebble.web.view.View;
 import net.sourceforge.pebble.web.view.impl.AboutAuthorView;
@@ -46,12 +47,15 @@ import org.apache.commons.logging.LogFactory;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.List;
 
 /**
- * Redirects the user to an about author page.
+ * Redirects the user to an about author page, which lists the author's blog
+ * entries page by page.
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class AboutAuthorAction extends Action {
 
   private static final Log log = LogFactory.getLog(AboutAuthorAction.class);
@@ -71,7 +75,29 @@ public class AboutAuthorAction extends Action {
       PebbleUserDetails user = realm.getUser(username);
       if (user != null) {
         getModel().put(Constants.USER_KEY, user);
-        getModel().put(Constants.BLOG_ENTRIES, blog.getRecentPublishedBlogEntries(username));
+
+        int page = 1;
+        try {
+          page = Integer.parseInt(request.getParameter("page"));
+        } catch (NumberFormatException nfe) {
+          page = 1;
+        }
+
+        // only load the blog entries for the requested page
+        int pageSize = Math.max(blog.getRecentBlogEntriesOnHomePage(), 1);
+        int numberOfBlogEntries = blog.getAuthorIndex().getNumberOfBlogEntries(username);
+        int maxPages = Math.max((numberOfBlogEntries + pageSize - 1) / pageSize, 1);
+        page = Math.min(Math.max(page, 1), maxPages);
+        int offset = (page - 1) * pageSize;
+
+        List<String> blogEntryIds = blog.getAuthorIndex().getRecentBlogEntries(username, offset, pageSize);
+        Pageable<String> pageable = new Pageable<String>(blogEntryIds, offset, numberOfBlogEntries);
+        pageable.setPageSize(pageSize);
+        pageable.setPage(page);
+
+        getModel().put("displayMode", "author");
+        getModel().put(Constants.BLOG_ENTRIES, blog.getBlogEntries(pageable.getListForPage()));
+        getModel().put("pageable", pageable);
         return new AboutAuthorView();
       }
     } catch (SecurityRealmException e) {
@@ -31,6 +31,7 @@
  */
 package net.sourceforge.pebble.web.action;
 
+import javax.inject.Inject;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -40,6 +41,7 @@ import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.BlogService;
 import net.sourceforge.pebble.domain.BlogServiceException;
+import net.sourceforge.pebble.service.LastModifiedService;
 import net.sourceforge.pebble.web.view.NotFoundView;
 import net.sourceforge.pebble.web.view.PdfView;
 import net.sourceforge.pebble.web.view.View;
@@ -51,6 +53,9 @@ import net.sourceforge.pebble.web.view.View;
  */
 public class BlogEntryToPdfAction extends Action {
 
+  @Inject
+  private LastModifiedService lastModifiedService;
+
   /**
    * Peforms the processing associated with this action.
    *
@@ -80,7 +85,7 @@ public class BlogEntryToPdfAction extends Action {
     } else {
       
 	  String filename = this.buildPermalink(blogEntry);
-	  return new PdfView(blogEntry, filename + ".pdf");
+	  return new PdfView(blogEntry, filename + ".pdf", lastModifiedService);
 
 	}
   }
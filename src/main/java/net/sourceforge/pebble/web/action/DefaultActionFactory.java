@@ -38,6 +38,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.PostConstruct;
 
@@ -62,6 +63,9 @@ public class DefaultActionFactory implements ActionFactory, ApplicationContextAw
   /** the collection of actions that we know about */
   private final Map<String, String> actions = new HashMap<String, String>();
 
+  /** action classes, resolved once rather than on every request */
+  private final Map<String, Class<? extends Action>> actionClasses = new ConcurrentHashMap<String, Class<? extends Action>>();
+
   /** the name of the action mapping file */
   private String actionMappingFileName;
 
@@ -88,6 +92,28 @@ public class DefaultActionFactory implements ActionFactory, ApplicationContextAw
         log.error("Error reading actions for class: " + url, ioe);
       }
     }
+
+    // resolve the action classes up front, leaving any that fail to be reported when requested
+    for (String name : actions.keySet()) {
+      try {
+        getActionClass(name);
+      } catch (ClassNotFoundException cnfe) {
+        log.warn("Action " + name + " could not be loaded : " + cnfe.getMessage());
+      } catch (ClassCastException cce) {
+        log.warn("Action " + name + " is not an Action : " + cce.getMessage());
+      }
+    }
+  }
+
+  private Class<? extends Action> getActionClass(String name) throws ClassNotFoundException {
+    Class<? extends Action> actionClass = actionClasses.get(name);
+    if (actionClass == null) {
+      Class<?> c = getClass().getClassLoader().loadClass(actions.get(name));
+      actionClass = c.asSubclass(Action.class);
+      actionClasses.put(name, actionClass);
+    }
+
+    return actionClass;
   }
 
   /**
@@ -101,8 +127,7 @@ public class DefaultActionFactory implements ActionFactory, ApplicationContextAw
     try {
       // instantiate the appropriate class to handle the request
       if (actions.containsKey(name)) {
-        Class<?> c = getClass().getClassLoader().loadClass((String)actions.get(name));
-        Class<? extends Action> actionClass = c.asSubclass(Action.class);
+        Class<? extends Action> actionClass = getActionClass(name);
         return (Action) beanFactory.createBean(actionClass, AutowireCapableBeanFactory.AUTOWIRE_NO, false);
       } else {
         throw new ActionNotFoundException("An action called " + name + " could not be found");
@@ -33,7 +33,6 @@ package net.sourceforge.pebble.web.action;
 
 import java.io.File;
 import java.util.Calendar;
-import java.util.Date;
 
 import javax.inject.Inject;
 import javax.servlet.ServletException;
@@ -49,7 +48,6 @@ import net.sourceforge.pebble.util.FileUtils;
 import net.sourceforge.pebble.web.view.FileView;
 import net.sourceforge.pebble.web.view.ForwardView;
 import net.sourceforge.pebble.web.view.NotFoundView;
-import net.sourceforge.pebble.web.view.NotModifiedView;
 import net.sourceforge.pebble.web.view.View;
 
 /**
@@ -98,15 +96,11 @@ public class FileAction extends Action {
       return new ForwardView("/viewFiles.secureaction?type=" + type + "&path=" + name);
     }
 
-    Date lastModified = new Date(file.lastModified());
     Calendar expires = blog.getCalendar();
     expires.add(Calendar.MONTH, 1);
 
-    if (lastModifiedService.checkAndProcessLastModified(request, response, lastModified, expires.getTime())) {
-      return new NotModifiedView();
-    } else {
-      return new FileView(file);
-    }
+    // conditional and range requests are handled by the view
+    return new FileView(file, lastModifiedService, expires.getTime());
   }
 
 }
\ No newline at end of file
@@ -32,7 +32,10 @@
 package net.sourceforge.pebble.web.action;
 
 import net.sourceforge.pebble.Constants;
+import net.sourceforge.pebble.domain.AbstractBlog;
 import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.MultiBlog;
+import net.sourceforge.pebble.index.SearchIndex;
 import net.sourceforge.pebble.search.SearchException;
 import net.sourceforge.pebble.search.SearchHit;
 import net.sourceforge.pebble.search.SearchResults;
@@ -50,7 +53,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.UnsupportedEncodingException;
 
 /**
- * Performs a search on the current blog.
+ * Performs a search on the current blog, or across all public blogs when
+ * running in multi-blog mode.
  *
  * @author    Simon Brown
  */
@@ -62,6 +66,9 @@ public class SearchAction extends Action {
   /** the number of results to show per page */
   static final int PAGE_SIZE = 20;
 
+  /** the last page that can be shown, as deeper pages are always empty */
+  static final int MAXIMUM_PAGE = SearchIndex.MAXIMUM_OFFSET / PAGE_SIZE + 1;
+
 
   /**
    * Peforms the processing associated with this action.
@@ -72,12 +79,14 @@ public class SearchAction extends Action {
    */
   public View process(HttpServletRequest request, HttpServletResponse response) throws ServletException {
 
-    Blog blog = (Blog)getModel().get(Constants.BLOG_KEY);
+    AbstractBlog blog = (AbstractBlog)getModel().get(Constants.BLOG_KEY);
     String query = request.getParameter("query");
 
     if (query == null || query.trim().length() == 0) {
       if (blog instanceof Blog) {
         return new AdvancedSearchView();
+      } else {
+        query = "";
       }
     }
 
@@ -93,7 +102,19 @@ public class SearchAction extends Action {
     }
 
     try {
-      SearchResults results = blog.getSearchIndex().search(query);
+      String sort = request.getParameter("sort");
+      if (sort == null || !sort.equalsIgnoreCase(SearchIndex.SORT_BY_DATE)) {
+        sort = SearchIndex.SORT_BY_SCORE;
+      }
+
+      // only load the hits for the requested page
+      page = Math.min(Math.max(page, 1), MAXIMUM_PAGE);
+      SearchResults results = search(blog, query, sort, page);
+      if (results.getHits().isEmpty() && results.getNumberOfHits() > 0) {
+        // the page is out of range, so show the last page instead
+        page = Math.min(((results.getNumberOfHits() - 1) / PAGE_SIZE) + 1, MAXIMUM_PAGE);
+        results = search(blog, query, sort, page);
+      }
 
       if (results.getNumberOfHits() == 1) {
         // if there is only one hit, redirect the user to it without the
@@ -101,15 +122,8 @@ public class SearchAction extends Action {
         SearchHit hit = (SearchHit)results.getHits().get(0);
         return new RedirectView(hit.getPermalink());
       } else {
-        // show all results on the search results page
-        String sort = request.getParameter("sort");
-        if (sort != null && sort.equalsIgnoreCase("date")) {
-          results.sortByDateDescending();
-        } else {
-          results.sortByScoreDescending();
-        }
-
-        Pageable pageable = new Pageable(results.getHits());
+        // show the requested page on the search results page
+        Pageable pageable = new Pageable(results.getHits(), results.getOffset(), results.getNumberOfHits());
         pageable.setPageSize(PAGE_SIZE);
         pageable.setPage(page);
 
@@ -128,4 +142,15 @@ public class SearchAction extends Action {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * Searches a single blog, or all public blogs when running in multi-blog mode.
+   */
+  private SearchResults search(AbstractBlog blog, String query, String sort, int page) throws SearchException {
+    if (blog instanceof MultiBlog) {
+      return ((MultiBlog)blog).getSearchIndex().search(query, sort, (page-1) * PAGE_SIZE, PAGE_SIZE);
+    } else {
+      return ((Blog)blog).getSearchIndex().search(query, sort, (page-1) * PAGE_SIZE, PAGE_SIZE);
+    }
+  }
+
+}
@@ -36,30 +36,25 @@ import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogService;
 import net.sourceforge.pebble.domain.BlogServiceException;
+import net.sourceforge.pebble.ping.PingService;
+import net.sourceforge.pebble.ping.TrackBackPing;
 import net.sourceforge.pebble.web.view.NotFoundView;
 import net.sourceforge.pebble.web.view.View;
 import net.sourceforge.pebble.web.view.impl.TrackBackFormView;
 import net.sourceforge.pebble.web.view.impl.TrackBackSentView;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.NameValuePair;
-import org.apache.commons.httpclient.methods.PostMethod;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * Adds a comment to an existing blog entry.
+ * Sends a TrackBack for an existing blog entry. The TrackBack is sent in the
+ * background, and the response is recorded in the blog's messages.
  *
  * @author    Simon Brown
  */
 public class SendTrackBackAction extends SecureAction {
 
-  /** the log used by this class */
-  private static Log log = LogFactory.getLog(SendTrackBackAction.class);
-
   /**
    * Peforms the processing associated with this action.
    *
@@ -73,8 +68,6 @@ public class SendTrackBackAction extends SecureAction {
     String entryId = request.getParameter("entry");
     String trackBackUrl = request.getParameter("url");
     String excerpt = request.getParameter("excerpt");
-    String trackBackResponseMessage;
-    Integer trackBackResponseCode;
 
     BlogService service = new BlogService();
     BlogEntry blogEntry = null;
@@ -95,35 +88,10 @@ public class SendTrackBackAction extends SecureAction {
       getModel().put(Constants.BLOG_ENTRY_KEY, blogEntry);
       return new TrackBackFormView();
     } else {
-      // extract the information to send in the trackback
-      String title = blogEntry.getTitle();
-      String blogName = blogEntry.getBlog().getName();
-      String url = blogEntry.getPermalink();
-
-      // now send the trackback
-      try {
-        HttpClient httpClient = new HttpClient();
-        PostMethod postMethod = new PostMethod(trackBackUrl);
-        postMethod.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=" + blog.getCharacterEncoding());
-        NameValuePair[] data = {
-          new NameValuePair("title", title),
-          new NameValuePair("url", url),
-          new NameValuePair("excerpt", excerpt),
-          new NameValuePair("blog_name", blogName)
-        };
-        postMethod.addParameters(data);
-
-        trackBackResponseCode = new Integer(httpClient.executeMethod(postMethod));
-        trackBackResponseMessage = postMethod.getResponseBodyAsString();
-      } catch (Exception e) {
-        log.error(e.getMessage(), e);
-        throw new ServletException(e);
-      }
+      PingService.getInstance().send(new TrackBackPing(blogEntry, trackBackUrl.trim(), excerpt));
 
       getModel().put(Constants.BLOG_ENTRY_KEY, blogEntry);
-      getModel().put("trackBackUrl", trackBackUrl);
-      getModel().put("trackBackResponseCode", trackBackResponseCode);
-      getModel().put("trackBackResponseMessage", trackBackResponseMessage);
+      getModel().put("trackBackUrl", trackBackUrl.trim());
 
       return new TrackBackSentView();
     }
@@ -32,17 +32,16 @@
 package net.sourceforge.pebble.web.action;
 
 import java.io.File;
-import java.util.Iterator;
-import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadBase;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -51,13 +50,17 @@ import net.sourceforge.pebble.PebbleContext;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.FileManager;
 import net.sourceforge.pebble.domain.FileMetaData;
+import net.sourceforge.pebble.domain.NotEnoughSpaceException;
 import net.sourceforge.pebble.web.view.RedirectView;
 import net.sourceforge.pebble.web.view.View;
 import net.sourceforge.pebble.web.view.impl.FileTooLargeView;
 import net.sourceforge.pebble.web.view.impl.NotEnoughSpaceView;
 
 /**
- * Superclass for actions that allow the user to upload a file.
+ * Superclass for actions that allow the user to upload a file. Files are
+ * streamed from the request into temporary files in a staging directory that
+ * isn't served, with the quota being checked as they're written, and then moved into place
+ * once their names are known.
  *
  * @author    Simon Brown
  */
@@ -65,6 +68,11 @@ public abstract class UploadFileAction extends AbstractFileAction {
 
   private static final Log log = LogFactory.getLog(UploadFileAction.class);
 
+  /** the character encoding used for form fields, as with FileItem.getString() */
+  private static final String FORM_FIELD_ENCODING = "ISO-8859-1";
+
+  private static final int MAXIMUM_FILES = 10;
+
   /**
    * Peforms the processing associated with this action.
    *
@@ -77,7 +85,12 @@ public abstract class UploadFileAction extends AbstractFileAction {
 
     String type = getType();
     String path = "";
-    String[] filenames = new String[10];
+    String[] filenames = new String[MAXIMUM_FILES];
+
+    // the uploaded files are written to temporary files until the form
+    // fields with their names (which follow them) have been read
+    File[] uploads = new File[MAXIMUM_FILES];
+    String[] uploadNames = new String[MAXIMUM_FILES];
 
     FileManager fileManager = new FileManager(blog, type);
 
@@ -85,72 +98,97 @@ public abstract class UploadFileAction extends AbstractFileAction {
       boolean isMultipart = ServletFileUpload.isMultipartContent(request);
 
       if (isMultipart) {
-    	  final long sizeInBytes = PebbleContext.getInstance().getConfiguration().getFileUploadSize() * 1024; // convert to bytes
-    	  DiskFileItemFactory factory = new DiskFileItemFactory();
-        factory.setRepository(new File(System.getProperty("java.io.tmpdir")));
-        factory.setSizeThreshold((int)sizeInBytes/4);
-        ServletFileUpload sfu = new ServletFileUpload(factory);
+        final long sizeInBytes = PebbleContext.getInstance().getConfiguration().getFileUploadSize() * 1024; // convert to bytes
+        ServletFileUpload sfu = new ServletFileUpload();
         sfu.setSizeMax(sizeInBytes);
 
-        List items;
         try {
-          items = sfu.parseRequest(request);
+          FileItemIterator it = sfu.getItemIterator(request);
+          while (it.hasNext()) {
+            FileItemStream item = it.next();
+            String fieldName = item.getFieldName();
+
+            if (item.isFormField()) {
+              String value = Streams.asString(item.openStream(), FORM_FIELD_ENCODING);
+              if (fieldName.startsWith("filename")) {
+                int index = Integer.parseInt(fieldName.substring(fieldName.length()-1));
+                filenames[index] = value;
+                log.debug("index is " + index + ", filename is " + filenames[index]);
+              } else if (fieldName.equals("path")) {
+                path = value;
+              }
+            } else if (fieldName.startsWith("file") && item.getName() != null && item.getName().length() > 0) {
+              int index = Integer.parseInt(fieldName.substring(fieldName.length()-1));
+              if (uploads[index] != null) {
+                // only the first file for each field is kept
+                log.warn("Ignoring duplicate upload for " + fieldName);
+                continue;
+              }
+
+              if (!fileManager.isUnderneathRootDirectory(fileManager.getFile(path))) {
+                discard(fileManager, uploads);
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                return null;
+              }
+
+              File temporaryFile = fileManager.writeTemporaryFile(path, item.openStream());
+              if (temporaryFile.length() > 0) {
+                uploads[index] = temporaryFile;
+                uploadNames[index] = item.getName();
+              } else {
+                fileManager.discardTemporaryFile(temporaryFile);
+              }
+            }
+          }
         } catch (FileUploadBase.SizeLimitExceededException e) {
+          discard(fileManager, uploads);
           return new FileTooLargeView();
-        }
-
-        // find the form fields first
-        Iterator it = items.iterator();
-        while (it.hasNext()) {
-          FileItem item = (FileItem)it.next();
-          if (item.isFormField() && item.getFieldName().startsWith("filename")) {
-            int index = Integer.parseInt(item.getFieldName().substring(item.getFieldName().length()-1));
-            filenames[index] = item.getString();
-            log.debug("index is " + index + ", filename is " + filenames[index]);
-          } else if (item.isFormField() && item.getFieldName().equals("path")) {
-            path = item.getString();
+        } catch (FileUploadBase.FileUploadIOException e) {
+          discard(fileManager, uploads);
+          if (e.getCause() instanceof FileUploadBase.SizeLimitExceededException) {
+            return new FileTooLargeView();
           }
+          throw e;
+        } catch (NotEnoughSpaceException e) {
+          discard(fileManager, uploads);
+          return new NotEnoughSpaceView();
         }
 
-        // now the actual files
-        it = items.iterator();
-        while (it.hasNext()) {
-          FileItem item = (FileItem)it.next();
-
-          if (!item.isFormField() && item.getSize() > 0 && item.getFieldName().startsWith("file")) {
-            int index = Integer.parseInt(item.getFieldName().substring(item.getFieldName().length()-1));
+        // now the names are known, move the files into place
+        for (int index = 0; index < uploads.length; index++) {
+          if (uploads[index] == null) {
+            continue;
+          }
 
-            // if the filename hasn't been specified, use that from the file
-            // being uploaded
-            if (filenames[index] == null || filenames[index].length() == 0) {
-              filenames[index] = item.getName();
-            }
+          // if the filename hasn't been specified, use that from the file
+          // being uploaded
+          String filename = filenames[index];
+          if (filename == null || filename.length() == 0) {
+            filename = uploadNames[index];
+          }
 
-            File destinationDirectory = fileManager.getFile(path);
-            File file = new File(destinationDirectory, filenames[index]);
-            if (!fileManager.isUnderneathRootDirectory(file)) {
-              response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-              return null;
-            }
+          File destinationDirectory = fileManager.getFile(path);
+          File file = new File(destinationDirectory, filename);
+          if (!fileManager.isUnderneathRootDirectory(file)) {
+            discard(fileManager, uploads);
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return null;
+          }
 
-            long itemSize = item.getSize()/1024;
-            if (FileManager.hasEnoughSpace(blog, itemSize)) {
-              log.debug("Writing file " + filenames[index] + ", size is " + item.getSize());
-              writeFile(fileManager, path, filenames[index], item);
+          log.debug("Writing file " + filename + ", size is " + uploads[index].length());
+          file = fileManager.moveTemporaryFile(uploads[index], path, filename);
+          uploads[index] = null;
 
-              // if it's a theme file, also create a copy in blog.dir/theme
-              if (type.equals(FileMetaData.THEME_FILE)) {
-                writeFile(new FileManager(blog, FileMetaData.BLOG_DATA), "/theme" + path, filenames[index], item);
-              }
-            } else {
-              return new NotEnoughSpaceView();
-            }
+          // if it's a theme file, also create a copy in blog.dir/theme
+          if (type.equals(FileMetaData.THEME_FILE)) {
+            new FileManager(blog, FileMetaData.BLOG_DATA).linkFile(file, "/theme" + path, filename);
           }
         }
       }
 
       blog.info("Files uploaded.");
     } catch (Exception e) {
+      discard(fileManager, uploads);
       throw new ServletException(e);
     }
 
@@ -160,20 +198,19 @@ public abstract class UploadFileAction extends AbstractFileAction {
   }
 
   /**
-   * Helper method to write a file.
+   * Helper method to discard any temporary files that haven't been moved
+   * into place.
    *
    * @param fileManager   a FileManager instance
-   * @param path          the path where to save the file
-   * @param filename      the filename
-   * @param item          the uploaded item
-   * @throws Exception    if something goes wrong writing the file
+   * @param uploads       the temporary files
    */
-  private void writeFile(FileManager fileManager, String path, String filename, FileItem item) throws Exception {
-    File destinationDirectory = fileManager.getFile(path);
-    destinationDirectory.mkdirs();
-
-    File file = new File(destinationDirectory, filename);
-    item.write(file);
+  private void discard(FileManager fileManager, File[] uploads) {
+    for (int index = 0; index < uploads.length; index++) {
+      if (uploads[index] != null) {
+        fileManager.discardTemporaryFile(uploads[index]);
+        uploads[index] = null;
+      }
+    }
   }
 
   /**
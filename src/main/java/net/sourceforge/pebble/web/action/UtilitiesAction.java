@@ -35,6 +35,7 @@ import net.sourceforge.pebble.Constants;
 import net.sourceforge.pebble.domain.Category;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.util.Utilities;
+import net.sourceforge.pebble.util.ZipExportJob;
 import net.sourceforge.pebble.web.security.RequireSecurityToken;
 import net.sourceforge.pebble.web.security.SecurityTokenValidatorCondition;
 import net.sourceforge.pebble.web.view.ForwardView;
@@ -90,6 +91,8 @@ public class UtilitiesAction extends SecureAction {
       }
     }
 
+    getModel().put("zipExports", ZipExportJob.getJobs(blog));
+
     return new UtilitiesView();
   }
 
@@ -50,6 +50,7 @@ import java.util.List;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewBlogEntriesByPageAction extends Action {
 
   /**
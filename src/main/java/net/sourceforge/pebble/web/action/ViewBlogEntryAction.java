@@ -36,6 +36,7 @@ import net.sourceforge.pebble.api.decorator.ContentDecoratorContext;
 import net.sourceforge.pebble.util.SecurityUtils;
 import net.sourceforge.pebble.util.CookieUtils;
 import net.sourceforge.pebble.domain.*;
+import net.sourceforge.pebble.index.BlogEntryNeighbourCache;
 import net.sourceforge.pebble.web.view.NotFoundView;
 import net.sourceforge.pebble.web.view.View;
 import net.sourceforge.pebble.web.view.impl.BlogEntryView;
@@ -50,6 +51,7 @@ import javax.servlet.http.Cookie;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewBlogEntryAction extends AbstractCommentAction {
 
   /**
@@ -86,6 +88,10 @@ public class ViewBlogEntryAction extends AbstractCommentAction {
       getModel().put(Constants.MONTHLY_BLOG, blog.getBlogForDay(blogEntry.getDate()).getMonth());
       getModel().put("displayMode", "detail");
 
+      // links to the previous and next blog entries, without loading them
+      BlogEntryNeighbourCache.Neighbours neighbours = blog.getBlogEntryNeighbourCache().getNeighbours(blogEntry);
+      getModel().put("previousBlogEntry", neighbours.getPrevious());
+      getModel().put("nextBlogEntry", neighbours.getNext());
 
       // is "remember me" set?
       Cookie rememberMe = CookieUtils.getCookie(request.getCookies(), "rememberMe");
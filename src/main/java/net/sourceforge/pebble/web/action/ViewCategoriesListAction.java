@@ -43,6 +43,7 @@ import net.sourceforge.pebble.web.view.impl.CategoriesView;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewCategoriesListAction extends Action {
 
   /**
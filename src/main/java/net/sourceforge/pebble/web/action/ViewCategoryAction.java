@@ -33,20 +33,26 @@ package net.sourceforge.pebble.web.action;
 
 import net.sourceforge.pebble.Constants;
 import net.sourceforge.pebble.domain.Blog;
-import net.sourceforge.pebble.web.view.ForwardView;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.Category;
+import net.sourceforge.pebble.util.Pageable;
+import net.sourceforge.pebble.web.view.NotFoundView;
 import net.sourceforge.pebble.web.view.View;
+import net.sourceforge.pebble.web.view.impl.BlogEntriesByCategoryView;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.util.List;
 
 /**
- * Allows the user to see blog entries for the specified category.
+ * Allows the user to see blog entries for the specified category, page by
+ * page. The page size is the same as the "number of blog entries shown on the
+ * home page".
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewCategoryAction extends Action {
 
   /**
@@ -57,13 +63,38 @@ public class ViewCategoryAction extends Action {
    * @return the name of the next view
    */
   public View process(HttpServletRequest request, HttpServletResponse response) throws ServletException {
-    Blog blog = (Blog)request.getAttribute(Constants.BLOG_KEY);
-    String category = request.getParameter("category");
+    Blog blog = (Blog)getModel().get(Constants.BLOG_KEY);
+    Category category = blog.getCategory(request.getParameter("category"));
+    if (category == null) {
+      return new NotFoundView();
+    }
+
+    int page = 1;
     try {
-      return new ForwardView("/search.action?query=category:" + URLEncoder.encode(category, blog.getCharacterEncoding()) + "&sort=date");
-    } catch (UnsupportedEncodingException uee) {
-      throw new ServletException(uee);
+      page = Integer.parseInt(request.getParameter("page"));
+    } catch (NumberFormatException nfe) {
+      page = 1;
     }
+
+    // only load the blog entries for the requested page
+    int pageSize = Math.max(blog.getRecentBlogEntriesOnHomePage(), 1);
+    int numberOfBlogEntries = blog.getCategoryIndex().getNumberOfBlogEntries(category);
+    int maxPages = Math.max((numberOfBlogEntries + pageSize - 1) / pageSize, 1);
+    page = Math.min(Math.max(page, 1), maxPages);
+    int offset = (page - 1) * pageSize;
+
+    List<String> blogEntryIds = blog.getCategoryIndex().getRecentBlogEntries(category, offset, pageSize);
+    Pageable<String> pageable = new Pageable<String>(blogEntryIds, offset, numberOfBlogEntries);
+    pageable.setPageSize(pageSize);
+    pageable.setPage(page);
+    List<BlogEntry> blogEntries = blog.getBlogEntries(pageable.getListForPage());
+
+    getModel().put(Constants.CATEGORY_KEY, category);
+    getModel().put("displayMode", "category");
+    getModel().put(Constants.BLOG_ENTRIES, blogEntries);
+    getModel().put("pageable", pageable);
+
+    return new BlogEntriesByCategoryView();
   }
 
-}
\ No newline at end of file
+}
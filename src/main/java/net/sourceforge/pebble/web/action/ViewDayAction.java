@@ -48,6 +48,7 @@ import java.util.ArrayList;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewDayAction extends Action {
 
   /**
@@ -46,6 +46,7 @@ import javax.servlet.http.HttpServletResponse;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewHomePageAction extends Action {
 
   /**
@@ -50,6 +50,7 @@ import java.util.ArrayList;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewMonthAction extends Action {
 
   /**
@@ -49,6 +49,7 @@ import javax.servlet.http.HttpServletResponse;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewStaticPageAction extends Action {
 
   /**
@@ -43,6 +43,7 @@ import net.sourceforge.pebble.web.view.impl.TagsView;
  *
  * @author    Simon Brown
  */
+@VersionedContent
 public class ViewTagsAction extends Action {
 
   /**
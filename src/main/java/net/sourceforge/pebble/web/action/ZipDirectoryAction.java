@@ -34,17 +34,20 @@ package net.sourceforge.pebble.web.action;
 import net.sourceforge.pebble.Constants;
 import net.sourceforge.pebble.domain.FileManager;
 import net.sourceforge.pebble.domain.FileMetaData;
-import net.sourceforge.pebble.domain.IllegalFileAccessException;
 import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.util.ZipExportJob;
+import net.sourceforge.pebble.util.ZipExporter;
 import net.sourceforge.pebble.web.view.ForbiddenView;
+import net.sourceforge.pebble.web.view.RedirectView;
 import net.sourceforge.pebble.web.view.View;
 import net.sourceforge.pebble.web.view.ZipView;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.List;
 
 /**
  * Allows the user to export a directory as a ZIP file.
@@ -53,6 +56,9 @@ import java.util.List;
  */
 public class ZipDirectoryAction extends AbstractFileAction {
 
+  /** exports larger than this are built in the background rather than streamed */
+  static final long BACKGROUND_THRESHOLD = 256L * 1024 * 1024;
+
   /**
    * Peforms the processing associated with this action.
    *
@@ -70,26 +76,36 @@ public class ZipDirectoryAction extends AbstractFileAction {
       path = "/";
     }
 
-    try {
-      String filename;
-      if (type.equals(FileMetaData.BLOG_DATA)) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-        if (path.equals("/logs")) {
-          filename = blog.getId() + "-logs-" + sdf.format(blog.getCalendar().getTime()) + ".zip";
-        } else {
-          filename = blog.getId() + "-" + sdf.format(blog.getCalendar().getTime()) + ".zip";
-        }
+    String filename;
+    if (type.equals(FileMetaData.BLOG_DATA)) {
+      SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+      if (path.equals("/logs")) {
+        filename = blog.getId() + "-logs-" + sdf.format(blog.getCalendar().getTime()) + ".zip";
       } else {
-        filename = "export.zip";
+        filename = blog.getId() + "-" + sdf.format(blog.getCalendar().getTime()) + ".zip";
       }
+    } else {
+      filename = "export.zip";
+    }
 
-      FileManager fileManager = new FileManager(blog, type);
-      List files = fileManager.getFiles(path, true);
-
-      return new ZipView(files, filename);
-    } catch (IllegalFileAccessException e) {
+    FileManager fileManager = new FileManager(blog, type);
+    File directory = fileManager.getFile(path);
+    if (!fileManager.isUnderneathRootDirectory(directory)) {
       return new ForbiddenView();
     }
+
+    ZipExporter exporter = new ZipExporter(fileManager.getRootDirectory(), directory);
+    exporter.setExcluded(ZipExportJob.getExportDirectory(blog));
+    try {
+      if (exporter.getSize(BACKGROUND_THRESHOLD) > BACKGROUND_THRESHOLD) {
+        ZipExportJob.start(blog, type + path, exporter, filename);
+        return new RedirectView(blog.getUrl() + "utilities.secureaction");
+      }
+    } catch (IOException e) {
+      throw new ServletException(e);
+    }
+
+    return new ZipView(exporter, filename);
   }
 
 }
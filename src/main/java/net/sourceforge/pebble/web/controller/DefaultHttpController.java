@@ -32,15 +32,21 @@
 package net.sourceforge.pebble.web.controller;
 
 import net.sourceforge.pebble.Constants;
+import net.sourceforge.pebble.PebbleContext;
 import net.sourceforge.pebble.domain.AbstractBlog;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.MultiBlog;
+import net.sourceforge.pebble.metrics.Metrics;
+import net.sourceforge.pebble.service.LastModifiedService;
+import net.sourceforge.pebble.util.CookieUtils;
 import net.sourceforge.pebble.util.SecurityUtils;
 import net.sourceforge.pebble.web.action.Action;
 import net.sourceforge.pebble.web.action.ActionFactory;
 import net.sourceforge.pebble.web.action.ActionNotFoundException;
 import net.sourceforge.pebble.web.action.SecureAction;
+import net.sourceforge.pebble.web.action.VersionedContent;
 import net.sourceforge.pebble.web.model.Model;
+import net.sourceforge.pebble.web.security.RequireSecurityToken;
 import net.sourceforge.pebble.web.security.SecurityTokenValidator;
 import net.sourceforge.pebble.web.view.View;
 import net.sourceforge.pebble.web.view.impl.MultiBlogNotSupportedView;
@@ -52,6 +58,7 @@ import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.*;
 import java.io.IOException;
+import java.util.Calendar;
 
 /**
  * An implementation of the front controller pattern, using the command
@@ -79,6 +86,12 @@ public class DefaultHttpController implements HttpController {
   @Inject
   private SecurityTokenValidator securityTokenValidator;
 
+  /**
+   * The service used to answer conditional requests
+   */
+  @Inject
+  private LastModifiedService lastModifiedService;
+
   /**
    * Processes the request - this is delegated to from doGet and doPost.
    *
@@ -93,6 +106,21 @@ public class DefaultHttpController implements HttpController {
           throws ServletException, IOException {
 
     AbstractBlog blog = (AbstractBlog) request.getAttribute(Constants.BLOG_KEY);
+    Metrics metrics = blog.getMetrics();
+    long start = metrics.start();
+    try {
+      processRequest(request, new CookieAwareResponse(response), servletContext, blog, metrics);
+    } finally {
+      metrics.stop("request", start);
+    }
+  }
+
+  private void processRequest(HttpServletRequest request,
+                              HttpServletResponse response,
+                              ServletContext servletContext,
+                              AbstractBlog blog,
+                              Metrics metrics)
+          throws ServletException, IOException {
 
     // find which action should be used
     String actionName = request.getRequestURI();
@@ -109,6 +137,7 @@ public class DefaultHttpController implements HttpController {
       action = actionFactory.getAction(actionName);
     } catch (ActionNotFoundException anfe) {
       log.warn(anfe.getMessage());
+      metrics.increment("action.notFound");
       response.sendError(HttpServletResponse.SC_NOT_FOUND);
       return;
     }
@@ -121,6 +150,10 @@ public class DefaultHttpController implements HttpController {
       if (!validated) {
         // Forward to no security url
         request.getRequestDispatcher("/noSecurityToken.action").forward(request, response);
+      } else if (isNotModified(request, response, blog, action)) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        metrics.increment("response.notModified");
+        blog.log(request, HttpServletResponse.SC_NOT_MODIFIED);
       } else {
         try {
           Model model = new Model();
@@ -128,6 +161,7 @@ public class DefaultHttpController implements HttpController {
           model.put(Constants.BLOG_URL, blog.getUrl());
           action.setModel(model);
           View view;
+          long actionStart = metrics.start();
           try {
             view = action.process(request, response);
           } catch (ClassCastException cce) {
@@ -138,21 +172,31 @@ public class DefaultHttpController implements HttpController {
             } else {
               throw cce;
             }
+          } finally {
+            metrics.stop("action.", actionName, actionStart);
+          }
+
+          if (isUpdate(request, action) && blog instanceof Blog) {
+            // the blog may have been changed in ways that don't fire events (properties, themes, etc)
+            ((Blog)blog).contentChanged();
           }
           if (view != null) {
+            long viewStart = metrics.start();
+            try {
+              view.setModel(model);
+              view.setServletContext(servletContext);
 
-            view.setModel(model);
-            view.setServletContext(servletContext);
+              view.prepare();
 
-            view.prepare();
+              for (Object key : model.keySet()) {
+                request.setAttribute(key.toString(), model.get(key.toString()));
+              }
 
-            for (Object key : model.keySet()) {
-              request.setAttribute(key.toString(), model.get(key.toString()));
+              response.setContentType(view.getContentType());
+              view.dispatch(request, response, servletContext);
+            } finally {
+              metrics.stop("view.", view.getClass(), viewStart);
             }
-
-            response.setContentType(view.getContentType());
-            view.dispatch(request, response, servletContext);
-
           }
         } catch (Exception e) {
           request.setAttribute("exception", e);
@@ -162,6 +206,66 @@ public class DefaultHttpController implements HttpController {
     }
   }
 
+  /**
+   * Determines whether a request may have changed the blog: secure actions
+   * that are posted to, or that require a security token (as everything that
+   * updates the blog does). Read-only secure actions, such as viewing the
+   * metrics, leave cached pages alone.
+   *
+   * @param request the HttpServletRequest
+   * @param action  the Action that processed the request
+   * @return true if the blog may have changed, false otherwise
+   */
+  private boolean isUpdate(HttpServletRequest request, Action action) {
+    return action instanceof SecureAction &&
+        ("POST".equals(request.getMethod()) || action.getClass().isAnnotationPresent(RequireSecurityToken.class));
+  }
+
+  /**
+   * Determines whether an anonymous request for a versioned page can be
+   * answered with 304 (Not Modified). If the page is versioned, its ETag and
+   * cache headers are set and the ETag is placed in the request so that the
+   * view doesn't prevent caching. Since pages can vary with the cookies sent,
+   * only requests without cookies may be stored by shared caches, and the
+   * response is kept private if it sets a cookie of its own (see
+   * {@link CookieAwareResponse}).
+   *
+   * @param request the HttpServletRequest
+   * @param response the HttpServletResponse
+   * @param abstractBlog  the blog being requested
+   * @param action  the Action that would process the request
+   * @return true if the client's copy of the page is current, false otherwise
+   */
+  private boolean isNotModified(HttpServletRequest request, HttpServletResponse response, AbstractBlog abstractBlog, Action action) {
+    if (!(abstractBlog instanceof Blog) || !action.getClass().isAnnotationPresent(VersionedContent.class)) {
+      return false;
+    }
+
+    String method = request.getMethod();
+    if (!"GET".equals(method) && !"HEAD".equals(method)) {
+      return false;
+    }
+
+    // pages for authenticated users and remembered commenters are personalised
+    response.addHeader("Vary", "Cookie");
+    Blog blog = (Blog)abstractBlog;
+    Cookie[] cookies = request.getCookies();
+    if (blog.isPrivate() || !SecurityUtils.isUserAnonymous() ||
+        CookieUtils.getCookie(cookies, "rememberMe") != null) {
+      return false;
+    }
+
+    // the day is included because pages (e.g. the calendar) highlight today
+    Calendar today = blog.getCalendar();
+    String etag = "\"" + blog.getId() + "-" + Long.toString(blog.getContentVersion(), 36) + "-" +
+        today.get(Calendar.YEAR) + "." + today.get(Calendar.DAY_OF_YEAR) + "\"";
+    request.setAttribute(Constants.ETAG, etag);
+    boolean shared = (cookies == null || cookies.length == 0);
+    response.setHeader("Cache-Control", PebbleContext.getInstance().getConfiguration().getHtmlCacheControl(shared));
+
+    return lastModifiedService.checkAndProcessETag(request, response, etag);
+  }
+
   private boolean isAuthorised(HttpServletRequest request, Action action) {
     if (action instanceof SecureAction) {
       SecureAction secureAction = (SecureAction) action;
@@ -204,7 +308,60 @@ public class DefaultHttpController implements HttpController {
     this.actionFactory = actionFactory;
   }
 
+  public void setSecurityTokenValidator(SecurityTokenValidator securityTokenValidator) {
+    this.securityTokenValidator = securityTokenValidator;
+  }
+
+  public void setLastModifiedService(LastModifiedService lastModifiedService) {
+    this.lastModifiedService = lastModifiedService;
+  }
+
   public void setActionExtension(String actionExtension) {
     this.actionExtension = actionExtension;
   }
+
+  /**
+   * Marks responses that set cookies as private, whether the cookie is added
+   * before or after the Cache-Control header. A shared cache would otherwise
+   * store the Set-Cookie header (e.g. a new security token) and replay it to
+   * every visitor.
+   */
+  private static class CookieAwareResponse extends HttpServletResponseWrapper {
+
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String PUBLIC = "public";
+
+    private boolean cookieSet = false;
+    private String cacheControl;
+
+    private CookieAwareResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+      super.addCookie(cookie);
+      cookieSet = true;
+      if (cacheControl != null && cacheControl.startsWith(PUBLIC)) {
+        super.setHeader(CACHE_CONTROL, restrict(cacheControl));
+      }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      if (CACHE_CONTROL.equalsIgnoreCase(name)) {
+        cacheControl = value;
+        value = restrict(value);
+      }
+      super.setHeader(name, value);
+    }
+
+    private String restrict(String value) {
+      if (cookieSet && value != null && value.startsWith(PUBLIC)) {
+        return "private" + value.substring(PUBLIC.length());
+      } else {
+        return value;
+      }
+    }
+  }
 }
@@ -56,9 +56,6 @@ import net.sourceforge.pebble.domain.AbstractBlog;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.BlogManager;
-import net.sourceforge.pebble.domain.Comment;
-import net.sourceforge.pebble.domain.Response;
-import net.sourceforge.pebble.domain.TrackBack;
 import net.sourceforge.pebble.security.PebbleUserDetails;
 import net.sourceforge.pebble.util.HttpsURLRewriter;
 import net.sourceforge.pebble.util.SecurityUtils;
@@ -129,15 +126,8 @@ public class PreProcessingFilter implements Filter {
         Collections.sort(blogEntries, new BlogEntryComparator());
         httpRequest.setAttribute(Constants.RECENT_BLOG_ENTRIES, blogEntries);
 
-        List<Response> recentApprovedResponses = b.getRecentApprovedResponses();
-        for (Response r : recentApprovedResponses) {
-          if (r instanceof Comment) {
-            b.getContentDecoratorChain().decorate(context, (Comment)r);
-          } else if (r instanceof TrackBack){
-            b.getContentDecoratorChain().decorate(context, (TrackBack)r);
-          }
-        }
-        httpRequest.setAttribute(Constants.RECENT_RESPONSES, recentApprovedResponses);
+        // summaries are already decorated, and don't need the blog entries to be loaded
+        httpRequest.setAttribute(Constants.RECENT_RESPONSES, b.getRecentResponseSummaries());
 
         httpRequest.setAttribute(Constants.CATEGORIES, b.getCategories());
         httpRequest.setAttribute(Constants.TAGS, b.getTags());
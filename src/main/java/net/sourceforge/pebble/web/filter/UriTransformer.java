@@ -37,6 +37,10 @@ import net.sourceforge.pebble.api.permalink.PermalinkProvider;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
 /**
  * Responsible for converting an incoming URI to a real URI used by Pebble.
  *
@@ -47,20 +51,47 @@ public class UriTransformer {
   /** literal used at the start of category URIs */
   private static final String CATEGORIES = "/categories";
 
-  /** literal used at the start of category URIs, in regex form */
-  private static final String CATEGORIES_REGEX = "\\/categories\\/";
+  /** URIs of the form /categories/category[/subcategories]/[rss|rdf|atom].xml */
+  private static final Pattern CATEGORY_FEED_PATTERN = Pattern.compile("\\/categories\\/.*\\/.*xml");
 
   /** literal used at the start of tag URIs */
   private static final String TAGS = "/tags/";
 
-  /** literal used at the start of tag URIs, in regex form */
-  private static final String TAGS_REGEX = "\\/tags\\/";
+  /** URIs of the form /tags/tag/[rss|rdf|atom].xml */
+  private static final Pattern TAG_FEED_PATTERN = Pattern.compile("\\/tags\\/.*\\/.*xml");
 
   /** literal used at the start of author URIs */
   private static final String AUTHORS = "/authors/";
 
-  /** literal used at the start of tag URIs, in regex form */
-  private static final String AUTHORS_REGEX = "\\/authors\\/";
+  /** URIs of the form /authors/username/[rss|rdf|atom].xml */
+  private static final Pattern AUTHOR_FEED_PATTERN = Pattern.compile("\\/authors\\/.*\\/.*xml");
+
+  /** URIs of the form /help/xyz.html */
+  private static final Pattern HELP_PATTERN = Pattern.compile("\\/help\\/\\w*\\.html");
+
+  /** URIs that map directly onto an action, regardless of the permalink provider */
+  private static final Map<String,String> BLOG_ROUTES = new HashMap<String,String>();
+
+  static {
+    BLOG_ROUTES.put("/", "/viewHomePage.action");
+    BLOG_ROUTES.put("/index.jsp", "/viewHomePage.action");
+    BLOG_ROUTES.put("/index.html", "/viewHomePage.action");
+    BLOG_ROUTES.put("/categories", "/viewCategories.action");
+    BLOG_ROUTES.put("/categories/", "/viewCategories.action");
+    BLOG_ROUTES.put("/tags", "/viewTags.action");
+    BLOG_ROUTES.put("/tags/", "/viewTags.action");
+    BLOG_ROUTES.put("/pages", "/viewStaticPage.action?name=index");
+    BLOG_ROUTES.put("/pages/", "/viewStaticPage.action?name=index");
+    BLOG_ROUTES.put("/help", "/viewHelp.secureaction?name=index");
+    BLOG_ROUTES.put("/help/", "/viewHelp.secureaction?name=index");
+    BLOG_ROUTES.put("/responses/rss.xml", "/responseFeed.action?flavor=rss20");
+    BLOG_ROUTES.put("/rss.xml", "/feed.action?flavor=rss20");
+    BLOG_ROUTES.put("/feed.xml", "/feed.action?flavor=rss20");
+    BLOG_ROUTES.put("/rdf.xml", "/feed.action?flavor=rdf");
+    BLOG_ROUTES.put("/atom.xml", "/feed.action?flavor=atom");
+    BLOG_ROUTES.put("/today.html", "/viewDay.action");
+    BLOG_ROUTES.put("/about.html", "/about.action");
+  }
 
   /** the log used by this class */
   private static Log log = LogFactory.getLog(UriTransformer.class);
@@ -76,8 +107,6 @@ public class UriTransformer {
    */
   public String getUri(String uri, Blog blog) {
     PermalinkProvider permalinkProvider = blog.getPermalinkProvider();
-    DefaultPermalinkProvider defaultPermalinkProvider = new DefaultPermalinkProvider();
-    defaultPermalinkProvider.setBlog(permalinkProvider.getBlog());
 
     log.trace("URI before transformation : " + uri);
 
@@ -87,17 +116,21 @@ public class UriTransformer {
 
     // try to transform the URI with the permalink provider in use
     String result = getUri(uri, permalinkProvider);
-    if (result == null) {
+    if (result == null && permalinkProvider.getClass() != DefaultPermalinkProvider.class) {
       // for backwards compatibility, try the default permalink provider
+      DefaultPermalinkProvider defaultPermalinkProvider = new DefaultPermalinkProvider();
+      defaultPermalinkProvider.setBlog(permalinkProvider.getBlog());
       result = getUri(uri, defaultPermalinkProvider);
     }
 
+    // then URIs that map directly onto an action
+    if (result == null) {
+      result = BLOG_ROUTES.get(uri);
+    }
+
     // if the result is still null, try the other URL patterns to transform the URI
     if (result == null) {
-      if (uri.equals("/categories") || uri.equals("/categories/")) {
-        // URI of the form /categories/
-        result = "/viewCategories.action";
-      } else if (uri.matches(CATEGORIES_REGEX + ".*\\/.*xml")) {
+      if (CATEGORY_FEED_PATTERN.matcher(uri).matches()) {
           // URI of the form /category[/subcategories]/[rss|rdf|atom].xml
           int indexOfLastSlash = uri.lastIndexOf("/");
           String categoryId = uri.substring(CATEGORIES.length(), indexOfLastSlash);
@@ -116,10 +149,7 @@ public class UriTransformer {
           category = category.substring(0, category.length()-1);
         }
         result = "/viewCategory.action?category=" + category;
-      } else if (uri.equals("/tags") || uri.equals("/tags/")) {
-          // URI of the form /tags/
-          result = "/viewTags.action";
-      } else if (uri.matches(TAGS_REGEX + ".*\\/.*xml")) {
+      } else if (TAG_FEED_PATTERN.matcher(uri).matches()) {
         // URI of the form /tags/tag/[rss|rdf|atom].xml
         int indexOfLastSlash = uri.lastIndexOf("/");
         String tag = uri.substring(TAGS.length(), indexOfLastSlash);
@@ -131,7 +161,7 @@ public class UriTransformer {
         } else {
           result = "/feed.action?tag=" + tag + "&flavor=rss20";
         }
-      } else if (uri.matches(AUTHORS_REGEX + ".*\\/.*xml")) {
+      } else if (AUTHOR_FEED_PATTERN.matcher(uri).matches()) {
         // URI of the form /authors/username/[rss|rdf|atom].xml
         int indexOfLastSlash = uri.lastIndexOf("/");
         String author = uri.substring(AUTHORS.length(), indexOfLastSlash);
@@ -157,8 +187,6 @@ public class UriTransformer {
           author = author.substring(0, author.length()-1);
         }
         result = "/aboutAuthor.action?user=" + author;
-      } else if (uri.equals("/pages/") || uri.equals("/pages")) {
-        result = "/viewStaticPage.action?name=index";
       } else if (uri.startsWith("/pages/")) {
         // url matches /pages/xyz.html
         String name = uri.substring(7, uri.length()-5);
@@ -183,18 +211,12 @@ public class UriTransformer {
 
         result = "/file.action?type=" + FileMetaData.THEME_FILE + "&name=";
         result += name;
-      } else if (uri.matches("\\/help\\/\\w*\\.html")) {
+      } else if (HELP_PATTERN.matcher(uri).matches()) {
         // url matches /help/xyz.html
         String name = uri.substring(6, uri.length());
 
         result = "/viewHelp.secureaction?name=";
         result += name.substring(0, name.length()-5);
-      } else if (uri.equals("/help") || uri.equals("/help/")) {
-        // url matches /help/
-        result = "/viewHelp.secureaction?name=index";
-      } else if (uri.equals("/responses/rss.xml")) {
-        // url is for a response feed
-        result = "/responseFeed.action?flavor=rss20";
       } else if (uri.startsWith("/responses/rss.xml?entry=")) {
         // url is for a response feed
         result = "/responseFeed.action?flavor=rss20&" + uri.substring("/responses/rss.xml?".length());
@@ -213,18 +235,10 @@ public class UriTransformer {
       } else if (uri.startsWith("/atom.xml")) {
         // url matches atom.xml
         result = "/feed.action?flavor=atom";
-      } else if (uri.equals("/today.html")) {
-        // URI of the form /today.html
-        result = "/viewDay.action";
-      } else if (uri.equals("/about.html")) {
-        // URI of the form /about.html
-        result = "/about.action";
       } else if (uri.startsWith("/blogentries/")) {
         // view blog entries by page /blogentries/1.html
         String page = uri.substring(13, uri.length()-5);
         result = "/viewBlogEntriesByPage.action?page=" + page;
-      } else if (uri.equals("/") || uri.equals("/index.jsp") || uri.equals("/index.html")) {
-          result = "/viewHomePage.action";
       } else {
         result = uri;
       }
@@ -267,7 +281,7 @@ public class UriTransformer {
       result = "/feed.action?flavor=atom";
     } else if (uri.equals("/") || uri.equals("/index.jsp") || uri.equals("/index.html")) {
         result = "/viewHomePage.action";
-    } else if (uri.matches("\\/help\\/\\w*\\.html")) {
+    } else if (HELP_PATTERN.matcher(uri).matches()) {
       // url matches /help/xyz.html
       String name = uri.substring(6, uri.length());
 
@@ -32,9 +32,16 @@
 package net.sourceforge.pebble.web.listener;
 
 import net.sourceforge.pebble.Configuration;
+import net.sourceforge.pebble.api.event.blog.BlogEvent;
+import net.sourceforge.pebble.api.event.blog.BlogListener;
 import net.sourceforge.pebble.PebbleContext;
 import net.sourceforge.pebble.dao.DAOFactory;
 import net.sourceforge.pebble.domain.*;
+import net.sourceforge.pebble.index.IndexSnapshot;
+import net.sourceforge.pebble.metrics.Metrics;
+import net.sourceforge.pebble.metrics.MetricsMBean;
+import net.sourceforge.pebble.ping.PingService;
+import net.sourceforge.pebble.util.ZipExportJob;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.context.ApplicationContext;
@@ -42,7 +49,6 @@ import org.springframework.web.context.support.WebApplicationContextUtils;
 
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
-import java.util.Collection;
 
 /**
  * Allows the blog to be loaded when this web application is started up.
@@ -72,67 +78,22 @@ public class PebbleContextListener implements ServletContextListener {
     ctx.setWebApplicationRoot(event.getServletContext().getRealPath("/"));
     ctx.setApplicationContext(applicationContext);
 
+    Metrics.setEnabled(config.isMetricsEnabled());
+    if (config.isMetricsEnabled()) {
+      MetricsMBean.setContextPath(event.getServletContext().getContextPath());
+      MetricsMBean.register(Metrics.getGlobal());
+    }
+
     BlogManager.getInstance().setMultiBlog(config.isMultiBlog());
-    BlogManager.getInstance().startBlogs();
+    // blogs with no entries get a welcome note as they finish starting
+    BlogManager.getInstance().startBlogs(new BlogListener() {
+      public void blogStarted(BlogEvent event) {
+        addWelcomeNote(event.getBlog());
+      }
 
-    // find those blogs with no entries and add a welcome note
-    Collection<Blog> blogs = (Collection<Blog>)BlogManager.getInstance().getBlogs();
-    for (Blog blog : blogs) {
-      try {
-        // and add a default entry, if one doesn't exist
-        if (blog.getNumberOfBlogEntries() == 0) {
-          log.info("Creating 'welcome note' blog entry for " + blog.getId());
-          BlogEntry blogEntry = new BlogEntry(blog);
-          blogEntry.setTitle("Welcome");
-          blogEntry.setBody(
-              "<p>\n" +
-              "Welcome to your new Pebble powered blog. Here are a few suggestions for getting started.\n" +
-              "</p>\n" +
-              "\n" +
-              "<ul>\n" +
-              "<li>Login to see the admin features of your blog. The default username is <code>username</code> and the password is <code>password</code>.</li>\n" +
-              "<li>Modify your <a href=\"viewBlogProperties.secureaction\">blog properties</a></li>\n" +
-              "<li><a href=\"addBlogEntry.secureaction\">Create a new blog entry</a>.</li>\n" +
-              "<li>Give out a link to your <a href=\"./rss.xml\">RSS</a> feed.</li>\n" +
-              "<li>Remove the default user and create your own user on the <a href=\"viewUsers.secureaction\">users page</a>.</li>\n" +
-              "<li>Take a look at the <a href=\"./help/index.html\">online help</a>.</li>\n" +
-              "<li>Delete this blog entry when you're finished with it.</li>\n" +
-              "<li>Try out the code highlighting (example below).</li>\n" +
-              "</ul>\n" +
-              "\n" +
-              "<pre><code class=\"apache\">" +
-              "# rewrite`s rules for wordpress pretty url\n" +
-              "LoadModule rewrite_module  modules/mod_rewrite.so\n" +
-              "RewriteCond %{REQUEST_FILENAME} !-f\n" +
-              "RewriteCond %{REQUEST_FILENAME} !-d\n" +
-              "RewriteRule . index.php [NC,L]\n" +
-              "\n" +
-              "ExpiresActive On\n" +
-              "ExpiresByType application/x-javascript  \"access plus 1 days\"\n" +
-              "\n" +
-              "Order Deny,Allow\n" +
-              "Allow from All\n" +
-              "\n" +
-              "&lt;Location /maps/&gt;\n" +
-              "RewriteMap map txt:map.txt\n" +
-              "RewriteMap lower int:tolower\n" +
-              "RewriteCond %{REQUEST_URI} ^/([^/.]+)\\.html$ [NC]\n" +
-              "RewriteCond ${map:${lower:%1}|NOT_FOUND} !NOT_FOUND\n" +
-              "RewriteRule .? /index.php?q=${map:${lower:%1}} [NC,L]\n" +
-              "&lt;/Location&gt;" +
-              "</code></pre>" +
-              "<p>\n" +
-              "Have fun!\n" +
-              "</p>");
-          blogEntry.setAuthor("username");
-          blogEntry.setPublished(true);
-          BlogService service = new BlogService();
-          service.putBlogEntry(blogEntry);
-        }
-      } catch (BlogServiceException e) {
-        log.warn("Could not store 'welcome note' blog entry for " + blog.getId());
+      public void blogStopped(BlogEvent event) {
       }
-    }
+    });
 
     long endTime = System.currentTimeMillis();
     log.info("Pebble started in " + (endTime-startTime) + "ms");
@@ -146,8 +107,74 @@ public class PebbleContextListener implements ServletContextListener {
   public void contextDestroyed(ServletContextEvent event) {
     log.info("Stopping Pebble");
     BlogManager.getInstance().stopBlogs();
+    PingService.getInstance().shutdown();
+    ZipExportJob.shutdown();
+    IndexSnapshot.shutdown();
+    MetricsMBean.unregister(Metrics.getGlobal());
 
     log.info("Pebble stopped");
   }
 
+  /**
+   * Adds a welcome note to the given blog, if it has no blog entries.
+   *
+   * @param blog    a Blog instance
+   */
+  private void addWelcomeNote(Blog blog) {
+    try {
+      // and add a default entry, if one doesn't exist
+      if (blog.getNumberOfBlogEntries() == 0) {
+        log.info("Creating 'welcome note' blog entry for " + blog.getId());
+        BlogEntry blogEntry = new BlogEntry(blog);
+        blogEntry.setTitle("Welcome");
+        blogEntry.setBody(
+            "<p>\n" +
+            "Welcome to your new Pebble powered blog. Here are a few suggestions for getting started.\n" +
+            "</p>\n" +
+            "\n" +
+            "<ul>\n" +
+            "<li>Login to see the admin features of your blog. The default username is <code>username</code> and the password is <code>password</code>.</li>\n" +
+            "<li>Modify your <a href=\"viewBlogProperties.secureaction\">blog properties</a></li>\n" +
+            "<li><a href=\"addBlogEntry.secureaction\">Create a new blog entry</a>.</li>\n" +
+            "<li>Give out a link to your <a href=\"./rss.xml\">RSS</a> feed.</li>\n" +
+            "<li>Remove the default user and create your own user on the <a href=\"viewUsers.secureaction\">users page</a>.</li>\n" +
+            "<li>Take a look at the <a href=\"./help/index.html\">online help</a>.</li>\n" +
+            "<li>Delete this blog entry when you're finished with it.</li>\n" +
+            "<li>Try out the code highlighting (example below).</li>\n" +
+            "</ul>\n" +
+            "\n" +
+            "<pre><code class=\"apache\">" +
+            "# rewrite`s rules for wordpress pretty url\n" +
+            "LoadModule rewrite_module  modules/mod_rewrite.so\n" +
+            "RewriteCond %{REQUEST_FILENAME} !-f\n" +
+            "RewriteCond %{REQUEST_FILENAME} !-d\n" +
+            "RewriteRule . index.php [NC,L]\n" +
+            "\n" +
+            "ExpiresActive On\n" +
+            "ExpiresByType application/x-javascript  \"access plus 1 days\"\n" +
+            "\n" +
+            "Order Deny,Allow\n" +
+            "Allow from All\n" +
+            "\n" +
+            "&lt;Location /maps/&gt;\n" +
+            "RewriteMap map txt:map.txt\n" +
+            "RewriteMap lower int:tolower\n" +
+            "RewriteCond %{REQUEST_URI} ^/([^/.]+)\\.html$ [NC]\n" +
+            "RewriteCond ${map:${lower:%1}|NOT_FOUND} !NOT_FOUND\n" +
+            "RewriteRule .? /index.php?q=${map:${lower:%1}} [NC,L]\n" +
+            "&lt;/Location&gt;" +
+            "</code></pre>" +
+            "<p>\n" +
+            "Have fun!\n" +
+            "</p>");
+        blogEntry.setAuthor("username");
+        blogEntry.setPublished(true);
+        BlogService service = new BlogService();
+        service.putBlogEntry(blogEntry);
+      }
+    } catch (BlogServiceException e) {
+      log.warn("Could not store 'welcome note' blog entry for " + blog.getId());
+    }
+  }
+
 }
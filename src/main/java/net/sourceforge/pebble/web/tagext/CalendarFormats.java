@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.web.tagext;
+
+import java.text.DateFormatSymbols;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The locale specific text used to render the calendar, worked out once for
+ * each locale and time zone instead of on every page.
+ */
+final class CalendarFormats {
+
+  /** the maximum number of months remembered for each locale and time zone */
+  private static final int MAXIMUM_MONTHS = 1000;
+
+  private static final ConcurrentMap<String,CalendarFormats> instances = new ConcurrentHashMap<String,CalendarFormats>();
+
+  private final Locale locale;
+  private final TimeZone timeZone;
+
+  /** the short weekday names, indexed by Calendar.SUNDAY to Calendar.SATURDAY */
+  private final String[] shortWeekdays;
+
+  private final int firstDayOfWeek;
+
+  /** the formatted day numbers, indexed by day of the month */
+  private final String[] days;
+
+  /** the formats of the months shown so far, keyed on their first millisecond */
+  private final ConcurrentMap<Long,MonthFormat> months = new ConcurrentHashMap<Long,MonthFormat>();
+
+  private CalendarFormats(Locale locale, TimeZone timeZone) {
+    this.locale = locale;
+    this.timeZone = timeZone;
+    this.shortWeekdays = new DateFormatSymbols(locale).getShortWeekdays();
+    this.firstDayOfWeek = Calendar.getInstance(timeZone, locale).getFirstDayOfWeek();
+
+    NumberFormat numberFormatter = NumberFormat.getIntegerInstance(locale);
+    this.days = new String[32];
+    for (int day = 1; day < days.length; day++) {
+      String formattedNumber = numberFormatter.format(day);
+      if (formattedNumber.length() == 1) {
+        formattedNumber = "&nbsp;" + formattedNumber;
+      }
+      days[day] = formattedNumber;
+    }
+  }
+
+  /**
+   * Gets the formats for the given locale and time zone.
+   *
+   * @param locale    a Locale
+   * @param timeZone  a TimeZone
+   * @return  a CalendarFormats instance
+   */
+  static CalendarFormats getInstance(Locale locale, TimeZone timeZone) {
+    String key = locale.toString() + "/" + timeZone.getID();
+    CalendarFormats formats = instances.get(key);
+    if (formats == null) {
+      formats = new CalendarFormats(locale, timeZone);
+      CalendarFormats existing = instances.putIfAbsent(key, formats);
+      if (existing != null) {
+        formats = existing;
+      }
+    }
+
+    return formats;
+  }
+
+  String getShortWeekday(int dayOfWeek) {
+    return shortWeekdays[dayOfWeek];
+  }
+
+  int getFirstDayOfWeek() {
+    return firstDayOfWeek;
+  }
+
+  /**
+   * Gets a day of the month, formatted and padded to two characters.
+   *
+   * @param day   the day of the month (1 to 31)
+   * @return  the formatted day as a String
+   */
+  String formatDay(int day) {
+    return days[day];
+  }
+
+  /**
+   * Gets the formats for the month starting at the given date.
+   *
+   * @param date    the start of the month
+   * @return  a MonthFormat instance
+   */
+  MonthFormat getMonth(Date date) {
+    Long key = date.getTime();
+    MonthFormat format = months.get(key);
+    if (format == null) {
+      if (months.size() >= MAXIMUM_MONTHS) {
+        months.clear();
+      }
+      format = new MonthFormat(date);
+      months.put(key, format);
+    }
+
+    return format;
+  }
+
+  /**
+   * The formatted names of a single month, and the day of the week it
+   * starts on.
+   */
+  final class MonthFormat {
+
+    private final String monthAndYear;
+    private final String shortMonth;
+    private final int firstDayOfMonth;
+
+    private MonthFormat(Date date) {
+      SimpleDateFormat monthAndYearFormatter = new SimpleDateFormat("MMMM yyyy", locale);
+      monthAndYearFormatter.setTimeZone(timeZone);
+      SimpleDateFormat monthFormatter = new SimpleDateFormat("MMM", locale);
+      monthFormatter.setTimeZone(timeZone);
+      Calendar cal = Calendar.getInstance(timeZone, locale);
+      cal.setTime(date);
+
+      this.monthAndYear = monthAndYearFormatter.format(date);
+      this.shortMonth = monthFormatter.format(date);
+      this.firstDayOfMonth = cal.get(Calendar.DAY_OF_WEEK);
+    }
+
+    String getMonthAndYear() {
+      return monthAndYear;
+    }
+
+    String getShortMonth() {
+      return shortMonth;
+    }
+
+    /**
+     * Gets the day of the week that the month starts on.
+     *
+     * @return  Calendar.SUNDAY to Calendar.SATURDAY
+     */
+    int getFirstDayOfMonth() {
+      return firstDayOfMonth;
+    }
+
+  }
+
+}
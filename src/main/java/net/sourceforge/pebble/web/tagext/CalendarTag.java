@@ -32,13 +32,6 @@
 package net.sourceforge.pebble.web.tagext;
 
 import java.io.IOException;
-import java.text.DateFormatSymbols;
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Iterator;
-import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.jsp.JspException;
@@ -50,11 +43,15 @@ import net.sourceforge.pebble.Constants;
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.Day;
 import net.sourceforge.pebble.domain.Month;
+import net.sourceforge.pebble.index.ArchiveSummary;
 import net.sourceforge.pebble.util.I18n;
 import net.sourceforge.pebble.util.UrlRewriter;
 
 /**
- * A custom tag that outputs a calendar control.
+ * A custom tag that outputs a calendar control. The days with blog entries
+ * come from the blog's archive summary, and the month and day names are
+ * formatted once per locale, so rendering doesn't walk the Day objects or
+ * create formatters.
  *
  * @author Simon Brown
  */
@@ -78,20 +75,19 @@ public class CalendarTag extends TagSupport {
 		Blog blog = (Blog) request.getAttribute(Constants.BLOG_KEY);
 		Month month = (Month) request.getAttribute(Constants.MONTHLY_BLOG);
 		Day today = blog.getBlogForToday();
-		Calendar now = blog.getCalendar();
 
 		if (month == null) {
 			month = today.getMonth();
 		}
 
-		Calendar firstDayOfMonth = blog.getCalendar();
-		firstDayOfMonth.setTime(month.getBlogForDay(1).getDate());
-
-		SimpleDateFormat monthAndYearFormatter = new SimpleDateFormat("MMMM yyyy", blog.getLocale());
-		monthAndYearFormatter.setTimeZone(blog.getTimeZone());
-		SimpleDateFormat monthFormatter = new SimpleDateFormat("MMM", blog.getLocale());
-		monthFormatter.setTimeZone(blog.getTimeZone());
-		NumberFormat numberFormatter = NumberFormat.getIntegerInstance(blog.getLocale());
+		ArchiveSummary archiveSummary = blog.getBlogEntryIndex().getArchiveSummary();
+		CalendarFormats formats = CalendarFormats.getInstance(blog.getLocale(), blog.getTimeZone());
+		CalendarFormats.MonthFormat monthFormat = formats.getMonth(month.getDate());
+		int year = month.getYear().getYear();
+		int todayInMonth = 0;
+		if (today.getMonth().getYear().getYear() == year && today.getMonth().getMonth() == month.getMonth()) {
+			todayInMonth = today.getDay();
+		}
 
 		Month firstMonth = blog.getBlogForFirstMonth();
 
@@ -104,66 +100,61 @@ public class CalendarTag extends TagSupport {
 			out.write("<td colspan=\"7\" align=\"center\">");
 			if (month.before(firstMonth)) {
 				out.write("<b>");
-				out.write(monthAndYearFormatter.format(month.getDate()));
+				out.write(monthFormat.getMonthAndYear());
 				out.write("</b>");
 			} else {
 				out.write("<b><a href=\"");
 				out.write(UrlRewriter.doRewrite(month.getPermalink()));
 				out.write("\">");
-				out.write(monthAndYearFormatter.format(month.getDate()));
+				out.write(monthFormat.getMonthAndYear());
 				out.write("</a></b>");
 			}
 			out.write("</td>");
 			out.write("</tr>");
 
-			int firstDayOfWeek = now.getFirstDayOfWeek();
+			int firstDayOfWeek = formats.getFirstDayOfWeek();
 
 			// write out the calendar header
-			DateFormatSymbols symbols = new DateFormatSymbols(blog.getLocale());
-			String[] days = symbols.getShortWeekdays();
 			out.write("<tr>");
 			for (int i = firstDayOfWeek; i <= 7; i++) {
-				out.write("<td class=\"calendarDayHeader\" width=\"14%\">" + days[i] + "</td>");
+				out.write("<td class=\"calendarDayHeader\" width=\"14%\">" + formats.getShortWeekday(i) + "</td>");
 			}
 			for (int i = 1; i < firstDayOfWeek; i++) {
-				out.write("<td class=\"calendarDayHeader\">" + days[i] + "</td>");
+				out.write("<td class=\"calendarDayHeader\">" + formats.getShortWeekday(i) + "</td>");
 			}
 			out.write("</tr>");
 
-			// write out the body of the calendar
-			Iterator it = getDatesForCompleteWeeks(blog, month).iterator();
-			Calendar cal;
-			int count = 0;
-			while (it.hasNext()) {
-				cal = (Calendar) it.next();
-				Day daily = blog.getBlogForDay(cal.getTime());
-
-				String formattedNumber = numberFormatter.format(cal.get(Calendar.DAY_OF_MONTH));
-				if (formattedNumber.length() == 1) {
-					formattedNumber = "&nbsp;" + formattedNumber;
-				}
+			// write out the body of the calendar, padded either side of the
+			// month so that it contains a number of complete weeks
+			int lastDayInMonth = month.getLastDayInMonth();
+			int daysBefore = (monthFormat.getFirstDayOfMonth() - firstDayOfWeek + 7) % 7;
+			int daysAfter = (7 - ((daysBefore + lastDayInMonth) % 7)) % 7;
+			int numberOfCells = daysBefore + lastDayInMonth + daysAfter;
+			for (int count = 0; count < numberOfCells; count++) {
+				int dayInMonth = count - daysBefore + 1;
 
 				if (count % 7 == 0) {
 					out.write("<tr>");
 				}
 
 				// output padding if the date to display isn't in the month
-				if (cal.get(Calendar.MONTH) != firstDayOfMonth.get(Calendar.MONTH)) {
+				if (dayInMonth < 1 || dayInMonth > lastDayInMonth) {
 					out.write("<td class=\"calendarDay\">&nbsp;");
-				} else if (now.get(Calendar.YEAR) == cal.get(Calendar.YEAR)
-						&& now.get(Calendar.MONTH) == cal.get(Calendar.MONTH)
-						&& now.get(Calendar.DAY_OF_MONTH) == cal.get(Calendar.DAY_OF_MONTH)) {
-					out.write("<td class=\"calendarToday\">");
-					if (daily.hasBlogEntries()) {
-						out.write("&nbsp;<a href=\"" + UrlRewriter.doRewrite(daily.getPermalink()) + "\">"
-								+ formattedNumber + "</a>&nbsp;");
-					} else {
-						out.write("&nbsp;" + formattedNumber + "&nbsp;");
-					}
 				} else {
-					if (daily.hasBlogEntries()) {
+					String formattedNumber = formats.formatDay(dayInMonth);
+					boolean hasBlogEntries = archiveSummary.getNumberOfBlogEntries(year, month.getMonth(), dayInMonth) > 0;
+
+					if (dayInMonth == todayInMonth) {
+						out.write("<td class=\"calendarToday\">");
+						if (hasBlogEntries) {
+							out.write("&nbsp;<a href=\"" + UrlRewriter.doRewrite(month.getBlogForDay(dayInMonth).getPermalink()) + "\">"
+									+ formattedNumber + "</a>&nbsp;");
+						} else {
+							out.write("&nbsp;" + formattedNumber + "&nbsp;");
+						}
+					} else if (hasBlogEntries) {
 						out.write("<td class=\"calendarDayWithEntries\">");
-						out.write("&nbsp;<a href=\"" + UrlRewriter.doRewrite(daily.getPermalink()) + "\">"
+						out.write("&nbsp;<a href=\"" + UrlRewriter.doRewrite(month.getBlogForDay(dayInMonth).getPermalink()) + "\">"
 								+ formattedNumber + "</a>&nbsp;");
 					} else {
 						out.write("<td class=\"calendarDay\">");
@@ -175,23 +166,23 @@ public class CalendarTag extends TagSupport {
 				if (count % 7 == 6) {
 					out.write("</tr>");
 				}
-
-				count++;
 			}
 
 			// write out the footer of the calendar
 			Month previous = month.getPreviousMonth();
 			Month next = month.getNextMonth();
+			String previousMonth = formats.getMonth(previous.getDate()).getShortMonth();
+			String nextMonth = formats.getMonth(next.getDate()).getShortMonth();
 
 			out.write("<tr>");
 			out.write("<td colspan=\"7\" align=\"center\">");
 
 			// only display the previous month link if there are blog entries
 			if (previous.before(firstMonth)) {
-				out.write(monthFormatter.format(previous.getDate()));
+				out.write(previousMonth);
 			} else {
 				out.write("<a href=\"" + UrlRewriter.doRewrite(previous.getPermalink()) + "\">"
-						+ monthFormatter.format(previous.getDate()) + "</a>");
+						+ previousMonth + "</a>");
 			}
 
 			String todayText = I18n.getMessage(blog, "common.today");
@@ -200,11 +191,11 @@ public class CalendarTag extends TagSupport {
 			out.write("&nbsp; | &nbsp;");
 
 			// only display the next month date if it's not in the future
-			if (next.getDate().after(now.getTime()) || next.before(firstMonth)) {
-				out.write(monthFormatter.format(next.getDate()));
+			if (next.getDate().getTime() > System.currentTimeMillis() || next.before(firstMonth)) {
+				out.write(nextMonth);
 			} else {
 				out.write("<a href=\"" + UrlRewriter.doRewrite(next.getPermalink()) + "\">"
-						+ monthFormatter.format(next.getDate()) + "</a>");
+						+ nextMonth + "</a>");
 			}
 			out.write("</td>");
 			out.write("</tr>");
@@ -218,50 +209,4 @@ public class CalendarTag extends TagSupport {
 		return SKIP_BODY;
 	}
 
-	/**
-	 * Gets a list of dates that should be displayed for the given month. This
-	 * method adds dates either side of the month, padding the list so that it
-	 * contains a number of complete weeks. For example, if the first day of the
-	 * month for the blog's locale is Monday and the given month starts on a
-	 * Tuesday, this method will add in that previous Monday to present back a
-	 * complete week. The same happens for the end of the month. This makes
-	 * rendering easier since we just have a 7xN grid.
-	 *
-	 * @param blog  a Blog instance
-	 * @param month the month
-	 * @return a List of Calendar instances
-	 */
-	private List getDatesForCompleteWeeks(Blog blog, Month month) {
-		List dates = new ArrayList();
-		Calendar start = blog.getCalendar();
-		start.setTime(month.getBlogForDay(1).getDate());
-		Calendar end = blog.getCalendar();
-		end.setTime(month.getBlogForDay(month.getLastDayInMonth()).getDate());
-		Calendar cal;
-
-		// put all days in month into a list
-		for (int i = 1; i <= month.getLastDayInMonth(); i++) {
-			cal = (Calendar) start.clone();
-			cal.set(Calendar.DAY_OF_MONTH, i);
-			dates.add(cal);
-		}
-
-		// pad out before the start of the month, until the first day of the week
-		cal = (Calendar) start.clone();
-		while (cal.get(Calendar.DAY_OF_WEEK) != cal.getFirstDayOfWeek()) {
-			cal.add(Calendar.DATE, -1);
-			dates.add(0, cal.clone());
-		}
-
-		// pad out after month, until the last day of the week
-		cal = (Calendar) end.clone();
-		cal.add(Calendar.DATE, 1);
-		while (cal.get(Calendar.DAY_OF_WEEK) != cal.getFirstDayOfWeek()) {
-			dates.add(cal.clone());
-			cal.add(Calendar.DATE, 1);
-		}
-
-		return dates;
-	}
-
-}
\ No newline at end of file
+}
@@ -31,11 +31,14 @@
  */
 package net.sourceforge.pebble.web.view;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -47,10 +50,15 @@ import org.apache.commons.logging.LogFactory;
 
 import net.sourceforge.pebble.Constants;
 import net.sourceforge.pebble.domain.AbstractBlog;
+import net.sourceforge.pebble.service.LastModifiedService;
 import net.sourceforge.pebble.util.FileUtils;
 
 /**
  * Represents a binary view component and prepares the model for display.
+ * Files are handed to the container's sendfile support where available, and
+ * copied through a buffer otherwise. Single and multiple byte ranges are
+ * supported, so
+ * that large downloads and podcast enclosures can be resumed.
  *
  * @author    Simon Brown
  */
@@ -59,12 +67,41 @@ public class FileView extends BinaryView {
   /** the log used by this class */
   private static Log log = LogFactory.getLog(FileView.class);
 
+  /** the size of the buffer used to copy files */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** request attributes used by Tomcat to send a file without it passing through the webapp */
+  private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private static final String MULTIPART_BOUNDARY = "PEBBLE_BYTE_RANGES";
+
+  /** more ranges than this and the whole file is sent instead */
+  private static final int MAXIMUM_RANGES = 16;
+
   private File file;
+  private LastModifiedService lastModifiedService;
+  private Date expires;
 
   public FileView(File file) {
     this.file = file;
   }
 
+  /**
+   * Creates a view that also answers conditional requests for the file.
+   *
+   * @param file                  the file to send
+   * @param lastModifiedService   the service used to check conditional requests
+   * @param expires               the date the file expires, may be null
+   */
+  public FileView(File file, LastModifiedService lastModifiedService, Date expires) {
+    this.file = file;
+    this.lastModifiedService = lastModifiedService;
+    this.expires = expires;
+  }
+
   /**
    * Gets the title of this view.
    *
@@ -96,25 +133,248 @@ public class FileView extends BinaryView {
    * @param context
    */
   public void dispatch(HttpServletRequest request, HttpServletResponse response, ServletContext context) throws ServletException {
-    response.setContentLength((int)getContentLength());
+    int status = HttpServletResponse.SC_OK;
     try {
-      BufferedInputStream in = new BufferedInputStream(new FileInputStream(file));
-      BufferedOutputStream out = new BufferedOutputStream(response.getOutputStream());
-
-      byte[] buf = new byte[1024];
-      int len = in.read(buf);
-      while (len > 0) {
-          out.write(buf, 0, len);
-          len = in.read(buf);
+      long length = getContentLength();
+      Date lastModified = new Date(file.lastModified());
+
+      if (lastModifiedService != null &&
+          lastModifiedService.checkAndProcessLastModified(request, response, lastModified, expires)) {
+        status = HttpServletResponse.SC_NOT_MODIFIED;
+        response.setStatus(status);
+        return;
       }
 
-      in.close();
-      out.close();
+      response.setHeader("Accept-Ranges", "bytes");
+      List<long[]> ranges = null;
+      String range = request.getHeader("Range");
+      if (range != null && isRangeCurrent(request, response, lastModified)) {
+        ranges = parseRanges(range, length);
+        if (ranges != null && ranges.isEmpty()) {
+          status = HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+          response.setStatus(status);
+          response.setHeader("Content-Range", "bytes */" + length);
+          return;
+        }
+      }
+
+      boolean head = "HEAD".equals(request.getMethod());
+      if (ranges == null) {
+        setContentLength(response, length);
+        send(request, response, 0, length, head);
+      } else if (ranges.size() == 1) {
+        long[] r = ranges.get(0);
+        status = HttpServletResponse.SC_PARTIAL_CONTENT;
+        response.setStatus(status);
+        response.setHeader("Content-Range", "bytes " + r[0] + "-" + r[1] + "/" + length);
+        setContentLength(response, r[1] - r[0] + 1);
+        send(request, response, r[0], r[1] + 1, head);
+      } else {
+        status = HttpServletResponse.SC_PARTIAL_CONTENT;
+        response.setStatus(status);
+        sendMultipart(response, ranges, length, head);
+      }
     } catch (IOException ioe) {
       log.warn(ioe);
     } finally {
       AbstractBlog blog = (AbstractBlog)getModel().get(Constants.BLOG_KEY);
-      blog.log(request, HttpServletResponse.SC_OK);
+      blog.log(request, status);
+    }
+  }
+
+  /**
+   * Determines whether a Range header should be honoured, given any If-Range
+   * header; if the client's copy is out of date, the whole file is sent.
+   */
+  private boolean isRangeCurrent(HttpServletRequest request, HttpServletResponse response, Date lastModified) {
+    String ifRange = request.getHeader("If-Range");
+    if (ifRange == null) {
+      return true;
+    } else if (ifRange.startsWith("\"")) {
+      return ifRange.equals(response.getHeader("ETag"));
+    } else if (ifRange.startsWith("W/")) {
+      // weak entity tags can't be used for ranges
+      return false;
+    } else {
+      try {
+        return request.getDateHeader("If-Range") == (lastModified.getTime() / 1000) * 1000;
+      } catch (IllegalArgumentException e) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Parses a Range header of the form "bytes=0-99,200-,-50". Overlapping and
+   * adjacent ranges are merged (as RFC 7233 section 3.1 allows), so that a
+   * client can't have the same bytes sent more than once.
+   *
+   * @return  a List of inclusive {start, end} pairs in ascending order, an
+   *          empty list if none of
+   *          the ranges can be satisfied, or null if the header should be
+   *          ignored and the whole file sent
+   */
+  static List<long[]> parseRanges(String header, long length) {
+    if (!header.startsWith("bytes=")) {
+      return null;
+    }
+
+    String[] specs = header.substring("bytes=".length()).split(",");
+    if (specs.length > MAXIMUM_RANGES) {
+      return null;
+    }
+
+    List<long[]> ranges = new ArrayList<long[]>();
+    for (String spec : specs) {
+      spec = spec.trim();
+      int dash = spec.indexOf('-');
+      if (dash < 0) {
+        return null;
+      }
+
+      long start, end;
+      try {
+        if (dash == 0) {
+          // the last n bytes
+          long suffix = Long.parseLong(spec.substring(1));
+          start = Math.max(0, length - suffix);
+          end = length - 1;
+          if (suffix == 0) {
+            continue;
+          }
+        } else {
+          start = Long.parseLong(spec.substring(0, dash));
+          if (dash == spec.length() - 1) {
+            end = length - 1;
+          } else {
+            long last = Long.parseLong(spec.substring(dash + 1));
+            if (last < start) {
+              // syntactically invalid, so the header is ignored
+              return null;
+            }
+            end = Math.min(last, length - 1);
+          }
+        }
+      } catch (NumberFormatException e) {
+        return null;
+      }
+
+      if (start < length && start <= end) {
+        ranges.add(new long[] {start, end});
+      }
+    }
+
+    return coalesce(ranges);
+  }
+
+  private static List<long[]> coalesce(List<long[]> ranges) {
+    if (ranges.size() < 2) {
+      return ranges;
+    }
+
+    Collections.sort(ranges, (a, b) -> Long.compare(a[0], b[0]));
+    List<long[]> coalesced = new ArrayList<long[]>();
+    long[] current = ranges.get(0);
+    for (long[] range : ranges.subList(1, ranges.size())) {
+      if (range[0] <= current[1] + 1) {
+        current[1] = Math.max(current[1], range[1]);
+      } else {
+        coalesced.add(current);
+        current = range;
+      }
+    }
+    coalesced.add(current);
+
+    return coalesced;
+  }
+
+  private void setContentLength(HttpServletResponse response, long length) {
+    if (length <= Integer.MAX_VALUE) {
+      response.setContentLength((int)length);
+    } else {
+      response.setHeader("Content-Length", Long.toString(length));
+    }
+  }
+
+  /**
+   * Sends part of the file, handing it to the container when it supports sendfile.
+   *
+   * @param start   the first byte to send
+   * @param end     the byte after the last one to send
+   */
+  private void send(HttpServletRequest request, HttpServletResponse response, long start, long end, boolean head) throws IOException {
+    if (head) {
+      return;
+    }
+
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+      request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+      request.setAttribute(SENDFILE_START, Long.valueOf(start));
+      request.setAttribute(SENDFILE_END, Long.valueOf(end));
+      return;
+    }
+
+    OutputStream out = response.getOutputStream();
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      copy(in, start, end, out, new byte[BUFFER_SIZE]);
+    } finally {
+      in.close();
+    }
+    out.flush();
+  }
+
+  private void sendMultipart(HttpServletResponse response, List<long[]> ranges, long length, boolean head) throws IOException {
+    String contentType = getContentType();
+    List<byte[]> partHeaders = new ArrayList<byte[]>();
+    long contentLength = 0;
+    for (long[] r : ranges) {
+      String partHeader = "\r\n--" + MULTIPART_BOUNDARY + "\r\n" +
+          "Content-Type: " + contentType + "\r\n" +
+          "Content-Range: bytes " + r[0] + "-" + r[1] + "/" + length + "\r\n\r\n";
+      byte[] bytes = partHeader.getBytes("ISO-8859-1");
+      partHeaders.add(bytes);
+      contentLength += bytes.length + (r[1] - r[0] + 1);
+    }
+    byte[] trailer = ("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes("ISO-8859-1");
+    contentLength += trailer.length;
+
+    response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+    setContentLength(response, contentLength);
+    if (head) {
+      return;
+    }
+
+    OutputStream out = response.getOutputStream();
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      for (int i = 0; i < ranges.size(); i++) {
+        long[] r = ranges.get(i);
+        out.write(partHeaders.get(i));
+        copy(in, r[0], r[1] + 1, out, buffer);
+      }
+      out.write(trailer);
+    } finally {
+      in.close();
+    }
+    out.flush();
+  }
+
+  /**
+   * Copies the bytes from start up to (but not including) end to the output.
+   */
+  private void copy(RandomAccessFile in, long start, long end, OutputStream out, byte[] buffer) throws IOException {
+    in.seek(start);
+    long remaining = end - start;
+    while (remaining > 0) {
+      int read = in.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+      if (read < 0) {
+        // the file has been truncated
+        break;
+      }
+      out.write(buffer, 0, read);
+      remaining -= read;
     }
   }
 
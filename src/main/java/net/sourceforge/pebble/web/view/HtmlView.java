@@ -127,9 +127,11 @@ public abstract class HtmlView extends JspView {
     String uri = "/themes/" + theme + "/" + getTemplate() + ".jsp";
     log.debug("Dispatching to " + uri);
 
-    response.setHeader("Cache-Control","no-cache, no-store");
-    response.setDateHeader("Expires", 0);
-    response.setHeader("Pragma","no-cache");
+    if (request.getAttribute(Constants.ETAG) == null || getStatus() != HttpServletResponse.SC_OK) {
+      response.setHeader("Cache-Control","no-cache, no-store");
+      response.setDateHeader("Expires", 0);
+      response.setHeader("Pragma","no-cache");
+    }
 
     try {
       RequestDispatcher dispatcher = context.getRequestDispatcher(uri);
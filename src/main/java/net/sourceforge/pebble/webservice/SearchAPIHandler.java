@@ -41,11 +41,13 @@ import java.util.Vector;
 
 import net.sourceforge.pebble.domain.Blog;
 import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogManager;
 import net.sourceforge.pebble.domain.BlogService;
 import net.sourceforge.pebble.domain.Category;
+import net.sourceforge.pebble.index.MultiBlogSearchIndex;
+import net.sourceforge.pebble.index.SearchIndex;
 import net.sourceforge.pebble.search.SearchHit;
 import net.sourceforge.pebble.search.SearchResults;
-import net.sourceforge.pebble.util.Pageable;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -98,23 +100,12 @@ public class SearchAPIHandler extends AbstractAPIHandler {
         try {
 
             Blog blog = getBlogWithBlogId(blogid);
-            SearchResults result = blog.getSearchIndex().search( searchString );
-
-            if ( sortBy != null && sortBy.equalsIgnoreCase("date") ) {
-                result.sortByDateDescending();
-            } else {
-                result.sortByScoreDescending();
-            }
+            SearchResults result = blog.getSearchIndex().search( searchString, sortBy,
+                0, SearchIndex.DEFAULT_MAX_HITS );
 
             List<SearchHit> hits = result.getHits();
-            BlogService service = new BlogService();
-
-            for (SearchHit hit : hits) {
-                BlogEntry entry = service.getBlogEntry(hit.getBlog(), hit.getId());
-                adaptBlogEntry(entry);
-                posts.add(adaptBlogEntry(entry));
-            }
-            posts.add( searchResultSummary(hits, sortBy, searchString, 0, 0) );
+            addBlogEntries(posts, hits);
+            posts.add( searchResultSummary(result, sortBy, searchString, 0, 0) );
 
         } catch (Exception ex) {
             log.error(ex);
@@ -141,32 +132,56 @@ public class SearchAPIHandler extends AbstractAPIHandler {
         Vector posts = new Vector();
         try {
 
+            pageSize = getPageSize(pageSize);
+
+            // the offset is a page number, starting at 1
+            int page = getPage(offset, pageSize);
+
             Blog blog = getBlogWithBlogId(blogid);
-            SearchResults result = blog.getSearchIndex().search( searchString );
-            
-            if ( sortBy != null && sortBy.equalsIgnoreCase("date") ) {
-                result.sortByDateDescending();
-            } else {
-                result.sortByScoreDescending();
-            }
+            SearchResults result = blog.getSearchIndex().search( searchString, sortBy,
+                (page-1) * pageSize, pageSize );
 
-            if ( pageSize <= 0 ) 
-                pageSize = PAGE_SIZE;
+            List<SearchHit> subList = result.getHits();
+            addBlogEntries(posts, subList);
+            posts.add( searchResultSummary(result, sortBy, searchString, pageSize, offset) );
 
-            List<SearchHit> hits = result.getHits();
-            Pageable pageable = new Pageable(hits);
-            pageable.setPageSize(pageSize);
-            pageable.setPage(offset);
-            List<SearchHit> subList = pageable.getListForPage();
+        } catch (Exception ex) {
+            log.error(ex);
+        }
+        return posts;
+    }
 
-            BlogService service = new BlogService();
+    /**
+     * Search blog for specific string, continuing from the cursor returned
+     * in the summary of a previous call. This is the cheapest way for clients
+     * to walk deep into a large set of results.
+     *
+     * @param blogid    the ID of the blog (ignored)
+     * @param username  the username used for logging in via XML-RPC
+     * @param password  the password used for logging in via XML-RPC
+     * @param searchAfter the "searchAfter" value from the previous summary,
+     *                  or an empty string for the first page
+     */
+    public Vector searchAfter(String blogid, String username, String password,
+                        String searchString, String sortBy, int pageSize, String searchAfter) {
+        log.debug("search.searchAfter(" +
+            blogid + ", " +
+            username + ", xxxxxx, \"" +
+            searchString + "," +
+            sortBy + "," +
+            searchAfter + "\")");
 
-            for (SearchHit hit : subList ) {
-                BlogEntry entry = service.getBlogEntry(hit.getBlog(), hit.getId());
-                adaptBlogEntry(entry);
-                posts.add(adaptBlogEntry(entry));
-            }
-            posts.add( searchResultSummary(subList, sortBy, searchString, pageSize, offset) );
+        Vector posts = new Vector();
+        try {
+            pageSize = getPageSize(pageSize);
+
+            Blog blog = getBlogWithBlogId(blogid);
+            SearchResults result = blog.getSearchIndex().search( searchString, sortBy,
+                searchAfter, pageSize );
+
+            List<SearchHit> subList = result.getHits();
+            addBlogEntries(posts, subList);
+            posts.add( searchResultSummary(result, sortBy, searchString, pageSize, result.getOffset()) );
 
         } catch (Exception ex) {
             log.error(ex);
@@ -174,6 +189,72 @@ public class SearchAPIHandler extends AbstractAPIHandler {
         return posts;
     }
 
+    /**
+     * Search all public blogs for a specific string. This is only useful when
+     * Pebble is running in multi-blog mode; private blogs are never searched.
+     *
+     * @param username  the username used for logging in via XML-RPC
+     * @param password  the password used for logging in via XML-RPC
+     * @param page      the page number, starting at 1
+     */
+    public Vector searchAllBlogs(String username, String password,
+                        String searchString, String sortBy, int pageSize, int page) {
+        log.debug("search.searchAllBlogs(" +
+            username + ", xxxxxx, \"" +
+            searchString + "," +
+            sortBy + "\")");
+
+        Vector posts = new Vector();
+        try {
+            pageSize = getPageSize(pageSize);
+            page = getPage(page, pageSize);
+
+            MultiBlogSearchIndex searchIndex = BlogManager.getInstance().getSearchIndex();
+            SearchResults result = searchIndex.search( searchString, sortBy, (page-1) * pageSize, pageSize );
+
+            List<SearchHit> subList = result.getHits();
+            addBlogEntries(posts, subList);
+            posts.add( searchResultSummary(result, sortBy, searchString, pageSize, page) );
+
+        } catch (Exception ex) {
+            log.error(ex);
+        }
+        return posts;
+    }
+
+    /**
+     * Helper method to keep the requested page size within the limits
+     * of the search index.
+     */
+    private int getPageSize(int pageSize) {
+        if ( pageSize <= 0 )
+            return PAGE_SIZE;
+        else
+            return Math.min(pageSize, SearchIndex.MAXIMUM_PAGE_SIZE);
+    }
+
+    /**
+     * Helper method to keep the requested page (starting at 1) within the
+     * offsets that the search index will return hits for.
+     */
+    private int getPage(int page, int pageSize) {
+        return Math.min(Math.max(page, 1), SearchIndex.MAXIMUM_OFFSET / pageSize + 1);
+    }
+
+    /**
+     * Helper method to load and adapt the blog entries for a page of hits.
+     */
+    private void addBlogEntries(Vector posts, List<SearchHit> hits) throws Exception {
+        BlogService service = new BlogService();
+
+        for (SearchHit hit : hits) {
+            BlogEntry entry = service.getBlogEntry(hit.getBlog(), hit.getId());
+            if (entry != null) {
+                posts.add(adaptBlogEntry(entry));
+            }
+        }
+    }
+
     /**
      * Helper method to adapt a blog entry into an XML-RPC compatible struct.
      * Since the Blogger API doesn't support titles, the title is wrapped in
@@ -206,11 +287,15 @@ public class SearchAPIHandler extends AbstractAPIHandler {
      * Auto create a Map of search result summary.
      * @param result of the search hits.
      */
-    private Map searchResultSummary(List<SearchHit> result, String sortBy,
+    private Map searchResultSummary(SearchResults result, String sortBy,
                                         String query, int pageIndex, int offset) {
         Map data = new Hashtable();
-        data.put("size", result.size() );
-        data.put("sortBy", sortBy);
+        data.put("size", result.getHits().size() );
+        data.put("total", result.getNumberOfHits() );
+        if (result.getSearchAfter() != null) {
+            data.put("searchAfter", result.getSearchAfter());
+        }
+        data.put("sortBy", sortBy != null ? sortBy : SearchIndex.SORT_BY_SCORE);
         data.put("index", pageIndex);
         data.put("offset", offset);
         data.put("query", query);
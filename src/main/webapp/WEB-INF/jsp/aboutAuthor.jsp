@@ -25,7 +25,7 @@
           </c:otherwise>
         </c:choose>
         <td width="2%" valign="top">
-          <fmt:formatNumber value="${status.count}"/>
+          <fmt:formatNumber value="${(pageable.page - 1) * pageable.pageSize + status.count}"/>
           <br />
         </td>
         <td valign="top">
@@ -38,6 +38,7 @@
             <td valign="top">
               <div class="searchResultTitle"><a href="${url:rewrite(hit.permalink)}" title="${hit.score}">${hit.title}</a></div>
               <c:if test="${not empty hit.subtitle}"><div class="searchResultSubTitle"><a href="${url:rewrite(hit.permalink)}" title="${hit.score}">${hit.subtitle}</a></div></c:if>
+              <c:if test="${blogType == 'multiblog'}"><div class="searchResultBlog"><a href="${url:rewrite(hit.blog.url)}">${hit.blog.name}</a></div></c:if>
               <div class="searchResultExcerpt">${hit.excerpt}</div>
             </td>
             <td class="searchResultDatetime" align="right" valign="top" width="15%">
@@ -3,9 +3,8 @@
   <h2>&nbsp;</h2>
 
   <div class="contentItemBody">
-    TrackBack sent to ${trackBackUrl}, response code ${trackBackResponseCode}
-    <br />
-    <pre><c:out value="${trackBackResponseMessage}" escapeXml="true" /></pre>
+    TrackBack to <c:out value="${trackBackUrl}" escapeXml="true" /> is being sent.
+    The response will be shown in the <a href="viewMessages.secureaction">messages</a> for this blog.
 
     <p>
     Return to <a href="${url:rewrite(blogEntry.permalink)}">${blogEntry.title}</a>.
@@ -0,0 +1,75 @@
+<div class="contentItem">
+
+  <div class="contentItemLinks">
+    <a href="viewMetrics.secureaction?format=prometheus"><fmt:message key="view.metrics.prometheus"/></a>
+  </div>
+
+  <h1><fmt:message key="view.metrics"/></h1>
+  <h2>&nbsp;</h2>
+
+  <div class="contentItemBody">
+    <c:if test="${not metricsEnabled}">
+    <p>
+      Metrics are currently disabled. Set <code>metricsEnabled=true</code> in <code>pebble.properties</code> to start recording them.
+    </p>
+    </c:if>
+
+    <c:forEach var="aMetrics" items="${metrics}">
+    <h3><c:out value="${aMetrics.name}"/></h3>
+
+    <table width="99%" cellspacing="0" cellpadding="4">
+      <thead>
+        <tr>
+          <th>Timer</th>
+          <th align="right">Count</th>
+          <th align="right">Mean (ms)</th>
+          <th align="right">50% (ms)</th>
+          <th align="right">95% (ms)</th>
+          <th align="right">99% (ms)</th>
+          <th align="right">Max (ms)</th>
+        </tr>
+      </thead>
+      <tbody>
+      <c:forEach var="entry" items="${aMetrics.timers}" varStatus="status">
+        <tr class="${status.count % 2 == 0 ? 'even' : 'odd'} small">
+          <td><c:out value="${entry.key}"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value.count}"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value.meanMillis}" maxFractionDigits="2"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value.medianMillis}" maxFractionDigits="2"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value.p95Millis}" maxFractionDigits="2"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value.p99Millis}" maxFractionDigits="2"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value.maxMillis}" maxFractionDigits="2"/></td>
+        </tr>
+      </c:forEach>
+      </tbody>
+    </table>
+
+    <c:if test="${not empty aMetrics.counters or not empty aMetrics.gauges}">
+    <br />
+    <table width="99%" cellspacing="0" cellpadding="4">
+      <thead>
+        <tr>
+          <th>Counter / gauge</th>
+          <th align="right">Value</th>
+        </tr>
+      </thead>
+      <tbody>
+      <c:forEach var="entry" items="${aMetrics.counters}" varStatus="status">
+        <tr class="${status.count % 2 == 0 ? 'even' : 'odd'} small">
+          <td><c:out value="${entry.key}"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value}"/></td>
+        </tr>
+      </c:forEach>
+      <c:forEach var="entry" items="${aMetrics.gauges}">
+        <tr class="odd small">
+          <td><c:out value="${entry.key}"/></td>
+          <td align="right"><fmt:formatNumber value="${entry.value}"/></td>
+        </tr>
+      </c:forEach>
+      </tbody>
+    </table>
+    </c:if>
+    </c:forEach>
+  </div>
+
+</div>
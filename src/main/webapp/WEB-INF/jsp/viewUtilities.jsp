@@ -29,6 +29,25 @@
       </li>
       <li><a href="zipDirectory.secureaction?type=blogData&amp;path=/logs" title="Export logs as ZIP file">Export logs</a> : export your logs as a ZIP file.</li>
     </ul>
+    <c:forEach var="zipExport" items="${zipExports}">
+    <p>
+      <c:choose>
+        <c:when test="${zipExport.running}">
+          Large exports are built in the background. <b>${zipExport.name}</b> is ${zipExport.percentComplete}% complete
+          (${zipExport.filesWritten} files) - <a href="utilities.secureaction">refresh</a>.
+        </c:when>
+        <c:when test="${zipExport.complete}">
+          Your export is ready : <a href="${zipExport.url}">${zipExport.name}</a>.
+        </c:when>
+        <c:when test="${zipExport.expired}">
+          Your export <b>${zipExport.name}</b> has expired and been deleted.
+        </c:when>
+        <c:otherwise>
+          The export started at <fmt:formatDate value="${zipExport.startDate}" type="both" dateStyle="medium" timeStyle="short"/> failed, please see the log for details.
+        </c:otherwise>
+      </c:choose>
+    </p>
+    </c:forEach>
 
     <h3>Theme utilities</h3>
     <ul>
@@ -7,7 +7,7 @@
    - categories             java.util.List<net.sourceforge.pebble.domain.Category>
    - tags                   java.util.List<net.sourceforge.pebble.domain.Tag>
    - recentBlogEntries      java.util.List<net.sourceforge.pebble.domain.BlogEntry>
-   - recentResponses        java.util.List<net.sourceforge.pebble.domain.Response>
+   - recentResponses        java.util.List<net.sourceforge.pebble.index.ResponseSummary>
    - archives               java.util.List<net.sourceforge.pebble.domain.Year>
    - pluginProperties       net.sourceforge.pebble.PluginProperties
    - authenticatedUser      net.sourceforge.pebble.security.PebbleUserDetails
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.Category;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+import net.sourceforge.pebble.domain.StaticPage;
+import net.sourceforge.pebble.domain.Tag;
+
+/**
+ * Tests for the ContentCache class.
+ */
+public class ContentCacheTest extends SingleBlogTestCase {
+
+  /**
+   * Tests that a blog entry is copied without its blog, so that the off-heap
+   * store doesn't hold (and hand back) a copy of the whole blog.
+   */
+  @Test public void testBlogEntryIsCopiedWithoutBlog() throws Exception {
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTags("junit");
+
+    List<Object> written = new ArrayList<Object>();
+    BlogEntry copy = (BlogEntry)copy(blogEntry, written);
+    for (Object obj : written) {
+      assertFalse(obj instanceof Blog);
+    }
+    assertNull(copy.getBlog());
+  }
+
+  /**
+   * Tests that a copied blog entry is attached to the live blog, with the
+   * blog's own categories and tags.
+   */
+  @Test public void testCopiedBlogEntryIsReattachedToBlog() throws Exception {
+    Category java = new Category("/java", "Java");
+    blog.addCategory(java);
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.addCategory(java);
+    blogEntry.setTags("junit");
+
+    BlogEntry copy = (BlogEntry)copy(blogEntry, new ArrayList<Object>());
+    copy.reattach(blog);
+    assertSame(blog, copy.getBlog());
+    assertSame(java, copy.getCategories().iterator().next());
+    Tag tag = copy.getTagsAsList().get(0);
+    assertEquals(blog.getTag("junit"), tag);
+    assertEquals(blog.getTag("junit").getPermalink(), tag.getPermalink());
+  }
+
+  @Test public void testCachedContentBelongsToLiveBlog() throws Exception {
+    ContentCache cache = ContentCache.getInstance();
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle("A title");
+    blogEntry.setTags("junit");
+    cache.putBlogEntry(blogEntry);
+    StaticPage staticPage = new StaticPage(blog);
+    staticPage.setTitle("A page");
+    cache.putStaticPage(staticPage);
+
+    BlogEntry cachedBlogEntry = cache.getBlogEntry(blog, blogEntry.getId());
+    assertSame(blog, cachedBlogEntry.getBlog());
+    assertEquals(blog.getTag("junit").getPermalink(), cachedBlogEntry.getTagsAsList().get(0).getPermalink());
+    assertEquals("A title", cachedBlogEntry.getTitle());
+    StaticPage cachedStaticPage = cache.getStaticPage(blog, staticPage.getId());
+    assertSame(blog, cachedStaticPage.getBlog());
+    assertEquals("A page", cachedStaticPage.getTitle());
+
+    cache.removeBlogEntry(blogEntry);
+    cache.removeStaticPage(staticPage);
+  }
+
+  /**
+   * Copies an object as the off-heap store does, recording the objects that
+   * were written.
+   */
+  private Object copy(Object obj, final List<Object> written) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes) {
+      {
+        enableReplaceObject(true);
+      }
+
+      @Override
+      protected Object replaceObject(Object obj) throws IOException {
+        written.add(obj);
+        return obj;
+      }
+    };
+    out.writeObject(obj);
+    out.close();
+
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    return in.readObject();
+  }
+
+}
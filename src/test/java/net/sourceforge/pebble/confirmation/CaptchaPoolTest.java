@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.confirmation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.mock.MockHttpServletRequest;
+import net.sourceforge.pebble.mock.MockHttpSession;
+
+/**
+ * Tests for the CaptchaPool class.
+ */
+public class CaptchaPoolTest {
+
+  private CaptchaPool pool;
+  private MockHttpSession session;
+
+  @BeforeEach
+  protected void setUp() throws Exception {
+    pool = new CaptchaPool(2, 3);
+    session = new MockHttpSession();
+  }
+
+  @Test
+  public void testRefillStopsWhenPoolIsFull() throws Exception {
+    assertEquals(0, pool.size());
+    pool.refill(5);
+    assertEquals(2, pool.size());
+  }
+
+  @Test
+  public void testIssueTakesFromPoolAndBindsToSession() throws Exception {
+    pool.refill(1);
+    byte[] jpeg = pool.issue(session);
+
+    assertEquals(0, pool.size());
+    assertNotNull(ImageIO.read(new ByteArrayInputStream(jpeg)));
+    assertNotNull(session.getAttribute(CaptchaPool.SESSION_KEY));
+  }
+
+  @Test
+  public void testNothingIsIssuedWhenPoolIsEmpty() {
+    assertNull(pool.issue(session));
+    assertNull(session.getAttribute(CaptchaPool.SESSION_KEY));
+  }
+
+  @Test
+  public void testWrongAnswerIsRejectedAndCaptchaIsSingleUse() throws Exception {
+    pool.refill(1);
+    pool.issue(session);
+
+    assertFalse(CaptchaPool.validate(session, "not the answer"));
+    assertNull(session.getAttribute(CaptchaPool.SESSION_KEY));
+    assertFalse(CaptchaPool.validate(session, "not the answer"));
+  }
+
+  @Test
+  public void testValidateWithoutIssuedCaptcha() {
+    assertFalse(CaptchaPool.validate(session, "answer"));
+    assertFalse(CaptchaPool.validate(null, "answer"));
+    assertFalse(CaptchaPool.validate(session, null));
+  }
+
+  @Test
+  public void testIssuesAreLimitedPerAddress() {
+    assertTrue(pool.isIssueAllowed("10.0.0.1"));
+    assertTrue(pool.isIssueAllowed("10.0.0.1"));
+    assertTrue(pool.isIssueAllowed("10.0.0.1"));
+    assertFalse(pool.isIssueAllowed("10.0.0.1"));
+
+    assertTrue(pool.isIssueAllowed("10.0.0.2"));
+    assertTrue(pool.isIssueAllowed(null));
+  }
+
+  @Test
+  public void testExpiredWindowsAreEvicted() {
+    pool.isIssueAllowed("10.0.0.1");
+    pool.isIssueAllowed("10.0.0.2");
+    assertEquals(2, pool.getTrackedAddresses());
+
+    pool.evictExpiredWindows(System.currentTimeMillis());
+    assertEquals(2, pool.getTrackedAddresses());
+
+    pool.evictExpiredWindows(System.currentTimeMillis() + 60 * 1000);
+    assertEquals(0, pool.getTrackedAddresses());
+  }
+
+  @Test
+  public void testNoLimitWhenIssuesPerMinuteIsZero() {
+    CaptchaPool unlimited = new CaptchaPool(1, 0);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(unlimited.isIssueAllowed("10.0.0.1"));
+    }
+  }
+
+  @Test
+  public void testClientAddressComesFromConnectionByDefault() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setRemoteAddr("192.168.0.1");
+    request.setHeader("X-Forwarded-For", "10.0.0.1");
+
+    assertEquals("192.168.0.1", CaptchaPool.getClientAddress(request, null));
+  }
+
+  @Test
+  public void testClientAddressComesFromTrustedHeader() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setRemoteAddr("192.168.0.1");
+    assertEquals("192.168.0.1", CaptchaPool.getClientAddress(request, "X-Forwarded-For"));
+
+    request.setHeader("X-Forwarded-For", "10.0.0.1");
+    assertEquals("10.0.0.1", CaptchaPool.getClientAddress(request, "X-Forwarded-For"));
+
+    // only the address appended by the proxy can be trusted
+    request.setHeader("X-Forwarded-For", "1.2.3.4, 10.0.0.2");
+    assertEquals("10.0.0.2", CaptchaPool.getClientAddress(request, "X-Forwarded-For"));
+  }
+
+}
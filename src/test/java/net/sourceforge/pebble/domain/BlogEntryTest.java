@@ -39,6 +39,7 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.beans.PropertyChangeEvent;
+import java.io.File;
 import java.text.DecimalFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -435,6 +436,74 @@ public class BlogEntryTest extends SingleBlogTestCase {
     assertEquals(0, blogEntry.getNumberOfComments());
   }
 
+  /**
+   * Tests that the derived comment and response views are reused until
+   * a response is added or removed.
+   */
+  @Test public void testDerivedResponseViewsAreCached() {
+    Comment comment1 = blogEntry.createComment("", "Body", "Author", "me@somedomain.com", "http://www.google.com", "http://graph.facebook.com/user/picture", "127.0.0.1", new Date(0), State.APPROVED);
+    blogEntry.addComment(comment1);
+    List<Comment> comments = blogEntry.getComments();
+    List<Response> responses = blogEntry.getResponses();
+    assertSame(comments, blogEntry.getComments());
+    assertSame(responses, blogEntry.getResponses());
+
+    Comment comment2 = blogEntry.createComment("", "Body", "Author", "me@somedomain.com", "http://www.google.com", "http://graph.facebook.com/user/picture", "127.0.0.1", new Date(1000), State.APPROVED);
+    comment2.setParent(comment1);
+    blogEntry.addComment(comment2);
+    assertEquals(2, blogEntry.getNumberOfComments());
+    assertSame(comment2, blogEntry.getResponses().get(0));
+
+    TrackBack trackBack = blogEntry.createTrackBack("Title", "Excerpt", "http://www.somedomain.com", "Some blog", "127.0.0.1");
+    blogEntry.addTrackBack(trackBack);
+    assertEquals(3, blogEntry.getNumberOfResponses());
+
+    blogEntry.removeComment(comment2.getId());
+    assertEquals(1, blogEntry.getNumberOfComments());
+    assertEquals(2, blogEntry.getNumberOfResponses());
+  }
+
+  /**
+   * Tests that the tags inherited from categories are rebuilt when the
+   * category tags change.
+   */
+  @Test public void testAllTagsFollowCategoryTags() {
+    Category java = new Category("/java", "Java");
+    java.setBlog(blog);
+    java.setTags("java");
+    blogEntry.addCategory(java);
+    blogEntry.setTags("junit");
+
+    List<Tag> tags = blogEntry.getAllTags();
+    assertEquals(2, tags.size());
+    assertSame(tags, blogEntry.getAllTags());
+
+    java.setTags("java, programming");
+    tags = blogEntry.getAllTags();
+    assertEquals(3, tags.size());
+    assertEquals("java", tags.get(0).getName());
+    assertEquals("junit", tags.get(1).getName());
+    assertEquals("programming", tags.get(2).getName());
+
+    BlogEntry clone = (BlogEntry)blogEntry.clone();
+    assertSame(tags, clone.getAllTags());
+  }
+
+  /**
+   * Tests that category tag changes in another blog don't cause the tags
+   * to be rebuilt.
+   */
+  @Test public void testAllTagsIgnoreOtherBlogs() {
+    blogEntry.setTags("junit");
+    List<Tag> tags = blogEntry.getAllTags();
+
+    Blog otherBlog = new Blog(new File(TEST_BLOG_LOCATION, "other").getAbsolutePath());
+    Category java = new Category("/java", "Java");
+    java.setBlog(otherBlog);
+    java.setTags("java");
+    assertSame(tags, blogEntry.getAllTags());
+  }
+
   /**
    * Tests that a nested comment can be removed.
    */
@@ -1003,4 +1072,4 @@ public class BlogEntryTest extends SingleBlogTestCase {
     assertEquals(0, blogEntry.getNumberOfTrackBacks());
    }
 
- }
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.api.event.blog.BlogEvent;
+import net.sourceforge.pebble.api.event.blog.BlogListener;
+import net.sourceforge.pebble.dao.DAOFactory;
+import net.sourceforge.pebble.dao.mock.MockDAOFactory;
+
+/**
+ * Tests for the BlogManager class.
+ */
+public class BlogManagerTest extends PebbleTestCase {
+
+  private BlogManager blogManager;
+
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    DAOFactory.setConfiguredFactory(new MockDAOFactory());
+    blogManager = BlogManager.getInstance();
+    blogManager.setMultiBlog(true);
+  }
+
+  @AfterEach protected void tearDown() throws Exception {
+    blogManager.stopBlogs();
+    blogManager.removeAllBlogs();
+    blogManager.setMultiBlog(false);
+
+    super.tearDown();
+  }
+
+  /**
+   * Tests that all blogs are started concurrently, and that each can be
+   * looked up while they are still starting.
+   */
+  @Test public void testStartBlogsConcurrently() throws Exception {
+    for (int i = 1; i <= 5; i++) {
+      new File(TEST_BLOG_LOCATION, "blogs/blog" + i).mkdirs();
+    }
+
+    final Set<String> started = Collections.synchronizedSet(new HashSet<String>());
+    blogManager.startBlogs(new BlogListener() {
+      public void blogStarted(BlogEvent event) {
+        started.add(event.getBlog().getId());
+      }
+
+      public void blogStopped(BlogEvent event) {
+      }
+    });
+
+    assertTrue(blogManager.hasBlog("blog3"));
+    assertFalse(blogManager.hasBlog("blog6"));
+    Blog blog = blogManager.getBlog("blog3");
+    assertNotNull(blog);
+    assertEquals("blog3", blog.getId());
+
+    // only blogs that have finished starting are listed
+    assertEquals(5, blogManager.getNumberOfBlogs());
+    assertTrue(blogManager.getBlogs().size() <= 5);
+
+    blogManager.awaitBlogs();
+    assertEquals(5, blogManager.getBlogs().size());
+    assertEquals(5, started.size());
+  }
+
+}
@@ -567,4 +567,24 @@ public class BlogTest extends SingleBlogTestCase {
     assertFalse(blog.getRecentApprovedResponses().contains(comment));
   }
 
-}
\ No newline at end of file
+  /**
+   * Tests that the content version moves on when blog entries and comments change.
+   */
+  @Test public void testContentVersionChangesWithContent() throws BlogServiceException {
+    BlogService service = new BlogService();
+    long version = blog.getContentVersion();
+
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle("title1");
+    blogEntry.setPublished(true);
+    service.putBlogEntry(blogEntry);
+    assertTrue(blog.getContentVersion() > version);
+
+    version = blog.getContentVersion();
+    Comment comment = blogEntry.createComment("title", "body", "author", "email", "website", "avatar", "127.0.0.1");
+    blogEntry.addComment(comment);
+    service.putBlogEntry(blogEntry);
+    assertTrue(blog.getContentVersion() > version);
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the CompiledRefererFilters class.
+ */
+public class CompiledRefererFiltersTest {
+
+  private static final String[] EXPRESSIONS = {
+      ".*casino.*",
+      ".*poker-online\\.net.*",
+      ".*cheap.pills.*",
+      "http://spam\\.example\\.org/.*",
+      ".*[0-9]{5}\\.info.*",
+      ".*(viagra|cialis).*",
+      "https?://(www\\.)?loans?\\.com/.*",
+      ".*\\x41DVERT.*",
+      ".*[^]x]buy.*",
+      "ab*c.*",
+      ".*/(\\w)\\1{3}/.*",
+      ".*\\Qa.b\\E.*",
+      ""
+  };
+
+  private static final String[] URLS = {
+      "http://www.casino.com/",
+      "http://www.example.com/casino/",
+      "http://www.example.com/",
+      "http://poker-online.net/",
+      "http://poker-onlineXnet/",
+      "http://cheap-pills.biz/",
+      "http://spam.example.org/page",
+      "http://www.spam.example.org/page",
+      "http://12345.info/",
+      "http://1234.info/",
+      "http://www.viagra.com/",
+      "http://www.cialis.com/",
+      "https://loans.com/x",
+      "http://www.loan.com/x",
+      "http://loan.com",
+      "http://example.com/ADVERT",
+      "http://example.com/zbuy",
+      "http://example.com/]buy",
+      "acccc",
+      "abbbbc",
+      "http://example.com/aaaa/",
+      "http://example.com/a.b",
+      "http://example.com/aXb",
+      "",
+      "no scheme at all",
+      "http://user@casino.com:8080/path",
+      "https://casino.example.com/a",
+      "http://spam.example.org",
+      "http://www.example.com/?casino",
+  };
+
+  private List<RefererFilter> getFilters() {
+    List<RefererFilter> filters = new ArrayList<RefererFilter>();
+    for (String expression : EXPRESSIONS) {
+      filters.add(new RefererFilter(expression));
+    }
+    return filters;
+  }
+
+  private boolean matchesAny(List<RefererFilter> filters, String url) {
+    for (RefererFilter filter : filters) {
+      if (filter.getCompiledExpression().matcher(url).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tests that the compiled filters give the same verdicts as trying each
+   * expression in turn, including when the verdicts come from the caches.
+   */
+  @Test public void testVerdictsMatchEachExpression() {
+    List<RefererFilter> filters = getFilters();
+    CompiledRefererFilters compiled = new CompiledRefererFilters(filters);
+
+    for (int pass = 0; pass < 2; pass++) {
+      for (String url : URLS) {
+        assertEquals(matchesAny(filters, url), compiled.matches(url), url);
+      }
+    }
+  }
+
+  /**
+   * Tests that each expression on its own gives the same verdicts.
+   */
+  @Test public void testSingleExpressions() {
+    for (String expression : EXPRESSIONS) {
+      List<RefererFilter> filters = new ArrayList<RefererFilter>();
+      filters.add(new RefererFilter(expression));
+      CompiledRefererFilters compiled = new CompiledRefererFilters(filters);
+      for (String url : URLS) {
+        assertEquals(matchesAny(filters, url), compiled.matches(url), expression + " " + url);
+      }
+    }
+  }
+
+  @Test public void testRequiredLiteral() {
+    assertEquals("spam", CompiledRefererFilters.getRequiredLiteral(".*spam.*"));
+    assertEquals("example", CompiledRefererFilters.getRequiredLiteral(".*www.example.com.*"));
+    assertEquals("http://www.example.com/", CompiledRefererFilters.getRequiredLiteral("http://www\\.example\\.com/.*"));
+    assertEquals("http", CompiledRefererFilters.getRequiredLiteral("https?:"));
+    assertEquals(".info", CompiledRefererFilters.getRequiredLiteral(".*[0-9]{5}\\.info.*"));
+    assertNull(CompiledRefererFilters.getRequiredLiteral(".*(a|b).*"));
+    assertNull(CompiledRefererFilters.getRequiredLiteral(".*\\x41BC.*"));
+  }
+
+  @Test public void testHost() {
+    assertEquals("www.example.com", CompiledRefererFilters.getHost("http://www.example.com/page"));
+    assertEquals("www.example.com:8080", CompiledRefererFilters.getHost("http://www.example.com:8080?q=1"));
+    assertNull(CompiledRefererFilters.getHost("www.example.com"));
+    assertNull(CompiledRefererFilters.getHost("http:///page"));
+  }
+
+  @Test public void testOrigin() {
+    assertEquals("http://www.example.com", CompiledRefererFilters.getOrigin("http://www.example.com/page"));
+    assertEquals("https://www.example.com:8080", CompiledRefererFilters.getOrigin("https://www.example.com:8080?q=1"));
+    assertNull(CompiledRefererFilters.getOrigin("www.example.com"));
+    assertNull(CompiledRefererFilters.getOrigin("http:///page"));
+  }
+
+  @Test public void testOriginPattern() {
+    assertEquals(".*casino", CompiledRefererFilters.getOriginPattern(".*casino.*").pattern());
+    assertEquals("http://spam\\.example\\.org/", CompiledRefererFilters.getOriginPattern("http://spam\\.example\\.org/.*").pattern());
+    assertNull(CompiledRefererFilters.getOriginPattern(".*casino"));
+    assertNull(CompiledRefererFilters.getOriginPattern(".*casino\\.*"));
+    assertNull(CompiledRefererFilters.getOriginPattern(".*casino\\b.*"));
+    assertNull(CompiledRefererFilters.getOriginPattern(".*casino$.*"));
+    assertNull(CompiledRefererFilters.getOriginPattern(".*casino(?!x).*"));
+    assertNull(CompiledRefererFilters.getOriginPattern("\\Qcasino.*"));
+    assertNull(CompiledRefererFilters.getOriginPattern("a|casino.*"));
+  }
+
+}
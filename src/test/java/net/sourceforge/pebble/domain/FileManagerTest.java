@@ -39,13 +39,19 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import net.sourceforge.pebble.PebbleContext;
+
 /**
  * Tests for the FileManager class.
  *
@@ -531,4 +537,129 @@ public class FileManagerTest extends SingleBlogTestCase {
     themeDirectory.delete();
   }
 
+  /**
+   * Tests that an upload is written to a temporary file and can then be
+   * moved to its final name.
+   */
+  @Test public void testWriteAndMoveTemporaryFile() throws Exception {
+    File temporaryFile = fileManager.writeTemporaryFile("/", new ByteArrayInputStream("Some content".getBytes(StandardCharsets.UTF_8)));
+    assertTrue(temporaryFile.exists());
+    assertEquals(12, temporaryFile.length());
+    assertEquals(FileManager.getStagingDirectory(blog), temporaryFile.getParentFile());
+
+    File file = fileManager.moveTemporaryFile(temporaryFile, "/", "a.txt");
+    assertFalse(temporaryFile.exists());
+    assertEquals("Some content", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    assertEquals(12.0 / 1024, FileManager.getCurrentUsage(blog), 0.0001);
+
+    // and clean up
+    fileManager.deleteFile("/", "a.txt");
+    assertEquals(0, FileManager.getCurrentUsage(blog), 0.0001);
+  }
+
+  /**
+   * Tests that writing stops as soon as the quota is exceeded, and that
+   * nothing is left behind.
+   */
+  @Test public void testWriteTemporaryFileOverQuota() throws Exception {
+    PebbleContext.getInstance().getConfiguration().setFileUploadQuota(1);
+    try {
+      fileManager.writeTemporaryFile("/", new ByteArrayInputStream(new byte[4096]));
+      fail();
+    } catch (NotEnoughSpaceException e) {
+      // expected
+    } finally {
+      PebbleContext.getInstance().getConfiguration().setFileUploadQuota(-1);
+    }
+
+    assertEquals(0, fileManager.getRootDirectory().list().length);
+    assertEquals(0, FileManager.getStagingDirectory(blog).list().length);
+    assertEquals(0, FileManager.getCurrentUsage(blog), 0.0001);
+  }
+
+  /**
+   * Tests that the space reserved for staged files survives the total being
+   * recalculated from disk, so that concurrent uploads can't exceed the quota.
+   */
+  @Test public void testReservationsSurviveRecalculation() throws Exception {
+    File temporaryFile = fileManager.writeTemporaryFile("/", new ByteArrayInputStream(new byte[1024]));
+    assertEquals(1.0, FileManager.getCurrentUsage(blog), 0.0001);
+
+    blog.getFileUsage().reset();
+    assertEquals(1.0, FileManager.getCurrentUsage(blog), 0.0001);
+
+    PebbleContext.getInstance().getConfiguration().setFileUploadQuota(1);
+    try {
+      fileManager.writeTemporaryFile("/", new ByteArrayInputStream(new byte[16]));
+      fail();
+    } catch (NotEnoughSpaceException e) {
+      // expected
+    } finally {
+      PebbleContext.getInstance().getConfiguration().setFileUploadQuota(-1);
+    }
+
+    fileManager.discardTemporaryFile(temporaryFile);
+    assertEquals(0, FileManager.getCurrentUsage(blog), 0.0001);
+  }
+
+  /**
+   * Tests that a temporary file that can't be moved into place is discarded,
+   * and its reservation released.
+   */
+  @Test public void testFailedMoveReleasesReservation() throws Exception {
+    File directory = new File(fileManager.getRootDirectory(), "a.txt");
+    directory.mkdirs();
+    Files.write(new File(directory, "b.txt").toPath(), new byte[16]);
+    double usage = FileManager.getCurrentUsage(blog);
+
+    File temporaryFile = fileManager.writeTemporaryFile("/", new ByteArrayInputStream(new byte[1024]));
+    assertEquals(usage + 1.0, FileManager.getCurrentUsage(blog), 0.0001);
+    try {
+      fileManager.moveTemporaryFile(temporaryFile, "/", "a.txt");
+      fail();
+    } catch (IOException e) {
+      // expected, as there's a directory in the way
+    }
+
+    assertFalse(temporaryFile.exists());
+    assertEquals(usage, FileManager.getCurrentUsage(blog), 0.0001);
+
+    // and clean up
+    fileManager.deleteFile("/", "a.txt");
+  }
+
+  /**
+   * Tests that only temporary files that have been around for a while are
+   * treated as abandoned.
+   */
+  @Test public void testDeleteAbandonedTemporaryFiles() throws Exception {
+    File recent = fileManager.writeTemporaryFile("/", new ByteArrayInputStream(new byte[16]));
+    File abandoned = fileManager.writeTemporaryFile("/", new ByteArrayInputStream(new byte[16]));
+    abandoned.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000L);
+
+    FileManager.deleteAbandonedTemporaryFiles(blog);
+    assertTrue(recent.exists());
+    assertFalse(abandoned.exists());
+
+    // and clean up
+    fileManager.discardTemporaryFile(recent);
+  }
+
+  /**
+   * Tests that a file can be linked (or copied) into another location.
+   */
+  @Test public void testLinkFile() throws Exception {
+    fileManager.saveFile("/", "a.txt", "Some content");
+    File source = fileManager.getFile("/a.txt");
+    FileManager blogData = new FileManager(blog, FileMetaData.BLOG_DATA);
+    File link = blogData.linkFile(source, "/links", "b.txt");
+
+    assertEquals("Some content", new String(Files.readAllBytes(link.toPath()), StandardCharsets.UTF_8));
+    assertEquals("Some content", new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8));
+
+    // and clean up
+    blogData.deleteFile("/links", "b.txt");
+    fileManager.deleteFile("/", "a.txt");
+  }
+
 }
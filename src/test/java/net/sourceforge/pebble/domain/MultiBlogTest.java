@@ -35,10 +35,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Date;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import net.sourceforge.pebble.PebbleContext;
+
 /**
  * Tests for the MultiBlog class.
  *
@@ -88,4 +91,63 @@ public class MultiBlogTest extends MultiBlogTestCase {
     assertTrue(blog.getRecentBlogEntries(1).contains(blogEntry));
   }
 
+  /**
+   * Tests that recent blog entries from several blogs are merged newest first,
+   * and that unpublished blog entries are removed.
+   */
+  @Test public void testRecentBlogEntriesAcrossBlogs() throws BlogServiceException {
+    BlogService service = new BlogService();
+    BlogEntry blogEntry1 = new BlogEntry(blog1);
+    blogEntry1.setDate(new Date(1000));
+    blogEntry1.setPublished(true);
+    service.putBlogEntry(blogEntry1);
+
+    // populate the index before adding more entries
+    assertEquals(1, blog.getRecentBlogEntries(3).size());
+
+    BlogEntry blogEntry2 = new BlogEntry(blog2);
+    blogEntry2.setDate(new Date(2000));
+    blogEntry2.setPublished(true);
+    service.putBlogEntry(blogEntry2);
+    BlogEntry blogEntry3 = new BlogEntry(blog1);
+    blogEntry3.setDate(new Date(3000));
+    blogEntry3.setPublished(true);
+    service.putBlogEntry(blogEntry3);
+
+    List<BlogEntry> blogEntries = blog.getRecentBlogEntries(3);
+    assertEquals(3, blogEntries.size());
+    assertEquals(blogEntry3, blogEntries.get(0));
+    assertEquals(blogEntry2, blogEntries.get(1));
+    assertEquals(blogEntry1, blogEntries.get(2));
+    assertEquals(new Date(3000), blog.getLastModified());
+
+    blogEntry3.setPublished(false);
+    service.putBlogEntry(blogEntry3);
+
+    blogEntries = blog.getRecentBlogEntries(3);
+    assertEquals(2, blogEntries.size());
+    assertEquals(blogEntry2, blogEntries.get(0));
+    assertEquals(new Date(2000), blog.getLastModified());
+  }
+
+  /**
+   * Tests that asking for more recent blog entries than the configured
+   * maximum only returns (and keeps) the maximum.
+   */
+  @Test public void testRecentBlogEntriesAreLimitedToMaximum() throws BlogServiceException {
+    PebbleContext.getInstance().getConfiguration().setRecentBlogEntriesMaximum(50);
+    BlogService service = new BlogService();
+    for (int i = 0; i < 51; i++) {
+      BlogEntry blogEntry = new BlogEntry(blog1);
+      blogEntry.setDate(new Date(100000 + i * 1000));
+      blogEntry.setPublished(true);
+      service.putBlogEntry(blogEntry);
+    }
+
+    List<BlogEntry> blogEntries = blog.getRecentBlogEntries(1000);
+    assertEquals(50, blogEntries.size());
+    assertEquals(new Date(100000 + 50 * 1000), blogEntries.get(0).getDate());
+    assertEquals(50, blog.getRecentBlogEntries(Integer.MAX_VALUE).size());
+  }
+
 }
@@ -32,6 +32,8 @@
 package net.sourceforge.pebble.domain;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
@@ -103,6 +105,30 @@ public class RefererFilterManagerTest extends SingleBlogTestCase {
     Referer url3 = new Referer("http://www.yahoo.com");
     referers.add(url3);
     assertEquals(3, referers.size());
+
+    refererFilterManager.addFilter(new RefererFilter(".*test.com.*"));
+    refererFilterManager.addFilter(new RefererFilter("http://www\\.yahoo\\.com/search.*"));
+    List filtered = refererFilterManager.filter(referers);
+    assertEquals(2, filtered.size());
+    assertSame(url1, filtered.get(0));
+    assertSame(url3, filtered.get(1));
+  }
+
+  /**
+   * Tests that verdicts are recalculated when the filters change.
+   */
+  @Test public void testVerdictsFollowFilterChanges() {
+    assertFalse(refererFilterManager.isFiltered("http://www.spam.com/page.html"));
+
+    refererFilterManager.addFilter(new RefererFilter(".*spam.com.*"));
+    assertTrue(refererFilterManager.isFiltered("http://www.spam.com/page.html"));
+    assertTrue(refererFilterManager.isFiltered("http://www.spam.com/other.html"));
+    assertTrue(refererFilterManager.isFiltered("http://www.example.com/?q=spam.com"));
+    assertFalse(refererFilterManager.isFiltered("http://www.example.com/"));
+    assertFalse(refererFilterManager.isFiltered(null));
+
+    refererFilterManager.removeFilter(".*spam.com.*");
+    assertFalse(refererFilterManager.isFiltered("http://www.spam.com/page.html"));
   }
 
   /** todo
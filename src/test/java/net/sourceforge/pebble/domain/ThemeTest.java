@@ -32,11 +32,17 @@
 package net.sourceforge.pebble.domain;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Tests for the Theme class.
@@ -47,6 +53,8 @@ public class ThemeTest extends SingleBlogTestCase {
 
   private Theme theme;
 
+  @TempDir File themes;
+
   @BeforeEach protected void setUp() throws Exception {
     super.setUp();
 
@@ -65,4 +73,78 @@ public class ThemeTest extends SingleBlogTestCase {
     assertEquals(new File("/tmp/themes/custom"), theme.getPathToLiveTheme());
   }
 
+  private static void write(File file, String content) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  @Test public void testRestoreCopiesTheDefaultThemeTheFirstTime() throws Exception {
+    write(new File(themes, "default/theme.css"), "body {}");
+    write(new File(themes, "default/images/logo.txt"), "logo");
+    theme = new Theme(blog, "custom", themes.getAbsolutePath());
+
+    theme.restore();
+    assertEquals("body {}", read(new File(theme.getBackupThemeDirectory(), "theme.css")));
+    assertEquals("body {}", read(new File(theme.getPathToLiveTheme(), "theme.css")));
+    assertEquals("logo", read(new File(theme.getPathToLiveTheme(), "images/logo.txt")));
+  }
+
+  @Test public void testOnlyChangedFilesAreCopied() throws Exception {
+    write(new File(themes, "default/theme.css"), "body {}");
+    write(new File(themes, "default/header.jsp"), "header");
+    write(new File(themes, "default/footer.jsp"), "footer");
+    theme = new Theme(blog, "custom", themes.getAbsolutePath());
+    theme.restore();
+
+    // a live file with the same size and timestamp is taken to be unchanged
+    File live = new File(theme.getPathToLiveTheme(), "theme.css");
+    long lastModified = live.lastModified();
+    write(live, "html {}");
+    live.setLastModified(lastModified);
+
+    File backup = new File(theme.getBackupThemeDirectory());
+    write(new File(backup, "header.jsp"), "a new header");
+    new File(backup, "footer.jsp").delete();
+    write(new File(backup, "sidebar.jsp"), "sidebar");
+
+    theme.restore();
+    assertEquals("html {}", read(live));
+    assertEquals("a new header", read(new File(theme.getPathToLiveTheme(), "header.jsp")));
+    assertFalse(new File(theme.getPathToLiveTheme(), "footer.jsp").exists());
+    assertEquals("sidebar", read(new File(theme.getPathToLiveTheme(), "sidebar.jsp")));
+    assertEquals(3, theme.getPathToLiveTheme().list().length);
+  }
+
+  @Test public void testBackupCopiesChangesToTheBlog() throws Exception {
+    write(new File(themes, "default/theme.css"), "body {}");
+    theme = new Theme(blog, "custom", themes.getAbsolutePath());
+    theme.restore();
+
+    write(new File(theme.getPathToLiveTheme(), "theme.css"), "body { color: red; }");
+    theme.backup();
+    assertEquals("body { color: red; }", read(new File(theme.getBackupThemeDirectory(), "theme.css")));
+
+    // a backup with nothing to back up leaves the blog's copy alone
+    theme = new Theme(blog, "missing", themes.getAbsolutePath());
+    theme.backup();
+    assertTrue(new File(theme.getBackupThemeDirectory(), "theme.css").exists());
+  }
+
+  @Test public void testRestoreToSpecifiedTheme() throws Exception {
+    write(new File(themes, "default/theme.css"), "body {}");
+    write(new File(themes, "default/default.jsp"), "default");
+    write(new File(themes, "other/theme.css"), "p {}");
+    theme = new Theme(blog, "custom", themes.getAbsolutePath());
+    theme.restore();
+
+    theme.restoreToSpecifiedTheme("other");
+    assertEquals("p {}", read(new File(theme.getBackupThemeDirectory(), "theme.css")));
+    assertEquals("p {}", read(new File(theme.getPathToLiveTheme(), "theme.css")));
+    assertFalse(new File(theme.getPathToLiveTheme(), "default.jsp").exists());
+  }
+
 }
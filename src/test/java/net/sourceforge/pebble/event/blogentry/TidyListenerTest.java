@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.event.blogentry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.api.event.blogentry.BlogEntryEvent;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+import net.sourceforge.pebble.util.HtmlTidier;
+
+/**
+ * Tests for the TidyListener class.
+ */
+public class TidyListenerTest extends SingleBlogTestCase {
+
+  private TidyListener listener;
+  private BlogEntry blogEntry;
+
+  /**
+   * Common setup code.
+   */
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    listener = new TidyListener();
+    blogEntry = new BlogEntry(blog);
+  }
+
+  /**
+   * Tests the blogEntryAdded() method.
+   */
+  @Test public void testBlogEntryAdded() {
+    blogEntry.setExcerpt("");
+    blogEntry.setBody("<p>Some <b>bold<br>text");
+    listener.blogEntryAdded(new BlogEntryEvent(blogEntry, BlogEntryEvent.BLOG_ENTRY_ADDED));
+
+    assertEquals("", blogEntry.getExcerpt());
+    assertTrue(blogEntry.getBody().startsWith("<p>Some <b>bold<br />"));
+    assertTrue(blogEntry.getBody().endsWith("</b></p>"));
+  }
+
+  /**
+   * Tests that characters outside of ASCII survive tidying.
+   */
+  @Test public void testNonAsciiCharacters() {
+    blogEntry.setBody("<p>Café – 日本語");
+    listener.blogEntryAdded(new BlogEntryEvent(blogEntry, BlogEntryEvent.BLOG_ENTRY_ADDED));
+
+    assertEquals("<p>Café – 日本語</p>", blogEntry.getBody());
+  }
+
+  /**
+   * Tests that blog entries are tidied before they are saved.
+   */
+  @Test public void testBlogEntriesAreTidiedBeforeBeingSaved() throws Exception {
+    blog.getEventListenerList().addBlogEntryListener(listener);
+    blogEntry.setBody("<ul><li>One<li>Two</ul>");
+    new BlogService().putBlogEntry(blogEntry);
+
+    String body = new BlogService().getBlogEntry(blog, blogEntry.getId()).getBody();
+    assertTrue(body.contains("<li>One</li>"));
+    assertTrue(body.contains("<li>Two</li>"));
+  }
+
+  /**
+   * Tests that content that hasn't changed since it was tidied isn't tidied
+   * again.
+   */
+  @Test public void testTidiedContentIsRemembered() {
+    HtmlTidier tidier = HtmlTidier.getInstance();
+    String tidied = tidier.tidy("<p>Remember <i>me");
+    assertSame(tidied, tidier.tidy("<p>Remember <i>me"));
+    assertSame(tidied, tidier.tidy(tidied));
+  }
+
+}
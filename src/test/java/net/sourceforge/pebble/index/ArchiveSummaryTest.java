@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Calendar;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.Month;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+
+/**
+ * Tests for the ArchiveSummary class, as maintained by the blog entry index.
+ */
+public class ArchiveSummaryTest extends SingleBlogTestCase {
+
+  private BlogEntry createBlogEntry(int year, int month, int day, int hour, boolean published) throws Exception {
+    Calendar cal = blog.getCalendar();
+    cal.clear();
+    cal.set(year, month - 1, day, hour, 0, 0);
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setDate(cal.getTime());
+    blogEntry.setPublished(published);
+    new BlogService().putBlogEntry(blogEntry);
+
+    return blogEntry;
+  }
+
+  @Test public void testEmptyBlog() {
+    ArchiveSummary summary = blog.getBlogEntryIndex().getArchiveSummary();
+    assertNull(summary.getFirstBlogEntry());
+    assertEquals(0, summary.getNumberOfBlogEntries(2011, 3));
+    assertEquals(0, summary.getNumberOfBlogEntries(2011, 3, 1));
+    assertSame(blog.getBlogForThisMonth(), blog.getBlogForFirstMonth());
+  }
+
+  @Test public void testSummaryFollowsTheIndex() throws Exception {
+    BlogEntry first = createBlogEntry(2011, 3, 5, 9, true);
+    BlogEntry second = createBlogEntry(2011, 3, 5, 10, true);
+    BlogEntry third = createBlogEntry(2011, 3, 20, 9, true);
+    createBlogEntry(2011, 4, 1, 9, false);
+
+    ArchiveSummary summary = blog.getBlogEntryIndex().getArchiveSummary();
+    assertEquals(3, summary.getNumberOfBlogEntries(2011, 3));
+    assertEquals(2, summary.getNumberOfBlogEntries(2011, 3, 5));
+    assertEquals(1, summary.getNumberOfBlogEntries(2011, 3, 20));
+    assertEquals(0, summary.getNumberOfBlogEntries(2011, 3, 6));
+    assertEquals(first.getId(), summary.getFirstBlogEntry(2011, 3));
+    assertEquals(third.getId(), summary.getLastBlogEntry(2011, 3));
+
+    // unpublished blog entries aren't counted
+    assertEquals(0, summary.getNumberOfBlogEntries(2011, 4));
+    assertNull(summary.getFirstBlogEntry(2011, 4));
+
+    // the first month is worked out from all blog entries
+    assertEquals(first.getId(), summary.getFirstBlogEntry());
+    Month firstMonth = blog.getBlogForFirstMonth();
+    assertEquals(2011, firstMonth.getYear().getYear());
+    assertEquals(3, firstMonth.getMonth());
+    assertEquals(3, firstMonth.getNumberOfBlogEntries());
+    assertTrue(firstMonth.hasBlogEntries());
+
+    // and the summary is replaced when blog entries are removed
+    new BlogService().removeBlogEntry(second);
+    assertEquals(3, summary.getNumberOfBlogEntries(2011, 3));
+    summary = blog.getBlogEntryIndex().getArchiveSummary();
+    assertEquals(2, summary.getNumberOfBlogEntries(2011, 3));
+    assertEquals(1, summary.getNumberOfBlogEntries(2011, 3, 5));
+  }
+
+  @Test public void testPublishingMovesTheCounts() throws Exception {
+    BlogEntry blogEntry = createBlogEntry(2011, 4, 1, 9, false);
+    assertEquals(0, blog.getBlogForMonth(2011, 4).getNumberOfBlogEntries());
+
+    blogEntry.setPublished(true);
+    new BlogService().putBlogEntry(blogEntry);
+
+    ArchiveSummary summary = blog.getBlogEntryIndex().getArchiveSummary();
+    assertEquals(1, summary.getNumberOfBlogEntries(2011, 4, 1));
+    assertEquals(blogEntry.getId(), summary.getLastBlogEntry(2011, 4));
+    assertEquals(1, blog.getBlogForMonth(2011, 4).getNumberOfBlogEntries());
+  }
+
+}
@@ -35,6 +35,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Date;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -102,4 +104,25 @@ public class AuthorIndexTest extends SingleBlogTestCase {
     assertEquals(0, index.getRecentBlogEntries("sbrown").size());
   }
 
+  /**
+   * Tests that the index can be read a slice at a time, most recent first.
+   */
+  @Test public void testGetRecentBlogEntriesSlice() throws Exception {
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 5; i++) {
+      BlogEntry blogEntry = new BlogEntry(blog);
+      blogEntry.setDate(new Date(now - (i * 1000)));
+      blogEntry.setAuthor("sbrown");
+      blogEntry.setPublished(true);
+      index.index(blogEntry);
+    }
+
+    assertEquals(5, index.getNumberOfBlogEntries("sbrown"));
+    assertEquals(index.getRecentBlogEntries("sbrown").subList(2, 4), index.getRecentBlogEntries("sbrown", 2, 2));
+    assertEquals("" + now, index.getRecentBlogEntries("sbrown", 0, 1).get(0));
+    assertTrue(index.getRecentBlogEntries("sbrown", 5, 2).isEmpty());
+    assertEquals(0, index.getNumberOfBlogEntries("nobody"));
+    assertTrue(index.getRecentBlogEntries("nobody", 0, 2).isEmpty());
+  }
+
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+
+/**
+ * Tests for the BlogEntryNeighbourCache class and the neighbour lookups in
+ * the blog entry index.
+ */
+public class BlogEntryNeighbourCacheTest extends SingleBlogTestCase {
+
+  private BlogEntry createBlogEntry(int day, String title, boolean published) throws Exception {
+    Calendar cal = blog.getCalendar();
+    cal.clear();
+    cal.set(2011, Calendar.MARCH, day, 9, 0, 0);
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setDate(cal.getTime());
+    blogEntry.setTitle(title);
+    blogEntry.setPublished(published);
+    new BlogService().putBlogEntry(blogEntry);
+
+    return blogEntry;
+  }
+
+  @Test public void testIndexSkipsUnpublishedBlogEntries() throws Exception {
+    BlogEntry first = createBlogEntry(1, "First", true);
+    BlogEntry draft = createBlogEntry(2, "Draft", false);
+    BlogEntry last = createBlogEntry(3, "Last", true);
+
+    BlogEntryIndex index = blog.getBlogEntryIndex();
+    assertNull(index.getPreviousPublishedBlogEntry(first.getId()));
+    assertEquals(last.getId(), index.getNextPublishedBlogEntry(first.getId()));
+    assertEquals(first.getId(), index.getPreviousPublishedBlogEntry(last.getId()));
+    assertNull(index.getNextPublishedBlogEntry(last.getId()));
+
+    // a blog entry that isn't published still sits between its neighbours
+    assertEquals(first.getId(), index.getPreviousPublishedBlogEntry(draft.getId()));
+    assertEquals(last.getId(), index.getNextPublishedBlogEntry(draft.getId()));
+  }
+
+  @Test public void testNeighboursAreLinks() throws Exception {
+    BlogEntry first = createBlogEntry(1, "First", true);
+    BlogEntry second = createBlogEntry(2, "Second", true);
+    BlogEntry third = createBlogEntry(3, "Third", true);
+
+    BlogEntryNeighbourCache cache = blog.getBlogEntryNeighbourCache();
+    BlogEntryNeighbourCache.Neighbours neighbours = cache.getNeighbours(second);
+    assertEquals(first.getId(), neighbours.getPrevious().getId());
+    assertEquals("First", neighbours.getPrevious().getTitle());
+    assertEquals(first.getLocalPermalink(), neighbours.getPrevious().getLocalPermalink());
+    assertEquals(third.getId(), neighbours.getNext().getId());
+    assertEquals("Third", neighbours.getNext().getTitle());
+    assertEquals(1, cache.size());
+    assertSame(neighbours, cache.getNeighbours(second));
+
+    neighbours = cache.getNeighbours(third);
+    assertEquals(second.getId(), neighbours.getPrevious().getId());
+    assertNull(neighbours.getNext());
+    assertEquals(2, cache.size());
+  }
+
+  @Test public void testCacheIsClearedWhenBlogEntriesChange() throws Exception {
+    BlogService service = new BlogService();
+    BlogEntry first = createBlogEntry(1, "First", true);
+    BlogEntry second = createBlogEntry(2, "Second", true);
+
+    BlogEntryNeighbourCache cache = blog.getBlogEntryNeighbourCache();
+    cache.getNeighbours(second);
+    assertEquals(1, cache.size());
+
+    // retitling a neighbour changes its link
+    first = service.getBlogEntry(blog, first.getId());
+    first.setTitle("Retitled");
+    service.putBlogEntry(first);
+    assertEquals(0, cache.size());
+    assertEquals("Retitled", cache.getNeighbours(second).getPrevious().getTitle());
+
+    assertNull(cache.getNeighbours(second).getNext());
+
+    // a new blog entry changes the neighbours
+    BlogEntry third = createBlogEntry(3, "Third", true);
+    assertEquals(0, cache.size());
+    assertEquals(third.getId(), cache.getNeighbours(second).getNext().getId());
+  }
+
+  @Test public void testBlogEntriesInTheFutureAreNotNext() throws Exception {
+    BlogEntry first = createBlogEntry(1, "First", true);
+    BlogEntry scheduled = new BlogEntry(blog);
+    scheduled.setDate(new Date(System.currentTimeMillis() + 60 * 60 * 1000L));
+    scheduled.setTitle("Scheduled");
+    scheduled.setPublished(true);
+    new BlogService().putBlogEntry(scheduled);
+
+    BlogEntryIndex index = blog.getBlogEntryIndex();
+    assertTrue(index.hasScheduledBlogEntries());
+    assertNull(index.getNextPublishedBlogEntry(first.getId()));
+    assertEquals(first.getId(), index.getPreviousPublishedBlogEntry(scheduled.getId()));
+
+    // the scheduled blog entry will become the next one, so nothing is remembered yet
+    BlogEntryNeighbourCache cache = blog.getBlogEntryNeighbourCache();
+    assertNull(cache.getNeighbours(first).getNext());
+    assertEquals(0, cache.size());
+  }
+
+}
@@ -35,6 +35,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Date;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -88,6 +90,26 @@ public class CategoryIndexTest extends SingleBlogTestCase {
     assertFalse(index.getRecentBlogEntries(javaCategory).contains(blogEntry.getId()));
   }
 
+  /**
+   * Tests that the index can be read a slice at a time, most recent first.
+   */
+  @Test public void testGetRecentBlogEntriesSlice() throws Exception {
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 5; i++) {
+      BlogEntry blogEntry = new BlogEntry(blog);
+      blogEntry.setDate(new Date(now - (i * 1000)));
+      blogEntry.addCategory(javaCategory);
+      blogEntry.setPublished(true);
+      index.index(blogEntry);
+    }
+
+    assertEquals(5, index.getNumberOfBlogEntries(javaCategory));
+    assertEquals(index.getRecentBlogEntries(javaCategory).subList(0, 2), index.getRecentBlogEntries(javaCategory, 0, 2));
+    assertEquals(index.getRecentBlogEntries(javaCategory).subList(4, 5), index.getRecentBlogEntries(javaCategory, 4, 2));
+    assertEquals("" + now, index.getRecentBlogEntries(javaCategory, 0, 1).get(0));
+    assertTrue(index.getRecentBlogEntries(javaCategory, 5, 2).isEmpty());
+  }
+
 //  /**
 //   * Tests that category/tag statistics are updated.
 //   */
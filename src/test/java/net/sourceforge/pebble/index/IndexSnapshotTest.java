@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Calendar;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.Category;
+import net.sourceforge.pebble.domain.Day;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+
+/**
+ * Tests for the IndexSnapshot class.
+ */
+public class IndexSnapshotTest extends SingleBlogTestCase {
+
+  private Category javaCategory;
+
+  private BlogEntry addBlogEntry() throws Exception {
+    javaCategory = new Category("/java", "Java");
+    blog.addCategory(javaCategory);
+
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle("A title");
+    blogEntry.setTags("junit");
+    blogEntry.addCategory(javaCategory);
+    blogEntry.setPublished(true);
+    new BlogService().putBlogEntry(blogEntry);
+
+    return blogEntry;
+  }
+
+  /**
+   * Tests that an up to date snapshot holds the indexes as they were built,
+   * without reading the index files.
+   */
+  @Test public void testSnapshotUsedWhenUpToDate() throws Exception {
+    BlogEntry blogEntry = addBlogEntry();
+    IndexSnapshot.write(blog);
+    assertTrue(new File(blog.getIndexesDirectory(), "indexes.snapshot").exists());
+
+    // overwrite the tag index without changing its size or modification time,
+    // so that only the snapshot still holds the original content
+    File tagIndexFile = new File(blog.getIndexesDirectory(), "tags.index");
+    long lastModified = tagIndexFile.lastModified();
+    byte[] content = new byte[(int)tagIndexFile.length()];
+    Arrays.fill(content, (byte)'\n');
+    FileOutputStream out = new FileOutputStream(tagIndexFile);
+    out.write(content);
+    out.close();
+    tagIndexFile.setLastModified(lastModified);
+
+    javaCategory.removeAllBlogEntries();
+
+    IndexSnapshot snapshot = IndexSnapshot.read(blog);
+    assertNotNull(snapshot);
+    assertEquals(1, snapshot.getTagIndex().getTag("junit").getNumberOfBlogEntries());
+    assertEquals(blogEntry.getId(), snapshot.getBlogEntryIndex().getPublishedBlogEntries().get(0));
+    assertEquals(blogEntry.getId(), snapshot.getAuthorIndex().getRecentBlogEntries(blogEntry.getAuthor()).get(0));
+
+    // the years, months and days come back attached to the blog
+    Calendar cal = blog.getCalendar();
+    cal.setTime(blogEntry.getDate());
+    Day day = null;
+    for (Day d : snapshot.getYears().get(0).getBlogForMonth(cal.get(Calendar.MONTH) + 1).getAllDays()) {
+      if (d.hasBlogEntries()) {
+        day = d;
+      }
+    }
+    assertNotNull(day);
+    assertSame(blog, day.getBlog());
+    assertEquals(blogEntry.getId(), day.getBlogEntries().get(0));
+
+    // and the category index puts the blog entries back into the categories
+    assertEquals(1, javaCategory.getNumberOfBlogEntries());
+
+    assertEquals(0, new TagIndex(blog).getTag("junit").getNumberOfBlogEntries());
+  }
+
+  /**
+   * Tests that the snapshot is ignored once an index file has changed.
+   */
+  @Test public void testSnapshotIgnoredWhenIndexChanged() throws Exception {
+    addBlogEntry();
+    IndexSnapshot.write(blog);
+
+    FileWriter writer = new FileWriter(new File(blog.getIndexesDirectory(), "tags.index"), true);
+    writer.write("other=123\n");
+    writer.close();
+
+    assertNull(IndexSnapshot.read(blog));
+  }
+
+  /**
+   * Tests that the snapshot is ignored once the blog's categories have changed.
+   */
+  @Test public void testSnapshotIgnoredWhenCategoriesChanged() throws Exception {
+    addBlogEntry();
+    IndexSnapshot.write(blog);
+
+    FileWriter writer = new FileWriter(new File(blog.getRoot(), "categories.xml"), true);
+    writer.write("<!-- changed -->");
+    writer.close();
+
+    assertNull(IndexSnapshot.read(blog));
+  }
+
+  /**
+   * Tests that a corrupt snapshot is ignored.
+   */
+  @Test public void testCorruptSnapshotIgnored() throws Exception {
+    addBlogEntry();
+    IndexSnapshot.write(blog);
+
+    RandomAccessFile file = new RandomAccessFile(new File(blog.getIndexesDirectory(), "indexes.snapshot"), "rw");
+    file.seek(12);
+    int b = file.read();
+    file.seek(12);
+    file.write(b ^ 0xff);
+    file.close();
+
+    assertNull(IndexSnapshot.read(blog));
+  }
+
+  /**
+   * Tests that shutting down stops the prefetch thread, and that prefetching
+   * starts it again afterwards.
+   */
+  @Test public void testShutdownStopsPrefetchThread() throws Exception {
+    addBlogEntry();
+    IndexSnapshot.prefetch(blog);
+    IndexSnapshot.shutdown();
+    assertFalse(isPrefetchThreadAlive());
+
+    IndexSnapshot.prefetch(blog);
+    IndexSnapshot.shutdown();
+    assertFalse(isPrefetchThreadAlive());
+  }
+
+  private static boolean isPrefetchThreadAlive() throws InterruptedException {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("pebble-prefetch")) {
+        thread.join(5000);
+        if (thread.isAlive()) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.domain.Blog;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.MultiBlogTestCase;
+import net.sourceforge.pebble.search.SearchException;
+import net.sourceforge.pebble.search.SearchHit;
+import net.sourceforge.pebble.search.SearchResults;
+
+/**
+ * Tests for the MultiBlogSearchIndex class.
+ */
+public class MultiBlogSearchIndexTest extends MultiBlogTestCase {
+
+  private MultiBlogSearchIndex index;
+
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    blog1.getSearchIndex().clear();
+    blog2.getSearchIndex().clear();
+    index = new MultiBlogSearchIndex(Arrays.asList(blog1, blog2));
+  }
+
+  @AfterEach protected void tearDown() throws Exception {
+    index.close();
+    super.tearDown();
+  }
+
+  private void addBlogEntry(Blog blog, String title, long time) {
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle(title);
+    blogEntry.setDate(new Date(time));
+    blogEntry.setPublished(true);
+    blog.getSearchIndex().index(blogEntry);
+  }
+
+  /**
+   * Tests that hits from all blogs are merged by date and paged.
+   */
+  @Test public void testSearchAcrossBlogsByDate() throws Exception {
+    addBlogEntry(blog1, "Java one", 1000000L);
+    addBlogEntry(blog2, "Java two", 2000000L);
+    addBlogEntry(blog1, "Java three", 3000000L);
+    addBlogEntry(blog2, "Something else", 4000000L);
+
+    SearchResults results = index.search("java", SearchIndex.SORT_BY_DATE, 0, 2);
+    assertEquals(3, results.getNumberOfHits());
+    assertEquals(2, results.getHits().size());
+    SearchHit hit = (SearchHit)results.getHits().get(0);
+    assertEquals("Java three", hit.getTitle());
+    assertEquals(blog1, hit.getBlog());
+    hit = (SearchHit)results.getHits().get(1);
+    assertEquals("Java two", hit.getTitle());
+    assertEquals(blog2, hit.getBlog());
+
+    results = index.search("java", SearchIndex.SORT_BY_DATE, 2, 2);
+    assertEquals(1, results.getHits().size());
+    hit = (SearchHit)results.getHits().get(0);
+    assertEquals("Java one", hit.getTitle());
+    assertEquals(3, hit.getNumber());
+  }
+
+  /**
+   * Tests that deep offsets and large pages are bounded before the blogs
+   * are searched, and that pages beyond the maximum offset are empty.
+   */
+  @Test public void testSearchPagingIsBounded() throws Exception {
+    addBlogEntry(blog1, "Java one", 1000000L);
+    addBlogEntry(blog2, "Java two", 2000000L);
+
+    SearchResults results = index.search("java", SearchIndex.SORT_BY_DATE, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+    assertEquals(2, results.getNumberOfHits());
+    assertTrue(results.getHits().isEmpty());
+
+    results = index.search("java", SearchIndex.SORT_BY_DATE, 1, Integer.MAX_VALUE);
+    assertEquals(1, results.getHits().size());
+    assertEquals("Java one", ((SearchHit)results.getHits().get(0)).getTitle());
+  }
+
+  /**
+   * Tests that only the blogs given to the index are searched.
+   */
+  @Test public void testSearchOnlyGivenBlogs() throws Exception {
+    addBlogEntry(blog1, "Java one", 1000000L);
+    addBlogEntry(blog2, "Java two", 2000000L);
+
+    index.close();
+    index = new MultiBlogSearchIndex(Arrays.asList(blog2));
+    SearchResults results = index.search("java", SearchIndex.SORT_BY_SCORE, 0, 10);
+    assertEquals(1, results.getNumberOfHits());
+    assertEquals("Java two", ((SearchHit)results.getHits().get(0)).getTitle());
+  }
+
+  /**
+   * Tests that the search threads are shut down when the index is closed.
+   */
+  @Test public void testSearchAfterCloseFails() throws Exception {
+    addBlogEntry(blog1, "Java one", 1000000L);
+    index.close();
+    assertThrows(SearchException.class, () -> index.search("java", SearchIndex.SORT_BY_SCORE, 0, 10));
+  }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.Comment;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+import net.sourceforge.pebble.domain.State;
+
+/**
+ * Tests for the recent responses kept by the ResponseIndex class.
+ */
+public class ResponseIndexTest extends SingleBlogTestCase {
+
+  private BlogService service;
+  private long now;
+
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    service = new BlogService();
+    now = System.currentTimeMillis();
+  }
+
+  private BlogEntry createBlogEntry(String title, boolean published) throws Exception {
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle(title);
+    blogEntry.setBody("body");
+    blogEntry.setPublished(published);
+    service.putBlogEntry(blogEntry);
+
+    return blogEntry;
+  }
+
+  private Comment addComment(BlogEntry blogEntry, String title, int minutes) throws Exception {
+    Comment comment = blogEntry.createComment(title, "body", "author", "email", "website", "avatar", "127.0.0.1",
+        new Date(now + minutes * 60000L), State.APPROVED);
+    blogEntry.addComment(comment);
+    service.putBlogEntry(blogEntry);
+    // new comments are moderated by default
+    comment.setApproved();
+    service.putBlogEntry(blogEntry);
+
+    return comment;
+  }
+
+  private String titles(List<ResponseSummary> summaries) {
+    StringBuilder buf = new StringBuilder();
+    for (ResponseSummary summary : summaries) {
+      buf.append(summary.getTitle()).append(";");
+    }
+
+    return buf.toString();
+  }
+
+  @Test public void testRecentResponsesAreNewestFirst() throws Exception {
+    BlogEntry blogEntry = createBlogEntry("Entry", true);
+    blog.getRecentResponseSummaries();
+    Comment first = addComment(blogEntry, "first", 1);
+    addComment(blogEntry, "second", 2);
+    addComment(blogEntry, "third", 3);
+    addComment(blogEntry, "fourth", 4);
+
+    List<ResponseSummary> summaries = blog.getRecentResponseSummaries();
+    assertEquals("fourth;third;second;", titles(summaries));
+    assertEquals("Entry", summaries.get(0).getBlogEntryTitle());
+    assertEquals(blogEntry.getId(), summaries.get(0).getBlogEntryId());
+    assertEquals(3, blog.getRecentApprovedResponses().size());
+    assertEquals(new Date(now + 4 * 60000L), blog.getDateOfLastResponse());
+
+    ResponseSummary summary = blog.getResponseIndex().getRecentResponseSummaries(4).get(3);
+    assertEquals(first.getGuid(), summary.getGuid());
+    assertEquals(first.getPermalink(), summary.getPermalink());
+    assertTrue(summary.isComment());
+  }
+
+  @Test public void testSummariesAreDecorated() throws Exception {
+    BlogEntry blogEntry = createBlogEntry("Entry", true);
+    Comment comment = blogEntry.createComment("title", "<script>alert()</script>", "author", "email", "website",
+        "avatar", "127.0.0.1", new Date(now), State.APPROVED);
+    blogEntry.addComment(comment);
+    service.putBlogEntry(blogEntry);
+    comment.setApproved();
+    service.putBlogEntry(blogEntry);
+
+    ResponseSummary summary = blog.getRecentResponseSummaries().get(0);
+    assertFalse(summary.getTruncatedContent().contains("<script>"));
+  }
+
+  @Test public void testResponsesToUnpublishedBlogEntriesAreExcluded() throws Exception {
+    BlogEntry published = createBlogEntry("Published", true);
+    BlogEntry unpublished = createBlogEntry("Unpublished", false);
+    addComment(published, "a", 1);
+    addComment(unpublished, "b", 2);
+    assertEquals("a;", titles(blog.getRecentResponseSummaries()));
+
+    unpublished.setPublished(true);
+    service.putBlogEntry(unpublished);
+    assertEquals("b;a;", titles(blog.getRecentResponseSummaries()));
+
+    unpublished.setPublished(false);
+    service.putBlogEntry(unpublished);
+    assertEquals("a;", titles(blog.getRecentResponseSummaries()));
+  }
+
+  @Test public void testRemovedResponsesAreReplaced() throws Exception {
+    BlogEntry blogEntry = createBlogEntry("Entry", true);
+    for (int i = 1; i <= 25; i++) {
+      addComment(blogEntry, "c" + i, i);
+    }
+    assertEquals("c25;c24;c23;", titles(blog.getRecentResponseSummaries()));
+
+    BlogEntry other = createBlogEntry("Other", true);
+    Comment comment = addComment(other, "newest", 30);
+    assertEquals("newest;c25;c24;", titles(blog.getRecentResponseSummaries()));
+
+    other.removeComment(comment.getId());
+    service.putBlogEntry(other);
+    assertEquals("c25;c24;c23;", titles(blog.getRecentResponseSummaries()));
+
+    service.removeBlogEntry(blogEntry);
+    assertEquals(0, blog.getRecentResponseSummaries().size());
+  }
+
+  @Test public void testTitleChangesAreReflected() throws Exception {
+    BlogEntry blogEntry = createBlogEntry("Before", true);
+    addComment(blogEntry, "a", 1);
+    assertEquals("Before", blog.getRecentResponseSummaries().get(0).getBlogEntryTitle());
+
+    blogEntry.setTitle("After");
+    service.putBlogEntry(blogEntry);
+    assertEquals("After", blog.getRecentResponseSummaries().get(0).getBlogEntryTitle());
+  }
+
+  @Test public void testRecentResponsesArePersisted() throws Exception {
+    BlogEntry blogEntry = createBlogEntry("Entry", true);
+    addComment(blogEntry, "tab\there", 1);
+    addComment(blogEntry, "line\nbreak \\n", 2);
+    List<ResponseSummary> summaries = blog.getRecentResponseSummaries();
+
+    List<ResponseSummary> reloaded = new ResponseIndex(blog).getRecentResponseSummaries(3);
+    assertEquals(summaries, reloaded);
+    assertEquals(titles(summaries), titles(reloaded));
+    assertEquals(summaries.get(0).getTruncatedContent(), reloaded.get(0).getTruncatedContent());
+  }
+
+  @Test public void testRecentResponsesAreWrittenAsUtf8() throws Exception {
+    BlogEntry blogEntry = createBlogEntry("Entr\u00e9e", true);
+    addComment(blogEntry, "\u65e5\u672c\u8a9e", 1);
+    blog.getRecentResponseSummaries();
+
+    File indexFile = new File(blog.getIndexesDirectory(), ResponseIndex.RECENT_RESPONSES_FILENAME);
+    String content = new String(Files.readAllBytes(indexFile.toPath()), "UTF-8");
+    assertTrue(content.contains("Entr\u00e9e"));
+    assertTrue(content.contains("\u65e5\u672c\u8a9e"));
+
+    List<ResponseSummary> reloaded = new ResponseIndex(blog).getRecentResponseSummaries(1);
+    assertEquals("\u65e5\u672c\u8a9e", reloaded.get(0).getTitle());
+  }
+
+}
@@ -32,15 +32,22 @@
 package net.sourceforge.pebble.index;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.sourceforge.pebble.domain.BlogEntry;
 import net.sourceforge.pebble.domain.Category;
 import net.sourceforge.pebble.domain.Comment;
 import net.sourceforge.pebble.domain.SingleBlogTestCase;
+import net.sourceforge.pebble.search.SearchHit;
 import net.sourceforge.pebble.search.SearchResults;
 
 /**
@@ -193,4 +200,125 @@ public class SearchIndexTest extends SingleBlogTestCase {
      }
    }
 
+   /**
+    * Tests that results can be paged through by offset and by cursor.
+    */
+   @Test public void testSearchPaging() throws Exception {
+     for (int i = 0; i < 5; i++) {
+       BlogEntry blogEntry = new BlogEntry(blog);
+       blogEntry.setTitle("Java topic " + i);
+       blogEntry.setDate(new java.util.Date(1000000L * (i+1)));
+       blogEntry.setPublished(true);
+       index.index(blogEntry);
+     }
+
+     SearchResults results = index.search("java", SearchIndex.SORT_BY_DATE, 2, 2);
+     assertEquals(5, results.getNumberOfHits());
+     assertEquals(2, results.getHits().size());
+     assertEquals("Java topic 2", ((SearchHit)results.getHits().get(0)).getTitle());
+     assertEquals(3, ((SearchHit)results.getHits().get(0)).getNumber());
+     assertEquals("Java topic 1", ((SearchHit)results.getHits().get(1)).getTitle());
+
+     results = index.search("java", SearchIndex.SORT_BY_DATE, (String)null, 2);
+     assertEquals("Java topic 4", ((SearchHit)results.getHits().get(0)).getTitle());
+     assertNotNull(results.getSearchAfter());
+     results = index.search("java", SearchIndex.SORT_BY_DATE, results.getSearchAfter(), 2);
+     assertEquals(2, results.getOffset());
+     assertEquals("Java topic 2", ((SearchHit)results.getHits().get(0)).getTitle());
+     results = index.search("java", SearchIndex.SORT_BY_DATE, results.getSearchAfter(), 2);
+     assertEquals(1, results.getHits().size());
+     assertEquals("Java topic 0", ((SearchHit)results.getHits().get(0)).getTitle());
+     assertNull(results.getSearchAfter());
+
+     results = index.search("java", SearchIndex.SORT_BY_SCORE, (String)null, 3);
+     assertEquals(3, results.getHits().size());
+     results = index.search("java", SearchIndex.SORT_BY_SCORE, results.getSearchAfter(), 3);
+     assertEquals(2, results.getHits().size());
+     assertEquals(4, ((SearchHit)results.getHits().get(0)).getNumber());
+   }
+
+   /**
+    * Tests that deep offsets and large pages don't size the search by the
+    * request, and that pages beyond the maximum offset are empty.
+    */
+   @Test public void testSearchPagingIsBounded() throws Exception {
+     assertEquals(1, SearchIndex.getNumberOfHitsToCollect(0, 10, 0));
+     assertEquals(5, SearchIndex.getNumberOfHitsToCollect(5000, 10, 5));
+     assertEquals(12, SearchIndex.getNumberOfHitsToCollect(2, 10, 50));
+     assertEquals(1, SearchIndex.getNumberOfHitsToCollect(SearchIndex.MAXIMUM_OFFSET + 1, 10, 50000));
+
+     for (int i = 0; i < 3; i++) {
+       BlogEntry blogEntry = new BlogEntry(blog);
+       blogEntry.setTitle("Java topic " + i);
+       blogEntry.setDate(new java.util.Date(1000000L * (i+1)));
+       blogEntry.setPublished(true);
+       index.index(blogEntry);
+     }
+
+     SearchResults results = index.search("java", SearchIndex.SORT_BY_DATE, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+     assertEquals(3, results.getNumberOfHits());
+     assertTrue(results.getHits().isEmpty());
+
+     results = index.search("java", SearchIndex.SORT_BY_DATE, 1, Integer.MAX_VALUE);
+     assertEquals(2, results.getHits().size());
+   }
+
+   /**
+    * Tests that a cursor still points at the same place after the index has
+    * been updated, which changes the Lucene doc ids.
+    */
+   @Test public void testSearchCursorSurvivesReindexing() throws Exception {
+     List<BlogEntry> blogEntries = new ArrayList<>();
+     for (int i = 0; i < 4; i++) {
+       BlogEntry blogEntry = new BlogEntry(blog);
+       blogEntry.setTitle("Java topic " + i);
+       blogEntry.setDate(new java.util.Date(1000000L * (i+1)));
+       blogEntry.setPublished(true);
+       index.index(blogEntry);
+       blogEntries.add(blogEntry);
+     }
+
+     SearchResults results = index.search("java", SearchIndex.SORT_BY_DATE, (String)null, 2);
+     assertEquals("Java topic 2", ((SearchHit)results.getHits().get(1)).getTitle());
+     String searchAfter = results.getSearchAfter();
+
+     // re-indexing deletes and re-adds the documents
+     index.index(blogEntries.get(3));
+     index.index(blogEntries.get(0));
+
+     results = index.search("java", SearchIndex.SORT_BY_DATE, searchAfter, 2);
+     assertEquals(2, results.getHits().size());
+     assertEquals("Java topic 1", ((SearchHit)results.getHits().get(0)).getTitle());
+     assertEquals("Java topic 0", ((SearchHit)results.getHits().get(1)).getTitle());
+   }
+
+   /**
+    * Tests that the excerpt highlights the matching terms.
+    */
+   @Test public void testSearchHighlightsExcerpt() throws Exception {
+     BlogEntry blogEntry = new BlogEntry(blog);
+     blogEntry.setTitle("A title");
+     blogEntry.setBody("<p>Some text about <i>Lucene</i> & friends</p>");
+     blogEntry.setPublished(true);
+     index.index(blogEntry);
+
+     SearchResults results = index.search("lucene");
+     SearchHit hit = (SearchHit)results.getHits().get(0);
+     assertEquals("Some text about <b>Lucene</b> &amp; friends", hit.getExcerpt());
+   }
+
+  /**
+   * Tests that a title can be looked up by permalink or ID.
+   */
+   @Test public void testGetTitle() throws Exception {
+     BlogEntry blogEntry = new BlogEntry(blog);
+     blogEntry.setTitle("A title");
+     blogEntry.setPublished(true);
+     index.index(blogEntry);
+
+     assertEquals("A title", index.getTitle("permalink", blogEntry.getPermalink()));
+     assertEquals("A title", index.getTitle("id", blogEntry.getId()));
+     assertNull(index.getTitle("id", "123"));
+   }
+
 }
@@ -34,6 +34,8 @@ package net.sourceforge.pebble.index;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Date;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -85,6 +87,32 @@ public class TagIndexTest extends SingleBlogTestCase {
     assertEquals(0, index.getTags().size());
   }
 
+  /**
+   * Tests that the index can be read a slice at a time, most recent first.
+   */
+  @Test public void testGetRecentBlogEntriesSlice() throws Exception {
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 5; i++) {
+      BlogEntry blogEntry = new BlogEntry(blog);
+      blogEntry.setDate(new Date(now - (i * 1000)));
+      blogEntry.setTags("junit");
+      blogEntry.setPublished(true);
+      index.index(blogEntry);
+    }
+
+    Tag tag = new Tag("junit", blog);
+    assertEquals(5, index.getNumberOfBlogEntries(tag));
+    assertEquals(index.getRecentBlogEntries(tag).subList(1, 4), index.getRecentBlogEntries(tag, 1, 3));
+    assertEquals("" + now, index.getRecentBlogEntries(tag, 0, 1).get(0));
+    assertTrue(index.getRecentBlogEntries(tag, 5, 2).isEmpty());
+
+    // unknown tags aren't added to the index
+    Tag unknown = new Tag("unknown", blog);
+    assertEquals(0, index.getNumberOfBlogEntries(unknown));
+    assertTrue(index.getRecentBlogEntries(unknown, 0, 2).isEmpty());
+    assertEquals(1, index.getTags().size());
+  }
+
 //  /**
 //   * Tests that category/tag statistics are updated.
 //   */
@@ -279,4 +279,32 @@ public class RequestTest extends SingleBlogTestCase {
     assertEquals("Search", url.getName());
   }
 
+  @Test public void testClassificationsAreCachedPerUrl() throws Exception {
+    RequestClassificationCache cache = blog.getRequestClassificationCache();
+    cache.clear();
+
+    url = new Request("/files/test.zip", blog);
+    assertEquals(1, cache.size());
+    url = new Request("/files/test.zip", blog);
+    assertEquals(1, cache.size());
+    assertEquals("File : test.zip", url.getName());
+    assertTrue(url.isFileDownload());
+    assertFalse(url.isPageView());
+  }
+
+  @Test public void testRetitledBlogEntryIsReclassified() throws Exception {
+    BlogEntry be = new BlogEntry(blog);
+    be.setTitle("Test blog entry");
+    BlogService service = new BlogService();
+    service.putBlogEntry(be);
+    String permalink = "/" + be.getPermalink().substring(PebbleContext.getInstance().getConfiguration().getUrl().length());
+    url = new Request(permalink, blog);
+    assertEquals("Blog Entry : Test blog entry", url.getName());
+
+    be.setTitle("New title");
+    service.putBlogEntry(be);
+    url = new Request(permalink, blog);
+    assertEquals("Blog Entry : New title", url.getName());
+  }
+
 }
\ No newline at end of file
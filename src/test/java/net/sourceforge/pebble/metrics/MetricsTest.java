@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the Metrics, Timer and PrometheusFormat classes.
+ */
+public class MetricsTest {
+
+  @AfterEach protected void tearDown() {
+    Metrics.setEnabled(true);
+  }
+
+  @Test public void testBucketsAreContiguous() {
+    for (long value = 0; value < 100000; value++) {
+      int bucket = Timer.bucketFor(value);
+      assertTrue(Timer.upperBound(bucket) >= value);
+      if (bucket > 0) {
+        assertTrue(Timer.upperBound(bucket - 1) < value);
+      }
+    }
+    assertEquals(Long.MAX_VALUE, Timer.upperBound(Timer.bucketFor(Long.MAX_VALUE)));
+  }
+
+  @Test public void testPercentilesAreWithinBucketPrecision() {
+    Timer timer = new Timer();
+    for (int i = 1; i <= 1000; i++) {
+      timer.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+
+    assertEquals(1000, timer.getCount());
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), timer.getMax());
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(500) + 500, timer.getMean());
+    assertWithin(TimeUnit.MICROSECONDS.toNanos(500), timer.getPercentile(0.5));
+    assertWithin(TimeUnit.MICROSECONDS.toNanos(990), timer.getPercentile(0.99));
+    assertEquals(timer.getMax(), timer.getPercentile(1.0));
+  }
+
+  private void assertWithin(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected * 1.125, actual + " is not close to " + expected);
+  }
+
+  @Test public void testNothingIsRecordedWhenDisabled() {
+    Metrics metrics = new Metrics("test");
+    Metrics.setEnabled(false);
+
+    long start = metrics.start();
+    assertEquals(Metrics.DISABLED, start);
+    metrics.stop("request", start);
+    metrics.increment("cache.blogEntry.hit");
+
+    assertTrue(metrics.getTimers().isEmpty());
+    assertTrue(metrics.getCounters().isEmpty());
+  }
+
+  @Test public void testTimersAreNamedAfterClasses() {
+    Metrics metrics = new Metrics("test");
+    metrics.stop("decorator.", String.class, metrics.start());
+    metrics.stop("listener.", new Object() {}.getClass(), metrics.start());
+
+    assertTrue(metrics.getTimers().containsKey("decorator.String"));
+    assertTrue(metrics.getTimers().containsKey("listener.MetricsTest$1"));
+  }
+
+  @Test public void testPrometheusFormat() {
+    Metrics metrics = new Metrics("my\"blog");
+    metrics.getTimer("request").record(TimeUnit.MILLISECONDS.toNanos(2));
+    metrics.increment("cache.blogEntry.hit");
+    metrics.increment("cache.blogEntry.hit");
+    metrics.gauge("mail.queue", () -> 3);
+
+    String text = PrometheusFormat.format(Collections.singletonList(metrics));
+    assertTrue(text.contains("# TYPE pebble_timer_seconds summary\n"));
+    assertTrue(text.contains("pebble_timer_seconds_count{blog=\"my\\\"blog\",name=\"request\"} 1\n"));
+    assertTrue(text.contains("pebble_timer_seconds_sum{blog=\"my\\\"blog\",name=\"request\"} 0.002\n"));
+    assertTrue(text.contains("pebble_counter_total{blog=\"my\\\"blog\",name=\"cache.blogEntry.hit\"} 2\n"));
+    assertTrue(text.contains("pebble_gauge{blog=\"my\\\"blog\",name=\"mail.queue\"} 3\n"));
+    assertFalse(text.contains("NaN"));
+  }
+
+  @Test public void testMBeanNamesIncludeTheContextPath() throws Exception {
+    MetricsMBean.setContextPath("/pebble");
+    try {
+      assertEquals(new ObjectName("net.sourceforge.pebble:type=GlobalMetrics,context=\"/pebble\""),
+          MetricsMBean.getObjectName(Metrics.getGlobal()));
+      assertEquals(new ObjectName("net.sourceforge.pebble:type=Metrics,context=\"/pebble\",name=\"pebble\""),
+          MetricsMBean.getObjectName(new Metrics("pebble")));
+    } finally {
+      MetricsMBean.setContextPath(null);
+    }
+  }
+
+  @Test public void testMBeansRegisteredByOthersAreLeftAlone() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    Metrics theirs = new Metrics("shared");
+    ObjectName name = MetricsMBean.getObjectName(theirs);
+    MetricsMBean other = new MetricsMBean(theirs);
+    server.registerMBean(other, name);
+    try {
+      Metrics ours = new Metrics("shared");
+      MetricsMBean.register(ours);
+      MetricsMBean.unregister(ours);
+      assertTrue(server.isRegistered(name));
+      assertEquals("Pebble metrics for shared", server.getMBeanInfo(name).getDescription());
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+}
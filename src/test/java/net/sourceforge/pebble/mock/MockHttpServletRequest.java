@@ -32,6 +32,7 @@
 package net.sourceforge.pebble.mock;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.security.Principal;
@@ -76,13 +77,23 @@ public class MockHttpServletRequest implements HttpServletRequest {
   private RequestDispatcher requestDispatcher;
 
   private MockPrincipal userPrincipal;
+  private Cookie[] cookies = new Cookie[0];
+  private String remoteAddr;
+
+  private String method;
+  private String contentType;
+  private byte[] content;
 
   public String getAuthType() {
     return null;
   }
 
   public Cookie[] getCookies() {
-    return new Cookie[0];
+    return cookies;
+  }
+
+  public void setCookies(Cookie... cookies) {
+    this.cookies = cookies;
   }
 
   public long getDateHeader(String name) {
@@ -119,7 +130,11 @@ public class MockHttpServletRequest implements HttpServletRequest {
   }
 
   public String getMethod() {
-    return null;
+    return method;
+  }
+
+  public void setMethod(String method) {
+    this.method = method;
   }
 
   public String getPathInfo() {
@@ -226,15 +241,36 @@ public class MockHttpServletRequest implements HttpServletRequest {
   }
 
   public int getContentLength() {
-    return 0;
+    return content != null ? content.length : 0;
   }
 
   public String getContentType() {
-    return null;
+    return contentType;
+  }
+
+  public void setContentType(String contentType) {
+    this.contentType = contentType;
   }
 
   public ServletInputStream getInputStream() throws IOException {
-    return null;
+    if (content == null) {
+      return null;
+    }
+
+    final ByteArrayInputStream in = new ByteArrayInputStream(content);
+    return new ServletInputStream() {
+      public int read() throws IOException {
+        return in.read();
+      }
+
+      public int read(byte[] b, int off, int len) throws IOException {
+        return in.read(b, off, len);
+      }
+    };
+  }
+
+  public void setContent(byte[] content) {
+    this.content = content;
   }
 
   public void setParameter(String name, String value) {
@@ -282,7 +318,11 @@ public class MockHttpServletRequest implements HttpServletRequest {
   }
 
   public String getRemoteAddr() {
-    return null;
+    return remoteAddr;
+  }
+
+  public void setRemoteAddr(String remoteAddr) {
+    this.remoteAddr = remoteAddr;
   }
 
   public String getRemoteHost() {
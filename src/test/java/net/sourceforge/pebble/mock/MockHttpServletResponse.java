@@ -31,12 +31,15 @@
  */
 package net.sourceforge.pebble.mock;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.TimeZone;
@@ -59,9 +62,16 @@ public class MockHttpServletResponse implements HttpServletResponse {
   private Properties headers = new Properties();
 
   private PrintWriter writer = new PrintWriter(new StringWriter());
+  private ByteArrayOutputStream content = new ByteArrayOutputStream();
   private String sendRedirect;
+  private List<Cookie> cookies = new ArrayList<Cookie>();
 
    public void addCookie(Cookie cookie) {
+    cookies.add(cookie);
+  }
+
+  public List<Cookie> getCookies() {
+    return cookies;
   }
 
   public boolean containsHeader(String s) {
@@ -144,7 +154,15 @@ public class MockHttpServletResponse implements HttpServletResponse {
   }
 
   public ServletOutputStream getOutputStream() throws IOException {
-    return null;
+    return new ServletOutputStream() {
+      public void write(int b) throws IOException {
+        content.write(b);
+      }
+    };
+  }
+
+  public byte[] getContent() {
+    return content.toByteArray();
   }
 
   public PrintWriter getWriter() throws IOException {
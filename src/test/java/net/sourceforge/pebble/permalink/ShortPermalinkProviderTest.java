@@ -33,6 +33,7 @@ package net.sourceforge.pebble.permalink;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -79,6 +80,15 @@ public class ShortPermalinkProviderTest extends PermalinkProviderSupportTestCase
     assertFalse(permalinkProvider.isBlogEntryPermalink(null));
   }
 
+  /**
+   * Tests that the blog entry ID can be taken from a permalink.
+   */
+  @Test public void testGetBlogEntryId() {
+    assertEquals("1234567890123", permalinkProvider.getBlogEntryId("/1234567890123.html"));
+    assertNull(permalinkProvider.getBlogEntryId("/2004/01/1234567890123.html"));
+    assertNull(permalinkProvider.getBlogEntryId(null));
+  }
+
   /**
    * Tests that the correct blog entry can be found from a permalink.
    */
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.ping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.Message;
+import net.sourceforge.pebble.domain.MessageType;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+
+/**
+ * Tests for the PingService class, against a local HTTP server.
+ */
+public class PingServiceTest extends SingleBlogTestCase {
+
+  private static final String XML_RPC_RESPONSE =
+      "<?xml version=\"1.0\"?><methodResponse><params><param><value><struct>" +
+      "<member><name>flerror</name><value><boolean>0</boolean></value></member>" +
+      "<member><name>message</name><value>Thanks for the ping.</value></member>" +
+      "</struct></value></param></params></methodResponse>";
+
+  private HttpServer server;
+  private String url;
+  private PingService service;
+
+  /** the bodies of the requests received */
+  private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+  /** the status codes to respond with, the last of which is repeated */
+  private final LinkedList<Integer> statuses = new LinkedList<Integer>();
+
+  private String responseBody = "";
+
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        requests.add(read(exchange.getRequestBody()));
+        int status;
+        synchronized (statuses) {
+          status = statuses.size() > 1 ? statuses.removeFirst() : statuses.getFirst();
+        }
+        byte[] body = responseBody.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, status == 204 ? -1 : body.length);
+        OutputStream out = exchange.getResponseBody();
+        if (status != 204) {
+          out.write(body);
+        }
+        out.close();
+      }
+    });
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/ping";
+
+    service = new PingService(200, 50);
+    blog.clearMessages();
+  }
+
+  @AfterEach protected void tearDown() throws Exception {
+    service.shutdown();
+    server.stop(0);
+    super.tearDown();
+  }
+
+  private static String read(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[1024];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      out.write(buf, 0, n);
+    }
+    return URLDecoder.decode(out.toString("UTF-8"), "UTF-8");
+  }
+
+  private void waitForPings() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (service.getNumberOfPendingPings() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, service.getNumberOfPendingPings());
+  }
+
+  private List<Message> getMessages(MessageType type) {
+    List<Message> messages = new ArrayList<Message>();
+    for (Message message : blog.getMessages()) {
+      if (message.getType() == type) {
+        messages.add(message);
+      }
+    }
+    return messages;
+  }
+
+  @Test public void testRepeatedHubPingsAreCoalesced() throws Exception {
+    statuses.add(204);
+    service.send(new HubPing(blog, url, Arrays.asList("http://www.example.com/atom.xml")));
+    service.send(new HubPing(blog, url, Arrays.asList("http://www.example.com/categories/java/atom.xml")));
+    service.send(new HubPing(blog, url, Arrays.asList("http://www.example.com/atom.xml")));
+    assertEquals(1, service.getNumberOfPendingPings());
+    waitForPings();
+
+    assertEquals(1, requests.size());
+    String request = requests.get(0);
+    assertTrue(request.contains("hub.mode=publish"));
+    assertTrue(request.contains("hub.url=http://www.example.com/atom.xml"));
+    assertTrue(request.contains("hub.url=http://www.example.com/categories/java/atom.xml"));
+    assertTrue(getMessages(MessageType.WARN).isEmpty());
+
+    // a ping after the first has been sent starts again
+    service.send(new HubPing(blog, url, Arrays.asList("http://www.example.com/atom.xml")));
+    waitForPings();
+    assertEquals(2, requests.size());
+  }
+
+  @Test public void testFailedPingsAreRetried() throws Exception {
+    statuses.add(500);
+    statuses.add(204);
+    service.send(new HubPing(blog, url, Arrays.asList("http://www.example.com/atom.xml")));
+    waitForPings();
+
+    assertEquals(2, requests.size());
+    assertTrue(getMessages(MessageType.WARN).isEmpty());
+  }
+
+  @Test public void testFailuresAreRecordedAfterRetries() throws Exception {
+    statuses.add(503);
+    service.send(new HubPing(blog, url, Arrays.asList("http://www.example.com/atom.xml")));
+    waitForPings();
+
+    assertEquals(3, requests.size());
+    assertEquals(1, getMessages(MessageType.WARN).size());
+  }
+
+  @Test public void testUpdateNotificationPing() throws Exception {
+    statuses.add(200);
+    responseBody = XML_RPC_RESPONSE;
+    service.send(new UpdateNotificationPing(blog, blog.getUrl(), url));
+    waitForPings();
+
+    assertEquals(1, requests.size());
+    assertTrue(requests.get(0).contains("<methodName>weblogUpdates.ping</methodName>"));
+    assertTrue(requests.get(0).contains(blog.getUrl()));
+    List<Message> messages = getMessages(MessageType.INFO);
+    assertEquals(1, messages.size());
+    assertTrue(messages.get(0).getText().contains("Thanks for the ping."));
+  }
+
+  @Test public void testTrackBacksAreSentStraightAway() throws Exception {
+    service.shutdown();
+    service = new PingService(60000, 50);
+    statuses.add(200);
+    responseBody = "<response><error>0</error></response>";
+
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle("A title");
+    service.send(new TrackBackPing(blogEntry, url, "An excerpt"));
+    waitForPings();
+
+    assertEquals(1, requests.size());
+    assertTrue(requests.get(0).contains("title=A title"));
+    assertTrue(requests.get(0).contains("excerpt=An excerpt"));
+    List<Message> messages = getMessages(MessageType.INFO);
+    assertEquals(1, messages.size());
+    assertTrue(messages.get(0).getText().contains("response code 200"));
+    assertTrue(messages.get(0).getText().contains("&lt;error&gt;0&lt;/error&gt;"));
+  }
+
+  @Test public void testTrackBacksAreNotRetriedAfterServerErrors() throws Exception {
+    statuses.add(500);
+    statuses.add(200);
+
+    BlogEntry blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle("A title");
+    service.send(new TrackBackPing(blogEntry, url, "An excerpt"));
+    waitForPings();
+
+    assertEquals(1, requests.size());
+    List<Message> messages = getMessages(MessageType.WARN);
+    assertEquals(1, messages.size());
+    assertTrue(messages.get(0).getText().contains("failed: 500"));
+  }
+
+  @Test public void testPingsAreDiscardedWhenTooManyArePending() throws Exception {
+    service.shutdown();
+    service = new PingService(60000, 50, 1);
+    statuses.add(204);
+
+    service.send(new HubPing(blog, url, Arrays.asList("http://www.example.com/atom.xml")));
+    service.send(new UpdateNotificationPing(blog, blog.getUrl(), url));
+    assertEquals(1, service.getNumberOfPendingPings());
+    assertEquals(1, getMessages(MessageType.WARN).size());
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import net.sourceforge.pebble.Configuration;
+import net.sourceforge.pebble.PebbleContext;
+
+/**
+ * Tests for the CachingAuthenticationManager class.
+ */
+public class CachingAuthenticationManagerTest {
+
+  private CachingAuthenticationManager manager;
+  private Configuration configuration;
+  private int calls;
+
+  @BeforeEach protected void setUp() throws Exception {
+    configuration = new Configuration();
+    configuration.setApiAuthenticationCacheSeconds(60);
+    PebbleContext.getInstance().setConfiguration(configuration);
+
+    calls = 0;
+    AuthenticationManager delegate = authentication -> {
+      calls++;
+      if (!"password".equals(authentication.getCredentials())) {
+        throw new BadCredentialsException("Bad credentials");
+      }
+      return new UsernamePasswordAuthenticationToken(authentication.getName(), null, Collections.emptyList());
+    };
+
+    manager = new CachingAuthenticationManager();
+    manager.setDelegate(delegate);
+  }
+
+  private Authentication login(String username, String password) {
+    return manager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+  }
+
+  @Test public void testRepeatedLoginIsCached() {
+    Authentication first = login("user", "password");
+    Authentication second = login("user", "password");
+
+    assertSame(first, second);
+    assertEquals(1, calls);
+  }
+
+  @Test public void testWrongPasswordIsNeverServedFromCache() {
+    login("user", "password");
+    try {
+      login("user", "wrong");
+      fail();
+    } catch (BadCredentialsException e) {
+      // expected
+    }
+
+    assertEquals(2, calls);
+  }
+
+  @Test public void testFailuresAreNotCached() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        login("user", "wrong");
+        fail();
+      } catch (BadCredentialsException e) {
+        // expected
+      }
+    }
+
+    assertEquals(2, calls);
+    assertEquals(0, manager.size());
+  }
+
+  @Test public void testCachingIsOffByDefault() {
+    configuration.setApiAuthenticationCacheSeconds(0);
+    login("user", "password");
+    login("user", "password");
+
+    assertEquals(2, calls);
+    assertEquals(0, manager.size());
+  }
+
+  @Test public void testUserChangeInvalidatesEntry() {
+    login("user", "password");
+    login("other", "password");
+    manager.onApplicationEvent(new UserDetailsChangedEvent(this, "user"));
+    login("user", "password");
+    login("other", "password");
+
+    assertEquals(3, calls);
+  }
+
+  @Test public void testCacheIsBounded() {
+    manager.setMaximumSize(2);
+    login("a", "password");
+    login("b", "password");
+    login("c", "password");
+
+    assertEquals(2, manager.size());
+    login("a", "password");
+    assertEquals(4, calls);
+  }
+
+}
@@ -38,8 +38,10 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.jupiter.api.AfterEach;
@@ -141,4 +143,23 @@ public class DefaultSecurityRealmTest extends SingleBlogTestCase {
     assertNull(user);
   }
 
+  @Test public void testChangesArePublished() throws Exception {
+    List<String> changed = new ArrayList<String>();
+    realm.setApplicationEventPublisher(event -> {
+      if (event instanceof UserDetailsChangedEvent) {
+        changed.add(((UserDetailsChangedEvent)event).getUsername());
+      }
+    });
+
+    PebbleUserDetails pud = new PebbleUserDetails("testuser", "password", "name", "emailAddress", "website", "profile", new String[]{Constants.BLOG_OWNER_ROLE}, new HashMap<String,String>(), true);
+    realm.createUser(pud);
+    assertTrue(changed.isEmpty());
+
+    realm.updateUser(pud);
+    realm.changePassword("testuser", "newpassword");
+    realm.removeUser("testuser");
+    assertEquals(3, changed.size());
+    assertTrue(changed.stream().allMatch("testuser"::equals));
+  }
+
 }
@@ -92,6 +92,21 @@ public class DefaultLastModifiedServiceTest {
     assertEquals("\"" + httpFormat.format(new Date(10000000)) + "\"", response.getHeader("ETag"));
   }
 
+  @Test public void testETagResponseHeader() {
+    assertFalse(service.checkAndProcessETag(request, response, "\"blog-1\""));
+    assertEquals("\"blog-1\"", response.getHeader("ETag"));
+  }
+
+  @Test public void testETagIfNoneMatchMatch() {
+    request.setHeader("If-None-Match", "\"blog-0\", W/\"blog-1\"");
+    assertTrue(service.checkAndProcessETag(request, response, "\"blog-1\""));
+  }
+
+  @Test public void testETagIfNoneMatchNotMatch() {
+    request.setHeader("If-None-Match", "\"blog-0\"");
+    assertFalse(service.checkAndProcessETag(request, response, "\"blog-1\""));
+  }
+
   @Test public void testExpires() {
     assertFalse(service.checkAndProcessLastModified(request, response, new Date(10000000), new Date(999999999)));
     assertEquals(httpFormat.format(new Date(999999999)), response.getHeader("Expires"));
@@ -32,7 +32,12 @@
 package net.sourceforge.pebble.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
 
 import org.junit.jupiter.api.Test;
 
@@ -54,4 +59,29 @@ public class FileUtilsTest {
     assertNull(FileUtils.getContentType("somefile"));
   }
 
+  @Test public void testContentEquals() throws Exception {
+    byte[] content = new byte[200 * 1024];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte)i;
+    }
+    File file1 = File.createTempFile("pebble", ".tmp");
+    File file2 = File.createTempFile("pebble", ".tmp");
+    try {
+      Files.write(file1.toPath(), content);
+      Files.write(file2.toPath(), content);
+      assertTrue(FileUtils.contentEquals(file1, file2));
+
+      // a difference in the last buffer
+      content[content.length - 1]++;
+      Files.write(file2.toPath(), content);
+      assertFalse(FileUtils.contentEquals(file1, file2));
+
+      Files.write(file2.toPath(), new byte[10]);
+      assertFalse(FileUtils.contentEquals(file1, file2));
+    } finally {
+      file1.delete();
+      file2.delete();
+    }
+  }
+
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the LruCache class.
+ */
+public class LruCacheTest {
+
+  @Test public void testLeastRecentlyUsedEntryIsForgotten() {
+    LruCache<String,String> cache = new LruCache<String,String>(2);
+    cache.put("a", "1", cache.getGeneration());
+    cache.put("b", "2", cache.getGeneration());
+    cache.get("a");
+    cache.put("c", "3", cache.getGeneration());
+
+    assertEquals(2, cache.size());
+    assertEquals("1", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals("3", cache.get("c"));
+  }
+
+  @Test public void testEntriesFromBeforeAClearAreIgnored() {
+    LruCache<String,String> cache = new LruCache<String,String>(2);
+    long generation = cache.getGeneration();
+    cache.clear();
+    cache.put("a", "1", generation);
+
+    assertNull(cache.get("a"));
+  }
+
+  @Test public void testClearedWhenTheSourceChanges() {
+    LruCache<String,String> cache = new LruCache<String,String>(2);
+    Object source = new Object();
+    cache.clearIfChanged(source);
+    cache.put("a", "1", cache.getGeneration());
+
+    cache.clearIfChanged(source);
+    assertEquals("1", cache.get("a"));
+    cache.clearIfChanged(new Object());
+    assertNull(cache.get("a"));
+  }
+
+  @Test public void testCopyStartsEmpty() throws Exception {
+    LruCache<String,String> cache = new LruCache<String,String>(2);
+    cache.put("a", "1", cache.getGeneration());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(cache);
+    out.close();
+    @SuppressWarnings("unchecked")
+    LruCache<String,String> copy = (LruCache<String,String>)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+    assertEquals(0, copy.size());
+    copy.put("b", "2", copy.getGeneration());
+    copy.put("c", "3", copy.getGeneration());
+    copy.put("d", "4", copy.getGeneration());
+    assertEquals(2, copy.size());
+  }
+
+}
@@ -190,4 +190,16 @@ public class PageableTest {
     assertEquals(13, pageable.getMaxPageRange());
   }
 
+  @Test public void testPartiallyLoadedList() {
+    pageable = new Pageable(list.subList(10, 20), 10, 30);
+    pageable.setPageSize(10);
+    pageable.setPage(2);
+
+    assertEquals(2, pageable.getPage());
+    assertEquals(3, pageable.getMaxPages());
+    assertEquals(1, pageable.getPreviousPage());
+    assertEquals(3, pageable.getNextPage());
+    assertEquals(list.subList(10, 20), pageable.getListForPage());
+  }
+
 }
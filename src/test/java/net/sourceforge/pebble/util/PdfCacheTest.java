@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+
+/**
+ * Tests for the PdfCache class.
+ */
+public class PdfCacheTest extends SingleBlogTestCase {
+
+  private String webApplicationRoot;
+  private BlogEntry blogEntry;
+
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    webApplicationRoot = PebbleContext.getInstance().getWebApplicationRoot();
+    PebbleContext.getInstance().setWebApplicationRoot(new File("src/main/webapp").getAbsolutePath());
+
+    blogEntry = new BlogEntry(blog);
+    blogEntry.setTitle("A title");
+    blogEntry.setBody("<p>Some text.</p>");
+    new BlogService().putBlogEntry(blogEntry);
+  }
+
+  @AfterEach protected void tearDown() throws Exception {
+    PebbleContext.getInstance().setWebApplicationRoot(webApplicationRoot);
+
+    super.tearDown();
+  }
+
+  @Test public void testPdfIsRenderedOnce() throws Exception {
+    File pdf = PdfCache.getPdf(blogEntry);
+    assertTrue(pdf.isFile());
+    assertEquals(PdfCache.getPdfDirectory(blog), pdf.getParentFile());
+    assertTrue(pdf.getName().startsWith(blogEntry.getId() + "-"));
+    assertEquals("%PDF", new String(Files.readAllBytes(pdf.toPath()), 0, 4, StandardCharsets.ISO_8859_1));
+
+    long lastModified = pdf.lastModified();
+    assertEquals(pdf, PdfCache.getPdf(blogEntry));
+    assertEquals(lastModified, pdf.lastModified());
+    assertEquals(1, PdfCache.getPdfDirectory(blog).list().length);
+  }
+
+  @Test public void testChangedEntryIsRenderedAgain() throws Exception {
+    File first = PdfCache.getPdf(blogEntry);
+
+    blogEntry.setBody("<p>Some different text.</p>");
+    File second = PdfCache.getPdf(blogEntry);
+
+    assertNotEquals(first, second);
+    assertFalse(first.exists());
+    assertTrue(second.exists());
+  }
+
+  @Test public void testCachedPdfsAreRemovedWhenTheEntryChanges() throws Exception {
+    BlogService service = new BlogService();
+    BlogEntry entry = service.getBlogEntry(blog, blogEntry.getId());
+    File pdf = PdfCache.getPdf(entry);
+    assertTrue(pdf.exists());
+
+    entry.setTitle("A new title");
+    service.putBlogEntry(entry);
+    assertFalse(pdf.exists());
+  }
+
+  @Test public void testConcurrentRequestsShareOneRender() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<File>> results = new ArrayList<Future<File>>();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(new Callable<File>() {
+          public File call() throws Exception {
+            return PdfCache.getPdf(blogEntry);
+          }
+        }));
+      }
+
+      File pdf = results.get(0).get();
+      for (Future<File> result : results) {
+        assertEquals(pdf, result.get());
+      }
+      assertEquals(1, PdfCache.getPdfDirectory(blog).list().length);
+      assertEquals(1, blog.getMetrics().getTimer("pdf.render").getCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
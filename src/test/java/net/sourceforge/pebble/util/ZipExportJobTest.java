@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+
+/**
+ * Tests for the ZipExportJob class.
+ */
+public class ZipExportJobTest extends SingleBlogTestCase {
+
+  @AfterEach protected void tearDown() throws Exception {
+    ZipExportJob.shutdown();
+    super.tearDown();
+  }
+
+  /**
+   * Tests that exports of different kinds run separately, rather than a
+   * request for one returning the other.
+   */
+  @Test public void testJobsAreKeptPerKind() throws Exception {
+    File logs = new File(blog.getRoot(), "logs");
+    logs.mkdirs();
+    Files.write(new File(logs, "2011-12-31.log").toPath(), "log".getBytes(StandardCharsets.UTF_8));
+
+    ZipExportJob data = ZipExportJob.start(blog, "blogData/",
+        new ZipExporter(new File(blog.getRoot()), new File(blog.getRoot())), "default.zip");
+    ZipExportJob logExport = ZipExportJob.start(blog, "blogData/logs",
+        new ZipExporter(new File(blog.getRoot()), logs), "default-logs.zip");
+    assertNotSame(data, logExport);
+
+    long timeout = System.currentTimeMillis() + 10000;
+    while ((data.isRunning() || logExport.isRunning()) && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertTrue(data.isComplete());
+    assertTrue(logExport.isComplete());
+    assertTrue(logExport.getName().startsWith("default-logs-"));
+
+    List<ZipExportJob> jobs = ZipExportJob.getJobs(blog);
+    assertEquals(2, jobs.size());
+    assertTrue(jobs.contains(data));
+    assertTrue(jobs.contains(logExport));
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the ZipExporter class.
+ */
+public class ZipExporterTest {
+
+  @TempDir File root;
+
+  @Test public void testExport() throws Exception {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      text.append("Line ").append(i).append('\n');
+    }
+    write("blog.properties", "name=My blog");
+    write("2011/12/31/1325289600000.xml", text.toString());
+    write("files/images/photo.PNG", "not really a png");
+    byte[] video = new byte[2 * 1024 * 1024];
+    for (int i = 0; i < video.length; i++) {
+      video[i] = (byte)(i * 31);
+    }
+    Files.write(new File(root, "files/video.mp4").toPath(), video);
+    write("files/exports/default-20111231.zip", "previous export");
+    byte[] large = new byte[3 * 1024 * 1024];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte)('a' + (i % 7));
+    }
+    new File(root, "logs").mkdirs();
+    Files.write(new File(root, "logs/large.log").toPath(), large);
+    new File(root, "empty").mkdirs();
+
+    ZipExporter exporter = new ZipExporter(root, root);
+    exporter.setExcluded(new File(root, "files/exports"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exporter.export(out);
+
+    Map<String,ZipEntry> entries = new HashMap<String,ZipEntry>();
+    Map<String,byte[]> contents = new HashMap<String,byte[]>();
+    ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+    ZipEntry entry;
+    while ((entry = in.getNextEntry()) != null) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buf = new byte[8192];
+      int len;
+      while ((len = in.read(buf)) > 0) {
+        bytes.write(buf, 0, len);
+      }
+      entries.put(entry.getName(), entry);
+      contents.put(entry.getName(), bytes.toByteArray());
+    }
+
+    assertEquals(5, entries.size());
+    assertEquals(5, exporter.getFilesWritten());
+    assertEquals("name=My blog", new String(contents.get("blog.properties"), StandardCharsets.UTF_8));
+    assertEquals(text.toString(), new String(contents.get("2011/12/31/1325289600000.xml"), StandardCharsets.UTF_8));
+    assertTrue(Arrays.equals(large, contents.get("logs/large.log")));
+    assertEquals(ZipEntry.DEFLATED, entries.get("2011/12/31/1325289600000.xml").getMethod());
+    assertEquals(ZipEntry.STORED, entries.get("files/images/photo.PNG").getMethod());
+    assertEquals("not really a png", new String(contents.get("files/images/photo.PNG"), StandardCharsets.UTF_8));
+    // large files are read once, so they're streamed rather than stored
+    assertEquals(ZipEntry.DEFLATED, entries.get("files/video.mp4").getMethod());
+    assertTrue(Arrays.equals(video, contents.get("files/video.mp4")));
+    assertEquals(ZipEntry.DEFLATED, entries.get("logs/large.log").getMethod());
+    assertFalse(entries.containsKey("files/exports/default-20111231.zip"));
+  }
+
+  @Test public void testExportSubdirectory() throws Exception {
+    write("logs/2011-12-31.log", "log");
+    write("blog.properties", "name=My blog");
+
+    ZipExporter exporter = new ZipExporter(root, new File(root, "logs"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exporter.export(out);
+
+    ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals("logs/2011-12-31.log", in.getNextEntry().getName());
+    assertNull(in.getNextEntry());
+  }
+
+  @Test public void testExportAfterShutdown() throws Exception {
+    write("blog.properties", "name=My blog");
+    ZipExporter.shutdown();
+
+    ZipExporter exporter = new ZipExporter(root, root);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exporter.export(out);
+
+    ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals("blog.properties", in.getNextEntry().getName());
+  }
+
+  @Test public void testGetSize() throws Exception {
+    write("a.txt", "12345");
+    write("b/c.txt", "1234567890");
+    write("exports/d.zip", "1234567890");
+
+    ZipExporter exporter = new ZipExporter(root, root);
+    exporter.setExcluded(new File(root, "exports"));
+    assertEquals(15, exporter.getSize(Long.MAX_VALUE));
+    assertTrue(exporter.getSize(3) > 3);
+  }
+
+  @Test public void testIsCompressed() {
+    assertTrue(ZipExporter.isCompressed("photo.JPG"));
+    assertTrue(ZipExporter.isCompressed("archive.tar.gz"));
+    assertFalse(ZipExporter.isCompressed("entry.xml"));
+    assertFalse(ZipExporter.isCompressed("README"));
+  }
+
+  private void write(String path, String content) throws Exception {
+    File file = new File(root, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
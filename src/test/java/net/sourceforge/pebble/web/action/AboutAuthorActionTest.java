@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.web.action;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.Constants;
+import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.security.PebbleUserDetails;
+import net.sourceforge.pebble.util.Pageable;
+import net.sourceforge.pebble.web.view.NotFoundView;
+import net.sourceforge.pebble.web.view.View;
+import net.sourceforge.pebble.web.view.impl.AboutAuthorView;
+
+/**
+ * Tests for the AboutAuthorAction class.
+ */
+public class AboutAuthorActionTest extends SingleBlogActionTestCase {
+
+  @BeforeEach protected void setUp() throws Exception {
+    action = new AboutAuthorAction();
+
+    super.setUp();
+
+    PebbleUserDetails user = new PebbleUserDetails("sbrown", "", "Simon Brown", "", "", "", new String[]{}, new HashMap<String,String>(), true);
+    PebbleContext.getInstance().getConfiguration().getSecurityRealm().createUser(user);
+  }
+
+  @Test public void testLastPage() throws Exception {
+    BlogService service = new BlogService();
+    long now = System.currentTimeMillis();
+    int pageSize = blog.getRecentBlogEntriesOnHomePage();
+    int numberOfBlogEntries = pageSize + 1;
+    for (int i = 0; i < numberOfBlogEntries; i++) {
+      BlogEntry blogEntry = new BlogEntry(blog);
+      blogEntry.setDate(new Date(now - (i * 60000)));
+      blogEntry.setAuthor("sbrown");
+      blogEntry.setPublished(true);
+      service.putBlogEntry(blogEntry);
+    }
+    request.setParameter("user", "sbrown");
+    request.setParameter("page", "2");
+
+    View view = action.process(request, response);
+    assertTrue(view instanceof AboutAuthorView);
+    assertEquals("author", model.get("displayMode"));
+
+    Pageable pageable = (Pageable)model.get("pageable");
+    assertEquals(2, pageable.getPage());
+    assertEquals(2, pageable.getMaxPages());
+
+    List<BlogEntry> blogEntries = (List<BlogEntry>)model.get(Constants.BLOG_ENTRIES);
+    assertEquals(1, blogEntries.size());
+    assertEquals("" + (now - (pageSize * 60000)), blogEntries.get(0).getId());
+  }
+
+  @Test public void testUnknownAuthor() throws Exception {
+    request.setParameter("user", "nobody");
+    assertTrue(action.process(request, response) instanceof NotFoundView);
+  }
+
+}
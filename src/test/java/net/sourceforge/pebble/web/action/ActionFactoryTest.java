@@ -32,6 +32,7 @@
 package net.sourceforge.pebble.web.action;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -64,6 +65,11 @@ public class ActionFactoryTest extends PebbleTestCase {
     assertTrue(factory.getAction("viewDay") instanceof ViewDayAction);
   }
 
+  @Test public void testActionsAreNotShared() throws Exception {
+    // action classes are cached, but each request still gets its own instance
+    assertNotSame(factory.getAction("viewDay"), factory.getAction("viewDay"));
+  }
+
   @Test public void testActionNotFound() {
     try {
       assertNotNull(factory.getAction("SomeUnknownAction"));
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.web.action;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.Constants;
+import net.sourceforge.pebble.util.ZipExportJob;
+import net.sourceforge.pebble.web.view.FileView;
+import net.sourceforge.pebble.web.view.NotFoundView;
+import net.sourceforge.pebble.web.view.View;
+
+/**
+ * Tests for the DownloadExportAction class.
+ */
+public class DownloadExportActionTest extends SecureActionTestCase {
+
+  private File exports;
+
+  @BeforeEach protected void setUp() throws Exception {
+    action = new DownloadExportAction();
+
+    super.setUp();
+
+    exports = ZipExportJob.getExportDirectory(blog);
+    exports.mkdirs();
+  }
+
+  @Test public void testExportsAreNotInThePublicFilesArea() {
+    assertEquals(new File(blog.getRoot(), ZipExportJob.EXPORTS_DIRECTORY), exports);
+  }
+
+  @Test public void testDownloadArchive() throws Exception {
+    new File(exports, "export-1234.zip").createNewFile();
+    request.setParameter("name", "export-1234.zip");
+    View view = action.process(request, response);
+    assertTrue(view instanceof FileView);
+  }
+
+  @Test public void testArchivesOutsideTheExportDirectoryAreNotFound() throws Exception {
+    new File(blog.getRoot(), "secret.zip").createNewFile();
+    request.setParameter("name", "../secret.zip");
+    View view = action.process(request, response);
+    assertTrue(view instanceof NotFoundView);
+  }
+
+  @Test public void testExpiredArchivesAreNotFoundAndDeleted() throws Exception {
+    File archive = new File(exports, "export-1234.zip");
+    archive.createNewFile();
+    archive.setLastModified(System.currentTimeMillis() - 2 * 24 * 60 * 60 * 1000L);
+    request.setParameter("name", "export-1234.zip");
+    View view = action.process(request, response);
+    assertTrue(view instanceof NotFoundView);
+
+    ZipExportJob.deleteExpiredExports(blog);
+    assertTrue(!archive.exists());
+  }
+
+  @Test public void testOnlyBlogOwnersHaveAccess() {
+    String roles[] = action.getRoles(request);
+    assertEquals(1, roles.length);
+    assertEquals(Constants.BLOG_OWNER_ROLE, roles[0]);
+  }
+
+}
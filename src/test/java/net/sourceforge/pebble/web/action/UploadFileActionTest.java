@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.web.action;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.PebbleContext;
+import net.sourceforge.pebble.domain.FileManager;
+import net.sourceforge.pebble.domain.FileMetaData;
+import net.sourceforge.pebble.web.view.RedirectView;
+import net.sourceforge.pebble.web.view.View;
+import net.sourceforge.pebble.web.view.impl.FileTooLargeView;
+import net.sourceforge.pebble.web.view.impl.NotEnoughSpaceView;
+
+/**
+ * Tests for the UploadFileAction class.
+ */
+public class UploadFileActionTest extends SecureActionTestCase {
+
+  private static final String BOUNDARY = "----pebbleBoundary";
+
+  private ByteArrayOutputStream body;
+
+  @BeforeEach protected void setUp() throws Exception {
+    action = new UploadFileToBlogAction();
+
+    super.setUp();
+
+    body = new ByteArrayOutputStream();
+  }
+
+  private void addField(String name, String value) throws Exception {
+    body.write(("--" + BOUNDARY + "\r\n" +
+        "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" +
+        value + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private void addFile(String name, String filename, byte[] content) throws Exception {
+    body.write(("--" + BOUNDARY + "\r\n" +
+        "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n" +
+        "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+    body.write(content);
+    body.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private View upload() throws Exception {
+    body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+    request.setMethod("POST");
+    request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+    request.setContent(body.toByteArray());
+
+    return action.process(request, response);
+  }
+
+  private String[] listFiles(File directory) {
+    String[] names = directory.list();
+    return names != null ? names : new String[0];
+  }
+
+  @Test public void testUploadUsesNameFromFormFieldThatFollowsTheFile() throws Exception {
+    addField("path", "/");
+    addFile("file0", "original.txt", "Some content.".getBytes(StandardCharsets.ISO_8859_1));
+    addField("filename0", "renamed.txt");
+    addFile("file1", "", new byte[0]);
+    addField("filename1", "");
+    View view = upload();
+
+    assertTrue(view instanceof RedirectView);
+    File root = new FileManager(blog, FileMetaData.BLOG_FILE).getRootDirectory();
+    assertEquals("Some content.", new String(Files.readAllBytes(new File(root, "renamed.txt").toPath()), StandardCharsets.ISO_8859_1));
+    assertFalse(new File(root, "original.txt").exists());
+    assertEquals(1, listFiles(root).length);
+  }
+
+  @Test public void testUploadUsesFilenameWhenNoneGiven() throws Exception {
+    addField("path", "/sub");
+    addFile("file0", "original.txt", "Some content.".getBytes(StandardCharsets.ISO_8859_1));
+    addField("filename0", "");
+    upload();
+
+    File root = new FileManager(blog, FileMetaData.BLOG_FILE).getRootDirectory();
+    assertTrue(new File(root, "sub/original.txt").exists());
+  }
+
+  @Test public void testDuplicateFilePartsAreIgnored() throws Exception {
+    addField("path", "/");
+    addFile("file0", "first.txt", "First.".getBytes(StandardCharsets.ISO_8859_1));
+    addFile("file0", "second.txt", "Second file.".getBytes(StandardCharsets.ISO_8859_1));
+    addField("filename0", "");
+    upload();
+
+    File root = new FileManager(blog, FileMetaData.BLOG_FILE).getRootDirectory();
+    assertEquals(1, listFiles(root).length);
+    assertTrue(new File(root, "first.txt").exists());
+    assertEquals(0, listFiles(new File(blog.getRoot(), "uploads")).length);
+    assertEquals(6.0 / 1024, FileManager.getCurrentUsage(blog), 0.0001);
+  }
+
+  @Test public void testUploadOutsideRootIsForbidden() throws Exception {
+    addField("path", "/");
+    addFile("file0", "original.txt", "Some content.".getBytes(StandardCharsets.ISO_8859_1));
+    addField("filename0", "../../outside.txt");
+    View view = upload();
+
+    assertEquals(null, view);
+    assertEquals(403, response.getStatus());
+    File root = new FileManager(blog, FileMetaData.BLOG_FILE).getRootDirectory();
+    assertEquals(0, listFiles(root).length);
+  }
+
+  @Test public void testUploadOverQuotaIsRejectedAndCleanedUp() throws Exception {
+    PebbleContext.getInstance().getConfiguration().setFileUploadQuota(1);
+    addField("path", "/");
+    addFile("file0", "big.bin", new byte[4096]);
+    addField("filename0", "");
+    View view = upload();
+
+    assertTrue(view instanceof NotEnoughSpaceView);
+    File root = new FileManager(blog, FileMetaData.BLOG_FILE).getRootDirectory();
+    assertEquals(0, listFiles(root).length);
+    assertEquals(0, FileManager.getCurrentUsage(blog), 0.001);
+  }
+
+  @Test public void testUploadOverSizeLimitIsRejected() throws Exception {
+    PebbleContext.getInstance().getConfiguration().setFileUploadSize(1);
+    addField("path", "/");
+    addFile("file0", "big.bin", new byte[4096]);
+    addField("filename0", "");
+    View view = upload();
+
+    assertTrue(view instanceof FileTooLargeView);
+    File root = new FileManager(blog, FileMetaData.BLOG_FILE).getRootDirectory();
+    assertEquals(0, listFiles(root).length);
+  }
+
+  @Test public void testThemeUploadIsAlsoCopiedToBlogDirectory() throws Exception {
+    action = new UploadFileToThemeAction();
+    action.setModel(model);
+    addField("path", "/");
+    addFile("file0", "theme.css", "body {}".getBytes(StandardCharsets.ISO_8859_1));
+    addField("filename0", "");
+    upload();
+
+    File live = new File(blog.getEditableTheme().getPathToLiveTheme(), "theme.css");
+    File copy = new File(blog.getRoot(), "theme/theme.css");
+    assertTrue(live.exists());
+    assertTrue(copy.exists());
+    assertEquals("body {}", new String(Files.readAllBytes(copy.toPath()), StandardCharsets.ISO_8859_1));
+  }
+
+}
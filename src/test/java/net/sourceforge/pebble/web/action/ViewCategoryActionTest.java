@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.web.action;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.Constants;
+import net.sourceforge.pebble.domain.BlogEntry;
+import net.sourceforge.pebble.domain.BlogService;
+import net.sourceforge.pebble.domain.Category;
+import net.sourceforge.pebble.util.Pageable;
+import net.sourceforge.pebble.web.view.NotFoundView;
+import net.sourceforge.pebble.web.view.View;
+import net.sourceforge.pebble.web.view.impl.BlogEntriesByCategoryView;
+
+/**
+ * Tests for the ViewCategoryAction class.
+ */
+public class ViewCategoryActionTest extends SingleBlogActionTestCase {
+
+  private Category category;
+  private long time = System.currentTimeMillis();
+
+  @BeforeEach protected void setUp() throws Exception {
+    action = new ViewCategoryAction();
+
+    super.setUp();
+
+    category = new Category("/java", "Java");
+    blog.addCategory(category);
+  }
+
+  private void createBlogEntries(int numberOfBlogEntries, boolean published) throws Exception {
+    BlogService service = new BlogService();
+    for (int i = 0; i < numberOfBlogEntries; i++) {
+      BlogEntry blogEntry = new BlogEntry(blog);
+      blogEntry.setDate(new Date(time));
+      time -= 60000;
+      blogEntry.addCategory(category);
+      blogEntry.setPublished(published);
+      service.putBlogEntry(blogEntry);
+    }
+  }
+
+  @Test public void testFirstPage() throws Exception {
+    createBlogEntries(7, true);
+    createBlogEntries(1, false);
+    int pageSize = blog.getRecentBlogEntriesOnHomePage();
+    request.setParameter("category", "/java");
+
+    View view = action.process(request, response);
+    assertTrue(view instanceof BlogEntriesByCategoryView);
+    assertEquals(category, model.get(Constants.CATEGORY_KEY));
+    assertEquals("category", model.get("displayMode"));
+
+    Pageable pageable = (Pageable)model.get("pageable");
+    assertEquals(1, pageable.getPage());
+    assertEquals((7 + pageSize - 1) / pageSize, pageable.getMaxPages());
+    List<BlogEntry> blogEntries = (List<BlogEntry>)model.get(Constants.BLOG_ENTRIES);
+    assertEquals(Math.min(7, pageSize), blogEntries.size());
+    assertEquals(blog.getCategoryIndex().getRecentBlogEntries(category).get(0), blogEntries.get(0).getId());
+    for (BlogEntry blogEntry : blogEntries) {
+      assertTrue(blogEntry.isPublished());
+    }
+  }
+
+  @Test public void testLastPageIsUsedWhenPageIsOutOfRange() throws Exception {
+    createBlogEntries(7, true);
+    int pageSize = blog.getRecentBlogEntriesOnHomePage();
+    int maxPages = (7 + pageSize - 1) / pageSize;
+    request.setParameter("category", "java");
+    request.setParameter("page", "99");
+
+    action.process(request, response);
+    Pageable pageable = (Pageable)model.get("pageable");
+    assertEquals(maxPages, pageable.getPage());
+    assertEquals(0, pageable.getNextPage());
+
+    List<String> blogEntryIds = blog.getCategoryIndex().getRecentBlogEntries(category);
+    List<BlogEntry> blogEntries = (List<BlogEntry>)model.get(Constants.BLOG_ENTRIES);
+    assertEquals(7 - ((maxPages - 1) * pageSize), blogEntries.size());
+    assertEquals(blogEntryIds.get(6), blogEntries.get(blogEntries.size() - 1).getId());
+  }
+
+  @Test public void testUnknownCategory() throws Exception {
+    request.setParameter("category", "/unknown");
+    assertTrue(action.process(request, response) instanceof NotFoundView);
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.web.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.Constants;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+import net.sourceforge.pebble.mock.MockHttpServletRequest;
+import net.sourceforge.pebble.mock.MockHttpServletResponse;
+import net.sourceforge.pebble.service.DefaultLastModifiedService;
+import net.sourceforge.pebble.web.action.Action;
+import net.sourceforge.pebble.web.action.VersionedContent;
+import net.sourceforge.pebble.web.security.SecurityTokenValidatorImpl;
+import net.sourceforge.pebble.web.view.View;
+
+/**
+ * Tests for the DefaultHttpController class.
+ */
+public class DefaultHttpControllerTest extends SingleBlogTestCase {
+
+  private DefaultHttpController controller;
+  private MockHttpServletRequest request;
+  private MockHttpServletResponse response;
+
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    controller = new DefaultHttpController();
+    controller.setLastModifiedService(new DefaultLastModifiedService());
+
+    request = new MockHttpServletRequest();
+    request.setMethod("GET");
+    request.setRequestUri("/versioned.action");
+    request.setAttribute(Constants.BLOG_KEY, blog);
+    response = new MockHttpServletResponse();
+  }
+
+  /**
+   * A response that mints a security token cookie mustn't be stored by
+   * shared caches.
+   */
+  @Test
+  public void testNewSecurityTokenKeepsPagePrivate() throws Exception {
+    controller.setActionFactory(name -> new VersionedAction(false));
+    controller.setSecurityTokenValidator(new SecurityTokenValidatorImpl());
+    controller.processRequest(request, response, null);
+
+    assertEquals(1, response.getCookies().size());
+    assertTrue(response.getHeader("Cache-Control").startsWith("private"));
+  }
+
+  @Test
+  public void testPageWithoutCookiesIsPublic() throws Exception {
+    controller.setActionFactory(name -> new VersionedAction(false));
+    controller.setSecurityTokenValidator(new AcceptingSecurityTokenValidator());
+    controller.processRequest(request, response, null);
+
+    assertTrue(response.getCookies().isEmpty());
+    assertTrue(response.getHeader("Cache-Control").startsWith("public"));
+  }
+
+  /**
+   * Cookies set after the cache headers (e.g. by the action) take the
+   * page back out of shared caches.
+   */
+  @Test
+  public void testCookieSetByActionKeepsPagePrivate() throws Exception {
+    controller.setActionFactory(name -> new VersionedAction(true));
+    controller.setSecurityTokenValidator(new AcceptingSecurityTokenValidator());
+    controller.processRequest(request, response, null);
+
+    assertEquals(1, response.getCookies().size());
+    assertTrue(response.getHeader("Cache-Control").startsWith("private"));
+  }
+
+  @Test
+  public void testRequestWithCookiesIsPrivate() throws Exception {
+    request.setCookies(new Cookie(SecurityTokenValidatorImpl.PEBBLE_SECURITY_TOKEN_PARAMETER, "0123456789abcdef"));
+    controller.setActionFactory(name -> new VersionedAction(false));
+    controller.setSecurityTokenValidator(new SecurityTokenValidatorImpl());
+    controller.processRequest(request, response, null);
+
+    assertTrue(response.getCookies().isEmpty());
+    assertTrue(response.getHeader("Cache-Control").startsWith("private"));
+  }
+
+  @VersionedContent
+  private static class VersionedAction extends Action {
+
+    private final boolean setCookie;
+
+    private VersionedAction(boolean setCookie) {
+      this.setCookie = setCookie;
+    }
+
+    public View process(HttpServletRequest request, HttpServletResponse response) {
+      if (setCookie) {
+        response.addCookie(new Cookie("name", "value"));
+      }
+      return null;
+    }
+  }
+
+  private static class AcceptingSecurityTokenValidator extends SecurityTokenValidatorImpl {
+
+    @Override
+    public boolean validateSecurityToken(HttpServletRequest request, HttpServletResponse response, Action action) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2003-2011, Simon Brown
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   - Neither the name of Pebble nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.sourceforge.pebble.web.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pebble.Constants;
+import net.sourceforge.pebble.domain.SingleBlogTestCase;
+import net.sourceforge.pebble.mock.MockHttpServletRequest;
+import net.sourceforge.pebble.mock.MockHttpServletResponse;
+import net.sourceforge.pebble.service.DefaultLastModifiedService;
+import net.sourceforge.pebble.web.model.Model;
+
+/**
+ * Tests for the FileView class.
+ */
+public class FileViewTest extends SingleBlogTestCase {
+
+  private FileView view;
+  private MockHttpServletRequest request;
+  private MockHttpServletResponse response;
+
+  @BeforeEach protected void setUp() throws Exception {
+    super.setUp();
+
+    File file = new File(TEST_BLOG_LOCATION, "file.txt");
+    FileWriter writer = new FileWriter(file);
+    writer.write("0123456789");
+    writer.close();
+
+    view = new FileView(file, new DefaultLastModifiedService(), null);
+    Model model = new Model();
+    model.put(Constants.BLOG_KEY, blog);
+    view.setModel(model);
+
+    request = new MockHttpServletRequest();
+    request.setAttribute(Constants.EXTERNAL_URI, "/files/test.txt");
+    response = new MockHttpServletResponse();
+  }
+
+  @Test public void testWholeFile() throws Exception {
+    view.dispatch(request, response, null);
+
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals("bytes", response.getHeader("Accept-Ranges"));
+    assertEquals("0123456789", new String(response.getContent(), "ISO-8859-1"));
+  }
+
+  @Test public void testSingleRange() throws Exception {
+    request.setHeader("Range", "bytes=2-4");
+    view.dispatch(request, response, null);
+
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+    assertEquals("234", new String(response.getContent(), "ISO-8859-1"));
+  }
+
+  @Test public void testSuffixRange() throws Exception {
+    request.setHeader("Range", "bytes=-3");
+    view.dispatch(request, response, null);
+
+    assertEquals("bytes 7-9/10", response.getHeader("Content-Range"));
+    assertEquals("789", new String(response.getContent(), "ISO-8859-1"));
+  }
+
+  @Test public void testMultipleRanges() throws Exception {
+    request.setHeader("Range", "bytes=0-1,8-");
+    view.dispatch(request, response, null);
+
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    String content = new String(response.getContent(), "ISO-8859-1");
+    assertTrue(content.contains("Content-Range: bytes 0-1/10\r\n\r\n01\r\n"));
+    assertTrue(content.contains("Content-Range: bytes 8-9/10\r\n\r\n89\r\n"));
+    assertTrue(content.endsWith("--\r\n"));
+  }
+
+  @Test public void testUnsatisfiableRange() throws Exception {
+    request.setHeader("Range", "bytes=20-30");
+    view.dispatch(request, response, null);
+
+    assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+    assertEquals("bytes */10", response.getHeader("Content-Range"));
+  }
+
+  @Test public void testRangeIgnoredWhenIfRangeDoesNotMatch() throws Exception {
+    request.setHeader("Range", "bytes=2-4");
+    request.setHeader("If-Range", "\"something else\"");
+    view.dispatch(request, response, null);
+
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals("0123456789", new String(response.getContent(), "ISO-8859-1"));
+  }
+
+  @Test public void testNotModified() throws Exception {
+    MockHttpServletResponse first = new MockHttpServletResponse();
+    view.dispatch(request, first, null);
+
+    request.setHeader("If-None-Match", first.getHeader("ETag"));
+    view.dispatch(request, response, null);
+
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+    assertEquals(0, response.getContent().length);
+  }
+
+  @Test public void testParseRanges() {
+    List<long[]> ranges = FileView.parseRanges("bytes=0-0, 5-100", 10);
+    assertEquals(2, ranges.size());
+    assertEquals(9, ranges.get(1)[1]);
+
+    assertNull(FileView.parseRanges("bytes=5-2", 10));
+    assertNull(FileView.parseRanges("lines=1-2", 10));
+    assertTrue(FileView.parseRanges("bytes=10-", 10).isEmpty());
+  }
+
+  @Test public void testOverlappingRangesAreCoalesced() throws Exception {
+    List<long[]> ranges = FileView.parseRanges("bytes=8-, 0-1, 1-3, 0-1, 4-4, -1", 10);
+    assertEquals(2, ranges.size());
+    assertEquals(0, ranges.get(0)[0]);
+    assertEquals(4, ranges.get(0)[1]);
+    assertEquals(8, ranges.get(1)[0]);
+    assertEquals(9, ranges.get(1)[1]);
+
+    // ranges that collapse into one are sent as a single part
+    request.setHeader("Range", "bytes=0-5,0-5,2-3,6-7");
+    view.dispatch(request, response, null);
+
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    assertEquals("bytes 0-7/10", response.getHeader("Content-Range"));
+    assertEquals("01234567", new String(response.getContent(), "ISO-8859-1"));
+  }
+
+}